@@ -0,0 +1,149 @@
+package com.example.culturalxinjiang.config;
+
+import com.example.culturalxinjiang.service.AiRequestScope;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * AI 服务调用的 HTTP 客户端配置
+ * <p>
+ * 使用连接池复用 keep-alive 连接和 TLS 会话，每个 AI 服务商（按接口地址的主机区分）单独限制连接数。
+ * 连接超时、读取超时与整体生成时限（ai.deepseek.timeout）分开配置，
+ * 连接池状态通过 ai.http.pool.* 指标暴露。发出的请求登记到 {@link AiRequestScope}，可被主动中止。
+ */
+@Configuration
+public class AiHttpClientConfig {
+
+    @Value("${ai.deepseek.api-url:https://api.deepseek.com/v1/chat/completions}")
+    private String deepseekApiUrl;
+
+    @Value("${ai.openai.api-url:https://api.openai.com/v1/chat/completions}")
+    private String openaiApiUrl;
+
+    @Value("${ai.deepseek.max-connections:${ai.http.max-connections-per-provider:20}}")
+    private int deepseekMaxConnections;
+
+    @Value("${ai.openai.max-connections:${ai.http.max-connections-per-provider:20}}")
+    private int openaiMaxConnections;
+
+    @Value("${ai.http.connect-timeout:5000}")
+    private long connectTimeout;
+
+    @Value("${ai.http.read-timeout:300000}")
+    private long readTimeout;
+
+    // 连接池已满时等待空闲连接的最长时间
+    @Value("${ai.http.pool-wait-timeout:30000}")
+    private long poolWaitTimeout;
+
+    @Value("${ai.http.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager aiConnectionManager() {
+        Map<String, HttpRoute> routes = providerRoutes();
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(Math.max(1, deepseekMaxConnections + openaiMaxConnections))
+                .setMaxConnPerRoute(Math.max(1, Math.max(deepseekMaxConnections, openaiMaxConnections)))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+        connectionManager.setMaxPerRoute(routes.get("deepseek"), Math.max(1, deepseekMaxConnections));
+        connectionManager.setMaxPerRoute(routes.get("openai"), Math.max(1, openaiMaxConnections));
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient aiHttpClient(PoolingHttpClientConnectionManager aiConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(aiConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolWaitTimeout))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate aiRestTemplate(CloseableHttpClient aiHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(aiHttpClient) {
+            @Override
+            protected void postProcessHttpRequest(ClassicHttpRequest request) {
+                // 登记到调用线程的取消范围，对冲请求落败时可中止
+                if (request instanceof Cancellable cancellable) {
+                    AiRequestScope.register(cancellable::cancel);
+                }
+            }
+        });
+    }
+
+    @Bean
+    public MeterBinder aiConnectionPoolMetrics(PoolingHttpClientConnectionManager aiConnectionManager) {
+        return registry -> providerRoutes().forEach((provider, route) -> {
+            registerPoolGauge(registry, "ai.http.pool.leased", "已借出的连接数", provider,
+                    () -> aiConnectionManager.getStats(route), PoolStats::getLeased);
+            registerPoolGauge(registry, "ai.http.pool.available", "空闲可复用的连接数", provider,
+                    () -> aiConnectionManager.getStats(route), PoolStats::getAvailable);
+            registerPoolGauge(registry, "ai.http.pool.pending", "等待连接的请求数", provider,
+                    () -> aiConnectionManager.getStats(route), PoolStats::getPending);
+            registerPoolGauge(registry, "ai.http.pool.max", "连接数上限", provider,
+                    () -> aiConnectionManager.getStats(route), PoolStats::getMax);
+        });
+    }
+
+    private void registerPoolGauge(MeterRegistry registry, String name, String description, String provider,
+                                   Supplier<PoolStats> stats, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(name, stats, supplier -> value.applyAsDouble(supplier.get()))
+                .description(description)
+                .tag("provider", provider)
+                .register(registry);
+    }
+
+    private Map<String, HttpRoute> providerRoutes() {
+        Map<String, HttpRoute> routes = new LinkedHashMap<>();
+        routes.put("deepseek", toRoute(deepseekApiUrl));
+        routes.put("openai", toRoute(openaiApiUrl));
+        return routes;
+    }
+
+    /**
+     * 与客户端内部路由规划一致：补全默认端口，https 视为安全路由
+     */
+    private HttpRoute toRoute(String apiUrl) {
+        URI uri = URI.create(apiUrl);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        HttpHost target = new HttpHost(uri.getScheme(), uri.getHost(), port);
+        return new HttpRoute(target, null, secure);
+    }
+}
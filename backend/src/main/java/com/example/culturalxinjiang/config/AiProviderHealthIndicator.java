@@ -0,0 +1,23 @@
+package com.example.culturalxinjiang.config;
+
+import com.example.culturalxinjiang.service.AiProviderGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 在 /actuator/health 中展示 AI 服务商的熔断状态与并发限制
+ * AI 不可用时路线生成会降级为本地兜底，因此始终报告 UP，仅在详情中体现状态
+ */
+@Component("aiProviders")
+@RequiredArgsConstructor
+public class AiProviderHealthIndicator implements HealthIndicator {
+
+    private final AiProviderGuard aiProviderGuard;
+
+    @Override
+    public Health health() {
+        return Health.up().withDetails(aiProviderGuard.snapshot()).build();
+    }
+}
@@ -6,6 +6,7 @@ import com.example.culturalxinjiang.dto.request.UpdatePostRequest;
 import com.example.culturalxinjiang.dto.response.ApiResponse;
 import com.example.culturalxinjiang.dto.response.CommunityPostDetailResponse;
 import com.example.culturalxinjiang.dto.response.CommunityPostResponse;
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
 import com.example.culturalxinjiang.dto.response.MyCommentResponse;
 import com.example.culturalxinjiang.dto.response.PageResponse;
 import com.example.culturalxinjiang.service.CommunityService;
@@ -30,6 +31,18 @@ public class CommunityController {
         return ApiResponse.success(response);
     }
 
+    /**
+     * 帖子信息流（游标分页，不返回总数），sort 为 hot 时按热度，否则按发布时间
+     */
+    @GetMapping("/feed")
+    public ApiResponse<CursorPageResponse<CommunityPostResponse>> getPostFeed(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        return ApiResponse.success(communityService.getPostFeed(sort, cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ApiResponse<CommunityPostDetailResponse> getPostDetail(@PathVariable Long id) {
         CommunityPostDetailResponse response = communityService.getPostDetail(id);
@@ -74,6 +87,31 @@ public class CommunityController {
         return ApiResponse.success(null);
     }
 
+    /**
+     * 评论区分页，cursor 取上一页返回的 nextCursor
+     */
+    @GetMapping("/{id}/comments")
+    public ApiResponse<CursorPageResponse<CommunityPostDetailResponse.CommentResponse>> getComments(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        return ApiResponse.success(communityService.getComments(id, cursor, size));
+    }
+
+    /**
+     * 加载更多回复，cursor 取评论的 replyCursor 或上一页返回的 nextCursor
+     */
+    @GetMapping("/{id}/comments/{commentId}/replies")
+    public ApiResponse<CursorPageResponse<CommunityPostDetailResponse.CommentResponse>> getReplies(
+            @PathVariable Long id,
+            @PathVariable Long commentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        return ApiResponse.success(communityService.getReplies(id, commentId, cursor, size));
+    }
+
     @GetMapping("/comments/my")
     public ApiResponse<PageResponse<MyCommentResponse>> getMyComments(
             @RequestParam(defaultValue = "1") Integer page,
@@ -104,6 +142,17 @@ public class CommunityController {
         return ApiResponse.success(response);
     }
 
+    /**
+     * 我的投稿（游标分页，不返回总数）
+     */
+    @GetMapping("/my/feed")
+    public ApiResponse<CursorPageResponse<CommunityPostResponse>> getMyPostFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        return ApiResponse.success(communityService.getMyPostFeed(cursor, size));
+    }
+
     @GetMapping("/liked")
     public ApiResponse<PageResponse<CommunityPostResponse>> getLikedPosts(
             @RequestParam(defaultValue = "1") Integer page,
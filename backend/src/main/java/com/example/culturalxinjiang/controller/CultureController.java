@@ -57,7 +57,6 @@ public class CultureController {
             @PathVariable Long id
     ) {
         CultureResourceResponse response = cultureResourceService.getDetail(type, id);
-        cultureResourceService.incrementViews(id);
         return ApiResponse.success(response);
     }
 
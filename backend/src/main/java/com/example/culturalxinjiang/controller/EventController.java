@@ -1,6 +1,7 @@
 package com.example.culturalxinjiang.controller;
 
 import com.example.culturalxinjiang.dto.response.ApiResponse;
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
 import com.example.culturalxinjiang.dto.response.EventCalendarResponse;
 import com.example.culturalxinjiang.dto.response.EventDetailResponse;
 import com.example.culturalxinjiang.dto.response.EventResponse;
@@ -38,6 +39,28 @@ public class EventController {
         return ApiResponse.success(response);
     }
 
+    /**
+     * 活动信息流（游标分页，不返回总数），按发布时间倒序
+     */
+    @GetMapping("/feed")
+    public ApiResponse<CursorPageResponse<EventResponse>> getEventFeed(
+            @RequestParam(required = false) String month,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Event.EventType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        Event.EventStatus eventStatus = null;
+        if (status != null) {
+            try {
+                eventStatus = Event.EventStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // 如果转换失败，保持为 null，表示不过滤
+            }
+        }
+        return ApiResponse.success(eventService.getEventFeed(month, eventStatus, type, cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ApiResponse<EventDetailResponse> getEventDetail(@PathVariable Long id) {
         EventDetailResponse response = eventService.getEventDetail(id);
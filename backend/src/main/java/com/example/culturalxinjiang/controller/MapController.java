@@ -2,19 +2,40 @@ package com.example.culturalxinjiang.controller;
 
 import com.example.culturalxinjiang.dto.response.ApiResponse;
 import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.dto.response.MapPoiSyncResponse;
+import com.example.culturalxinjiang.dto.response.NearbyResponse;
+import com.example.culturalxinjiang.service.MapPoiSyncService;
 import com.example.culturalxinjiang.service.MapService;
+import com.example.culturalxinjiang.service.MapTileService;
+import com.example.culturalxinjiang.service.NearbyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/map")
 @RequiredArgsConstructor
 public class MapController {
 
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
     private final MapService mapService;
+    private final MapTileService mapTileService;
+    private final NearbyService nearbyService;
+    private final MapPoiSyncService mapPoiSyncService;
+
+    @Value("${app.map.tiles.max-age-seconds:300}")
+    private long tileMaxAgeSeconds;
 
     @GetMapping("/pois")
     public ApiResponse<MapPoiResponse> getMapPois(
@@ -35,6 +56,46 @@ public class MapController {
         MapPoiResponse response = mapService.getPois(keyword, category, bounds, cluster, zoomValue, limit);
         return ApiResponse.success(response);
     }
-}
 
+    /**
+     * POI 增量同步：返回 since 版本之后新增、修改与删除的 POI，版本过旧时返回完整数据集
+     */
+    @GetMapping("/pois/sync")
+    public ApiResponse<MapPoiSyncResponse> syncMapPois(@RequestParam(required = false) Long since) {
+        return ApiResponse.success(mapPoiSyncService.sync(since));
+    }
+
+    /**
+     * 附近的文化资源、活动与行程地点，按距离升序
+     */
+    @GetMapping("/nearby")
+    public ApiResponse<NearbyResponse> getNearby(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Long poiId,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false, defaultValue = "all") String category,
+            @RequestParam(required = false) Set<String> types
+    ) {
+        return ApiResponse.success(nearbyService.findNearby(lat, lng, poiId, radius, limit, category, types));
+    }
 
+    /**
+     * 矢量瓦片（Mapbox Vector Tile），带 ETag，未变化时返回 304
+     */
+    @GetMapping("/tiles/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(required = false, defaultValue = "all") String category
+    ) {
+        MapTileService.Tile tile = mapTileService.getTile(z, x, y, category);
+        return ResponseEntity.ok()
+                .contentType(MVT)
+                .cacheControl(CacheControl.maxAge(tileMaxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .eTag(tile.etag())
+                .body(tile.data());
+    }
+}
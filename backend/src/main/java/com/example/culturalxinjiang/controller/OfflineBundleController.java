@@ -0,0 +1,59 @@
+package com.example.culturalxinjiang.controller;
+
+import com.example.culturalxinjiang.dto.response.ApiResponse;
+import com.example.culturalxinjiang.dto.response.OfflineBundleResponse;
+import com.example.culturalxinjiang.service.OfflineBundleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/offline/bundles")
+@RequiredArgsConstructor
+public class OfflineBundleController {
+
+    private final OfflineBundleService offlineBundleService;
+
+    /**
+     * 请求生成指定地区的离线数据包，已有未过期的版本时直接返回
+     */
+    @PostMapping
+    public ApiResponse<OfflineBundleResponse> requestBundle(@RequestParam String region) {
+        return ApiResponse.success(offlineBundleService.request(region));
+    }
+
+    @GetMapping
+    public ApiResponse<OfflineBundleResponse> getBundleStatus(@RequestParam String region) {
+        return ApiResponse.success(offlineBundleService.getStatus(region));
+    }
+
+    /**
+     * 下载数据包。同一版本的文件不会改变，支持 Range 请求断点续传
+     */
+    @GetMapping("/download")
+    public ResponseEntity<Resource> download(@RequestParam String region, @RequestParam String version) {
+        Path file = offlineBundleService.open(region, version);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .eTag(version)
+                .cacheControl(CacheControl.maxAge(7, TimeUnit.DAYS).cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("offline-" + version + ".zip")
+                        .build()
+                        .toString())
+                .body(new FileSystemResource(file));
+    }
+}
@@ -2,15 +2,21 @@ package com.example.culturalxinjiang.controller;
 
 import com.example.culturalxinjiang.dto.request.GenerateRouteRequest;
 import com.example.culturalxinjiang.dto.response.ApiResponse;
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
 import com.example.culturalxinjiang.dto.response.RouteDetailResponse;
+import com.example.culturalxinjiang.dto.response.RouteJobResponse;
 import com.example.culturalxinjiang.dto.response.RouteResponse;
 import com.example.culturalxinjiang.dto.response.PageResponse;
 import com.example.culturalxinjiang.entity.Favorite;
 import com.example.culturalxinjiang.service.FavoriteService;
+import com.example.culturalxinjiang.service.RouteJobService;
 import com.example.culturalxinjiang.service.RouteService;
+import com.example.culturalxinjiang.service.RouteStreamingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/routes")
@@ -19,6 +25,8 @@ public class RouteController {
 
     private final RouteService routeService;
     private final FavoriteService favoriteService;
+    private final RouteStreamingService routeStreamingService;
+    private final RouteJobService routeJobService;
 
     @GetMapping
     public ApiResponse<PageResponse<RouteResponse>> getRoutes(
@@ -30,6 +38,18 @@ public class RouteController {
         return ApiResponse.success(response);
     }
 
+    /**
+     * 路线信息流（游标分页，不返回总数），按创建时间倒序
+     */
+    @GetMapping("/feed")
+    public ApiResponse<CursorPageResponse<RouteResponse>> getRouteFeed(
+            @RequestParam(required = false) String theme,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        return ApiResponse.success(routeService.getRouteFeed(theme, cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ApiResponse<RouteDetailResponse> getRouteDetail(@PathVariable Long id) {
         RouteDetailResponse response = routeService.getRouteDetail(id);
@@ -66,6 +86,37 @@ public class RouteController {
         return apiResponse;
     }
 
+    /**
+     * 流式生成路线（SSE）：逐天推送行程，结束时推送保存后的路线 ID
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateRouteStream(@Valid @RequestBody GenerateRouteRequest request) {
+        return routeStreamingService.generateRouteStream(request);
+    }
+
+    /**
+     * 异步生成路线：立即返回任务 ID，通过轮询或订阅获取进度与结果
+     */
+    @PostMapping("/jobs")
+    public ApiResponse<RouteJobResponse> submitRouteJob(@Valid @RequestBody GenerateRouteRequest request) {
+        return ApiResponse.success(routeJobService.submit(request));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ApiResponse<RouteJobResponse> getRouteJob(@PathVariable String jobId) {
+        return ApiResponse.success(routeJobService.getJob(jobId));
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeRouteJob(@PathVariable String jobId) {
+        return routeJobService.subscribe(jobId);
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ApiResponse<RouteJobResponse> cancelRouteJob(@PathVariable String jobId) {
+        return ApiResponse.success(routeJobService.cancel(jobId));
+    }
+
     @GetMapping("/my")
     public ApiResponse<PageResponse<RouteResponse>> getMyRoutes(
             @RequestParam(defaultValue = "1") Integer page,
@@ -0,0 +1,50 @@
+package com.example.culturalxinjiang.controller;
+
+import com.example.culturalxinjiang.dto.response.ApiResponse;
+import com.example.culturalxinjiang.dto.response.PageResponse;
+import com.example.culturalxinjiang.dto.response.SearchResultResponse;
+import com.example.culturalxinjiang.dto.response.SuggestionResponse;
+import com.example.culturalxinjiang.service.AutocompleteService;
+import com.example.culturalxinjiang.service.FederatedSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final FederatedSearchService federatedSearchService;
+    private final AutocompleteService autocompleteService;
+
+    /**
+     * 联合检索文化资源、非遗项目、活动与社区帖子，按相关度合并分页
+     *
+     * @param types 限定类型：culture / heritage / event / post，不传时检索全部
+     */
+    @GetMapping
+    public ApiResponse<PageResponse<SearchResultResponse>> search(
+            @RequestParam String keyword,
+            @RequestParam(required = false) List<String> types,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        return ApiResponse.success(federatedSearchService.search(keyword, types, page, size));
+    }
+
+    /**
+     * 搜索框输入提示：匹配标题、标签、地区与非遗分类的前缀，支持拼音首字母，按浏览量排序
+     */
+    @GetMapping("/suggest")
+    public ApiResponse<List<SuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ApiResponse.success(autocompleteService.suggest(q, limit));
+    }
+}
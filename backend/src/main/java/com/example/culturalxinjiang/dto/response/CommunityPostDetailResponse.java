@@ -16,6 +16,7 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = false)
 public class CommunityPostDetailResponse extends CommunityPostResponse {
     private List<CommentResponse> commentList;
+    private String commentCursor;   // 下一页顶层评论的游标，没有更多时为空
 
     @Data
     @NoArgsConstructor
@@ -26,6 +27,8 @@ public class CommunityPostDetailResponse extends CommunityPostResponse {
         private AuthorInfo author;
         private LocalDateTime createdAt;
         private List<CommentResponse> replies;
+        private Long replyCount;        // 回复总数，replies 只包含最早的几条
+        private String replyCursor;     // 加载更多回复的游标，已全部展示时为空
     }
 }
 
@@ -0,0 +1,35 @@
+package com.example.culturalxinjiang.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+
+    private List<T> list;
+    private String nextCursor;      // 传给下一次请求的 cursor，没有更多时为空
+    private Boolean hasMore;
+
+    /**
+     * @param fetched  按 size + 1 查询的结果，多出的一条只用于判断是否还有下一页
+     * @param cursorOf 由本页最后一条记录生成下一页游标
+     */
+    public static <E, T> CursorPageResponse<T> of(List<E> fetched, int size,
+                                                  Function<E, String> cursorOf, Function<E, T> mapper) {
+        boolean hasMore = fetched.size() > size;
+        List<E> page = hasMore ? fetched.subList(0, size) : fetched;
+        return CursorPageResponse.<T>builder()
+                .list(page.stream().map(mapper).toList())
+                .nextCursor(hasMore ? cursorOf.apply(page.get(page.size() - 1)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+}
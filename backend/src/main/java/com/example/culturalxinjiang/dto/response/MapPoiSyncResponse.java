@@ -0,0 +1,38 @@
+package com.example.culturalxinjiang.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapPoiSyncResponse {
+
+    private Long version;          // 本次同步后的版本号，下次请求时作为 since 传回
+    private boolean full;          // true 时 upserts 为完整数据集，客户端应替换本地缓存
+    private List<SyncPoi> upserts; // 新增或修改的 POI
+    private List<Long> deletions;  // 已删除（或不再有坐标）的 POI ID
+
+    /**
+     * 精简的 POI，详情仍通过文化资源接口获取
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SyncPoi {
+        private Long id;
+        private String category;
+        private String contentType;
+        private String title;
+        private Double lat;
+        private Double lng;
+        private String region;
+        private String cover;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.culturalxinjiang.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyResponse {
+
+    private Double lat;
+    private Double lng;
+    private Double radius; // 公里，未限制时为空
+    private List<NearbyItem> items;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NearbyItem {
+        private String type;      // culture / event / itinerary
+        private Long id;          // 文化资源、活动或路线 ID
+        private String title;
+        private String subtitle;  // 行程地点所属的路线标题
+        private String category;  // 文化资源分类或活动类型
+        private Double lat;
+        private Double lng;
+        private Double distance;  // 公里
+        private Integer day;      // 行程地点所在的天数
+    }
+}
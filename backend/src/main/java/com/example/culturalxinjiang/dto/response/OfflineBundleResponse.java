@@ -0,0 +1,23 @@
+package com.example.culturalxinjiang.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfflineBundleResponse {
+    private String region;
+    private String status;       // NONE / BUILDING / READY / FAILED
+    private String version;      // 数据包版本（内容摘要），下载地址中携带
+    private Long size;           // 字节数
+    private LocalDateTime builtAt;
+    private String downloadUrl;  // 状态为 READY 时返回
+    private Boolean rebuilding;  // 已有可下载版本、同时正在生成新版本
+    private String error;
+}
@@ -0,0 +1,30 @@
+package com.example.culturalxinjiang.dto.response;
+
+import com.example.culturalxinjiang.service.AIService.AIRouteResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 异步路线生成任务状态
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteJobResponse {
+    private String jobId;
+    private String status; // QUEUED / RUNNING / SUCCEEDED / FAILED / CANCELLED
+    private Integer queuePosition; // 排队中时前面的任务数（从 0 开始）
+    private Integer totalDays;
+    private List<AIRouteResponse.ItineraryItem> days; // 已生成的天数（生成过程中逐步增加）
+    private AIRouteResponse draft; // 本地规划的草稿路线，AI 生成完成前供先行展示
+    private RouteDetailResponse route; // 成功后保存的路线
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
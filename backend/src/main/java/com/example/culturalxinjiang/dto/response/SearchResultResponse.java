@@ -0,0 +1,25 @@
+package com.example.culturalxinjiang.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultResponse {
+
+    private String type;        // culture / heritage / event / post
+    private Long id;
+    private String title;
+    private String summary;     // 描述或正文摘要
+    private String cover;
+    private String region;      // 活动为地点名称，帖子为空
+    private String category;    // 文化资源类型、非遗分类或活动类型
+    private Double score;       // 合并排序使用的得分，0~1
+    private LocalDateTime createdAt;
+}
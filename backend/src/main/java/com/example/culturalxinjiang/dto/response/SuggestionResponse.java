@@ -0,0 +1,17 @@
+package com.example.culturalxinjiang.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionResponse {
+
+    private String text;
+    private String type;    // culture / heritage / tag / region / category
+    private Long id;        // 文化资源或非遗项目 ID，标签、地区、分类为空
+}
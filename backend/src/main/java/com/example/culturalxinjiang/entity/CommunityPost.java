@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -14,7 +15,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "community_posts")
+@Table(name = "community_posts", indexes = {
+    @Index(name = "idx_community_posts_hot", columnList = "status, hot_score, id"),
+    @Index(name = "idx_community_posts_latest", columnList = "status, created_at, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -35,6 +39,7 @@ public class CommunityPost {
     @ElementCollection
     @CollectionTable(name = "post_images", joinColumns = @JoinColumn(name = "post_id"))
     @Column(name = "image_url")
+    @BatchSize(size = 50)
     @Builder.Default
     private List<String> images = new ArrayList<>();
 
@@ -45,21 +50,34 @@ public class CommunityPost {
     @ElementCollection
     @CollectionTable(name = "post_tags", joinColumns = @JoinColumn(name = "post_id"))
     @Column(name = "tag")
+    @BatchSize(size = 50)
     @Builder.Default
     private List<String> tags = new ArrayList<>();
 
-    @Column(nullable = false)
+    /**
+     * 点赞数与评论数，只由 CommunityPostRepository 的原子增量语句写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer likes = 0;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer comments = 0;
 
-    @Column(nullable = false)
+    /**
+     * 浏览量，只由 ViewCounterService 用增量 SQL 写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer views = 0;
 
+    /**
+     * 热度分，只由 HotScoreService 用 SQL 计算写入，保存实体时不回写
+     */
+    @Column(name = "hot_score", insertable = false, updatable = false)
+    private Double hotScore;
+
     @Column(nullable = false, length = 20)
     @Builder.Default
     private String status = "pending";
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -41,6 +42,7 @@ public class CultureResource {
     @ElementCollection
     @CollectionTable(name = "culture_resource_images", joinColumns = @JoinColumn(name = "resource_id"))
     @Column(name = "image_url")
+    @BatchSize(size = 50)
     @Builder.Default
     private List<String> images = new ArrayList<>();
 
@@ -68,11 +70,17 @@ public class CultureResource {
     })
     private Location location;
 
-    @Column(nullable = false)
+    /**
+     * 浏览量，只由 ViewCounterService 用增量 SQL 写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer views = 0;
 
-    @Column(nullable = false)
+    /**
+     * 收藏数，只由 addFavorites 原子增量语句写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer favorites = 0;
 
@@ -16,6 +16,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -51,12 +52,14 @@ public class HeritageItem {
     @ElementCollection
     @CollectionTable(name = "heritage_item_images", joinColumns = @JoinColumn(name = "heritage_id"))
     @Column(name = "image_url")
+    @BatchSize(size = 50)
     @Builder.Default
     private List<String> images = new ArrayList<>();
 
     @ElementCollection
     @CollectionTable(name = "heritage_item_tags", joinColumns = @JoinColumn(name = "heritage_id"))
     @Column(name = "tag")
+    @BatchSize(size = 50)
     @Builder.Default
     private List<String> tags = new ArrayList<>();
 
@@ -75,7 +78,10 @@ public class HeritageItem {
     @Builder.Default
     private Boolean featured = Boolean.FALSE;
 
-    @Column(nullable = false)
+    /**
+     * 浏览量，只由 ViewCounterService 用增量 SQL 写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer views = 0;
 
@@ -14,7 +14,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "routes")
+@Table(name = "routes", indexes = {
+    @Index(name = "idx_routes_created_at", columnList = "created_at, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -60,11 +62,17 @@ public class Route {
     @Builder.Default
     private Integer waypoints = 0;
 
-    @Column(nullable = false)
+    /**
+     * 浏览量，只由 ViewCounterService 用增量 SQL 写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer views = 0;
 
-    @Column(nullable = false)
+    /**
+     * 收藏数，只由 addFavorites 原子增量语句写入，保存实体时不回写
+     */
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer favorites = 0;
 
@@ -0,0 +1,11 @@
+package com.example.culturalxinjiang.exception;
+
+/**
+ * 服务繁忙（排队已满等），由全局异常处理映射为 HTTP 429
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
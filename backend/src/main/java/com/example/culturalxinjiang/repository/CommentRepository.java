@@ -4,14 +4,77 @@ import com.example.culturalxinjiang.entity.Comment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostIdOrderByCreatedAtAsc(Long postId);
     List<Comment> findByParentIdOrderByCreatedAtAsc(Long parentId);
+
+    /**
+     * 按 (createdAt, id) 游标取帖子的一页顶层评论，同时取出作者
+     */
+    @Query("""
+            SELECT c FROM Comment c JOIN FETCH c.author
+            WHERE c.post.id = :postId AND c.parent IS NULL
+              AND (c.createdAt > :afterCreatedAt OR (c.createdAt = :afterCreatedAt AND c.id > :afterId))
+            ORDER BY c.createdAt ASC, c.id ASC
+            """)
+    List<Comment> findTopLevelPage(
+            @Param("postId") Long postId,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    /**
+     * 按 (createdAt, id) 游标取某条评论的一页回复，同时取出作者
+     */
+    @Query("""
+            SELECT c FROM Comment c JOIN FETCH c.author
+            WHERE c.parent.id = :parentId
+              AND (c.createdAt > :afterCreatedAt OR (c.createdAt = :afterCreatedAt AND c.id > :afterId))
+            ORDER BY c.createdAt ASC, c.id ASC
+            """)
+    List<Comment> findReplyPage(
+            @Param("parentId") Long parentId,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    /**
+     * 一次查出多条评论各自最早的 perParent 条回复
+     *
+     * @return 每行为 [回复 ID, 所属评论 ID, 所属评论的回复总数]
+     */
+    @Query(value = """
+            SELECT t.id, t.parent_id, t.total FROM (
+                SELECT c.id, c.parent_id,
+                       ROW_NUMBER() OVER (PARTITION BY c.parent_id ORDER BY c.created_at, c.id) AS rn,
+                       COUNT(*) OVER (PARTITION BY c.parent_id) AS total
+                FROM comments c
+                WHERE c.parent_id IN (:parentIds)
+            ) t
+            WHERE t.rn <= :perParent
+            """, nativeQuery = true)
+    List<Object[]> findReplyPreviewIds(
+            @Param("parentIds") Collection<Long> parentIds,
+            @Param("perParent") int perParent
+    );
+
+    @Query("""
+            SELECT c FROM Comment c JOIN FETCH c.author
+            WHERE c.id IN :ids
+            ORDER BY c.createdAt ASC, c.id ASC
+            """)
+    List<Comment> findAllWithAuthorByIdIn(@Param("ids") Collection<Long> ids);
     long countByPostId(Long postId);
     List<Comment> findByAuthorId(Long authorId);
     Page<Comment> findByAuthorId(Long authorId, Pageable pageable);
@@ -4,10 +4,12 @@ import com.example.culturalxinjiang.entity.CommunityPost;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -16,7 +18,10 @@ public interface CommunityPostRepository extends JpaRepository<CommunityPost, Lo
     @Query("SELECT p FROM CommunityPost p WHERE p.status = 'approved' ORDER BY p.createdAt DESC")
     Page<CommunityPost> findAllOrderByCreatedAtDesc(Pageable pageable);
 
-    @Query("SELECT p FROM CommunityPost p WHERE p.status = 'approved' ORDER BY p.likes DESC, p.comments DESC")
+    /**
+     * 按热度分排序，走 (status, hot_score, id) 索引
+     */
+    @Query("SELECT p FROM CommunityPost p WHERE p.status = 'approved' ORDER BY p.hotScore DESC, p.id DESC")
     Page<CommunityPost> findAllOrderByHot(Pageable pageable);
 
     @Query("SELECT p FROM CommunityPost p WHERE p.status = 'approved' AND " +
@@ -36,6 +41,8 @@ public interface CommunityPostRepository extends JpaRepository<CommunityPost, Lo
             @Param("keyword") String keyword,
             Pageable pageable);
 
+    List<CommunityPost> findAllByStatus(String status);
+
     @Query("SELECT p FROM CommunityPost p WHERE p.author.id = :userId ORDER BY p.createdAt DESC")
     Page<CommunityPost> findByAuthorId(@Param("userId") Long userId, Pageable pageable);
 
@@ -49,6 +56,58 @@ public interface CommunityPostRepository extends JpaRepository<CommunityPost, Lo
            "ORDER BY p.createdAt DESC")
     Page<CommunityPost> findByKeywordForAdmin(
             @Param("keyword") String keyword, Pageable pageable);
+
+    /**
+     * 原子地调整点赞数，结果不会小于 0（返回 0 表示帖子不存在或已为 0）
+     */
+    @Modifying
+    @Query("UPDATE CommunityPost p SET p.likes = p.likes + :delta WHERE p.id = :id AND p.likes + :delta >= 0")
+    int addLikes(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * 原子地调整评论数，结果不会小于 0
+     */
+    @Modifying
+    @Query("UPDATE CommunityPost p SET p.comments = p.comments + :delta WHERE p.id = :id AND p.comments + :delta >= 0")
+    int addComments(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * 按评论表重新统计评论数（删除评论会级联删除其回复，条数不固定）
+     */
+    @Modifying
+    @Query("UPDATE CommunityPost p SET p.comments = (SELECT COUNT(c) FROM Comment c WHERE c.post.id = :id) WHERE p.id = :id")
+    int recountComments(@Param("id") Long id);
+
+    /**
+     * 最新帖子的游标分页，按 (status, created_at, id) 索引顺序读取，不统计总数
+     */
+    @Query("SELECT p FROM CommunityPost p WHERE p.status = 'approved' AND " +
+           "(p.createdAt < :beforeCreatedAt OR (p.createdAt = :beforeCreatedAt AND p.id < :beforeId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<CommunityPost> findLatestBefore(
+            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable);
+
+    /**
+     * 热门帖子的游标分页，按 (status, hot_score, id) 索引顺序读取；尚未计算热度分的帖子不在其中
+     */
+    @Query("SELECT p FROM CommunityPost p WHERE p.status = 'approved' AND " +
+           "(p.hotScore < :beforeScore OR (p.hotScore = :beforeScore AND p.id < :beforeId)) " +
+           "ORDER BY p.hotScore DESC, p.id DESC")
+    List<CommunityPost> findHotBefore(
+            @Param("beforeScore") Double beforeScore,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable);
+
+    @Query("SELECT p FROM CommunityPost p WHERE p.author.id = :userId AND " +
+           "(p.createdAt < :beforeCreatedAt OR (p.createdAt = :beforeCreatedAt AND p.id < :beforeId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<CommunityPost> findByAuthorIdBefore(
+            @Param("userId") Long userId,
+            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable);
 }
 
 
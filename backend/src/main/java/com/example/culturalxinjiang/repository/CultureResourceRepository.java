@@ -4,10 +4,12 @@ import com.example.culturalxinjiang.entity.CultureResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -35,6 +37,23 @@ public interface CultureResourceRepository extends JpaRepository<CultureResource
 
     @Query("SELECT c FROM CultureResource c WHERE c.location.lat IS NOT NULL AND c.location.lng IS NOT NULL")
     List<CultureResource> findAllWithLocation();
+
+    @Query("SELECT DISTINCT c FROM CultureResource c LEFT JOIN FETCH c.tags " +
+           "WHERE c.location.lat IS NOT NULL AND c.location.lng IS NOT NULL")
+    List<CultureResource> findAllWithLocationFetchTags();
+
+    @Query("SELECT DISTINCT c FROM CultureResource c LEFT JOIN FETCH c.tags")
+    List<CultureResource> findAllFetchTags();
+
+    @Query("SELECT DISTINCT c FROM CultureResource c LEFT JOIN FETCH c.tags WHERE c.id IN :ids")
+    List<CultureResource> findAllByIdInFetchTags(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 原子地调整收藏数，结果不会小于 0
+     */
+    @Modifying
+    @Query("UPDATE CultureResource r SET r.favorites = r.favorites + :delta WHERE r.id = :id AND r.favorites + :delta >= 0")
+    int addFavorites(@Param("id") Long id, @Param("delta") int delta);
 }
 
 
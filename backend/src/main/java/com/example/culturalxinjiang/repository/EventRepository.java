@@ -4,11 +4,13 @@ import com.example.culturalxinjiang.entity.Event;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -40,11 +42,58 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             Pageable pageable
     );
 
+    @Query("SELECT e FROM Event e WHERE e.location.lat IS NOT NULL AND e.location.lng IS NOT NULL " +
+           "AND e.status <> :excluded")
+    List<Event> findAllWithLocation(@Param("excluded") Event.EventStatus excluded);
+
     @Query("SELECT e FROM Event e WHERE e.startDate <= :endDate AND e.endDate >= :startDate")
     List<Event> findByDateRange(
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate
     );
+
+    /**
+     * 活动信息流的游标分页，按发布时间倒序，各筛选条件为 null 时不限
+     *
+     * @param monthStart 月份第一天，与 monthEnd（下月第一天）一起限定开始日期
+     */
+    @Query("SELECT e FROM Event e WHERE " +
+           "(:status IS NULL OR e.status = :status) AND " +
+           "(:type IS NULL OR e.type = :type) AND " +
+           "(:monthStart IS NULL OR (e.startDate >= :monthStart AND e.startDate < :monthEnd)) AND " +
+           "(e.createdAt < :beforeCreatedAt OR (e.createdAt = :beforeCreatedAt AND e.id < :beforeId)) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Event> findFeed(
+            @Param("status") Event.EventStatus status,
+            @Param("type") Event.EventType type,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("monthEnd") LocalDate monthEnd,
+            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable
+    );
+
+    /**
+     * 结束日期在 today 之前、状态还不是 status 的活动改为 status（已结束）
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.status = :status WHERE e.endDate < :today AND e.status <> :status")
+    int updateStatusEndedBefore(@Param("today") LocalDate today, @Param("status") Event.EventStatus status);
+
+    /**
+     * today 在开始与结束日期之间、状态还不是 status 的活动改为 status（进行中）
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.status = :status " +
+           "WHERE e.startDate <= :today AND e.endDate >= :today AND e.status <> :status")
+    int updateStatusOngoingOn(@Param("today") LocalDate today, @Param("status") Event.EventStatus status);
+
+    /**
+     * 开始日期在 today 之后、状态还不是 status 的活动改为 status（即将开始）
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.status = :status WHERE e.startDate > :today AND e.status <> :status")
+    int updateStatusStartingAfter(@Param("today") LocalDate today, @Param("status") Event.EventStatus status);
 }
 
 
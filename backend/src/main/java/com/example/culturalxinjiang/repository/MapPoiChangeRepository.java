@@ -0,0 +1,29 @@
+package com.example.culturalxinjiang.repository;
+
+import com.example.culturalxinjiang.entity.MapPoiChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MapPoiChangeRepository extends JpaRepository<MapPoiChange, Long> {
+
+    Optional<MapPoiChange> findTopByOrderByIdDesc();
+
+    Optional<MapPoiChange> findTopByOrderByIdAsc();
+
+    Optional<MapPoiChange> findTopByCreatedAtBeforeOrderByIdDesc(LocalDateTime before);
+
+    List<MapPoiChange> findByIdGreaterThanOrderByIdAsc(Long version, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM MapPoiChange c WHERE c.createdAt < :before AND c.id < :latest")
+    int deleteExpired(@Param("before") LocalDateTime before, @Param("latest") Long latest);
+}
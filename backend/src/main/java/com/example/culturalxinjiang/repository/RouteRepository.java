@@ -4,12 +4,44 @@ import com.example.culturalxinjiang.entity.Route;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface RouteRepository extends JpaRepository<Route, Long> {
     Page<Route> findByTheme(String theme, Pageable pageable);
     Page<Route> findByUserId(Long userId, Pageable pageable);
+
+    /**
+     * 所有带坐标的行程地点：路线 ID、路线标题、天数、地点名称、纬度、经度
+     */
+    @Query("SELECT r.id, r.title, i.day, l.name, l.lat, l.lng FROM Route r JOIN r.itinerary i JOIN i.locations l " +
+           "WHERE l.lat IS NOT NULL AND l.lng IS NOT NULL")
+    List<Object[]> findItineraryLocations();
+
+    /**
+     * 原子地调整收藏数，结果不会小于 0
+     */
+    @Modifying
+    @Query("UPDATE Route r SET r.favorites = r.favorites + :delta WHERE r.id = :id AND r.favorites + :delta >= 0")
+    int addFavorites(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * 路线信息流的游标分页，按创建时间倒序，theme 为 null 时不限主题
+     */
+    @Query("SELECT r FROM Route r WHERE (:theme IS NULL OR r.theme = :theme) AND " +
+           "(r.createdAt < :beforeCreatedAt OR (r.createdAt = :beforeCreatedAt AND r.id < :beforeId)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Route> findFeed(
+            @Param("theme") String theme,
+            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable);
 }
 
 
@@ -1,6 +1,7 @@
 package com.example.culturalxinjiang.security;
 
 import com.example.culturalxinjiang.security.PlainTextPasswordEncoder;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -79,23 +80,30 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // SSE 等异步响应的二次分派沿用原请求的鉴权结果
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/culture/**").permitAll()
                         .requestMatchers("/heritage/**").permitAll()
                         .requestMatchers("/ai/**").permitAll()
                         .requestMatchers("/map/**").permitAll()
+                        .requestMatchers("/search", "/search/**").permitAll()
                         .requestMatchers("/recommendations/**").permitAll()
                         .requestMatchers("/events").permitAll()
                         .requestMatchers("/events/**").permitAll()
                         .requestMatchers("/routes").permitAll() // 获取路线列表（示例路线）
+                        .requestMatchers("/routes/jobs/**").authenticated() // 路线生成任务需要登录（须在 /routes/{id} 之前）
                         .requestMatchers("/routes/{id}").permitAll() // 获取路线详情
                         .requestMatchers("/routes/generate").authenticated() // 生成路线需要登录
+                        .requestMatchers("/routes/generate/stream").authenticated() // 流式生成路线需要登录
                         .requestMatchers("/routes/my").authenticated() // 获取我的路线需要登录
                         .requestMatchers("/community/posts/comments/**",
                                 "/community/posts/my",
                                 "/community/posts/liked",
                                 "/community/posts/commented",
                                 "/community/posts/favorites").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/community/posts/*/comments",
+                                "/community/posts/*/comments/*/replies").permitAll()
                         .requestMatchers(HttpMethod.POST, "/community/posts/**").authenticated()
                         .requestMatchers(HttpMethod.PUT, "/community/posts/**").authenticated()
                         .requestMatchers(HttpMethod.DELETE, "/community/posts/**").authenticated()
@@ -6,20 +6,41 @@ import com.example.culturalxinjiang.dto.response.AiExplainResponse;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.ArrayDeque;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -27,7 +48,17 @@ public class AIService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final RouteGenerationCache routeCache;
+    private final AiProviderGuard providerGuard;
+    private final AiRequestHedger requestHedger;
+    private final LocalRoutePlanner localRoutePlanner;
+    // 相同请求同时到达时只调用一次 AI 接口
+    private final SingleFlight<String, AIRouteResponse> routeFlights = new SingleFlight<>(this::copyRoute);
+    private final SingleFlight<String, AiExplainResponse> explainFlights = new SingleFlight<>(this::copyExplanation);
     private static final int MAX_GENERATION_ATTEMPTS = 3;
+    private static final int SEGMENT_BATCH_DAYS = 4; // 分段生成时每批天数，确保不超过AI限制
+
+    private ExecutorService segmentExecutor;
 
     @Value("${ai.provider:deepseek}")
     private String provider; // 可选: openai 或 deepseek
@@ -55,41 +86,64 @@ public class AIService {
     @Value("${ai.deepseek.timeout:300000}")
     private long timeout;
 
+    // 分段生成的最大并发批次数
+    @Value("${ai.segment.parallelism:3}")
+    private int segmentParallelism;
+
     public String getProvider() {
         return provider;
     }
 
-    public AIService() {
-        // 配置 RestTemplate 超时
-        org.springframework.http.client.SimpleClientHttpRequestFactory factory =
-            new org.springframework.http.client.SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout((int) timeout);
-        factory.setReadTimeout((int) timeout);
-        this.restTemplate = new RestTemplate(factory);
+    /**
+     * @param restTemplate 基于连接池的 AI 调用客户端（连接数与超时见 AiHttpClientConfig）
+     */
+    public AIService(@Qualifier("aiRestTemplate") RestTemplate restTemplate, RouteGenerationCache routeCache,
+                     AiProviderGuard providerGuard, AiRequestHedger requestHedger,
+                     LocalRoutePlanner localRoutePlanner) {
+        this.restTemplate = restTemplate;
+        this.routeCache = routeCache;
+        this.providerGuard = providerGuard;
+        this.requestHedger = requestHedger;
+        this.localRoutePlanner = localRoutePlanner;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
 
+    @PostConstruct
+    void initSegmentExecutor() {
+        int parallelism = Math.max(1, segmentParallelism);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                parallelism, parallelism,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(parallelism * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ai-segment-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 队列满时由调用线程执行，起到背压作用
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        this.segmentExecutor = executor;
+    }
+
+    @PreDestroy
+    void shutdownSegmentExecutor() {
+        if (segmentExecutor != null) {
+            segmentExecutor.shutdownNow();
+        }
+    }
+
     /**
      * 使用AI生成旅游路线
      */
     public AIRouteResponse generateRoute(GenerateRouteRequest request) {
         // 根据配置的 provider 选择 API（在 try 块外声明，以便在 catch 块中使用）
-        String apiKey;
-        String apiUrl;
-        String model;
-
-        if ("deepseek".equalsIgnoreCase(provider)) {
-            apiKey = deepseekApiKey;
-            apiUrl = deepseekApiUrl;
-            model = deepseekModel;
-            log.info("使用 DeepSeek API 生成路线");
-        } else {
-            apiKey = openaiApiKey;
-            apiUrl = openaiApiUrl;
-            model = openaiModel;
-            log.info("使用 OpenAI API 生成路线");
-        }
+        String apiKey = apiKeyOf(provider);
+        String apiUrl = apiUrlOf(provider);
+        String model = modelOf(provider);
+        log.info("使用 {} API 生成路线", provider);
 
             // 检查API密钥是否配置
             if (isApiKeyMissing(apiKey)) {
@@ -97,6 +151,24 @@ public class AIService {
                 return generateDefaultRoute(request);
             }
 
+        AIRouteResponse cached = routeCache.get(request);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (!canCallProvider()) {
+            log.warn("{} 熔断中，直接使用默认路线", provider);
+            return generateDefaultRoute(request);
+        }
+
+        return routeFlights.execute(routeCache.buildKey(request),
+                () -> generateRouteWithRetry(request, apiKey, apiUrl, model));
+    }
+
+    /**
+     * 调用 AI 生成路线，JSON 错误或天数不完整时带提示重试，长行程转为分段生成
+     */
+    private AIRouteResponse generateRouteWithRetry(GenerateRouteRequest request, String apiKey, String apiUrl, String model) {
         String retryHint = null;
         for (int attempt = 1; attempt <= MAX_GENERATION_ATTEMPTS; attempt++) {
             try {
@@ -122,56 +194,50 @@ public class AIService {
             // 发送请求到 AI API
             log.debug("调用 {} API: {}", provider, apiUrl);
 
-            // 设置请求头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            HttpEntity<OpenAIRequest> requestEntity = new HttpEntity<>(aiRequest, headers);
-
             // 发送请求
             log.debug("正在调用 {} API 生成路线", provider);
 
-            ResponseEntity<OpenAIResponse> responseEntity;
-            try {
-                responseEntity = restTemplate.exchange(
-                        apiUrl,
-                        HttpMethod.POST,
-                        requestEntity,
-                        OpenAIResponse.class
-                );
-            } catch (org.springframework.web.client.HttpClientErrorException e) {
-                String responseBody = e.getResponseBodyAsString();
-                log.error("{} API返回HTTP错误，状态码: {}, 响应体: {}", provider, e.getStatusCode(), responseBody);
-
-                // 解析错误信息
-                String errorMessage = parseApiErrorMessage(responseBody, e.getStatusCode());
-                throw new RuntimeException(errorMessage);
-            } catch (org.springframework.web.client.ResourceAccessException e) {
-                log.error("{} API连接超时或网络错误", provider, e);
-                throw new RuntimeException("AI API连接失败，请检查网络连接: " + e.getMessage());
-            }
-
-            OpenAIResponse response = responseEntity.getBody();
-
-            if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
-                log.error("{} API返回空响应，状态码: {}", provider, responseEntity.getStatusCode());
-                throw new RuntimeException("AI API返回空响应，请检查API配置和网络连接");
-            }
-
-            String content = response.getChoices().get(0).getMessage().getContent();
-
+            String hedgeProvider = hedgeProvider();
             AIRouteResponse aiRouteResponse;
-            try {
-                // 解析AI返回的JSON
-                aiRouteResponse = parseAIResponse(content, request);
-            } catch (RuntimeException parseException) {
-                log.error("AI响应解析失败，将降级为默认路线: {}", parseException.getMessage(), parseException);
-                aiRouteResponse = buildFallbackRoute(request, parseException.getMessage());
+            boolean parsed = false;
+            if (hedgeProvider != null) {
+                // 对冲模式：两家服务商中先返回可解析结果的一方胜出，解析失败视为该方失败
+                try {
+                    aiRouteResponse = requestHedger.execute(provider, hedgeProvider,
+                            AiProviderGuard.Operation.ROUTE, timeout,
+                            name -> parseAIResponse(requestCompletion(name, AiProviderGuard.Operation.ROUTE,
+                                    apiKeyOf(name), apiUrlOf(name),
+                                    withModel(aiRequest, modelOf(name))), request));
+                    parsed = true;
+                } catch (AiProviderGuard.ProviderUnavailableException e) {
+                    log.warn("{}，使用默认路线", e.getMessage());
+                    return generateDefaultRoute(request);
+                }
+            } else {
+                String content;
+                try {
+                    content = requestCompletion(provider, AiProviderGuard.Operation.ROUTE, apiKey, apiUrl, aiRequest);
+                } catch (AiProviderGuard.ProviderUnavailableException e) {
+                    // 熔断打开或并发已满：不再等待，直接走本地兜底
+                    log.warn("{}，使用默认路线", e.getMessage());
+                    return generateDefaultRoute(request);
+                }
+
+                try {
+                    // 解析AI返回的JSON
+                    aiRouteResponse = parseAIResponse(content, request);
+                    parsed = true;
+                } catch (RuntimeException parseException) {
+                    log.error("AI响应解析失败，将降级为默认路线: {}", parseException.getMessage(), parseException);
+                    aiRouteResponse = buildFallbackRoute(request, parseException.getMessage());
+                }
             }
 
             // 验证行程完整性（确保天数与用户请求一致）
             validateItineraryCompleteness(aiRouteResponse, request);
+            if (parsed) {
+                routeCache.put(request, aiRouteResponse);
+            }
 
             // 只输出是否成功接收数据
             System.out.println("接收数据成功");
@@ -186,7 +252,9 @@ public class AIService {
                     log.warn("多次尝试仍无法解析 JSON，使用兜底路线");
                     return buildFallbackRoute(request, jsonError.getMessage());
                 }
-                safeRetryPause();
+                if (!awaitRetryBackoff(attempt)) {
+                    return generateDefaultRoute(request);
+                }
             } catch (IncompleteItineraryException incomplete) {
                 retryHint = incomplete.getMessage();
                 log.warn("AI响应天数不完整（尝试 {}/{}）：{}", attempt, MAX_GENERATION_ATTEMPTS, incomplete.getMessage());
@@ -202,6 +270,7 @@ public class AIService {
                             try {
                                 validateItineraryCompleteness(segmentedResponse, request);
                                 log.info("分段生成成功，返回完整行程（{}天）", segmentedResponse.getItinerary() != null ? segmentedResponse.getItinerary().size() : 0);
+                                routeCache.put(request, segmentedResponse);
                                 return segmentedResponse;
                             } catch (IncompleteItineraryException validationException) {
                                 log.warn("分段生成的结果仍不完整: {}", validationException.getMessage());
@@ -216,7 +285,9 @@ public class AIService {
                     log.warn("多次尝试仍未获得完整行程，使用兜底路线");
                     return buildFallbackRoute(request, incomplete.getMessage());
                 }
-                safeRetryPause();
+                if (!awaitRetryBackoff(attempt)) {
+                    return generateDefaultRoute(request);
+                }
         } catch (RuntimeException e) {
             // 如果是我们主动抛出的异常，直接抛出，不要使用默认数据
             System.out.println("失败");
@@ -233,114 +304,264 @@ public class AIService {
     }
 
     /**
-     * 分段生成路线（用于长行程，将总天数拆分成多个批次生成）
+     * 流式生成旅游路线：以 stream 模式调用 AI，每解析出完整的一天行程即回调 onDay，
+     * 全部接收后返回完整解析结果（用于持久化）
      */
-    private AIRouteResponse generateRouteSegmented(GenerateRouteRequest request, String apiKey, String apiUrl, String model) {
-        int totalDays = request.getDuration();
-        int batchSize = 4; // 每批生成4天，确保不超过AI限制
-        int batchCount = (totalDays + batchSize - 1) / batchSize; // 向上取整
+    public AIRouteResponse generateRouteStreaming(GenerateRouteRequest request,
+                                                  Consumer<AIRouteResponse.ItineraryItem> onDay) {
+        String apiKey = apiKeyOf(provider);
+        String apiUrl = apiUrlOf(provider);
+        String model = modelOf(provider);
+        log.info("使用 {} API 流式生成路线", provider);
 
-        log.info("开始分段生成路线：总天数={}，分{}批，每批约{}天", totalDays, batchCount, batchSize);
+        if (isApiKeyMissing(apiKey)) {
+            log.warn("AI API密钥未配置（Provider: {}），使用默认路线生成逻辑", provider);
+            AIRouteResponse defaultRoute = generateDefaultRoute(request);
+            defaultRoute.getItinerary().forEach(onDay);
+            return defaultRoute;
+        }
+
+        AIRouteResponse cached = routeCache.get(request);
+        if (cached != null) {
+            cached.getItinerary().forEach(onDay);
+            return cached;
+        }
+
+        OpenAIRequest aiRequest = new OpenAIRequest();
+        aiRequest.setModel(model);
+        OpenAIRequest.Message message = new OpenAIRequest.Message();
+        message.setRole("user");
+        message.setContent(buildPrompt(request));
+        aiRequest.setMessages(List.of(message));
+        aiRequest.setTemperature(0.7);
+        aiRequest.setMaxTokens(16000);
+        aiRequest.setStream(true);
+
+        // 记录已推送的天数，最终结果中未推送的天数（如经修复才解析出的）在结束前补发
+        Set<Integer> emittedDays = new HashSet<>();
+        List<AIRouteResponse.ItineraryItem> streamedItems = new ArrayList<>();
+        TolerantJsonReader reader = new TolerantJsonReader(dayNode -> {
+            AIRouteResponse.ItineraryItem item = buildItineraryItem(dayNode);
+            if (emittedDays.add(item.getDay())) {
+                streamedItems.add(item);
+                onDay.accept(item);
+            }
+        });
+
+        JsonNode rootNode;
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(aiRequest);
+            rootNode = callProvider(provider, AiProviderGuard.Operation.ROUTE, () -> restTemplate.execute(
+                    apiUrl,
+                    HttpMethod.POST,
+                    httpRequest -> {
+                        httpRequest.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        httpRequest.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                        httpRequest.getHeaders().setBearerAuth(apiKey);
+                        httpRequest.getBody().write(body);
+                    },
+                    httpResponse -> readCompletionStream(httpResponse.getBody(), reader)
+            ));
+        } catch (AiProviderGuard.ProviderUnavailableException e) {
+            log.warn("{}，流式生成使用默认路线", e.getMessage());
+            AIRouteResponse defaultRoute = generateDefaultRoute(request);
+            defaultRoute.getItinerary().forEach(onDay);
+            return defaultRoute;
+        } catch (org.springframework.web.client.HttpClientErrorException e) {
+            String responseBody = e.getResponseBodyAsString();
+            log.error("{} API返回HTTP错误，状态码: {}, 响应体: {}", provider, e.getStatusCode(), responseBody);
+            throw new RuntimeException(parseApiErrorMessage(responseBody, e.getStatusCode()));
+        } catch (org.springframework.web.client.ResourceAccessException e) {
+            log.error("{} API连接超时或网络错误", provider, e);
+            throw new RuntimeException("AI API连接失败，请检查网络连接: " + e.getMessage());
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new RuntimeException("构建AI请求失败: " + e.getMessage(), e);
+        }
 
-        List<AIRouteResponse.ItineraryItem> allItineraryItems = new ArrayList<>();
-        String title = null;
-        String description = null;
-        List<String> tips = new ArrayList<>();
+        AIRouteResponse aiRouteResponse;
+        boolean parsed = false;
+        try {
+            if (rootNode == null || !rootNode.isObject()) {
+                throw new JsonFormatException("AI流式响应中未找到有效的JSON对象");
+            }
+            aiRouteResponse = buildRouteResponseFromJson(rootNode, request);
+            parsed = true;
+        } catch (RuntimeException parseException) {
+            log.error("AI流式响应解析失败，将降级为默认路线: {}", parseException.getMessage(), parseException);
+            aiRouteResponse = buildFallbackRoute(request, parseException.getMessage());
+            keepStreamedDays(aiRouteResponse, streamedItems, emittedDays);
+        }
 
-        for (int batch = 0; batch < batchCount; batch++) {
-            int startDay = batch * batchSize + 1;
-            int endDay = Math.min((batch + 1) * batchSize, totalDays);
-            int currentBatchDays = endDay - startDay + 1;
+        try {
+            validateItineraryCompleteness(aiRouteResponse, request);
+            if (parsed) {
+                routeCache.put(request, aiRouteResponse);
+            }
+        } catch (IncompleteItineraryException incomplete) {
+            log.warn("AI流式响应天数不完整：{}", incomplete.getMessage());
+        }
+
+        if (aiRouteResponse.getItinerary() != null) {
+            for (AIRouteResponse.ItineraryItem item : aiRouteResponse.getItinerary()) {
+                if (item.getDay() != null && emittedDays.add(item.getDay())) {
+                    onDay.accept(item);
+                }
+            }
+        }
 
-            log.info("生成第{}批行程：第{}天到第{}天（共{}天）", batch + 1, startDay, endDay, currentBatchDays);
+        log.info("流式接收数据成功，共推送{}天行程", emittedDays.size());
+        return aiRouteResponse;
+    }
 
-            try {
-                // 创建批次请求
-                GenerateRouteRequest batchRequest = createBatchRequest(request, startDay, endDay, currentBatchDays);
-
-                // 构建提示词（指定天数范围）
-                String prompt = buildPromptForBatch(batchRequest, startDay, endDay, batch, batchCount);
-
-                // 调用AI API
-                OpenAIRequest aiRequest = new OpenAIRequest();
-                aiRequest.setModel(model);
-                List<OpenAIRequest.Message> messages = new ArrayList<>();
-                OpenAIRequest.Message message = new OpenAIRequest.Message();
-                message.setRole("user");
-                message.setContent(prompt);
-                messages.add(message);
-                aiRequest.setMessages(messages);
-                aiRequest.setTemperature(0.7);
-                aiRequest.setMaxTokens(16000);
-
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-                headers.setBearerAuth(apiKey);
-
-                HttpEntity<OpenAIRequest> requestEntity = new HttpEntity<>(aiRequest, headers);
-
-                ResponseEntity<OpenAIResponse> responseEntity = restTemplate.exchange(
-                        apiUrl,
-                        HttpMethod.POST,
-                        requestEntity,
-                        OpenAIResponse.class
-                );
-
-                OpenAIResponse response = responseEntity.getBody();
-                if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
-                    log.error("第{}批API返回空响应", batch + 1);
-                    return null;
+    /**
+     * 流式解析失败时，保留已推送给客户端的天数，兜底路线只补齐未推送的天数，
+     * 保证持久化与返回的行程和客户端已收到的一致
+     */
+    private void keepStreamedDays(AIRouteResponse fallback, List<AIRouteResponse.ItineraryItem> streamedItems,
+                                  Set<Integer> emittedDays) {
+        if (streamedItems.isEmpty()) {
+            return;
+        }
+        List<AIRouteResponse.ItineraryItem> itinerary = new ArrayList<>(streamedItems);
+        if (fallback.getItinerary() != null) {
+            for (AIRouteResponse.ItineraryItem item : fallback.getItinerary()) {
+                if (item.getDay() != null && !emittedDays.contains(item.getDay())) {
+                    itinerary.add(item);
                 }
+            }
+        }
+        itinerary.sort(Comparator.comparing(AIRouteResponse.ItineraryItem::getDay,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        fallback.setItinerary(itinerary);
+    }
 
-                String content = response.getChoices().get(0).getMessage().getContent();
+    /**
+     * 读取 OpenAI 兼容的 SSE 响应流，将增量内容交给容错读取器，返回解析出的根对象
+     */
+    private JsonNode readCompletionStream(InputStream body, TolerantJsonReader jsonReader) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if (data.isEmpty()) {
+                continue;
+            }
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            JsonNode delta = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+            if (delta.isTextual()) {
+                jsonReader.feed(delta.asText());
+            }
+        }
+        return jsonReader.finish();
+    }
 
-                // 解析响应
-                AIRouteResponse batchResponse = parseAIResponse(content, batchRequest);
+    /**
+     * 分段生成路线（用于长行程，将总天数拆分成多个批次并发生成）
+     * 各批次互不依赖，提交到有界线程池并行调用 AI，按天数顺序合并；
+     * 仅对失败的批次重试。所有轮次共用一个整体时限（timeout），超时后经各批次的
+     * 请求范围中止仍在进行的 HTTP 请求，不再重试，避免同一批次同时有两个请求在途。
+     */
+    private AIRouteResponse generateRouteSegmented(GenerateRouteRequest request, String apiKey, String apiUrl, String model) {
+        int totalDays = request.getDuration();
+        int batchCount = (totalDays + SEGMENT_BATCH_DAYS - 1) / SEGMENT_BATCH_DAYS; // 向上取整
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
 
-                // 提取并合并数据
-                if (batch == 0) {
-                    // 第一批：提取标题和描述
-                    title = batchResponse.getTitle();
-                    description = batchResponse.getDescription();
-                    if (batchResponse.getTips() != null) {
-                        tips.addAll(batchResponse.getTips());
-                    }
-                } else {
-                    // 后续批次：合并提示
-                    if (batchResponse.getTips() != null) {
-                        tips.addAll(batchResponse.getTips());
-                    }
-                }
+        log.info("开始分段生成路线：总天数={}，分{}批，每批约{}天，并发度={}",
+                totalDays, batchCount, SEGMENT_BATCH_DAYS, segmentParallelism);
 
-                // 合并行程项，确保天数连续
-                if (batchResponse.getItinerary() != null) {
-                    // 按 day 字段排序，确保顺序正确
-                    List<AIRouteResponse.ItineraryItem> sortedItems = new ArrayList<>(batchResponse.getItinerary());
-                    sortedItems.sort((a, b) -> Integer.compare(a.getDay(), b.getDay()));
-
-                    int itemIndex = 0;
-                    for (AIRouteResponse.ItineraryItem item : sortedItems) {
-                        // 确保天数正确（从startDay开始，连续递增）
-                        int adjustedDay = startDay + itemIndex;
-                        item.setDay(adjustedDay);
-                        allItineraryItems.add(item);
-                        itemIndex++;
+        AIRouteResponse[] batchResults = new AIRouteResponse[batchCount];
+        List<Integer> pendingBatches = new ArrayList<>();
+        for (int batch = 0; batch < batchCount; batch++) {
+            pendingBatches.add(batch);
+        }
+
+        for (int round = 1; round <= MAX_GENERATION_ATTEMPTS && !pendingBatches.isEmpty(); round++) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                break;
+            }
+            if (round > 1) {
+                log.info("第{}轮重试失败的批次: {}", round - 1, pendingBatches.stream().map(b -> b + 1).toList());
+            }
+
+            // 并发提交本轮所有待生成批次，每个批次在各自的请求范围内调用 AI
+            Map<Integer, CompletableFuture<AIRouteResponse>> futures = new LinkedHashMap<>();
+            Map<Integer, AiRequestScope> scopes = new HashMap<>();
+            for (int batch : pendingBatches) {
+                final int batchIndex = batch;
+                AiRequestScope scope = new AiRequestScope();
+                scopes.put(batchIndex, scope);
+                // 重试轮次延迟提交：由定时器到期后再交给线程池，等待期间不占用线程
+                Executor executor = round == 1 ? segmentExecutor
+                        : CompletableFuture.delayedExecutor(providerGuard.backoffMillis(round - 1),
+                                TimeUnit.MILLISECONDS, segmentExecutor);
+                futures.put(batchIndex, CompletableFuture.supplyAsync(() -> {
+                    if (scope.isCancelled()) {
+                        throw new RuntimeException("第" + (batchIndex + 1) + "批请求已取消");
                     }
+                    return scope.call(() -> generateBatch(request, apiKey, apiUrl, model, batchIndex, batchCount));
+                }, executor));
+            }
 
-                    // 验证批次天数是否正确
-                    if (itemIndex != currentBatchDays) {
-                        log.warn("第{}批返回的天数不匹配：期望{}天，实际{}天", batch + 1, currentBatchDays, itemIndex);
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                        .orTimeout(remaining, TimeUnit.MILLISECONDS)
+                        .get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                scopes.values().forEach(AiRequestScope::cancel);
+                log.warn("分段生成被中断");
+                return null;
+            } catch (ExecutionException e) {
+                // 单个批次失败或整体超时，下面逐个判断
+            }
+
+            List<Integer> failedBatches = new ArrayList<>();
+            List<Integer> unfinishedBatches = new ArrayList<>();
+            for (Map.Entry<Integer, CompletableFuture<AIRouteResponse>> entry : futures.entrySet()) {
+                int batchIndex = entry.getKey();
+                CompletableFuture<AIRouteResponse> future = entry.getValue();
+                if (!future.isDone()) {
+                    unfinishedBatches.add(batchIndex);
+                    scopes.get(batchIndex).cancel();
+                } else if (future.isCompletedExceptionally()) {
+                    Throwable cause = future.handle((result, error) -> error).join();
+                    if (cause instanceof CompletionException && cause.getCause() != null) {
+                        cause = cause.getCause();
                     }
+                    log.error("第{}批生成失败: {}", batchIndex + 1, cause.getMessage(), cause);
+                    failedBatches.add(batchIndex);
+                } else {
+                    batchResults[batchIndex] = future.join();
                 }
+            }
+            if (!unfinishedBatches.isEmpty()) {
+                log.warn("分段生成超过整体时限{}毫秒，已取消未完成的批次: {}",
+                        timeout, unfinishedBatches.stream().map(b -> b + 1).toList());
+                return null;
+            }
+            pendingBatches = failedBatches;
+        }
 
-                // 批次间暂停，避免API限流
-                if (batch < batchCount - 1) {
-                    safeRetryPause();
-                }
+        if (!pendingBatches.isEmpty()) {
+            log.warn("分段生成仍有批次失败: {}", pendingBatches.stream().map(b -> b + 1).toList());
+            return null;
+        }
 
-            } catch (Exception e) {
-                log.error("第{}批生成失败: {}", batch + 1, e.getMessage(), e);
-                return null;
+        // 按批次（即天数）顺序合并
+        List<AIRouteResponse.ItineraryItem> allItineraryItems = new ArrayList<>();
+        List<String> tips = new ArrayList<>();
+        for (AIRouteResponse batchResponse : batchResults) {
+            if (batchResponse.getItinerary() != null) {
+                allItineraryItems.addAll(batchResponse.getItinerary());
+            }
+            if (batchResponse.getTips() != null) {
+                tips.addAll(batchResponse.getTips());
             }
         }
 
@@ -350,6 +571,10 @@ public class AIService {
             return null;
         }
 
+        // 第一批提供标题和描述
+        String title = batchResults[0].getTitle();
+        String description = batchResults[0].getDescription();
+
         // 构建完整响应
         AIRouteResponse fullResponse = new AIRouteResponse();
         fullResponse.setTitle(title != null ? title : "从" + request.getStartLocation() + "到" + request.getEndLocation() + "的路线");
@@ -361,6 +586,77 @@ public class AIService {
         return fullResponse;
     }
 
+    /**
+     * 生成单个批次的行程（在分段线程池中执行），返回的行程项已按批次起始天数重新编号
+     */
+    private AIRouteResponse generateBatch(GenerateRouteRequest request, String apiKey, String apiUrl, String model,
+                                          int batch, int batchCount) {
+        int totalDays = request.getDuration();
+        int startDay = batch * SEGMENT_BATCH_DAYS + 1;
+        int endDay = Math.min((batch + 1) * SEGMENT_BATCH_DAYS, totalDays);
+        int currentBatchDays = endDay - startDay + 1;
+
+        log.info("生成第{}批行程：第{}天到第{}天（共{}天）", batch + 1, startDay, endDay, currentBatchDays);
+
+        // 创建批次请求
+        GenerateRouteRequest batchRequest = createBatchRequest(request, startDay, endDay, currentBatchDays);
+
+        // 构建提示词（指定天数范围）
+        String prompt = buildPromptForBatch(batchRequest, startDay, endDay, batch, batchCount);
+
+        // 调用AI API
+        OpenAIRequest aiRequest = new OpenAIRequest();
+        aiRequest.setModel(model);
+        List<OpenAIRequest.Message> messages = new ArrayList<>();
+        OpenAIRequest.Message message = new OpenAIRequest.Message();
+        message.setRole("user");
+        message.setContent(prompt);
+        messages.add(message);
+        aiRequest.setMessages(messages);
+        aiRequest.setTemperature(0.7);
+        aiRequest.setMaxTokens(16000);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+
+        HttpEntity<OpenAIRequest> requestEntity = new HttpEntity<>(aiRequest, headers);
+
+        ResponseEntity<OpenAIResponse> responseEntity = callProvider(provider, AiProviderGuard.Operation.ROUTE, () -> restTemplate.exchange(
+                apiUrl,
+                HttpMethod.POST,
+                requestEntity,
+                OpenAIResponse.class
+        ));
+
+        OpenAIResponse response = responseEntity.getBody();
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
+            throw new RuntimeException("第" + (batch + 1) + "批API返回空响应");
+        }
+
+        String content = response.getChoices().get(0).getMessage().getContent();
+
+        // 解析响应
+        AIRouteResponse batchResponse = parseAIResponse(content, batchRequest);
+
+        // 按 day 字段排序，并确保天数从 startDay 开始连续递增
+        List<AIRouteResponse.ItineraryItem> sortedItems = batchResponse.getItinerary() != null
+                ? new ArrayList<>(batchResponse.getItinerary())
+                : new ArrayList<>();
+        sortedItems.sort((a, b) -> Integer.compare(a.getDay(), b.getDay()));
+        for (int i = 0; i < sortedItems.size(); i++) {
+            sortedItems.get(i).setDay(startDay + i);
+        }
+        if (sortedItems.size() != currentBatchDays) {
+            log.warn("第{}批返回的天数不匹配：期望{}天，实际{}天", batch + 1, currentBatchDays, sortedItems.size());
+        }
+        if (sortedItems.size() < currentBatchDays) {
+            throw new IncompleteItineraryException("第" + (batch + 1) + "批仅返回" + sortedItems.size() + "天，期望" + currentBatchDays + "天");
+        }
+        batchResponse.setItinerary(new ArrayList<>(sortedItems.subList(0, currentBatchDays)));
+        return batchResponse;
+    }
+
     /**
      * 创建批次请求（用于分段生成）
      */
@@ -681,105 +977,16 @@ public class AIService {
     }
 
     /**
-     * 从已清理的 JSON 内容解析（内部方法，避免重复清理）
-     */
-    private AIRouteResponse parseAIResponseFromCleanedJson(String jsonContent, GenerateRouteRequest request) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(jsonContent);
-            return buildRouteResponseFromJson(rootNode, request);
-        } catch (Exception e) {
-            log.error("从已清理的 JSON 解析失败: {}", e.getMessage());
-            throw new RuntimeException("解析修复后的 JSON 失败: " + e.getMessage(), e);
-        }
-    }
-
-    /**
-     * 解析AI返回的JSON响应
+     * 解析AI返回的JSON响应：容错读取器单遍扫描，就地修正常见格式错误和截断
      */
     private AIRouteResponse parseAIResponse(String content, GenerateRouteRequest request) {
-        String jsonContent = null;
+        log.debug("原始AI响应内容长度: {} 字符", content != null ? content.length() : 0);
+        JsonNode rootNode = TolerantJsonReader.parse(content);
+        if (rootNode == null || !rootNode.isObject()) {
+            throw new JsonFormatException("AI返回内容中未找到有效的JSON对象。可能是响应被截断，建议检查提示词或减小输出体量。");
+        }
         try {
-            // 尝试提取JSON部分（AI可能返回带markdown代码块的JSON）
-            jsonContent = content.trim();
-            log.debug("原始AI响应内容: {}", jsonContent);
-
-            if (jsonContent.contains("```json")) {
-                int start = jsonContent.indexOf("```json") + 7;
-                int end = jsonContent.indexOf("```", start);
-                if (end > start) {
-                    jsonContent = jsonContent.substring(start, end).trim();
-                    log.debug("从markdown代码块中提取JSON");
-                }
-            } else if (jsonContent.contains("```")) {
-                int start = jsonContent.indexOf("```") + 3;
-                int end = jsonContent.indexOf("```", start);
-                if (end > start) {
-                    jsonContent = jsonContent.substring(start, end).trim();
-                    log.debug("从代码块中提取JSON");
-                }
-            }
-
-            // 先检测并修复不完整的 JSON（如果响应被截断）
-            // 注意：在清理之前先修复，因为清理过程可能会因为不完整的 JSON 而失败
-            jsonContent = fixIncompleteJson(jsonContent);
-
-            // 清理 JSON 内容：移除中文标点符号和其他可能导致解析错误的字符
-            jsonContent = cleanJsonContent(jsonContent);
-            jsonContent = repairJsonStructure(jsonContent);
-
-            log.debug("准备解析的JSON内容长度: {} 字符", jsonContent.length());
-            if (jsonContent.length() > 10000) {
-                log.debug("JSON内容前1000字符: {}", jsonContent.substring(0, Math.min(1000, jsonContent.length())));
-            } else {
-            log.debug("准备解析的JSON内容: {}", jsonContent);
-            }
-            JsonNode rootNode = objectMapper.readTree(jsonContent);
             return buildRouteResponseFromJson(rootNode, request);
-        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-            log.error("JSON解析失败，错误信息: {}", e.getMessage());
-            log.error("原始内容长度: {} 字符", content != null ? content.length() : 0);
-
-            // 如果 jsonContent 未初始化，使用原始 content
-            if (jsonContent == null) {
-                jsonContent = content != null ? content.trim() : "";
-            }
-
-            // 尝试修复 JSON（可能是响应被截断）
-            String fixedContent = attemptJsonFix(jsonContent, e);
-            if (fixedContent != null && !fixedContent.equals(jsonContent)) {
-                try {
-                    log.info("尝试使用修复后的 JSON 重新解析");
-                    // 重新清理和修复
-                    fixedContent = cleanJsonContent(fixedContent);
-                    fixedContent = repairJsonStructure(fixedContent);
-                    fixedContent = fixIncompleteJson(fixedContent);
-                    // 再次应用逗号和引号修复
-                    fixedContent = fixMissingCommasAndQuotes(fixedContent);
-                    JsonNode rootNode = objectMapper.readTree(fixedContent);
-                    log.info("JSON 修复成功，使用修复后的内容重新解析");
-                    // 直接使用修复后的内容解析（跳过重复的清理步骤）
-                    return parseAIResponseFromCleanedJson(fixedContent, request);
-                } catch (Exception retryException) {
-                    log.error("修复后的 JSON 仍无法解析: {}", retryException.getMessage());
-                    throw new JsonFormatException("AI返回的JSON格式不正确，且无法自动修复: " + e.getMessage(), e);
-                }
-            }
-
-            // 如果 attemptJsonFix 没有修复，尝试直接应用逗号和引号修复
-            try {
-                log.info("尝试直接修复缺少逗号和引号的问题");
-                String directFixed = fixMissingCommasAndQuotes(jsonContent);
-                directFixed = cleanJsonContent(directFixed);
-                directFixed = repairJsonStructure(directFixed);
-                JsonNode rootNode = objectMapper.readTree(directFixed);
-                log.info("直接修复成功，使用修复后的内容重新解析");
-                return parseAIResponseFromCleanedJson(directFixed, request);
-            } catch (Exception directFixException) {
-                log.debug("直接修复也失败: {}", directFixException.getMessage());
-            }
-
-            throw new JsonFormatException("AI返回的JSON格式不正确: " + e.getMessage()
-                    + "。可能是响应被截断，建议检查提示词或减小输出体量。", e);
         } catch (Exception e) {
             log.error("解析AI响应时发生错误，原始内容: {}", content, e);
             throw new RuntimeException("解析AI响应失败: " + e.getMessage(), e);
@@ -833,148 +1040,7 @@ public class AIService {
                 log.debug("找到行程数组，包含 {} 项", itineraryArray.size());
 
                 for (JsonNode itemNode : itineraryArray) {
-                    AIRouteResponse.ItineraryItem item = new AIRouteResponse.ItineraryItem();
-                    item.setDay(itemNode.has("day") ? itemNode.get("day").asInt() : 1);
-                    item.setTitle(itemNode.has("title") ? itemNode.get("title").asText() : "第" + item.getDay() + "天");
-
-                    // 解析描述
-                    item.setDescription(itemNode.has("description") ? itemNode.get("description").asText() : "");
-
-                    // 解析时间安排（作为独立字段）
-                    item.setTimeSchedule(itemNode.has("timeSchedule") ? itemNode.get("timeSchedule").asText() : null);
-
-                    // 解析交通信息（作为独立字段）
-                    item.setTransportation(itemNode.has("transportation") ? itemNode.get("transportation").asText() : null);
-
-                    // 解析每日预算（作为独立字段）
-                    item.setDailyBudget(itemNode.has("dailyBudget") ? itemNode.get("dailyBudget").asText() : null);
-
-                    // 解析地点
-                    List<AIRouteResponse.Location> locations = new ArrayList<>();
-                    if (itemNode.has("locations") && itemNode.get("locations").isArray()) {
-                        JsonNode locationsArray = itemNode.get("locations");
-                        log.debug("第{}天找到 {} 个地点", item.getDay(), locationsArray.size());
-
-                        for (JsonNode locNode : locationsArray) {
-                            AIRouteResponse.Location loc = new AIRouteResponse.Location();
-                            loc.setName(locNode.has("name") ? locNode.get("name").asText() : "");
-
-                            // 解析地点描述（包含开放时间、门票、最佳游览时间等详细信息）
-                            StringBuilder locDescBuilder = new StringBuilder();
-                            String originalDescription = locNode.has("description") ? locNode.get("description").asText() : "";
-                            if (!originalDescription.isEmpty()) {
-                                locDescBuilder.append(originalDescription);
-                            }
-
-                            // 解析优先等级
-                            if (locNode.has("priority") && !locNode.get("priority").isNull()) {
-                                String priority = locNode.get("priority").asText();
-                                if (!priority.isEmpty()) {
-                                    locDescBuilder.append("\n\n【优先等级】").append(priority);
-                                }
-                            }
-
-                            // 解析替代方案
-                            if (locNode.has("alternative") && !locNode.get("alternative").isNull()) {
-                                String alternative = locNode.get("alternative").asText();
-                                if (!alternative.isEmpty()) {
-                                    locDescBuilder.append("\n【替代方案】").append(alternative);
-                                }
-                            }
-
-                            // 提取注意事项（从原始描述中提取，替换地图链接）
-                            // 检查描述中是否已经包含【注意事项】标签
-                            String currentDesc = locDescBuilder.toString();
-                            if (!currentDesc.contains("【注意事项】") && !currentDesc.contains("注意事项：")) {
-                                String notes = extractNotes(originalDescription);
-                                if (notes != null && !notes.isEmpty()) {
-                                    locDescBuilder.append("\n【注意事项】").append(notes);
-                                }
-                            }
-
-                            loc.setDescription(locDescBuilder.length() > 0 ? locDescBuilder.toString() : null);
-
-                            // 解析坐标（如果AI提供了）
-                            if (locNode.has("lat") && !locNode.get("lat").isNull()) {
-                                try {
-                                    loc.setLat(locNode.get("lat").asDouble());
-                                } catch (Exception e) {
-                                    log.warn("无法解析地点 {} 的纬度", loc.getName());
-                                    loc.setLat(null);
-                                }
-                            } else {
-                                loc.setLat(null);
-                            }
-
-                            if (locNode.has("lng") && !locNode.get("lng").isNull()) {
-                                try {
-                                    loc.setLng(locNode.get("lng").asDouble());
-                                } catch (Exception e) {
-                                    log.warn("无法解析地点 {} 的经度", loc.getName());
-                                    loc.setLng(null);
-                                }
-                            } else {
-                                loc.setLng(null);
-                            }
-
-                            if (!loc.getName().isEmpty()) {
-                                locations.add(loc);
-                                log.debug("添加地点: {} (lat: {}, lng: {})", loc.getName(), loc.getLat(), loc.getLng());
-                            }
-                        }
-                    }
-                    item.setLocations(locations);
-
-                    // 解析住宿（支持字符串或对象格式）
-                    if (itemNode.has("accommodation")) {
-                        JsonNode accommodationNode = itemNode.get("accommodation");
-                        if (accommodationNode.isObject()) {
-                            // 如果是对象格式，构建详细的住宿信息
-                            StringBuilder accBuilder = new StringBuilder();
-                            if (accommodationNode.has("area")) {
-                                accBuilder.append("【推荐住宿区域】").append(accommodationNode.get("area").asText()).append("\n");
-                            }
-                            if (accommodationNode.has("budget")) {
-                                JsonNode budget = accommodationNode.get("budget");
-                                accBuilder.append("【经济型】").append(budget.has("name") ? budget.get("name").asText() : "")
-                                    .append(" - ").append(budget.has("price") ? budget.get("price").asText() : "")
-                                    .append("，").append(budget.has("address") ? budget.get("address").asText() : "")
-                                    .append("\n");
-                            }
-                            if (accommodationNode.has("comfort")) {
-                                JsonNode comfort = accommodationNode.get("comfort");
-                                accBuilder.append("【舒适型】").append(comfort.has("name") ? comfort.get("name").asText() : "")
-                                    .append(" - ").append(comfort.has("price") ? comfort.get("price").asText() : "")
-                                    .append("，").append(comfort.has("address") ? comfort.get("address").asText() : "")
-                                    .append("\n");
-                            }
-                            if (accommodationNode.has("luxury")) {
-                                JsonNode luxury = accommodationNode.get("luxury");
-                                accBuilder.append("【豪华型】").append(luxury.has("name") ? luxury.get("name").asText() : "")
-                                    .append(" - ").append(luxury.has("price") ? luxury.get("price").asText() : "")
-                                    .append("，").append(luxury.has("address") ? luxury.get("address").asText() : "");
-                            }
-                            item.setAccommodation(accBuilder.toString());
-                        } else {
-                            // 如果是字符串格式，直接使用
-                            item.setAccommodation(accommodationNode.asText());
-                        }
-                    } else {
-                        item.setAccommodation(null);
-                    }
-
-                    // 解析餐食（包含详细信息：餐厅名称、推荐菜品、价格等）
-                    List<String> meals = new ArrayList<>();
-                    if (itemNode.has("meals") && itemNode.get("meals").isArray()) {
-                        JsonNode mealsArray = itemNode.get("meals");
-                        for (JsonNode mealNode : mealsArray) {
-                            meals.add(mealNode.asText());
-                        }
-                        log.debug("第{}天找到 {} 个餐食", item.getDay(), meals.size());
-                    }
-                    item.setMeals(meals);
-
-                    itinerary.add(item);
+                    itinerary.add(buildItineraryItem(itemNode));
                 }
             } else {
                 log.warn("AI响应中未找到有效的行程数组");
@@ -1086,651 +1152,151 @@ public class AIService {
     }
 
     /**
-     * 尝试修复 JSON（当解析失败时）
+     * 从单个行程 JSON 节点构建行程项（整段解析与流式解析共用）
      */
-    private String attemptJsonFix(String jsonContent, Exception originalException) {
-        if (jsonContent == null || jsonContent.isEmpty()) {
-            return null;
-        }
-
-        // 如果错误信息包含 "expecting closing quote"，说明有未闭合的字符串
-        if (originalException.getMessage().contains("expecting closing quote")) {
-            log.warn("检测到未闭合的字符串，尝试修复");
-
-            // 从错误信息中提取行号和列号（如果可用）
-            String errorMsg = originalException.getMessage();
-            int errorLine = 1;
-            int errorCol = 0;
-
-            // 尝试从错误信息中提取行号和列号
-            // 错误信息格式: "... line: 226, column: 84]"
-            try {
-                // 查找 "line:" 后面的数字
-                int lineIndex = errorMsg.indexOf("line:");
-                if (lineIndex >= 0) {
-                    int lineStart = lineIndex + 5;
-                    // 跳过空格
-                    while (lineStart < errorMsg.length() && Character.isWhitespace(errorMsg.charAt(lineStart))) {
-                        lineStart++;
-                    }
-                    // 找到数字结束位置（逗号或空格或]）
-                    int lineEnd = lineStart;
-                    while (lineEnd < errorMsg.length() && Character.isDigit(errorMsg.charAt(lineEnd))) {
-                        lineEnd++;
-                    }
-                    if (lineEnd > lineStart) {
-                        errorLine = Integer.parseInt(errorMsg.substring(lineStart, lineEnd).trim());
-                    }
+    private AIRouteResponse.ItineraryItem buildItineraryItem(JsonNode itemNode) {
+        AIRouteResponse.ItineraryItem item = new AIRouteResponse.ItineraryItem();
+        item.setDay(itemNode.has("day") ? itemNode.get("day").asInt() : 1);
+        item.setTitle(itemNode.has("title") ? itemNode.get("title").asText() : "第" + item.getDay() + "天");
+
+        // 解析描述
+        item.setDescription(itemNode.has("description") ? itemNode.get("description").asText() : "");
+
+        // 解析时间安排（作为独立字段）
+        item.setTimeSchedule(itemNode.has("timeSchedule") ? itemNode.get("timeSchedule").asText() : null);
+
+        // 解析交通信息（作为独立字段）
+        item.setTransportation(itemNode.has("transportation") ? itemNode.get("transportation").asText() : null);
+
+        // 解析每日预算（作为独立字段）
+        item.setDailyBudget(itemNode.has("dailyBudget") ? itemNode.get("dailyBudget").asText() : null);
+
+        // 解析地点
+        List<AIRouteResponse.Location> locations = new ArrayList<>();
+        if (itemNode.has("locations") && itemNode.get("locations").isArray()) {
+            JsonNode locationsArray = itemNode.get("locations");
+            log.debug("第{}天找到 {} 个地点", item.getDay(), locationsArray.size());
+
+            for (JsonNode locNode : locationsArray) {
+                AIRouteResponse.Location loc = new AIRouteResponse.Location();
+                loc.setName(locNode.has("name") ? locNode.get("name").asText() : "");
+
+                // 解析地点描述（包含开放时间、门票、最佳游览时间等详细信息）
+                StringBuilder locDescBuilder = new StringBuilder();
+                String originalDescription = locNode.has("description") ? locNode.get("description").asText() : "";
+                if (!originalDescription.isEmpty()) {
+                    locDescBuilder.append(originalDescription);
                 }
 
-                // 查找 "column:" 后面的数字
-                int colIndex = errorMsg.indexOf("column:");
-                if (colIndex >= 0) {
-                    int colStart = colIndex + 7;
-                    // 跳过空格
-                    while (colStart < errorMsg.length() && Character.isWhitespace(errorMsg.charAt(colStart))) {
-                        colStart++;
-                    }
-                    // 找到数字结束位置（] 或空格）
-                    int colEnd = colStart;
-                    while (colEnd < errorMsg.length() && Character.isDigit(errorMsg.charAt(colEnd))) {
-                        colEnd++;
-                    }
-                    if (colEnd > colStart) {
-                        errorCol = Integer.parseInt(errorMsg.substring(colStart, colEnd).trim());
+                // 解析优先等级
+                if (locNode.has("priority") && !locNode.get("priority").isNull()) {
+                    String priority = locNode.get("priority").asText();
+                    if (!priority.isEmpty()) {
+                        locDescBuilder.append("\n\n【优先等级】").append(priority);
                     }
                 }
-        } catch (Exception e) {
-                log.debug("无法从错误信息中提取行号和列号: {}", e.getMessage());
-            }
 
-            log.info("错误位置: 行 {}, 列 {}", errorLine, errorCol);
-
-            // 方法1: 从后往前找到最后一个未闭合的字符串字段并移除
-            StringBuilder fixed = new StringBuilder(jsonContent);
-
-            // 从后往前扫描，找到最后一个 ":" 后面未闭合的字符串
-            int lastColon = fixed.lastIndexOf(":");
-            if (lastColon > 0) {
-                // 找到最后一个字段的键名开始位置
-                int keyStart = fixed.lastIndexOf("\"", lastColon);
-                if (keyStart > 0) {
-                    // 找到键名结束位置
-                    int keyEnd = fixed.indexOf("\"", keyStart + 1);
-                    if (keyEnd > keyStart && keyEnd < lastColon) {
-                        // 找到这个字段的开始位置（向前查找逗号、大括号或中括号）
-                        int fieldStart = -1;
-                        for (int i = lastColon - 1; i >= 0; i--) {
-                            char c = fixed.charAt(i);
-                            if (c == ',') {
-                                fieldStart = i + 1;
-                                break;
-                            } else if (c == '{' || c == '[') {
-                                fieldStart = i;
-                                break;
-                            } else if (c == '}' || c == ']') {
-                                // 跳过已闭合的对象或数组
-                                break;
-                            }
-                        }
-
-                        if (fieldStart >= 0) {
-                            // 移除从字段开始到结尾的所有内容
-                            int removeStart = fieldStart;
-                            // 如果前面有换行，也一起移除
-                            while (removeStart > 0 && Character.isWhitespace(fixed.charAt(removeStart - 1))) {
-                                removeStart--;
-                            }
-                            fixed.delete(removeStart, fixed.length());
-                            log.info("移除了最后一个不完整的字段（从位置 {} 开始），新长度: {}", removeStart, fixed.length());
-
-                            // 确保 JSON 结构完整（添加缺失的闭合括号）
-                            fixed = ensureJsonComplete(fixed);
-                            return fixed.toString();
-                        }
+                // 解析替代方案
+                if (locNode.has("alternative") && !locNode.get("alternative").isNull()) {
+                    String alternative = locNode.get("alternative").asText();
+                    if (!alternative.isEmpty()) {
+                        locDescBuilder.append("\n【替代方案】").append(alternative);
                     }
                 }
-            }
 
-            // 方法2: 如果方法1失败，尝试从指定位置移除未闭合的字符串
-            if (errorCol > 0) {
-                // 计算实际字符位置（考虑换行符）
-                int charPos = 0;
-                int currentLine = 1;
-                for (int i = 0; i < fixed.length() && currentLine < errorLine; i++) {
-                    if (fixed.charAt(i) == '\n') {
-                        currentLine++;
+                // 提取注意事项（从原始描述中提取，替换地图链接）
+                // 检查描述中是否已经包含【注意事项】标签
+                String currentDesc = locDescBuilder.toString();
+                if (!currentDesc.contains("【注意事项】") && !currentDesc.contains("注意事项：")) {
+                    String notes = extractNotes(originalDescription);
+                    if (notes != null && !notes.isEmpty()) {
+                        locDescBuilder.append("\n【注意事项】").append(notes);
                     }
-                    charPos = i;
                 }
-                charPos += errorCol;
-
-                if (charPos < fixed.length()) {
-                    // 向前查找这个字符串的开始位置
-                    int stringStart = -1;
-                    for (int i = charPos; i >= 0; i--) {
-                        if (fixed.charAt(i) == '"' && (i == 0 || fixed.charAt(i - 1) != '\\')) {
-                            // 检查这是字符串的开始还是结束
-                            int colonBefore = fixed.lastIndexOf(":", i);
-                            if (colonBefore > 0 && colonBefore < i) {
-                                stringStart = i;
-                                break;
-                            }
-                        }
-                    }
-
-                    if (stringStart > 0) {
-                        // 找到字段开始位置
-                        int fieldStart = fixed.lastIndexOf(",", stringStart);
-                        if (fieldStart < 0) {
-                            fieldStart = fixed.lastIndexOf("{", stringStart);
-                            if (fieldStart < 0) {
-                                fieldStart = fixed.lastIndexOf("[", stringStart);
-                            }
-                        }
-
-                        if (fieldStart >= 0) {
-                            fixed.delete(fieldStart + (fixed.charAt(fieldStart) == ',' ? 1 : 0), fixed.length());
-                            fixed = ensureJsonComplete(fixed);
-                            log.info("使用方法2修复，从位置 {} 移除，新长度: {}", fieldStart, fixed.length());
-                            return fixed.toString();
-                        }
-                    }
-                }
-            }
-        }
 
-        return null;
-    }
-
-    /**
-     * 确保 JSON 结构完整（添加缺失的闭合括号）
-     */
-    private StringBuilder ensureJsonComplete(StringBuilder json) {
-        int openBraces = 0;
-        int openBrackets = 0;
-        boolean inString = false;
-        boolean escaped = false;
-
-        for (int i = 0; i < json.length(); i++) {
-            char c = json.charAt(i);
-
-            if (escaped) {
-                escaped = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                escaped = true;
-                continue;
-            }
-
-            if (c == '"') {
-                inString = !inString;
-                continue;
-            }
+                loc.setDescription(locDescBuilder.length() > 0 ? locDescBuilder.toString() : null);
 
-            if (!inString) {
-                if (c == '{') {
-                    openBraces++;
-                } else if (c == '}') {
-                    openBraces--;
-                } else if (c == '[') {
-                    openBrackets++;
-                } else if (c == ']') {
-                    openBrackets--;
-                }
-            }
-        }
-
-        // 移除末尾的逗号
-        while (json.length() > 0 && (json.charAt(json.length() - 1) == ',' ||
-               Character.isWhitespace(json.charAt(json.length() - 1)))) {
-            json.deleteCharAt(json.length() - 1);
-        }
-
-        // 添加缺失的闭合括号
-        for (int i = 0; i < openBrackets; i++) {
-            json.append(']');
-        }
-        for (int i = 0; i < openBraces; i++) {
-            json.append('}');
-        }
-
-        return json;
-    }
-
-    /**
-     * 修复不完整的 JSON（如果响应被截断）
-     */
-    private String fixIncompleteJson(String jsonContent) {
-        if (jsonContent == null || jsonContent.isEmpty()) {
-            return jsonContent;
-        }
-
-        // 检查 JSON 是否完整（检查括号是否匹配）
-        int openBraces = 0;
-        int openBrackets = 0;
-        boolean inString = false;
-        boolean escaped = false;
-
-        for (int i = 0; i < jsonContent.length(); i++) {
-            char c = jsonContent.charAt(i);
-
-            if (escaped) {
-                escaped = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                escaped = true;
-                continue;
-            }
-
-            if (c == '"') {
-                inString = !inString;
-                continue;
-            }
-
-            if (!inString) {
-                if (c == '{') {
-                    openBraces++;
-                } else if (c == '}') {
-                    openBraces--;
-                } else if (c == '[') {
-                    openBrackets++;
-                } else if (c == ']') {
-                    openBrackets--;
-                }
-            }
-        }
-
-        // 如果 JSON 不完整，尝试修复
-        if (openBraces > 0 || openBrackets > 0 || inString) {
-            log.warn("检测到不完整的 JSON，尝试修复。未闭合的括号: {}({}), []({})，未闭合的字符串: {}",
-                    openBraces > 0 ? openBraces : 0,
-                    openBrackets > 0 ? openBrackets : 0,
-                    inString);
-
-            // 从后往前查找最后一个不完整的字符串或对象
-            StringBuilder fixed = new StringBuilder(jsonContent);
-
-            // 如果字符串未闭合，需要找到最后一个未闭合的字符串并修复
-            if (inString) {
-                // 从后往前查找最后一个 ":" 后面跟着未闭合的字符串
-                int lastColon = fixed.lastIndexOf(":");
-                if (lastColon > 0) {
-                    // 从 lastColon 之后查找字符串开始位置
-                    int stringStart = -1;
-                    for (int i = lastColon + 1; i < fixed.length(); i++) {
-                        char c = fixed.charAt(i);
-                        if (c == '"' && (i == 0 || fixed.charAt(i - 1) != '\\')) {
-                            stringStart = i;
-                            break;
-                        }
-                    }
-
-                    // 如果找到了未闭合的字符串开始位置，关闭它
-                    if (stringStart > 0) {
-                        log.warn("发现未闭合的字符串，从位置 {} 开始，关闭字符串", stringStart);
-                        // 在末尾添加闭合引号
-                        fixed.append("\"");
-                    } else {
-                        // 如果没有找到引号，说明字符串值没有引号，需要添加
-                        // 找到最后一个 ":" 的位置，在其后添加引号（如果还没有）
-                        if (lastColon > 0 && lastColon < fixed.length() - 1) {
-                            char afterColon = fixed.charAt(lastColon + 1);
-                            if (afterColon != '"' && afterColon != ' ') {
-                                // 在 ":" 后插入引号
-                                fixed.insert(lastColon + 1, "\"");
-                                // 在末尾添加闭合引号
-                                fixed.append("\"");
-                            }
-                        }
+                // 解析坐标（如果AI提供了）
+                if (locNode.has("lat") && !locNode.get("lat").isNull()) {
+                    try {
+                        loc.setLat(locNode.get("lat").asDouble());
+                    } catch (Exception e) {
+                        log.warn("无法解析地点 {} 的纬度", loc.getName());
+                        loc.setLat(null);
                     }
+                } else {
+                    loc.setLat(null);
                 }
-            }
 
-            // 查找最后一个未闭合的字符串（即使 inString 为 false，也可能有未闭合的字符串）
-            int lastColon = fixed.lastIndexOf(":");
-            if (lastColon > 0) {
-                // 检查从 lastColon 之后是否有未闭合的字符串
-                boolean foundUnclosedString = false;
-                int stringStart = -1;
-                boolean inStringCheck = false;
-                for (int i = lastColon + 1; i < fixed.length(); i++) {
-                    char c = fixed.charAt(i);
-                    if (c == '\\' && i < fixed.length() - 1) {
-                        i++; // 跳过转义字符
-                        continue;
-                    }
-                    if (c == '"') {
-                        if (!inStringCheck) {
-                            stringStart = i;
-                            inStringCheck = true;
-                        } else {
-                            // 找到了闭合引号
-                            stringStart = -1;
-                            inStringCheck = false;
-                        }
+                if (locNode.has("lng") && !locNode.get("lng").isNull()) {
+                    try {
+                        loc.setLng(locNode.get("lng").asDouble());
+                    } catch (Exception e) {
+                        log.warn("无法解析地点 {} 的经度", loc.getName());
+                        loc.setLng(null);
                     }
+                } else {
+                    loc.setLng(null);
                 }
 
-                // 如果找到了未闭合的字符串，关闭它
-                if (stringStart > 0 && inStringCheck) {
-                    log.warn("发现未闭合的字符串，从位置 {} 开始，关闭字符串", stringStart);
-                    fixed.append("\"");
+                if (!loc.getName().isEmpty()) {
+                    locations.add(loc);
+                    log.debug("添加地点: {} (lat: {}, lng: {})", loc.getName(), loc.getLat(), loc.getLng());
                 }
             }
-
-            // 移除最后一个不完整的字段（如果以逗号结尾）
-            while (fixed.length() > 0 && (fixed.charAt(fixed.length() - 1) == ',' ||
-                   Character.isWhitespace(fixed.charAt(fixed.length() - 1)))) {
-                fixed.deleteCharAt(fixed.length() - 1);
-            }
-
-            // 添加缺失的闭合括号
-            for (int i = 0; i < openBrackets; i++) {
-                fixed.append(']');
-            }
-            for (int i = 0; i < openBraces; i++) {
-                fixed.append('}');
-            }
-
-            log.info("修复后的 JSON 长度: {} 字符（原长度: {} 字符）", fixed.length(), jsonContent.length());
-            return fixed.toString();
         }
+        item.setLocations(locations);
 
-        return jsonContent;
-    }
-
-    /**
-     * 清理 JSON 内容，移除可能导致解析错误的中文标点符号和其他非标准字符
-     */
-    private String cleanJsonContent(String jsonContent) {
-        if (jsonContent == null || jsonContent.isEmpty()) {
-            return jsonContent;
-        }
-
-        // 统一去掉 Markdown 代码块围栏（无论 parse 阶段是否处理过）
-        jsonContent = stripCodeFences(jsonContent);
-
-        // 移除可能的 BOM 标记
-        if (jsonContent.startsWith("\uFEFF")) {
-            jsonContent = jsonContent.substring(1);
-        }
-
-        // 第一步：在字符串值内转义中文引号
-        // 这是关键步骤：将字符串值内的中文引号转义为转义的英文引号
-        StringBuilder cleaned = new StringBuilder();
-        boolean inString = false;
-        boolean escaped = false;
-
-        for (int i = 0; i < jsonContent.length(); i++) {
-            char c = jsonContent.charAt(i);
-
-            if (escaped) {
-                cleaned.append(c);
-                escaped = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                cleaned.append(c);
-                escaped = true;
-                continue;
-            }
-
-            if (c == '"') {
-                inString = !inString;
-                cleaned.append(c);
-                continue;
-            }
-
-            if (inString) {
-                // 在字符串值内，将中文引号转义为转义的英文引号
-                if (c == '\u201C' || c == '\u201D') {  // 中文双引号
-                    cleaned.append("\\\"");
-                } else if (c == '\u2018' || c == '\u2019') {  // 中文单引号
-                    cleaned.append("'");  // 单引号在 JSON 字符串中不需要转义
-                } else {
-                    cleaned.append(c);
+        // 解析住宿（支持字符串或对象格式）
+        if (itemNode.has("accommodation")) {
+            JsonNode accommodationNode = itemNode.get("accommodation");
+            if (accommodationNode.isObject()) {
+                // 如果是对象格式，构建详细的住宿信息
+                StringBuilder accBuilder = new StringBuilder();
+                if (accommodationNode.has("area")) {
+                    accBuilder.append("【推荐住宿区域】").append(accommodationNode.get("area").asText()).append("\n");
                 }
-            } else {
-                // 在 JSON 结构外，替换中文引号为英文引号
-                if (c == '\u201C' || c == '\u201D') {
-                    cleaned.append('"');
-                } else if (c == '\u2018' || c == '\u2019') {
-                    cleaned.append('\'');
-                } else if (c == '《' || c == '》' || c == '「' || c == '」' || c == '『' || c == '』') {
-                    // 移除 JSON 结构中的中文标点符号
-                    continue;
-                } else {
-                    cleaned.append(c);
+                if (accommodationNode.has("budget")) {
+                    JsonNode budget = accommodationNode.get("budget");
+                    accBuilder.append("【经济型】").append(budget.has("name") ? budget.get("name").asText() : "")
+                        .append(" - ").append(budget.has("price") ? budget.get("price").asText() : "")
+                        .append("，").append(budget.has("address") ? budget.get("address").asText() : "")
+                        .append("\n");
                 }
-            }
-        }
-
-        jsonContent = cleaned.toString();
-
-        // 第二步：确保所有字符串值都用双引号包裹（而不是单引号）
-        // 使用更精确的正则表达式，避免替换字符串值内的单引号
-        jsonContent = jsonContent.replaceAll("(\\s|^|[,:{\\[])'([^']*)'(\\s|$|[,}\\]])", "$1\"$2\"$3");
-
-        // 第三步：修复常见的时间格式错误（如 19:"00）
-        jsonContent = fixCommonTimeTypos(jsonContent);
-
-        // 第四步：修复缺少逗号和未转义引号的问题
-        jsonContent = fixMissingCommasAndQuotes(jsonContent);
-
-        // 第五步：尝试解析验证，如果失败则记录警告但不抛出异常
-        // 注意：这里不抛出异常，让后续的修复逻辑可以继续执行
-        try {
-            objectMapper.readTree(jsonContent);
-            return jsonContent;
-        } catch (Exception e) {
-            log.warn("JSON 清理后仍无法解析，将在后续步骤中尝试修复。错误位置: line {}, column {}",
-                    e.getMessage().contains("line") ? extractLineNumber(e.getMessage()) : "unknown",
-                    e.getMessage().contains("column") ? extractColumnNumber(e.getMessage()) : "unknown");
-            // 不抛出异常，返回清理后的内容，让后续的修复逻辑处理
-            return jsonContent;
-        }
-    }
-
-    private String fixCommonTimeTypos(String jsonContent) {
-        if (!StringUtils.hasText(jsonContent)) {
-            return jsonContent;
-        }
-        String fixed = jsonContent.replaceAll("(\\d{1,2}):\"(\\d{2})", "$1:$2\"");
-        fixed = fixed.replaceAll("(\\d{1,2}):(\\d{2})-\\s*(\\d{1,2}):\"(\\d{2})", "$1:$2-$3:$4\"");
-        return fixed;
-    }
-
-    /**
-     * 修复缺少逗号和未转义引号的问题
-     * 处理常见的 JSON 格式错误：
-     * 1. 缺少逗号分隔符（如 "key1" "key2"）
-     * 2. 字符串中未转义的引号
-     */
-    private String fixMissingCommasAndQuotes(String jsonContent) {
-        if (!StringUtils.hasText(jsonContent)) {
-            return jsonContent;
-        }
-
-        StringBuilder fixed = new StringBuilder();
-        boolean inString = false;
-        boolean escaped = false;
-
-        for (int i = 0; i < jsonContent.length(); i++) {
-            char c = jsonContent.charAt(i);
-
-            if (escaped) {
-                fixed.append(c);
-                escaped = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                fixed.append(c);
-                escaped = true;
-                continue;
-            }
-
-            if (c == '"') {
-                if (inString) {
-                    // 检查是否是字符串结束
-                    // 跳过空白字符，查看下一个非空白字符
-                    int j = i + 1;
-                    while (j < jsonContent.length() && Character.isWhitespace(jsonContent.charAt(j))) {
-                        j++;
-                    }
-
-                    if (j >= jsonContent.length()) {
-                        // 字符串在末尾，结束字符串
-                        inString = false;
-                        fixed.append(c);
-                    } else {
-                        char nextChar = jsonContent.charAt(j);
-                        // 如果下一个字符是 : , } ] 或换行，则字符串结束
-                        if (nextChar == ':' || nextChar == ',' || nextChar == '}' ||
-                            nextChar == ']' || nextChar == '\n' || nextChar == '\r') {
-                            inString = false;
-                            fixed.append(c);
-                        } else {
-                            // 字符串中的引号，需要转义
-                            fixed.append("\\\"");
-                        }
-                    }
-                } else {
-                    // 字符串开始
-                    inString = true;
-                    fixed.append(c);
+                if (accommodationNode.has("comfort")) {
+                    JsonNode comfort = accommodationNode.get("comfort");
+                    accBuilder.append("【舒适型】").append(comfort.has("name") ? comfort.get("name").asText() : "")
+                        .append(" - ").append(comfort.has("price") ? comfort.get("price").asText() : "")
+                        .append("，").append(comfort.has("address") ? comfort.get("address").asText() : "")
+                        .append("\n");
                 }
-                continue;
-            }
-
-            fixed.append(c);
-        }
-
-        String result = fixed.toString();
-
-        // 修复常见的缺少逗号的模式（仅在字符串外）
-        // 使用更精确的正则，避免在字符串内替换
-        // 模式1: "key" "value" -> "key", "value"
-        result = result.replaceAll("(\")\\s+(?=\")", "$1,");
-        // 模式2: "key" { -> "key", {
-        result = result.replaceAll("(\")\\s+(?=\\{)", "$1,");
-        // 模式3: "key" [ -> "key", [
-        result = result.replaceAll("(\")\\s+(?=\\[)", "$1,");
-        // 模式4: } "key" -> }, "key"
-        result = result.replaceAll("(\\})\\s+(?=\")", "$1,");
-        // 模式5: ] "key" -> ], "key"
-        result = result.replaceAll("(\\])\\s+(?=\")", "$1,");
-
-        return result;
-    }
-
-    /**
-     * 去掉前后 ```json/``` 包裹，兼容 ```JSON、``` 等不同写法
-     */
-    private String stripCodeFences(String raw) {
-        String trimmed = raw.trim();
-        if (trimmed.startsWith("```")) {
-            int firstLineBreak = trimmed.indexOf('\n');
-            if (firstLineBreak > 0) {
-                trimmed = trimmed.substring(firstLineBreak + 1);
+                if (accommodationNode.has("luxury")) {
+                    JsonNode luxury = accommodationNode.get("luxury");
+                    accBuilder.append("【豪华型】").append(luxury.has("name") ? luxury.get("name").asText() : "")
+                        .append(" - ").append(luxury.has("price") ? luxury.get("price").asText() : "")
+                        .append("，").append(luxury.has("address") ? luxury.get("address").asText() : "");
+                }
+                item.setAccommodation(accBuilder.toString());
             } else {
-                trimmed = trimmed.substring(3);
+                // 如果是字符串格式，直接使用
+                item.setAccommodation(accommodationNode.asText());
             }
+        } else {
+            item.setAccommodation(null);
         }
-        if (trimmed.endsWith("```")) {
-            trimmed = trimmed.substring(0, trimmed.lastIndexOf("```"));
-        }
-        return trimmed.trim();
-    }
-
-    /**
-     * 修复常见的 JSON 结构错误（括号、方括号不匹配等）
-     */
-    private String repairJsonStructure(String jsonContent) {
-        if (!StringUtils.hasText(jsonContent)) {
-            return jsonContent;
-        }
-
-        StringBuilder builder = new StringBuilder();
-        Deque<Character> stack = new ArrayDeque<>();
-        boolean inString = false;
-        boolean escaped = false;
-
-        for (int i = 0; i < jsonContent.length(); i++) {
-            char c = jsonContent.charAt(i);
-
-            if (escaped) {
-                builder.append(c);
-                escaped = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                builder.append(c);
-                escaped = true;
-                continue;
-            }
-
-            if (c == '"') {
-                builder.append(c);
-                inString = !inString;
-                continue;
-            }
 
-            if (inString) {
-                builder.append(c);
-                continue;
+        // 解析餐食（包含详细信息：餐厅名称、推荐菜品、价格等）
+        List<String> meals = new ArrayList<>();
+        if (itemNode.has("meals") && itemNode.get("meals").isArray()) {
+            JsonNode mealsArray = itemNode.get("meals");
+            for (JsonNode mealNode : mealsArray) {
+                meals.add(mealNode.asText());
             }
-
-            if (c == '{') {
-                stack.push('}');
-                builder.append(c);
-                continue;
-            }
-            if (c == '[') {
-                stack.push(']');
-                builder.append(c);
-                continue;
-            }
-
-            if (c == '}' || c == ']') {
-                if (stack.isEmpty()) {
-                    // 忽略多余的闭合符号
-                    continue;
-                }
-                char expected = stack.peek();
-                if (c == expected) {
-                    stack.pop();
-                    builder.append(c);
-                } else {
-                    // 将错误的闭合符号替换为期望的符号，并重新处理当前字符
-                    builder.append(expected);
-                    stack.pop();
-                    i--;
-                }
-                continue;
-            }
-
-            builder.append(c);
-        }
-
-        // 如果字符串未闭合，自动补齐
-        if (inString) {
-            builder.append('"');
-            inString = false;
+            log.debug("第{}天找到 {} 个餐食", item.getDay(), meals.size());
         }
+        item.setMeals(meals);
 
-        while (!stack.isEmpty()) {
-            builder.append(stack.pop());
-        }
-
-        return builder.toString();
+        return item;
     }
 
     /**
@@ -1828,33 +1394,6 @@ public class AIService {
         return null;
     }
 
-    /**
-     * 从错误消息中提取行号
-     */
-    private String extractLineNumber(String errorMessage) {
-        try {
-            int start = errorMessage.indexOf("line:") + 5;
-            int end = errorMessage.indexOf(",", start);
-            if (end == -1) end = errorMessage.length();
-            return errorMessage.substring(start, end).trim();
-        } catch (Exception e) {
-            return "unknown";
-        }
-    }
-
-    /**
-     * 从错误消息中提取列号
-     */
-    private String extractColumnNumber(String errorMessage) {
-        try {
-            int start = errorMessage.indexOf("column:") + 7;
-            int end = errorMessage.length();
-            return errorMessage.substring(start, end).trim();
-        } catch (Exception e) {
-            return "unknown";
-        }
-    }
-
     /**
      * 解析API返回的错误信息
      */
@@ -1941,6 +1480,15 @@ public class AIService {
      * 生成默认路线（当AI服务不可用时）
      */
     private AIRouteResponse generateDefaultRoute(GenerateRouteRequest request) {
+        // 优先使用基于平台景点数据的本地规划，没有可用景点时退回模板路线
+        AIRouteResponse planned = localRoutePlanner.plan(request);
+        if (planned != null) {
+            return planned;
+        }
+        return generateTemplateRoute(request);
+    }
+
+    private AIRouteResponse generateTemplateRoute(GenerateRouteRequest request) {
         // 提取起点和终点
         String startLocation = request.getStartLocation();
         String endLocation = request.getEndLocation();
@@ -2118,11 +1666,142 @@ public class AIService {
         }
     }
 
-    private void safeRetryPause() {
+    /**
+     * 重试前按抖动退避等待；熔断器已打开时不再等待，返回 false 由调用方直接兜底
+     * <p>
+     * 同步生成接口需要在请求线程上返回结果，退避期间请求线程本就要等待，这里直接 sleep，
+     * 不再额外占用其他线程；不阻塞线程的异步路线生成由 RouteJobService 提供。
+     */
+    private boolean awaitRetryBackoff(int attempt) {
+        if (!canCallProvider()) {
+            log.warn("{} 熔断中，放弃重试", provider);
+            return false;
+        }
         try {
-            Thread.sleep(900L);
+            Thread.sleep(providerGuard.backoffMillis(attempt));
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
+            return false;
+        }
+        return canCallProvider();
+    }
+
+    /**
+     * 主服务商或对冲用的备用服务商中至少一家未熔断
+     */
+    private boolean canCallProvider() {
+        if (providerGuard.isCallPermitted(provider)) {
+            return true;
+        }
+        String hedgeProvider = hedgeProvider();
+        return hedgeProvider != null && providerGuard.isCallPermitted(hedgeProvider);
+    }
+
+    /**
+     * 对冲请求使用的备用服务商：未开启对冲或其 API 密钥未配置时返回 null
+     */
+    private String hedgeProvider() {
+        if (!requestHedger.isEnabled()) {
+            return null;
+        }
+        String secondary = "deepseek".equalsIgnoreCase(provider) ? "openai" : "deepseek";
+        return isApiKeyMissing(apiKeyOf(secondary)) ? null : secondary;
+    }
+
+    private String apiKeyOf(String providerName) {
+        return "deepseek".equalsIgnoreCase(providerName) ? deepseekApiKey : openaiApiKey;
+    }
+
+    private String apiUrlOf(String providerName) {
+        return "deepseek".equalsIgnoreCase(providerName) ? deepseekApiUrl : openaiApiUrl;
+    }
+
+    private String modelOf(String providerName) {
+        return "deepseek".equalsIgnoreCase(providerName) ? deepseekModel : openaiModel;
+    }
+
+    /**
+     * 复制请求并替换模型名（对冲时两家服务商的模型不同）
+     */
+    private OpenAIRequest withModel(OpenAIRequest source, String model) {
+        OpenAIRequest copy = new OpenAIRequest();
+        copy.setModel(model);
+        copy.setMessages(source.getMessages());
+        copy.setTemperature(source.getTemperature());
+        copy.setMaxTokens(source.getMaxTokens());
+        copy.setStream(source.getStream());
+        return copy;
+    }
+
+    /**
+     * 调用服务商的对话补全接口，返回第一条回复的文本；HTTP 错误转换为带提示信息的异常
+     */
+    private String requestCompletion(String providerName, AiProviderGuard.Operation operation,
+                                     String apiKey, String apiUrl, OpenAIRequest aiRequest) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+        HttpEntity<OpenAIRequest> requestEntity = new HttpEntity<>(aiRequest, headers);
+
+        ResponseEntity<OpenAIResponse> responseEntity;
+        try {
+            responseEntity = callProvider(providerName, operation, () -> restTemplate.exchange(
+                    apiUrl,
+                    HttpMethod.POST,
+                    requestEntity,
+                    OpenAIResponse.class
+            ));
+        } catch (org.springframework.web.client.HttpClientErrorException e) {
+            String responseBody = e.getResponseBodyAsString();
+            log.error("{} API返回HTTP错误，状态码: {}, 响应体: {}", providerName, e.getStatusCode(), responseBody);
+
+            // 解析错误信息
+            String errorMessage = parseApiErrorMessage(responseBody, e.getStatusCode());
+            throw new RuntimeException(errorMessage);
+        } catch (org.springframework.web.client.ResourceAccessException e) {
+            if (AiRequestScope.isCurrentCancelled()) {
+                throw new RuntimeException(providerName + " 请求已取消");
+            }
+            log.error("{} API连接超时或网络错误", providerName, e);
+            throw new RuntimeException("AI API连接失败，请检查网络连接: " + e.getMessage());
+        }
+
+        OpenAIResponse response = responseEntity.getBody();
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
+            log.error("{} API返回空响应，状态码: {}", providerName, responseEntity.getStatusCode());
+            throw new RuntimeException("AI API返回空响应，请检查API配置和网络连接");
+        }
+        return response.getChoices().get(0).getMessage().getContent();
+    }
+
+    /**
+     * 经熔断器与并发限制调用 AI 服务商：网络错误、超时、5xx 与 429 计为失败，
+     * 其余 4xx 与调用方主动中止（如客户端断开）只归还并发额度。
+     * 单次调用的整体时限为 timeout，超时后中止底层 HTTP 请求（读取超时只限制两次读取之间的间隔）。
+     * 并发限制与耗时按 operation 分开统计。
+     */
+    private <T> T callProvider(String providerName, AiProviderGuard.Operation operation, Supplier<T> call) {
+        AiProviderGuard.Permit permit = providerGuard.acquire(providerName, operation);
+        try {
+            T result = AiRequestScope.callWithDeadline(timeout, call);
+            permit.success();
+            return result;
+        } catch (org.springframework.web.client.HttpClientErrorException e) {
+            if (e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                permit.failure();
+            } else {
+                permit.ignore();
+            }
+            throw e;
+        } catch (org.springframework.web.client.RestClientException e) {
+            if (AiRequestScope.isCurrentCancelled()) {
+                permit.cancelled();
+            } else {
+                permit.failure();
+            }
+            throw e;
+        } finally {
+            permit.ignore();
         }
     }
 
@@ -2152,6 +1831,11 @@ public class AIService {
             return buildLocalExplanation(request);
         }
 
+        return explainFlights.execute(buildExplainKey(request),
+                () -> requestExplanation(request, apiKey, apiUrl, model));
+    }
+
+    private AiExplainResponse requestExplanation(AiExplainRequest request, String apiKey, String apiUrl, String model) {
         try {
             String prompt = buildExplainPrompt(request);
 
@@ -2167,30 +1851,58 @@ public class AIService {
             aiRequest.setTemperature(0.4);
             aiRequest.setMaxTokens(2000);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            ResponseEntity<OpenAIResponse> responseEntity = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.POST,
-                    new HttpEntity<>(aiRequest, headers),
-                    OpenAIResponse.class
-            );
-
-            OpenAIResponse body = responseEntity.getBody();
-            if (body == null || body.getChoices() == null || body.getChoices().isEmpty()) {
-                throw new RuntimeException("AI讲解返回空响应");
+            String hedgeProvider = hedgeProvider();
+            if (hedgeProvider != null) {
+                return requestHedger.execute(provider, hedgeProvider, AiProviderGuard.Operation.EXPLAIN, timeout,
+                        name -> parseExplainResponse(requestCompletion(name, AiProviderGuard.Operation.EXPLAIN,
+                                apiKeyOf(name), apiUrlOf(name),
+                                withModel(aiRequest, modelOf(name))), request));
             }
-
-            String content = body.getChoices().get(0).getMessage().getContent();
-            return parseExplainResponse(content, request);
+            return parseExplainResponse(requestCompletion(provider, AiProviderGuard.Operation.EXPLAIN, apiKey, apiUrl, aiRequest), request);
         } catch (Exception e) {
             log.error("AI讲解接口调用失败: {}", e.getMessage(), e);
             return buildLocalExplanation(request);
         }
     }
 
+    /**
+     * 讲解请求的合并键：各字段去除首尾空白，关注点按集合比较
+     */
+    private String buildExplainKey(AiExplainRequest request) {
+        List<String> focusPoints = request.getFocusPoints() == null ? List.of()
+                : request.getFocusPoints().stream()
+                        .filter(StringUtils::hasText)
+                        .map(String::trim)
+                        .sorted()
+                        .distinct()
+                        .toList();
+        return String.join("|",
+                String.valueOf(request.getQuery()).strip(),
+                String.valueOf(request.getImageUrl()).strip(),
+                String.valueOf(request.getContext()).strip(),
+                String.valueOf(request.getAudience()).strip(),
+                String.valueOf(request.getTone()).strip(),
+                String.valueOf(request.getLength()).strip(),
+                String.join(",", focusPoints));
+    }
+
+    /**
+     * 合并调用的等待者各自拿到一份副本，与缓存读取保持一致
+     */
+    private AIRouteResponse copyRoute(AIRouteResponse response) {
+        return objectMapper.convertValue(response, AIRouteResponse.class);
+    }
+
+    private AiExplainResponse copyExplanation(AiExplainResponse response) {
+        return AiExplainResponse.builder()
+                .title(response.getTitle())
+                .summary(response.getSummary())
+                .highlights(response.getHighlights() == null ? null : new ArrayList<>(response.getHighlights()))
+                .references(response.getReferences() == null ? null : new ArrayList<>(response.getReferences()))
+                .mediaInsight(response.getMediaInsight())
+                .build();
+    }
+
     private String buildExplainPrompt(AiExplainRequest request) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("请以资深新疆文化讲解员身份，对以下内容进行深入介绍。");
@@ -2233,9 +1945,13 @@ public class AIService {
 
     private AiExplainResponse parseExplainResponse(String content, AiExplainRequest request) {
         try {
-            String jsonContent = extractJsonBlock(content);
-            String cleaned = cleanJsonContent(jsonContent);
-            JsonNode rootNode = objectMapper.readTree(cleaned);
+            JsonNode rootNode = TolerantJsonReader.parse(content);
+            if (rootNode == null || !rootNode.isObject()) {
+                // 模型未按 JSON 输出时，整段文字作为概述
+                rootNode = objectMapper.createObjectNode()
+                        .put("title", "新疆文化讲解")
+                        .put("summary", content != null ? content.trim() : "");
+            }
             return AiExplainResponse.builder()
                     .title(rootNode.hasNonNull("title") ? rootNode.get("title").asText() : fallbackTitle(request))
                     .summary(rootNode.hasNonNull("summary") ? rootNode.get("summary").asText() : defaultSummary(request))
@@ -2254,25 +1970,6 @@ public class AIService {
         }
     }
 
-    private String extractJsonBlock(String content) {
-        String trimmed = content != null ? content.trim() : "";
-        if (trimmed.contains("```json")) {
-            int start = trimmed.indexOf("```json") + 7;
-            int end = trimmed.indexOf("```", start);
-            if (end > start) {
-                return trimmed.substring(start, end);
-            }
-        } else if (trimmed.startsWith("{")) {
-            return trimmed;
-        }
-        int firstBrace = trimmed.indexOf('{');
-        int lastBrace = trimmed.lastIndexOf('}');
-        if (firstBrace >= 0 && lastBrace > firstBrace) {
-            return trimmed.substring(firstBrace, lastBrace + 1);
-        }
-        return "{\"title\":\"新疆文化讲解\",\"summary\":\"" + trimmed + "\"}";
-    }
-
     private AiExplainResponse buildLocalExplanation(AiExplainRequest request) {
         return AiExplainResponse.builder()
                 .title(fallbackTitle(request))
@@ -2363,6 +2060,8 @@ public class AIService {
         private List<Message> messages;
         private Double temperature;
         private Integer maxTokens;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Boolean stream;
 
         @Data
         public static class Message {
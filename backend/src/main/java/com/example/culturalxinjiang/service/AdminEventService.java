@@ -35,6 +35,7 @@ public class AdminEventService {
     private final EventRepository eventRepository;
     private final EventRegistrationRepository registrationRepository;
     private final UserRepository userRepository;
+    private final EventSearchIndex eventSearchIndex;
 
     @Transactional(readOnly = true)
     public PageResponse<EventResponse> getEvents(Integer page, Integer size, String keyword, String status) {
@@ -66,6 +67,7 @@ public class AdminEventService {
         applyRequestToEvent(request, event, true);
         event.setRegistered(0);
         Event saved = eventRepository.save(event);
+        eventSearchIndex.upsert(saved);
         return mapToResponse(saved);
     }
 
@@ -75,6 +77,7 @@ public class AdminEventService {
                 .orElseThrow(() -> new RuntimeException("活动不存在"));
         applyRequestToEvent(request, event, false);
         Event saved = eventRepository.save(event);
+        eventSearchIndex.upsert(saved);
         return mapToResponse(saved);
     }
 
@@ -85,6 +88,7 @@ public class AdminEventService {
         }
         registrationRepository.deleteByEventId(id);
         eventRepository.deleteById(id);
+        eventSearchIndex.remove(id);
     }
 
     @Transactional(readOnly = true)
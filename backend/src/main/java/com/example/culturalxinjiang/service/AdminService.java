@@ -38,6 +38,12 @@ public class AdminService {
 
     private final UserRepository userRepository;
     private final CultureResourceRepository cultureResourceRepository;
+    private final MapPoiIndex mapPoiIndex;
+    private final MapPoiSyncService mapPoiSyncService;
+    private final CultureSearchIndex cultureSearchIndex;
+    private final AutocompleteService autocompleteService;
+    private final HotScoreService hotScoreService;
+    private final CommunityPostSearchIndex communityPostSearchIndex;
     private final CommunityPostRepository communityPostRepository;
     private final EventRepository eventRepository;
     private final RouteRepository routeRepository;
@@ -190,6 +196,10 @@ public class AdminService {
         }
 
         resource = cultureResourceRepository.save(resource);
+        mapPoiIndex.upsert(resource);
+        mapPoiSyncService.recordChange(resource.getId(), false);
+        cultureSearchIndex.upsert(resource);
+        autocompleteService.upsert(resource);
         return mapToCultureResourceResponse(resource);
     }
 
@@ -239,6 +249,10 @@ public class AdminService {
         }
 
         resource = cultureResourceRepository.save(resource);
+        mapPoiIndex.upsert(resource);
+        mapPoiSyncService.recordChange(resource.getId(), false);
+        cultureSearchIndex.upsert(resource);
+        autocompleteService.upsert(resource);
         return mapToCultureResourceResponse(resource);
     }
 
@@ -247,6 +261,10 @@ public class AdminService {
         CultureResource resource = cultureResourceRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("资源不存在"));
         cultureResourceRepository.delete(resource);
+        mapPoiIndex.remove(id);
+        mapPoiSyncService.recordChange(id, true);
+        cultureSearchIndex.remove(id);
+        autocompleteService.removeCulture(id);
     }
 
     // ==================== 社区投稿管理 ====================
@@ -289,6 +307,8 @@ public class AdminService {
                 .orElseThrow(() -> new RuntimeException("帖子不存在"));
         post.setStatus("approved");
         communityPostRepository.save(post);
+        communityPostSearchIndex.upsert(post);
+        hotScoreService.refresh(id);
     }
 
     @Transactional
@@ -298,6 +318,7 @@ public class AdminService {
         post.setStatus("rejected");
         post.setRejectReason(reason);
         communityPostRepository.save(post);
+        communityPostSearchIndex.remove(id);
     }
 
     @Transactional
@@ -305,6 +326,7 @@ public class AdminService {
         CommunityPost post = communityPostRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("帖子不存在"));
         communityPostRepository.delete(post);
+        communityPostSearchIndex.remove(id);
     }
 
     // ==================== 映射方法 ====================
@@ -413,9 +435,6 @@ public class AdminService {
 
     @Transactional(readOnly = true)
     public List<EventResponse> getOngoingEvents(Integer limit) {
-        // 先更新活动状态
-        updateEventStatuses();
-
         List<Event> events = eventRepository.findByStatus(Event.EventStatus.ONGOING);
         int size = limit != null ? Math.min(limit, events.size()) : events.size();
 
@@ -482,36 +501,6 @@ public class AdminService {
                 .build();
     }
 
-    /**
-     * 更新活动状态
-     */
-    @Transactional
-    public void updateEventStatuses() {
-        java.time.LocalDate today = java.time.LocalDate.now();
-        List<Event> events = eventRepository.findAll();
-
-        for (Event event : events) {
-            Event.EventStatus calculatedStatus = calculateEventStatus(event, today);
-            if (event.getStatus() != calculatedStatus) {
-                event.setStatus(calculatedStatus);
-                eventRepository.save(event);
-            }
-        }
-    }
-
-    private Event.EventStatus calculateEventStatus(Event event, java.time.LocalDate today) {
-        java.time.LocalDate startDate = event.getStartDate();
-        java.time.LocalDate endDate = event.getEndDate();
-
-        if (endDate.isBefore(today)) {
-            return Event.EventStatus.PAST;
-        }
-        if (startDate.isAfter(today)) {
-            return Event.EventStatus.UPCOMING;
-        }
-        return Event.EventStatus.ONGOING;
-    }
-
     private double calculateAverageDuration(List<Route> routes) {
         return routes.stream()
                 .map(Route::getDuration)
@@ -0,0 +1,442 @@
+package com.example.culturalxinjiang.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * AI 服务商调用保护：滑动窗口熔断器 + AIMD 自适应并发限制
+ * <p>
+ * 熔断器统计最近 N 次调用，失败率超过阈值后打开，打开期间直接拒绝调用（调用方走本地兜底）；
+ * 冷却时间过后进入半开状态，放行少量试探调用，成功则关闭、失败则重新打开。
+ * 并发限制按 AIMD 调整：调用成功且不慢时加性增长，失败或过慢时乘性减小，
+ * 在途调用达到当前限制时同样直接拒绝。状态与指标以 ai.provider.* 暴露在 actuator 中。
+ * <p>
+ * 熔断器按服务商统计；并发限制与耗时按服务商 × {@link Operation} 分开统计，
+ * 以分钟计的路线生成不会挤占讲解调用的额度。"过慢"是相对的：耗时超过该类调用长期基线
+ * （耗时的指数加权平均）的 slow-call-ratio 倍才下调限制，正常的长输出调用不视为拥塞。
+ * 耗时直方图同样按调用类型记录，供对冲请求计算等待时间。
+ */
+@Slf4j
+@Service
+public class AiProviderGuard {
+
+    private enum CircuitState { CLOSED, HALF_OPEN, OPEN }
+
+    /**
+     * 调用类型，耗时量级不同的调用分开计算并发限制与耗时基线
+     */
+    public enum Operation {
+        /** 路线生成：长输出，正常耗时以分钟计 */
+        ROUTE,
+        /** 文化讲解：短输出 */
+        EXPLAIN
+    }
+
+    // 耗时基线的平滑系数，约相当于最近 40 次调用的平均
+    private static final double BASELINE_ALPHA = 0.05;
+    // 基线至少有这么多样本才用于判断过慢
+    private static final int BASELINE_MIN_SAMPLES = 10;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderState> states = new ConcurrentHashMap<>();
+
+    @Value("${ai.guard.window-size:20}")
+    private int windowSize;
+
+    @Value("${ai.guard.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.guard.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${ai.guard.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${ai.guard.half-open-calls:1}")
+    private int halfOpenCalls;
+
+    @Value("${ai.guard.initial-limit:8}")
+    private double initialLimit;
+
+    @Value("${ai.guard.min-limit:1}")
+    private double minLimit;
+
+    @Value("${ai.guard.max-limit:32}")
+    private double maxLimit;
+
+    // 耗时超过该类调用基线的倍数时，成功调用也视为拥塞信号
+    @Value("${ai.guard.slow-call-ratio:2.0}")
+    private double slowCallRatio;
+
+    @Value("${ai.guard.backoff-base-ms:500}")
+    private long backoffBaseMs;
+
+    @Value("${ai.guard.backoff-max-ms:8000}")
+    private long backoffMaxMs;
+
+    public AiProviderGuard(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 申请一次调用许可，熔断打开或并发已满时抛出 {@link ProviderUnavailableException}
+     */
+    public Permit acquire(String provider, Operation operation) {
+        return state(provider).acquire(operation);
+    }
+
+    /**
+     * 熔断器当前是否允许调用（不占用许可，用于重试前的快速判断）
+     */
+    public boolean isCallPermitted(String provider) {
+        return state(provider).currentState() != CircuitState.OPEN;
+    }
+
+    /**
+     * 服务商该类调用近期耗时的分位数（毫秒），样本不足时返回 -1
+     */
+    public long latencyPercentile(String provider, Operation operation, double quantile) {
+        return state(provider).latencyPercentile(operation, quantile);
+    }
+
+    /**
+     * 第 attempt 次重试前的退避时间：指数增长并在上限的一半到上限之间随机抖动，避免大量请求同时重试
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(Math.max(attempt - 1, 0), 16));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    /**
+     * 各服务商的熔断状态与并发限制快照
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new LinkedHashMap<>();
+        states.forEach((provider, state) -> snapshot.put(provider, state.describe()));
+        return snapshot;
+    }
+
+    private ProviderState state(String provider) {
+        return states.computeIfAbsent(provider.toLowerCase(), ProviderState::new);
+    }
+
+    /**
+     * 一次调用许可，调用结束后必须且只能报告一次结果
+     */
+    public final class Permit {
+        private final ProviderState state;
+        private final Lane lane;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(ProviderState state, Lane lane) {
+            this.state = state;
+            this.lane = lane;
+        }
+
+        public void success() {
+            if (release()) {
+                state.onSuccess(lane, (System.nanoTime() - startNanos) / 1_000_000L);
+            }
+        }
+
+        public void failure() {
+            if (release()) {
+                state.onFailure(lane);
+            }
+        }
+
+        /**
+         * 与服务商健康无关的结束（如客户端断开、参数错误），只归还并发额度
+         */
+        public void ignore() {
+            if (release()) {
+                state.onIgnored(lane);
+            }
+        }
+
+        /**
+         * 调用被主动取消（如对冲请求落败）：不计入成败，已等待的时间作为耗时下限记入直方图
+         */
+        public void cancelled() {
+            if (release()) {
+                state.onCancelled(lane, (System.nanoTime() - startNanos) / 1_000_000L);
+            }
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+    }
+
+    public static class ProviderUnavailableException extends RuntimeException {
+        public ProviderUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    private final class ProviderState {
+        private final String provider;
+        private final boolean[] outcomes;
+        private int recorded;
+        private int cursor;
+        private int failures;
+        private CircuitState circuitState = CircuitState.CLOSED;
+        private long openedAt;
+        private int halfOpenInFlight;
+        private final Map<Operation, Lane> lanes = new EnumMap<>(Operation.class);
+
+        private final Counter successCounter;
+        private final Counter failureCounter;
+        private final Counter rejectedCounter;
+
+        ProviderState(String provider) {
+            this.provider = provider;
+            this.outcomes = new boolean[Math.max(1, windowSize)];
+            this.successCounter = meterRegistry.counter("ai.provider.calls", "provider", provider, "outcome", "success");
+            this.failureCounter = meterRegistry.counter("ai.provider.calls", "provider", provider, "outcome", "failure");
+            this.rejectedCounter = meterRegistry.counter("ai.provider.calls", "provider", provider, "outcome", "rejected");
+            Gauge.builder("ai.provider.circuit.state", this, s -> s.currentState().ordinal())
+                    .description("熔断器状态：0 关闭，1 半开，2 打开")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            for (Operation operation : Operation.values()) {
+                Lane lane = new Lane();
+                lanes.put(operation, lane);
+                String tag = operation.name().toLowerCase();
+                Gauge.builder("ai.provider.concurrency.limit", this, s -> s.currentLimit(lane))
+                        .description("自适应并发限制")
+                        .tag("provider", provider)
+                        .tag("operation", tag)
+                        .register(meterRegistry);
+                Gauge.builder("ai.provider.concurrency.in-flight", this, s -> s.currentInFlight(lane))
+                        .description("在途调用数")
+                        .tag("provider", provider)
+                        .tag("operation", tag)
+                        .register(meterRegistry);
+            }
+        }
+
+        synchronized Permit acquire(Operation operation) {
+            Lane lane = lanes.get(operation);
+            CircuitState current = currentState();
+            if (current == CircuitState.OPEN) {
+                rejectedCounter.increment();
+                throw new ProviderUnavailableException(provider + " 服务暂时不可用（熔断中）");
+            }
+            if (current == CircuitState.HALF_OPEN && halfOpenInFlight >= halfOpenCalls) {
+                rejectedCounter.increment();
+                throw new ProviderUnavailableException(provider + " 服务恢复探测中，请稍后再试");
+            }
+            if (lane.inFlight >= Math.floor(lane.limit)) {
+                rejectedCounter.increment();
+                throw new ProviderUnavailableException(provider + " 服务繁忙（并发已达上限 " + (int) lane.limit + "）");
+            }
+            lane.inFlight++;
+            if (current == CircuitState.HALF_OPEN) {
+                halfOpenInFlight++;
+            }
+            return new Permit(this, lane);
+        }
+
+        synchronized void onSuccess(Lane lane, long latencyMs) {
+            finishCall(lane);
+            successCounter.increment();
+            lane.latencies.record(latencyMs);
+            if (lane.isSlow(latencyMs)) {
+                lane.limit = Math.max(minLimit, lane.limit * 0.9);
+            } else {
+                lane.limit = Math.min(maxLimit, lane.limit + 1.0 / lane.limit);
+            }
+            lane.updateBaseline(latencyMs);
+            if (circuitState == CircuitState.HALF_OPEN) {
+                log.info("{} 试探调用成功，熔断器关闭", provider);
+                circuitState = CircuitState.CLOSED;
+                resetWindow();
+            } else {
+                record(false);
+            }
+        }
+
+        synchronized void onFailure(Lane lane) {
+            finishCall(lane);
+            failureCounter.increment();
+            lane.limit = Math.max(minLimit, lane.limit * 0.5);
+            if (circuitState == CircuitState.HALF_OPEN) {
+                open();
+                return;
+            }
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                open();
+            }
+        }
+
+        synchronized void onIgnored(Lane lane) {
+            finishCall(lane);
+        }
+
+        synchronized void onCancelled(Lane lane, long elapsedMs) {
+            finishCall(lane);
+            lane.latencies.record(elapsedMs);
+        }
+
+        synchronized long latencyPercentile(Operation operation, double quantile) {
+            return lanes.get(operation).latencies.percentile(quantile);
+        }
+
+        synchronized CircuitState currentState() {
+            if (circuitState == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+                circuitState = CircuitState.HALF_OPEN;
+                halfOpenInFlight = 0;
+            }
+            return circuitState;
+        }
+
+        synchronized double currentLimit(Lane lane) {
+            return lane.limit;
+        }
+
+        synchronized int currentInFlight(Lane lane) {
+            return lane.inFlight;
+        }
+
+        synchronized Map<String, Object> describe() {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("circuit", currentState().name());
+            details.put("failureRate", recorded == 0 ? 0.0 : (double) failures / recorded);
+            details.put("windowCalls", recorded);
+            lanes.forEach((operation, lane) -> {
+                Map<String, Object> laneDetails = new LinkedHashMap<>();
+                laneDetails.put("concurrencyLimit", (int) lane.limit);
+                laneDetails.put("inFlight", lane.inFlight);
+                laneDetails.put("baselineMs", Math.round(lane.baselineMs));
+                laneDetails.put("latencyP50Ms", lane.latencies.percentile(0.5));
+                laneDetails.put("latencyP95Ms", lane.latencies.percentile(0.95));
+                details.put(operation.name().toLowerCase(), laneDetails);
+            });
+            return details;
+        }
+
+        private void finishCall(Lane lane) {
+            lane.inFlight = Math.max(0, lane.inFlight - 1);
+            if (circuitState == CircuitState.HALF_OPEN) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            }
+        }
+
+        private void record(boolean failed) {
+            if (recorded == outcomes.length) {
+                if (outcomes[cursor]) {
+                    failures--;
+                }
+            } else {
+                recorded++;
+            }
+            outcomes[cursor] = failed;
+            if (failed) {
+                failures++;
+            }
+            cursor = (cursor + 1) % outcomes.length;
+        }
+
+        private void open() {
+            log.warn("{} 调用失败率过高，熔断器打开 {} 毫秒", provider, openDurationMs);
+            circuitState = CircuitState.OPEN;
+            openedAt = System.currentTimeMillis();
+            resetWindow();
+        }
+
+        private void resetWindow() {
+            recorded = 0;
+            cursor = 0;
+            failures = 0;
+        }
+    }
+
+    /**
+     * 一个服务商的一类调用：并发限制、在途数、耗时基线与直方图（由所属 ProviderState 的锁保护）
+     */
+    private final class Lane {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private double limit = initialLimit;
+        private int inFlight;
+        private double baselineMs;
+        private int baselineSamples;
+
+        boolean isSlow(long latencyMs) {
+            return baselineSamples >= BASELINE_MIN_SAMPLES && latencyMs > baselineMs * slowCallRatio;
+        }
+
+        void updateBaseline(long latencyMs) {
+            baselineMs = baselineSamples == 0 ? latencyMs : baselineMs + BASELINE_ALPHA * (latencyMs - baselineMs);
+            baselineSamples++;
+        }
+    }
+
+    /**
+     * 按对数分桶的耗时直方图：桶上界从 50 毫秒起每档增长 25%，
+     * 样本数达到上限时所有桶减半，使分位数逐渐偏向近期的调用
+     */
+    private static final class LatencyHistogram {
+        private static final long[] BOUNDS = buildBounds();
+        private static final int MIN_SAMPLES = 20;
+        private static final long DECAY_THRESHOLD = 1000;
+
+        private final long[] counts = new long[BOUNDS.length];
+        private long total;
+
+        private static long[] buildBounds() {
+            List<Long> bounds = new ArrayList<>();
+            for (double bound = 50; bound < 600_000; bound *= 1.25) {
+                bounds.add((long) bound);
+            }
+            bounds.add(Long.MAX_VALUE);
+            return bounds.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        void record(long latencyMs) {
+            int index = Arrays.binarySearch(BOUNDS, latencyMs);
+            counts[index >= 0 ? index : -index - 1]++;
+            if (++total >= DECAY_THRESHOLD) {
+                total = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] /= 2;
+                    total += counts[i];
+                }
+            }
+        }
+
+        long percentile(double quantile) {
+            if (total < MIN_SAMPLES) {
+                return -1;
+            }
+            long target = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return i == counts.length - 1 ? BOUNDS[i - 1] : BOUNDS[i];
+                }
+            }
+            return BOUNDS[BOUNDS.length - 2];
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.culturalxinjiang.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 跨服务商的对冲请求
+ * <p>
+ * 先向主服务商发出请求；若在其近期耗时的指定分位数（ai.hedge.percentile）内仍未返回，
+ * 或在此之前已失败，再向备用服务商发出相同请求。采用最先成功（调用与解析均成功）的结果，
+ * 并中止另一方的 HTTP 请求。两方都失败时抛出主服务商的异常。
+ * 对冲线程数有上限（ai.hedge.max-threads），线程用尽时不发出对冲，只等待主服务商。
+ * 对冲次数、跳过次数与胜出方通过 ai.hedge.* 指标暴露。
+ */
+@Slf4j
+@Service
+public class AiRequestHedger {
+
+    private final AiProviderGuard providerGuard;
+    private final boolean enabled;
+    private final double percentile;
+    private final long defaultDelayMs;
+    private final long minDelayMs;
+    private final long maxDelayMs;
+    private final ThreadPoolExecutor executor;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter firedCounter;
+    private final Counter skippedCounter;
+
+    public AiRequestHedger(AiProviderGuard providerGuard, MeterRegistry meterRegistry,
+                           @Value("${ai.hedge.enabled:false}") boolean enabled,
+                           @Value("${ai.hedge.percentile:0.95}") double percentile,
+                           @Value("${ai.hedge.default-delay-ms:30000}") long defaultDelayMs,
+                           @Value("${ai.hedge.min-delay-ms:1000}") long minDelayMs,
+                           @Value("${ai.hedge.max-delay-ms:120000}") long maxDelayMs,
+                           @Value("${ai.hedge.max-threads:32}") int maxThreads) {
+        this.providerGuard = providerGuard;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.defaultDelayMs = defaultDelayMs;
+        this.minDelayMs = minDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.firedCounter = meterRegistry.counter("ai.hedge.fired");
+        this.skippedCounter = meterRegistry.counter("ai.hedge.skipped");
+        // 不排队：线程用尽时直接拒绝，由调用方跳过对冲，避免服务商变慢时线程无限增长
+        int poolSize = Math.max(1, maxThreads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ai-hedge-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 以对冲方式执行 call：参数为服务商名称，返回值为解析后的有效结果（解析失败应抛出异常）
+     *
+     * @param operation 调用类型，对冲等待时间取主服务商该类调用的耗时分位数
+     * @param timeoutMs 等待结果的总时限
+     */
+    public <T> T execute(String primary, String secondary, AiProviderGuard.Operation operation,
+                         long timeoutMs, Function<String, T> call) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Leg<T> primaryLeg;
+        try {
+            primaryLeg = start(primary, call);
+        } catch (RejectedExecutionException e) {
+            // 对冲线程已用尽：在当前线程直接调用主服务商，不发出对冲
+            skippedCounter.increment();
+            log.warn("对冲线程已用尽，{} 在当前线程调用，不发出对冲", primary);
+            T result = call.apply(primary);
+            recordWin(primary, false);
+            return result;
+        }
+        long delay = hedgeDelay(primary, operation);
+
+        try {
+            T result = primaryLeg.future.get(Math.min(delay, timeoutMs), TimeUnit.MILLISECONDS);
+            recordWin(primary, false);
+            return result;
+        } catch (TimeoutException e) {
+            log.info("{} 在 {} 毫秒内未返回，向 {} 发出对冲请求", primary, delay, secondary);
+        } catch (ExecutionException e) {
+            log.warn("{} 调用失败（{}），改由 {} 处理", primary, e.getCause().getMessage(), secondary);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primaryLeg.cancel();
+            throw new RuntimeException("AI请求被中断", e);
+        }
+
+        Leg<T> secondaryLeg;
+        try {
+            secondaryLeg = start(secondary, call);
+        } catch (RejectedExecutionException e) {
+            skippedCounter.increment();
+            log.warn("对冲线程已用尽，跳过向 {} 的对冲请求，继续等待 {}", secondary, primary);
+            return awaitAlone(primaryLeg, deadline);
+        }
+        firedCounter.increment();
+        CompletableFuture<Leg<T>> winner = new CompletableFuture<>();
+        primaryLeg.future.thenRun(() -> winner.complete(primaryLeg));
+        secondaryLeg.future.thenRun(() -> winner.complete(secondaryLeg));
+        // 两方都结束后兜底：依赖回调的执行顺序不确定，这里再判断一次是否有成功的一方
+        CompletableFuture.allOf(primaryLeg.future, secondaryLeg.future).whenComplete((ignored, error) -> {
+            if (!primaryLeg.future.isCompletedExceptionally()) {
+                winner.complete(primaryLeg);
+            } else if (!secondaryLeg.future.isCompletedExceptionally()) {
+                winner.complete(secondaryLeg);
+            } else {
+                // 两方都失败时以主服务商的异常结束
+                winner.completeExceptionally(primaryLeg.failure());
+            }
+        });
+
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            Leg<T> won = winner.get(remaining, TimeUnit.NANOSECONDS);
+            (won == primaryLeg ? secondaryLeg : primaryLeg).cancel();
+            recordWin(won.provider, true);
+            return won.future.join();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            primaryLeg.cancel();
+            secondaryLeg.cancel();
+            throw new RuntimeException("AI服务响应超时，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primaryLeg.cancel();
+            secondaryLeg.cancel();
+            throw new RuntimeException("AI请求被中断", e);
+        }
+    }
+
+    /**
+     * 未能发出对冲时，在剩余时限内只等待主服务商
+     */
+    private <T> T awaitAlone(Leg<T> leg, long deadline) {
+        try {
+            T result = leg.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            recordWin(leg.provider, false);
+            return result;
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            leg.cancel();
+            throw new RuntimeException("AI服务响应超时，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leg.cancel();
+            throw new RuntimeException("AI请求被中断", e);
+        }
+    }
+
+    /**
+     * 对冲等待时间：主服务商耗时分位数，样本不足时使用默认值，并限制在上下限之间
+     */
+    private long hedgeDelay(String provider, AiProviderGuard.Operation operation) {
+        long observed = providerGuard.latencyPercentile(provider, operation, percentile);
+        long delay = observed > 0 ? observed : defaultDelayMs;
+        return Math.max(minDelayMs, Math.min(maxDelayMs, delay));
+    }
+
+    private <T> Leg<T> start(String provider, Function<String, T> call) {
+        AiRequestScope scope = new AiRequestScope();
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            if (scope.isCancelled()) {
+                throw new RuntimeException(provider + " 请求已取消");
+            }
+            return scope.call(() -> call.apply(provider));
+        }, executor);
+        return new Leg<>(provider, scope, future);
+    }
+
+    private void recordWin(String provider, boolean hedged) {
+        meterRegistry.counter("ai.hedge.wins", "provider", provider.toLowerCase(), "hedged", String.valueOf(hedged))
+                .increment();
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        if (error instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (error instanceof Error fatal) {
+            throw fatal;
+        }
+        return new RuntimeException(error.getMessage(), error);
+    }
+
+    private record Leg<T>(String provider, AiRequestScope scope, CompletableFuture<T> future) {
+
+        void cancel() {
+            if (!future.isDone()) {
+                scope.cancel();
+            }
+        }
+
+        Throwable failure() {
+            try {
+                future.join();
+                return new IllegalStateException(provider + " 未失败");
+            } catch (CompletionException e) {
+                return e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.culturalxinjiang.service;
+
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 一组 AI HTTP 请求的取消范围
+ * <p>
+ * 在范围内执行的调用，其底层 HTTP 请求由 AiHttpClientConfig 的请求工厂登记到当前线程的范围中；
+ * 调用 {@link #cancel()} 会中止已登记的请求（释放连接，阻塞中的读取立即失败），
+ * 之后再登记的请求在发出前即被中止。用于对冲请求分出胜负后取消落败的一方，
+ * 以及通过 {@link #callWithDeadline} 为单次调用设置整体时限。
+ */
+public final class AiRequestScope {
+
+    private static final ThreadLocal<AiRequestScope> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> aborts = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * 在当前线程中以本范围执行调用
+     */
+    <T> T call(Supplier<T> call) {
+        AiRequestScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 在限时的子范围中执行调用：超过 timeoutMs 或外层范围被取消时中止其中的请求。
+     * 因超时被中止的调用抛出 ResourceAccessException，按服务商故障处理。
+     */
+    static <T> T callWithDeadline(long timeoutMs, Supplier<T> call) {
+        AiRequestScope scope = new AiRequestScope();
+        // 挂到外层范围上：外层取消时一并中止
+        register(scope::cancel);
+        CompletableFuture<Void> timer = new CompletableFuture<Void>().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        timer.whenComplete((ignored, error) -> {
+            if (error != null) {
+                scope.cancel();
+            }
+        });
+        try {
+            return scope.call(call);
+        } catch (RuntimeException e) {
+            if (timer.isCompletedExceptionally()) {
+                throw new ResourceAccessException("AI服务响应超时（超过" + timeoutMs + "毫秒）");
+            }
+            throw e;
+        } finally {
+            // 正常结束时取消计时
+            timer.complete(null);
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+        aborts.forEach(Runnable::run);
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 登记当前线程即将发出的请求的中止操作，不在任何范围内时忽略
+     */
+    public static void register(Runnable abort) {
+        AiRequestScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        scope.aborts.add(abort);
+        // 登记前已被取消：直接中止，请求不会真正发出
+        if (scope.cancelled) {
+            abort.run();
+        }
+    }
+
+    /**
+     * 当前线程所在的范围是否已被取消（用于区分主动取消与服务商故障）
+     */
+    static boolean isCurrentCancelled() {
+        AiRequestScope scope = CURRENT.get();
+        return scope != null && scope.cancelled;
+    }
+}
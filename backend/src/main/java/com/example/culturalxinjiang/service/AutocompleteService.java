@@ -0,0 +1,256 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.SuggestionResponse;
+import com.example.culturalxinjiang.entity.CultureResource;
+import com.example.culturalxinjiang.entity.HeritageItem;
+import com.example.culturalxinjiang.repository.CultureResourceRepository;
+import com.example.culturalxinjiang.repository.HeritageItemRepository;
+import com.example.culturalxinjiang.util.PinyinUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 搜索框输入提示
+ * <p>
+ * 候选包括文化资源与非遗项目的标题，以及它们的标签、地区和非遗分类。每个候选以原文和
+ * 拼音首字母（如"喀什古城"可用 ksgc 匹配）为键放入 {@link SuggestionTrie}，按浏览量排序：
+ * 标题取自身浏览量，标签等词条取所有引用它的内容的浏览量之和（每条内容至少计 1）。
+ * 管理后台与非遗接口修改内容后在事务提交后增量更新，另按 app.search.suggest.refresh-minutes
+ * 定期整体重建以同步浏览量的变化（见 {@link IndexRefresher}）。
+ */
+@Slf4j
+@Service
+public class AutocompleteService {
+
+    private static final String CULTURE = "culture";
+    private static final String HERITAGE = "heritage";
+
+    private final CultureResourceRepository cultureResourceRepository;
+    private final HeritageItemRepository heritageItemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxSuggestions;
+    private final IndexRefresher<Snapshot> refresher;
+
+    private volatile Snapshot snapshot;
+
+    public AutocompleteService(CultureResourceRepository cultureResourceRepository,
+                               HeritageItemRepository heritageItemRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.search.suggest.max-suggestions:10}") int maxSuggestions,
+                               @Value("${app.search.suggest.refresh-minutes:30}") long refreshMinutes) {
+        this.cultureResourceRepository = cultureResourceRepository;
+        this.heritageItemRepository = heritageItemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxSuggestions = Math.max(1, maxSuggestions);
+        this.snapshot = new Snapshot(this.maxSuggestions);
+        this.refresher = new IndexRefresher<>("输入提示", refreshMinutes, false, this::load,
+                rebuilt -> snapshot = rebuilt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        refresher.warmUp();
+    }
+
+    /**
+     * @param limit 为 null 或超过 app.search.suggest.max-suggestions 时取上限
+     */
+    public List<SuggestionResponse> suggest(String prefix, Integer limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        refresher.ensureFresh();
+        int size = limit == null || limit < 1 ? maxSuggestions : Math.min(limit, maxSuggestions);
+        return snapshot.trie.suggest(normalized, size).stream()
+                .map(entry -> SuggestionResponse.builder()
+                        .text(entry.text())
+                        .type(entry.type())
+                        .id(entry.id())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * 新增或修改文化资源后调用：在当前事务内读取字段，提交后更新候选
+     */
+    public void upsert(CultureResource resource) {
+        Map<String, Term> terms = termsOf(resource);
+        String source = CULTURE + ":" + resource.getId();
+        AfterCommit.run(() -> refresher.apply(() -> snapshot.apply(source, terms)));
+    }
+
+    public void upsert(HeritageItem item) {
+        Map<String, Term> terms = termsOf(item);
+        String source = HERITAGE + ":" + item.getId();
+        AfterCommit.run(() -> refresher.apply(() -> snapshot.apply(source, terms)));
+    }
+
+    public void removeCulture(Long id) {
+        AfterCommit.run(() -> refresher.apply(() -> snapshot.apply(CULTURE + ":" + id, Map.of())));
+    }
+
+    public void removeHeritage(Long id) {
+        AfterCommit.run(() -> refresher.apply(() -> snapshot.apply(HERITAGE + ":" + id, Map.of())));
+    }
+
+    public void reload() {
+        refresher.reload();
+    }
+
+    private Snapshot load() {
+        Snapshot rebuilt = new Snapshot(maxSuggestions);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (CultureResource resource : cultureResourceRepository.findAllFetchTags()) {
+                rebuilt.apply(CULTURE + ":" + resource.getId(), termsOf(resource));
+            }
+            for (HeritageItem item : heritageItemRepository.findAll()) {
+                rebuilt.apply(HERITAGE + ":" + item.getId(), termsOf(item));
+            }
+        });
+        log.info("输入提示已加载，共 {} 个候选", rebuilt.terms.size());
+        return rebuilt;
+    }
+
+    private Map<String, Term> termsOf(CultureResource resource) {
+        long views = resource.getViews() != null ? resource.getViews() : 0;
+        Map<String, Term> terms = new HashMap<>();
+        addTerm(terms, CULTURE + ":" + resource.getId(), resource.getTitle(), CULTURE, resource.getId(), views);
+        if (resource.getTags() != null) {
+            for (String tag : resource.getTags()) {
+                addTerm(terms, "tag", tag, views);
+            }
+        }
+        addTerm(terms, "region", resource.getRegion(), views);
+        return terms;
+    }
+
+    private Map<String, Term> termsOf(HeritageItem item) {
+        long views = item.getViews() != null ? item.getViews() : 0;
+        Map<String, Term> terms = new HashMap<>();
+        addTerm(terms, HERITAGE + ":" + item.getId(), item.getTitle(), HERITAGE, item.getId(), views);
+        if (item.getTags() != null) {
+            for (String tag : item.getTags()) {
+                addTerm(terms, "tag", tag, views);
+            }
+        }
+        addTerm(terms, "region", item.getRegion(), views);
+        addTerm(terms, "category", item.getCategory(), views);
+        return terms;
+    }
+
+    /**
+     * 词条类候选（标签、地区、分类）按规范化后的文本合并
+     */
+    private void addTerm(Map<String, Term> terms, String type, String text, long views) {
+        if (StringUtils.hasText(text)) {
+            addTerm(terms, type + ":" + normalize(text), text, type, null, views);
+        }
+    }
+
+    private void addTerm(Map<String, Term> terms, String key, String text, String type, Long id, long views) {
+        if (StringUtils.hasText(text)) {
+            terms.putIfAbsent(key, new Term(key, text.trim(), type, id, views + 1));
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 候选的查找键：规范化原文，以及含汉字时的拼音首字母
+     */
+    private static Set<String> keysOf(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(normalize(text));
+        if (PinyinUtils.containsChinese(text)) {
+            String initials = PinyinUtils.toInitials(text);
+            if (initials != null) {
+                keys.add(initials);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 一条内容贡献给某个候选的权重
+     */
+    private record Term(String key, String text, String type, Long id, long weight) {
+    }
+
+    /**
+     * 前缀树及计算候选权重所需的来源记录，整体重建时整份替换
+     */
+    private static final class Snapshot {
+
+        private final SuggestionTrie trie;
+        /**
+         * 每条内容（culture:12）当前贡献的候选
+         */
+        private final Map<String, Map<String, Term>> sources = new HashMap<>();
+        /**
+         * 每个候选当前在树中的条目
+         */
+        private final Map<String, SuggestionTrie.Entry> terms = new HashMap<>();
+
+        private Snapshot(int topK) {
+            this.trie = new SuggestionTrie(topK);
+        }
+
+        /**
+         * 用内容的新候选集合替换旧集合，只重新写入权重有变化的候选
+         */
+        private synchronized void apply(String source, Map<String, Term> current) {
+            Map<String, Term> previous = current.isEmpty() ? sources.remove(source) : sources.put(source, current);
+            Map<String, Long> deltas = new HashMap<>();
+            Map<String, Term> touched = new HashMap<>();
+            if (previous != null) {
+                previous.forEach((key, term) -> {
+                    deltas.merge(key, -term.weight(), Long::sum);
+                    touched.put(key, term);
+                });
+            }
+            current.forEach((key, term) -> {
+                deltas.merge(key, term.weight(), Long::sum);
+                touched.put(key, term);
+            });
+
+            for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+                SuggestionTrie.Entry old = terms.get(delta.getKey());
+                Term term = touched.get(delta.getKey());
+                boolean renamed = old != null && term.id() != null && !old.text().equals(term.text());
+                if (delta.getValue() == 0 && !renamed) {
+                    continue;
+                }
+                long weight = (old != null ? old.weight() : 0) + delta.getValue();
+                if (old != null) {
+                    trie.remove(old, keysOf(old.text()));
+                }
+                if (weight > 0) {
+                    // 标题以外的词条沿用已有的写法，只在首次出现或内容自身改名时更新显示文本
+                    String text = old == null || term.id() != null ? term.text() : old.text();
+                    SuggestionTrie.Entry entry = new SuggestionTrie.Entry(term.key(), text, term.type(), term.id(), weight);
+                    trie.put(entry, keysOf(text));
+                    terms.put(term.key(), entry);
+                } else {
+                    terms.remove(term.key());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.util.SearchTokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+
+/**
+ * 内存倒排索引，按 BM25 打分
+ * <p>
+ * 文档由若干带权重的字段组成（如标题权重高于正文），词频与文档长度按权重累加。
+ * 查询要求文档包含全部必需词元（见 {@link SearchTokenizer#parseQuery}），没有文档满足时
+ * 退化为包含任一词元即可。候选集从最短的倒排表开始，耗时取决于匹配的文档数而非文档总数。
+ * 查询中最后一个拉丁词按前缀展开为词典中以其开头的词（有序词典，最多 {@value #MAX_PREFIX_EXPANSIONS} 个），
+ * 非完全相同的展开词得分打折。支持单个文档的增删，读写之间通过读写锁隔离。
+ */
+final class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_WEIGHT = 0.8f;
+    // 归一化时得分达到该值即为 0.5，约相当于一个中等区分度的词元在标题中命中一次
+    private static final double SCORE_SATURATION = 3.0;
+
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    // 拉丁词词典，用于前缀展开
+    private final NavigableSet<String> latinTerms = new TreeSet<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private double totalLength;
+
+    record Field(String text, float weight) {
+    }
+
+    record Hits(List<Long> ids, long total) {
+    }
+
+    record Scored(long id, double score) {
+    }
+
+    record Ranking(List<Scored> hits, long total) {
+        static final Ranking EMPTY = new Ranking(List.of(), 0);
+    }
+
+    private record Document(float length, String[] terms) {
+    }
+
+    /**
+     * 新增或替换文档
+     */
+    void put(long id, List<Field> fields) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        for (Field field : fields) {
+            for (String token : SearchTokenizer.tokenize(field.text())) {
+                frequencies.merge(token, field.weight(), Float::sum);
+                length += field.weight();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, key -> {
+                if (!SearchTokenizer.isCjk(key.codePointAt(0))) {
+                    latinTerms.add(key);
+                }
+                return new HashMap<>();
+            }).put(id, tf));
+            documents.put(id, new Document(length, frequencies.keySet().toArray(new String[0])));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 用另一个索引的内容整体替换（重新加载时先在新实例上构建，再一次性替换）
+     */
+    void replaceWith(Bm25Index other) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            postings.putAll(other.postings);
+            latinTerms.clear();
+            latinTerms.addAll(other.latinTerms);
+            documents.clear();
+            documents.putAll(other.documents);
+            totalLength = other.totalLength;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询并按得分降序分页（得分相同时 ID 大的在前）
+     *
+     * @param filter 只返回满足条件的文档，为 null 时不过滤
+     */
+    Hits search(String text, LongPredicate filter, int offset, int limit) {
+        ScoredId[] scored = score(text, filter);
+        Arrays.sort(scored, (a, b) -> a.score() != b.score()
+                ? Double.compare(b.score(), a.score())
+                : Long.compare(b.id(), a.id()));
+
+        List<Long> page = new ArrayList<>();
+        for (int i = Math.max(0, offset); i < scored.length && page.size() < limit; i++) {
+            page.add(scored[i].id());
+        }
+        return new Hits(page, scored.length);
+    }
+
+    /**
+     * 查询前 limit 条并给出归一化得分，用于与其他索引的结果合并排序
+     * <p>
+     * 归一化得分为 s / (s + {@value #SCORE_SATURATION})（s 为 BM25 原始得分），再乘以文档覆盖的
+     * 必需词元比例（全部匹配时为 1），取值范围 [0, 1)。变换是固定的单调函数，不依赖本次结果中的
+     * 最高分：只弱相关的索引，其第一条结果不会被抬高到与强相关索引的第一条相同。
+     */
+    Ranking top(String text, LongPredicate filter, int limit) {
+        ScoredId[] scored = score(text, filter);
+        if (scored.length == 0) {
+            return Ranking.EMPTY;
+        }
+        Scored[] normalized = new Scored[scored.length];
+        for (int i = 0; i < scored.length; i++) {
+            ScoredId candidate = scored[i];
+            double raw = Math.max(0, candidate.score());
+            normalized[i] = new Scored(candidate.id(), raw / (raw + SCORE_SATURATION) * candidate.coverage());
+        }
+        Arrays.sort(normalized, (a, b) -> a.score() != b.score()
+                ? Double.compare(b.score(), a.score())
+                : Long.compare(b.id(), a.id()));
+        return new Ranking(List.of(Arrays.copyOf(normalized, Math.min(Math.max(0, limit), normalized.length))),
+                scored.length);
+    }
+
+    private ScoredId[] score(String text, LongPredicate filter) {
+        SearchTokenizer.Query query = SearchTokenizer.parseQuery(text);
+        if (query.isEmpty()) {
+            return new ScoredId[0];
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> prefixPostings = query.prefix() != null ? expandPrefix(query.prefix()) : null;
+            Function<String, Map<Long, Float>> lookup = term -> term.equals(query.prefix())
+                    ? prefixPostings
+                    : postings.get(term);
+            boolean partial = false;
+            long[] candidates = matchAll(query.required(), lookup, filter);
+            if (candidates.length == 0) {
+                candidates = matchAny(query.required(), lookup, filter);
+                partial = true;
+            }
+            if (candidates.length == 0) {
+                return new ScoredId[0];
+            }
+
+            double averageLength = documents.isEmpty() ? 1 : Math.max(1e-6, totalLength / documents.size());
+            int n = documents.size();
+            List<Map<Long, Float>> termPostings = new ArrayList<>();
+            List<Double> idfs = new ArrayList<>();
+            for (String term : query.scoring()) {
+                Map<Long, Float> list = lookup.apply(term);
+                if (list != null) {
+                    termPostings.add(list);
+                    idfs.add(Math.log(1 + (n - list.size() + 0.5) / (list.size() + 0.5)));
+                }
+            }
+            List<Map<Long, Float>> requiredPostings = new ArrayList<>();
+            if (partial) {
+                for (String term : query.required()) {
+                    Map<Long, Float> list = lookup.apply(term);
+                    if (list != null) {
+                        requiredPostings.add(list);
+                    }
+                }
+            }
+
+            ScoredId[] scored = new ScoredId[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                long id = candidates[i];
+                double norm = K1 * (1 - B + B * documents.get(id).length() / averageLength);
+                double score = 0;
+                for (int t = 0; t < termPostings.size(); t++) {
+                    Float tf = termPostings.get(t).get(id);
+                    if (tf != null) {
+                        score += idfs.get(t) * tf * (K1 + 1) / (tf + norm);
+                    }
+                }
+                double coverage = 1;
+                if (partial) {
+                    int matched = 0;
+                    for (Map<Long, Float> list : requiredPostings) {
+                        if (list.containsKey(id)) {
+                            matched++;
+                        }
+                    }
+                    coverage = (double) matched / query.required().size();
+                }
+                scored[i] = new ScoredId(id, score, coverage);
+            }
+            return scored;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 前缀展开：合并以 prefix 开头的各词的倒排表，同一文档取最高词频（非完全相同的词打折）
+     */
+    private Map<Long, Float> expandPrefix(String prefix) {
+        Map<Long, Float> merged = null;
+        int expansions = 0;
+        for (String term : latinTerms.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            float weight = term.equals(prefix) ? 1f : PREFIX_WEIGHT;
+            if (merged == null) {
+                merged = new HashMap<>();
+            }
+            for (Map.Entry<Long, Float> entry : postings.get(term).entrySet()) {
+                merged.merge(entry.getKey(), entry.getValue() * weight, Math::max);
+            }
+        }
+        return merged;
+    }
+
+    private long[] matchAll(List<String> terms, Function<String, Map<Long, Float>> lookup, LongPredicate filter) {
+        Map<Long, Float> shortest = null;
+        List<Map<Long, Float>> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Long, Float> list = lookup.apply(term);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+            if (shortest == null || list.size() < shortest.size()) {
+                shortest = list;
+            }
+        }
+        long[] result = new long[shortest.size()];
+        int count = 0;
+        outer:
+        for (Long id : shortest.keySet()) {
+            for (Map<Long, Float> list : lists) {
+                if (list != shortest && !list.containsKey(id)) {
+                    continue outer;
+                }
+            }
+            if (filter == null || filter.test(id)) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private long[] matchAny(List<String> terms, Function<String, Map<Long, Float>> lookup, LongPredicate filter) {
+        Set<Long> ids = new HashSet<>();
+        for (String term : terms) {
+            Map<Long, Float> list = lookup.apply(term);
+            if (list != null) {
+                ids.addAll(list.keySet());
+            }
+        }
+        return ids.stream()
+                .filter(id -> filter == null || filter.test(id))
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private void removeInternal(long id) {
+        Document previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length();
+        for (String term : previous.terms()) {
+            Map<Long, Float> list = postings.get(term);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                    latinTerms.remove(term);
+                }
+            }
+        }
+    }
+
+    private record ScoredId(long id, double score, double coverage) {
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按缩放级别预先计算的 POI 聚合金字塔（3~18 级）
+ * <p>
+ * 每一级按该级的网格边长把 POI 归入网格，网格内累计数量、坐标和与各分类的数量及坐标和，
+ * 查询时只需取出视口内的网格并换算为平均坐标，耗时与 POI 总数无关。
+ * 金字塔不可变；每级网格按键散列分片存放，POI 变化时每级只复制受影响网格所在的分片，
+ * 其余分片与旧金字塔共享，单次变化的开销与分片大小相关，而不是与网格总数相关。
+ */
+final class ClusterPyramid {
+
+    static final int MIN_ZOOM = 3;
+    static final int MAX_ZOOM = 18;
+
+    private static final double MIN_CLUSTER_SIZE = 0.05D;
+    private static final double MAX_CLUSTER_SIZE = 1.2D;
+
+    private final Level[] levels;
+
+    private ClusterPyramid(Level[] levels) {
+        this.levels = levels;
+    }
+
+    static ClusterPyramid build(Collection<MapPoiResponse.MapPoi> pois) {
+        Level[] levels = new Level[MAX_ZOOM - MIN_ZOOM + 1];
+        for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM; zoom++) {
+            levels[zoom - MIN_ZOOM] = Level.of(pois, bucketSize(zoom));
+        }
+        return new ClusterPyramid(levels);
+    }
+
+    /**
+     * 应用一次 POI 变化（removed 为旧数据、added 为新数据，新增或删除时其中一个为 null），返回新的金字塔
+     */
+    ClusterPyramid withChange(MapPoiResponse.MapPoi removed, MapPoiResponse.MapPoi added) {
+        Level[] changed = new Level[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            changed[i] = levels[i].withChange(removed, added);
+        }
+        return new ClusterPyramid(changed);
+    }
+
+    /**
+     * 视口内的聚合（网格平均坐标落在边界框内），只返回包含多个 POI 的聚合
+     *
+     * @param category 为 null 时统计全部分类
+     */
+    List<MapPoiResponse.MapCluster> clusters(int zoom, MapService.Bounds bounds, String category) {
+        int level = Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM)) - MIN_ZOOM;
+        return levels[level].clusters(bounds, category);
+    }
+
+    /**
+     * POI 在该缩放级别是否被并入聚合（所在网格内同一统计口径的 POI 多于一个）
+     *
+     * @param category 为 null 时按全部分类统计
+     */
+    boolean isClustered(int zoom, MapPoiResponse.MapPoi poi, String category) {
+        int level = Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM)) - MIN_ZOOM;
+        return levels[level].isClustered(poi, category);
+    }
+
+    /**
+     * 不使用金字塔、对给定 POI 即时聚合（用于关键字过滤后的结果）
+     */
+    static List<MapPoiResponse.MapCluster> clustersOf(Collection<MapPoiResponse.MapPoi> pois, int zoom) {
+        int normalized = Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM));
+        return Level.of(pois, bucketSize(normalized)).clusters(null, null);
+    }
+
+    /**
+     * 缩放级别对应的网格边长（经纬度），级别越高网格越小
+     */
+    static double bucketSize(int zoom) {
+        double normalized = Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM));
+        double size = (MAX_ZOOM - normalized) * 0.05;
+        size = Math.max(size, MIN_CLUSTER_SIZE);
+        size = Math.min(size, MAX_CLUSTER_SIZE);
+        return size;
+    }
+
+    /**
+     * 单个缩放级别：网格键（行号高 32 位、列号低 32 位）到网格的映射
+     * <p>
+     * 映射按键散列拆成约 √网格数 个分片（2 的幂），分片建好后不再修改，变化时只替换被修改的分片。
+     */
+    private static final class Level {
+        private static final int MIN_SHARDS = 16;
+
+        private final double bucketSize;
+        private final Map<Long, Bucket>[] shards;
+        private final int size;
+
+        private Level(double bucketSize, Map<Long, Bucket>[] shards, int size) {
+            this.bucketSize = bucketSize;
+            this.shards = shards;
+            this.size = size;
+        }
+
+        static Level of(Collection<MapPoiResponse.MapPoi> pois, double bucketSize) {
+            Map<Long, Bucket.Builder> builders = new HashMap<>();
+            for (MapPoiResponse.MapPoi poi : pois) {
+                if (poi == null || poi.getLat() == null || poi.getLng() == null) {
+                    continue;
+                }
+                builders.computeIfAbsent(key(poi, bucketSize), ignored -> new Bucket.Builder()).add(poi, 1);
+            }
+            int shardCount = MIN_SHARDS;
+            while ((long) shardCount * shardCount < builders.size()) {
+                shardCount <<= 1;
+            }
+            Map<Long, Bucket>[] shards = newShards(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new HashMap<>();
+            }
+            for (Map.Entry<Long, Bucket.Builder> entry : builders.entrySet()) {
+                shards[shardOf(entry.getKey(), shardCount)].put(entry.getKey(), entry.getValue().build());
+            }
+            return new Level(bucketSize, shards, builders.size());
+        }
+
+        Level withChange(MapPoiResponse.MapPoi removed, MapPoiResponse.MapPoi added) {
+            // 只复制分片数组（引用）和被修改的分片，同一分片在一次变化中只复制一次
+            Map<Long, Bucket>[] copy = shards.clone();
+            boolean[] copied = new boolean[copy.length];
+            int newSize = size;
+            if (removed != null) {
+                newSize += adjust(copy, copied, removed, -1);
+            }
+            if (added != null) {
+                newSize += adjust(copy, copied, added, 1);
+            }
+            return new Level(bucketSize, copy, newSize);
+        }
+
+        /**
+         * 调整 POI 所在网格，返回网格数的变化
+         */
+        private int adjust(Map<Long, Bucket>[] target, boolean[] copied, MapPoiResponse.MapPoi poi, int sign) {
+            long key = key(poi, bucketSize);
+            int shard = shardOf(key, target.length);
+            if (!copied[shard]) {
+                target[shard] = new HashMap<>(target[shard]);
+                copied[shard] = true;
+            }
+            Map<Long, Bucket> buckets = target[shard];
+            Bucket existing = buckets.get(key);
+            Bucket.Builder builder = new Bucket.Builder(existing);
+            builder.add(poi, sign);
+            if (builder.count <= 0) {
+                return buckets.remove(key) != null ? -1 : 0;
+            }
+            buckets.put(key, builder.build());
+            return existing == null ? 1 : 0;
+        }
+
+        private Bucket get(long key) {
+            return shards[shardOf(key, shards.length)].get(key);
+        }
+
+        List<MapPoiResponse.MapCluster> clusters(MapService.Bounds bounds, String category) {
+            List<MapPoiResponse.MapCluster> result = new ArrayList<>();
+            if (bounds != null) {
+                // 平均坐标必然落在成员所在的网格内，只需查看边界框覆盖的网格
+                long minRow = Math.round(Math.max(-90, bounds.getSouth()) / bucketSize);
+                long maxRow = Math.round(Math.min(90, bounds.getNorth()) / bucketSize);
+                long minColumn = Math.round(Math.max(-180, bounds.getWest()) / bucketSize);
+                long maxColumn = Math.round(Math.min(180, bounds.getEast()) / bucketSize);
+                if (minRow > maxRow || minColumn > maxColumn) {
+                    return result;
+                }
+                if ((maxRow - minRow + 1) * (maxColumn - minColumn + 1) < size) {
+                    for (long row = minRow; row <= maxRow; row++) {
+                        for (long column = minColumn; column <= maxColumn; column++) {
+                            Bucket bucket = get(key(row, column));
+                            if (bucket != null) {
+                                addIfVisible(result, bucket, bounds, category);
+                            }
+                        }
+                    }
+                    return result;
+                }
+            }
+            for (Map<Long, Bucket> shard : shards) {
+                for (Bucket bucket : shard.values()) {
+                    addIfVisible(result, bucket, bounds, category);
+                }
+            }
+            return result;
+        }
+
+        boolean isClustered(MapPoiResponse.MapPoi poi, String category) {
+            Bucket bucket = get(key(poi, bucketSize));
+            return bucket != null && bucket.count(category) > 1;
+        }
+
+        private static void addIfVisible(List<MapPoiResponse.MapCluster> result, Bucket bucket,
+                                         MapService.Bounds bounds, String category) {
+            MapPoiResponse.MapCluster cluster = bucket.toCluster(category);
+            if (cluster != null && (bounds == null || contains(bounds, cluster))) {
+                result.add(cluster);
+            }
+        }
+
+        private static boolean contains(MapService.Bounds bounds, MapPoiResponse.MapCluster cluster) {
+            return cluster.getLat() >= bounds.getSouth() && cluster.getLat() <= bounds.getNorth()
+                    && cluster.getLng() >= bounds.getWest() && cluster.getLng() <= bounds.getEast();
+        }
+
+        private static long key(MapPoiResponse.MapPoi poi, double bucketSize) {
+            return key(Math.round(poi.getLat() / bucketSize), Math.round(poi.getLng() / bucketSize));
+        }
+
+        private static long key(long row, long column) {
+            return (row << 32) | (column & 0xFFFFFFFFL);
+        }
+
+        private static int shardOf(long key, int shardCount) {
+            int hash = Long.hashCode(key);
+            return (hash ^ (hash >>> 16)) & (shardCount - 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<Long, Bucket>[] newShards(int shardCount) {
+            return (Map<Long, Bucket>[]) new Map[shardCount];
+        }
+    }
+
+    /**
+     * 一个网格内的聚合数据（不可变）：总数与坐标和，以及各分类的数量与坐标和
+     */
+    private static final class Bucket {
+        private final int count;
+        private final double sumLat;
+        private final double sumLng;
+        private final Map<String, double[]> byCategory; // 分类 -> {数量, 纬度和, 经度和}
+
+        private Bucket(int count, double sumLat, double sumLng, Map<String, double[]> byCategory) {
+            this.count = count;
+            this.sumLat = sumLat;
+            this.sumLng = sumLng;
+            this.byCategory = byCategory;
+        }
+
+        int count(String category) {
+            if (category == null) {
+                return count;
+            }
+            double[] stats = byCategory.get(category);
+            return stats != null ? (int) stats[0] : 0;
+        }
+
+        MapPoiResponse.MapCluster toCluster(String category) {
+            if (category == null) {
+                if (count <= 1) {
+                    return null;
+                }
+                Map<String, Long> breakdown = new LinkedHashMap<>();
+                byCategory.forEach((name, stats) -> breakdown.put(name, (long) stats[0]));
+                return MapPoiResponse.MapCluster.builder()
+                        .lat(sumLat / count)
+                        .lng(sumLng / count)
+                        .count((long) count)
+                        .categories(breakdown)
+                        .build();
+            }
+            double[] stats = byCategory.get(category);
+            if (stats == null || stats[0] <= 1) {
+                return null;
+            }
+            return MapPoiResponse.MapCluster.builder()
+                    .lat(stats[1] / stats[0])
+                    .lng(stats[2] / stats[0])
+                    .count((long) stats[0])
+                    .categories(Map.of(category, (long) stats[0]))
+                    .build();
+        }
+
+        private static final class Builder {
+            private int count;
+            private double sumLat;
+            private double sumLng;
+            private final Map<String, double[]> byCategory = new LinkedHashMap<>();
+
+            Builder() {
+            }
+
+            Builder(Bucket source) {
+                if (source != null) {
+                    count = source.count;
+                    sumLat = source.sumLat;
+                    sumLng = source.sumLng;
+                    source.byCategory.forEach((name, stats) -> byCategory.put(name, stats.clone()));
+                }
+            }
+
+            void add(MapPoiResponse.MapPoi poi, int sign) {
+                count += sign;
+                sumLat += sign * poi.getLat();
+                sumLng += sign * poi.getLng();
+                double[] stats = byCategory.computeIfAbsent(poi.getCategory(), ignored -> new double[3]);
+                stats[0] += sign;
+                stats[1] += sign * poi.getLat();
+                stats[2] += sign * poi.getLng();
+                if (stats[0] <= 0) {
+                    byCategory.remove(poi.getCategory());
+                }
+            }
+
+            Bucket build() {
+                return new Bucket(count, sumLat, sumLng, byCategory);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.CommunityPostDetailResponse;
+import com.example.culturalxinjiang.dto.response.CommunityPostResponse;
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
+import com.example.culturalxinjiang.entity.Comment;
+import com.example.culturalxinjiang.entity.User;
+import com.example.culturalxinjiang.repository.CommentRepository;
+import com.example.culturalxinjiang.util.FeedCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 帖子评论区加载
+ * <p>
+ * 顶层评论按 (createdAt, id) 游标分页，每页固定三次查询：一页顶层评论（含作者）、
+ * 用窗口函数一次取出本页每条评论最早的若干条回复 ID 及回复总数、按 ID 批量取出这些回复（含作者），
+ * 再在内存中组装成树。评论区再长，单次请求的查询次数与数据量也只与页大小有关。
+ * 回复较多时通过 replyCursor 继续分页加载。调用方负责开启事务并校验帖子可见性。
+ */
+@Service
+public class CommentThreadLoader {
+
+    private final CommentRepository commentRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int replyPreview;
+
+    public CommentThreadLoader(CommentRepository commentRepository,
+                               @Value("${app.community.comments.page-size:20}") int defaultPageSize,
+                               @Value("${app.community.comments.max-page-size:50}") int maxPageSize,
+                               @Value("${app.community.comments.reply-preview:3}") int replyPreview) {
+        this.commentRepository = commentRepository;
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.min(Math.max(1, defaultPageSize), this.maxPageSize);
+        this.replyPreview = Math.max(1, replyPreview);
+    }
+
+    /**
+     * 加载一页顶层评论，每条附带最早的几条回复
+     *
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     */
+    public CursorPageResponse<CommunityPostDetailResponse.CommentResponse> loadComments(Long postId, String cursor, Integer size) {
+        int pageSize = resolveSize(size);
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<Comment> fetched = commentRepository.findTopLevelPage(postId,
+                after != null ? after.time() : FeedCursor.EARLIEST, after != null ? after.id() : 0L,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasMore = fetched.size() > pageSize;
+        List<Comment> comments = hasMore ? fetched.subList(0, pageSize) : fetched;
+
+        Map<Long, List<CommunityPostDetailResponse.CommentResponse>> repliesByParent = new HashMap<>();
+        Map<Long, Long> replyCounts = new HashMap<>();
+        if (!comments.isEmpty()) {
+            Map<Long, Long> parentOf = new HashMap<>();
+            for (Object[] row : commentRepository.findReplyPreviewIds(
+                    comments.stream().map(Comment::getId).toList(), replyPreview)) {
+                Long replyId = ((Number) row[0]).longValue();
+                Long parentId = ((Number) row[1]).longValue();
+                parentOf.put(replyId, parentId);
+                replyCounts.put(parentId, ((Number) row[2]).longValue());
+            }
+            if (!parentOf.isEmpty()) {
+                for (Comment reply : commentRepository.findAllWithAuthorByIdIn(parentOf.keySet())) {
+                    repliesByParent.computeIfAbsent(parentOf.get(reply.getId()), key -> new ArrayList<>())
+                            .add(toResponse(reply));
+                }
+            }
+        }
+
+        List<CommunityPostDetailResponse.CommentResponse> responses = new ArrayList<>();
+        for (Comment comment : comments) {
+            CommunityPostDetailResponse.CommentResponse response = toResponse(comment);
+            List<CommunityPostDetailResponse.CommentResponse> replies =
+                    repliesByParent.getOrDefault(comment.getId(), new ArrayList<>());
+            long replyCount = replyCounts.getOrDefault(comment.getId(), 0L);
+            response.setReplies(replies);
+            response.setReplyCount(replyCount);
+            if (replyCount > replies.size()) {
+                response.setReplyCursor(encode(replies.get(replies.size() - 1)));
+            }
+            responses.add(response);
+        }
+        return page(responses, hasMore);
+    }
+
+    /**
+     * 加载某条评论的一页回复
+     *
+     * @param cursor 评论的 replyCursor 或上一页返回的 nextCursor，从头加载时传 null
+     */
+    public CursorPageResponse<CommunityPostDetailResponse.CommentResponse> loadReplies(Long parentId, String cursor, Integer size) {
+        int pageSize = resolveSize(size);
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<Comment> fetched = commentRepository.findReplyPage(parentId,
+                after != null ? after.time() : FeedCursor.EARLIEST, after != null ? after.id() : 0L,
+                PageRequest.of(0, pageSize + 1));
+        return CursorPageResponse.of(fetched, pageSize,
+                reply -> FeedCursor.of(reply.getCreatedAt(), reply.getId()).encode(), this::toResponse);
+    }
+
+    private CursorPageResponse<CommunityPostDetailResponse.CommentResponse> page(
+            List<CommunityPostDetailResponse.CommentResponse> responses, boolean hasMore) {
+        return CursorPageResponse.<CommunityPostDetailResponse.CommentResponse>builder()
+                .list(responses)
+                .nextCursor(hasMore ? encode(responses.get(responses.size() - 1)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private int resolveSize(Integer size) {
+        return size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+    }
+
+    private CommunityPostDetailResponse.CommentResponse toResponse(Comment comment) {
+        User author = comment.getAuthor();
+        CommunityPostDetailResponse.CommentResponse response = new CommunityPostDetailResponse.CommentResponse();
+        response.setId(comment.getId());
+        response.setContent(comment.getContent());
+        response.setAuthor(new CommunityPostResponse.AuthorInfo(
+                author.getId(),
+                author.getUsername(),
+                author.getAvatar()
+        ));
+        response.setCreatedAt(comment.getCreatedAt());
+        return response;
+    }
+
+    private static String encode(CommunityPostDetailResponse.CommentResponse last) {
+        return FeedCursor.of(last.getCreatedAt(), last.getId()).encode();
+    }
+}
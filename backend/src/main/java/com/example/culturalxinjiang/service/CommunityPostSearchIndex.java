@@ -0,0 +1,69 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.entity.CommunityPost;
+import com.example.culturalxinjiang.repository.CommunityPostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 社区帖子全文检索索引：标题权重 3，标签权重 2，正文权重 1
+ * <p>
+ * 只收录审核通过的帖子；修改后重新进入待审核状态的帖子会从索引中移除。
+ */
+@Service
+public class CommunityPostSearchIndex extends DocumentSearchIndex<CommunityPost> {
+
+    static final String TYPE = "post";
+
+    private static final String APPROVED = "approved";
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2f;
+    private static final float CONTENT_WEIGHT = 1f;
+
+    private final CommunityPostRepository communityPostRepository;
+
+    public CommunityPostSearchIndex(CommunityPostRepository communityPostRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.search.refresh-minutes:30}") long refreshMinutes) {
+        super("社区帖子", refreshMinutes, transactionManager);
+        this.communityPostRepository = communityPostRepository;
+    }
+
+    @Override
+    protected List<CommunityPost> loadAll() {
+        return communityPostRepository.findAllByStatus(APPROVED);
+    }
+
+    @Override
+    protected boolean indexable(CommunityPost post) {
+        return APPROVED.equals(post.getStatus());
+    }
+
+    @Override
+    protected Long idOf(CommunityPost post) {
+        return post.getId();
+    }
+
+    @Override
+    protected List<Bm25Index.Field> fieldsOf(CommunityPost post) {
+        List<Bm25Index.Field> fields = new ArrayList<>();
+        fields.add(new Bm25Index.Field(post.getTitle(), TITLE_WEIGHT));
+        if (post.getTags() != null) {
+            fields.add(new Bm25Index.Field(String.join(" ", post.getTags()), TAG_WEIGHT));
+        }
+        fields.add(new Bm25Index.Field(post.getContent(), CONTENT_WEIGHT));
+        return fields;
+    }
+
+    @Override
+    protected SearchDocument documentOf(CommunityPost post) {
+        return new SearchDocument(TYPE, post.getId(), post.getTitle(),
+                SearchDocument.summarize(post.getContent()),
+                SearchDocument.coverOf(null, post.getImages()),
+                null, null, post.getCreatedAt());
+    }
+}
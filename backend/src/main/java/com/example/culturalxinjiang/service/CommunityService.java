@@ -5,6 +5,7 @@ import com.example.culturalxinjiang.dto.request.CreatePostRequest;
 import com.example.culturalxinjiang.dto.request.UpdatePostRequest;
 import com.example.culturalxinjiang.dto.response.CommunityPostDetailResponse;
 import com.example.culturalxinjiang.dto.response.CommunityPostResponse;
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
 import com.example.culturalxinjiang.dto.response.MyCommentResponse;
 import com.example.culturalxinjiang.dto.response.PageResponse;
 import com.example.culturalxinjiang.entity.Comment;
@@ -16,6 +17,7 @@ import com.example.culturalxinjiang.repository.CommunityPostRepository;
 import com.example.culturalxinjiang.repository.FavoriteRepository;
 import com.example.culturalxinjiang.repository.PostLikeRepository;
 import com.example.culturalxinjiang.repository.UserRepository;
+import com.example.culturalxinjiang.util.FeedCursor;
 import com.example.culturalxinjiang.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -39,6 +41,10 @@ public class CommunityService {
     private final PostLikeRepository postLikeRepository;
     private final UserRepository userRepository;
     private final FavoriteRepository favoriteRepository;
+    private final CommunityPostSearchIndex communityPostSearchIndex;
+    private final CommentThreadLoader commentThreadLoader;
+    private final ViewCounterService viewCounterService;
+    private final HotScoreService hotScoreService;
 
     @Transactional(readOnly = true)
     public PageResponse<CommunityPostResponse> getPosts(String sort, Integer page, Integer size) {
@@ -58,12 +64,75 @@ public class CommunityService {
         return PageResponse.of(responses, postPage.getTotalElements(), page, size);
     }
 
-    @Transactional
+    /**
+     * 帖子信息流（游标分页）：latest 按 (createdAt, id)、hot 按 (hotScore, id) 倒序，不统计总数。
+     * 热度分不随当前时间变化（见 {@link HotScoreService}），翻页期间只有互动变化的帖子会移动位置
+     *
+     * @param cursor 上一页返回的 nextCursor，首页传 null；切换排序方式后须从首页开始
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommunityPostResponse> getPostFeed(String sort, String cursor, Integer size) {
+        int pageSize = FeedCursor.pageSize(size);
+        FeedCursor after = FeedCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        if ("hot".equals(sort)) {
+            List<CommunityPost> posts = postRepository.findHotBefore(
+                    after != null ? after.score() : Double.MAX_VALUE, after != null ? after.id() : Long.MAX_VALUE, limit);
+            return CursorPageResponse.of(posts, pageSize,
+                    post -> FeedCursor.of(post.getHotScore(), post.getId()).encode(), this::mapToResponse);
+        }
+        List<CommunityPost> posts = postRepository.findLatestBefore(
+                after != null ? after.time() : FeedCursor.LATEST, after != null ? after.id() : Long.MAX_VALUE, limit);
+        return CursorPageResponse.of(posts, pageSize,
+                post -> FeedCursor.of(post.getCreatedAt(), post.getId()).encode(), this::mapToResponse);
+    }
+
+    @Transactional(readOnly = true)
     public CommunityPostDetailResponse getPostDetail(Long id) {
         CommunityPost post = postRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("帖子不存在"));
 
-        // 检查帖子状态：只有已审核通过的帖子才能被查看，除非是作者本人
+        checkVisible(post);
+
+        viewCounterService.increment(ViewCounterService.Target.POST, id);
+        CommunityPostDetailResponse response = mapToDetailResponse(post);
+        response.setViews(post.getViews() + (int) viewCounterService.pending(ViewCounterService.Target.POST, id));
+        return response;
+    }
+
+    /**
+     * 评论区分页：顶层评论按发表时间正序，每条附带最早的几条回复
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommunityPostDetailResponse.CommentResponse> getComments(
+            Long postId, String cursor, Integer size) {
+        CommunityPost post = postRepository.findById(postId)
+                .orElseThrow(() -> new RuntimeException("帖子不存在"));
+        checkVisible(post);
+        return commentThreadLoader.loadComments(postId, cursor, size);
+    }
+
+    /**
+     * 加载某条评论的更多回复
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommunityPostDetailResponse.CommentResponse> getReplies(
+            Long postId, Long commentId, String cursor, Integer size) {
+        CommunityPost post = postRepository.findById(postId)
+                .orElseThrow(() -> new RuntimeException("帖子不存在"));
+        checkVisible(post);
+        Comment comment = commentRepository.findById(commentId)
+                .orElseThrow(() -> new RuntimeException("评论不存在"));
+        if (!comment.getPost().getId().equals(postId)) {
+            throw new RuntimeException("评论不存在");
+        }
+        return commentThreadLoader.loadReplies(commentId, cursor, size);
+    }
+
+    /**
+     * 只有已审核通过的帖子才能被查看，除非是作者本人
+     */
+    private void checkVisible(CommunityPost post) {
         boolean isAuthor = false;
         try {
             User currentUser = getCurrentUser();
@@ -77,12 +146,6 @@ public class CommunityService {
         if (!isAuthor && !"approved".equals(post.getStatus())) {
             throw new RuntimeException("帖子不存在或未通过审核");
         }
-
-        // Increment views
-        post.setViews(post.getViews() + 1);
-        postRepository.save(post);
-
-        return mapToDetailResponse(post);
     }
 
     @Transactional
@@ -131,6 +194,7 @@ public class CommunityService {
         }
 
         post = postRepository.save(post);
+        communityPostSearchIndex.upsert(post);
         return mapToDetailResponse(post);
     }
 
@@ -146,6 +210,7 @@ public class CommunityService {
         }
 
         postRepository.delete(post);
+        communityPostSearchIndex.remove(postId);
     }
 
     @Transactional
@@ -164,8 +229,9 @@ public class CommunityService {
                 .build();
         postLikeRepository.save(postLike);
 
-        post.setLikes(post.getLikes() + 1);
-        postRepository.save(post);
+        // 原子增量更新，不回写整行；偏差由 CounterReconciler 定期修正
+        postRepository.addLikes(postId, 1);
+        hotScoreService.refresh(postId);
     }
 
     @Transactional
@@ -179,8 +245,8 @@ public class CommunityService {
 
         postLikeRepository.delete(postLike);
 
-        post.setLikes(Math.max(0, post.getLikes() - 1));
-        postRepository.save(post);
+        postRepository.addLikes(postId, -1);
+        hotScoreService.refresh(postId);
     }
 
     @Transactional
@@ -196,8 +262,8 @@ public class CommunityService {
                 .build();
         commentRepository.save(comment);
 
-        post.setComments(post.getComments() + 1);
-        postRepository.save(post);
+        postRepository.addComments(postId, 1);
+        hotScoreService.refresh(postId);
     }
 
     @Transactional(readOnly = true)
@@ -237,12 +303,13 @@ public class CommunityService {
             throw new RuntimeException("无权删除该评论");
         }
 
-        CommunityPost post = comment.getPost();
+        Long postId = comment.getPost().getId();
         commentRepository.delete(comment);
+        // 先执行删除（含级联的回复），再按评论表统计
+        commentRepository.flush();
 
-        long commentCount = commentRepository.countByPostId(post.getId());
-        post.setComments((int) commentCount);
-        postRepository.save(post);
+        postRepository.recountComments(postId);
+        hotScoreService.refresh(postId);
     }
 
     private User getCurrentUser() {
@@ -338,46 +405,10 @@ public class CommunityService {
         response.setCreatedAt(post.getCreatedAt());
         response.setUpdatedAt(post.getUpdatedAt());
 
-        List<Comment> topLevelComments = commentRepository.findByPostIdOrderByCreatedAtAsc(post.getId())
-                .stream()
-                .filter(c -> c.getParent() == null)
-                .collect(Collectors.toList());
-
-        response.setCommentList(topLevelComments.stream()
-                .map(comment -> {
-                    // 显式访问 comment 的 author
-                    var commentAuthor = comment.getAuthor();
-                    CommunityPostDetailResponse.CommentResponse commentResponse = new CommunityPostDetailResponse.CommentResponse();
-                    commentResponse.setId(comment.getId());
-                    commentResponse.setContent(comment.getContent());
-                    commentResponse.setAuthor(new CommunityPostResponse.AuthorInfo(
-                            commentAuthor.getId(),
-                            commentAuthor.getUsername(),
-                            commentAuthor.getAvatar()
-                    ));
-                    commentResponse.setCreatedAt(comment.getCreatedAt());
-
-                    List<Comment> replies = commentRepository.findByParentIdOrderByCreatedAtAsc(comment.getId());
-                    commentResponse.setReplies(replies.stream()
-                            .map(reply -> {
-                                // 显式访问 reply 的 author
-                                var replyAuthor = reply.getAuthor();
-                                CommunityPostDetailResponse.CommentResponse replyResponse = new CommunityPostDetailResponse.CommentResponse();
-                                replyResponse.setId(reply.getId());
-                                replyResponse.setContent(reply.getContent());
-                                replyResponse.setAuthor(new CommunityPostResponse.AuthorInfo(
-                                        replyAuthor.getId(),
-                                        replyAuthor.getUsername(),
-                                        replyAuthor.getAvatar()
-                                ));
-                                replyResponse.setCreatedAt(reply.getCreatedAt());
-                                return replyResponse;
-                            })
-                            .collect(Collectors.toList()));
-
-                    return commentResponse;
-                })
-                .collect(Collectors.toList()));
+        CursorPageResponse<CommunityPostDetailResponse.CommentResponse> comments =
+                commentThreadLoader.loadComments(post.getId(), null, null);
+        response.setCommentList(comments.getList());
+        response.setCommentCursor(comments.getNextCursor());
 
         return response;
     }
@@ -410,6 +441,21 @@ public class CommunityService {
         return PageResponse.of(responses, postPage.getTotalElements(), page, size);
     }
 
+    /**
+     * 我的投稿（游标分页），按 (createdAt, id) 倒序
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommunityPostResponse> getMyPostFeed(String cursor, Integer size) {
+        User user = getCurrentUser();
+        int pageSize = FeedCursor.pageSize(size);
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<CommunityPost> posts = postRepository.findByAuthorIdBefore(user.getId(),
+                after != null ? after.time() : FeedCursor.LATEST, after != null ? after.id() : Long.MAX_VALUE,
+                PageRequest.of(0, pageSize + 1));
+        return CursorPageResponse.of(posts, pageSize,
+                post -> FeedCursor.of(post.getCreatedAt(), post.getId()).encode(), this::mapToResponse);
+    }
+
     @Transactional(readOnly = true)
     public PageResponse<CommunityPostResponse> getLikedPosts(Integer page, Integer size) {
         User user = getCurrentUser();
@@ -0,0 +1,108 @@
+package com.example.culturalxinjiang.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞数与收藏数的定期校正
+ * <p>
+ * 点赞、收藏时计数列只做原子增量更新（见 CommunityPostRepository.addLikes 等），
+ * 并发下不会丢失，但增量与明细表之间仍可能因历史数据或异常而出现偏差。后台线程每隔
+ * app.counters.reconcile-minutes 分钟按 ID 区间分批，用 post_likes / favorites 的实际条数
+ * 重写不一致的计数，每批一条语句、单独提交，只锁定本批中需要修正的行。
+ */
+@Slf4j
+@Service
+public class CounterReconciler {
+
+    /**
+     * 计数列与明细表的对应关系
+     */
+    private static final List<Target> TARGETS = List.of(
+            new Target("community_posts", "likes",
+                    "SELECT post_id AS target_id, COUNT(*) AS total FROM post_likes "
+                            + "WHERE post_id BETWEEN ? AND ? GROUP BY post_id"),
+            new Target("culture_resources", "favorites",
+                    "SELECT resource_id AS target_id, COUNT(*) AS total FROM favorites "
+                            + "WHERE resource_type = 'CULTURE' AND resource_id BETWEEN ? AND ? GROUP BY resource_id"),
+            new Target("routes", "favorites",
+                    "SELECT resource_id AS target_id, COUNT(*) AS total FROM favorites "
+                            + "WHERE resource_type = 'ROUTE' AND resource_id BETWEEN ? AND ? GROUP BY resource_id")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Counter correctedCounter;
+
+    public CounterReconciler(JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.counters.reconcile-minutes:30}") long reconcileMinutes,
+                             @Value("${app.counters.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.correctedCounter = meterRegistry.counter("counters.reconciled.rows");
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "counter-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, reconcileMinutes);
+        this.scheduler.scheduleWithFixedDelay(this::reconcileAll, period, period, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdownScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    void reconcileAll() {
+        for (Target target : TARGETS) {
+            try {
+                int corrected = reconcile(target);
+                if (corrected > 0) {
+                    correctedCounter.increment(corrected);
+                    log.info("已校正 {}.{} 共 {} 行", target.table(), target.column(), corrected);
+                }
+            } catch (Exception e) {
+                log.warn("校正 {}.{} 失败，将在下个周期重试: {}", target.table(), target.column(), e.getMessage());
+            }
+        }
+    }
+
+    private int reconcile(Target target) {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM " + target.table());
+        if (range.get("min_id") == null) {
+            return 0;
+        }
+        long minId = ((Number) range.get("min_id")).longValue();
+        long maxId = ((Number) range.get("max_id")).longValue();
+        String sql = "UPDATE " + target.table() + " t"
+                + " LEFT JOIN (" + target.countQuery() + ") c ON c.target_id = t.id"
+                + " SET t." + target.column() + " = COALESCE(c.total, 0)"
+                + " WHERE t.id BETWEEN ? AND ? AND t." + target.column() + " <> COALESCE(c.total, 0)";
+        int corrected = 0;
+        for (long from = minId; from <= maxId; from += batchSize) {
+            long to = Math.min(maxId, from + batchSize - 1);
+            corrected += jdbcTemplate.update(sql, from, to, from, to);
+        }
+        return corrected;
+    }
+
+    /**
+     * @param countQuery 按目标 ID 分组统计明细条数，两个参数为 ID 区间
+     */
+    private record Target(String table, String column, String countQuery) {
+    }
+}
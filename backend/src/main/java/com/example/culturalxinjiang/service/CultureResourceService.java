@@ -11,10 +11,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +26,8 @@ public class CultureResourceService {
 
     private final CultureResourceRepository repository;
     private final HeritageService heritageService;
+    private final CultureSearchIndex cultureSearchIndex;
+    private final ViewCounterService viewCounterService;
 
     @Transactional(readOnly = true)
     public PageResponse<CultureResourceResponse> search(String keyword, CultureResource.CultureType type,
@@ -30,18 +35,30 @@ public class CultureResourceService {
         Pageable pageable = PageRequest.of(page - 1, size);
         Page<CultureResource> resourcePage;
 
+        List<CultureResource> resources;
+        long total;
+
         if (tags != null && !tags.isEmpty()) {
             resourcePage = repository.findByTags(tags, pageable);
+            resources = resourcePage.getContent();
+            total = resourcePage.getTotalElements();
+        } else if (StringUtils.hasText(keyword)) {
+            // 关键字检索走内存倒排索引，按相关度取一页 ID 后批量查询
+            Bm25Index.Hits hits = cultureSearchIndex.search(keyword.trim(), type, region, page, size);
+            resources = loadInOrder(hits.ids());
+            total = hits.total();
         } else {
-            resourcePage = repository.search(keyword, type, region, pageable);
+            resourcePage = repository.search(null, type, region, pageable);
+            resources = resourcePage.getContent();
+            total = resourcePage.getTotalElements();
         }
 
-        List<CultureResourceResponse> responses = resourcePage.getContent().stream()
+        List<CultureResourceResponse> responses = resources.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
 
         PageResponse<CultureResourceResponse> pageResponse =
-                PageResponse.of(responses, resourcePage.getTotalElements(), page, size);
+                PageResponse.of(responses, total, page, size);
 
         if (type == null) {
             List<CultureResourceResponse> heritageHighlights = heritageService.highlightInSearch(
@@ -92,6 +109,18 @@ public class CultureResourceService {
         return response;
     }
 
+    private List<CultureResource> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, CultureResource> byId = repository.findAllByIdInFetchTags(ids).stream()
+                .collect(Collectors.toMap(CultureResource::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     @Transactional(readOnly = true)
     public CultureResourceResponse getDetail(CultureResource.CultureType type, Long id) {
         CultureResource resource = repository.findById(id)
@@ -101,7 +130,11 @@ public class CultureResourceService {
             throw new RuntimeException("资源类型不匹配");
         }
 
-        return mapToResponse(resource);
+        viewCounterService.increment(ViewCounterService.Target.CULTURE, id);
+        CultureResourceResponse response = mapToResponse(resource);
+        response.setViews((int) ((resource.getViews() != null ? resource.getViews() : 0)
+                + viewCounterService.pending(ViewCounterService.Target.CULTURE, id)));
+        return response;
     }
 
     @Transactional(readOnly = true)
@@ -120,14 +153,6 @@ public class CultureResourceService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional
-    public void incrementViews(Long id) {
-        CultureResource resource = repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("资源不存在"));
-        resource.setViews(resource.getViews() + 1);
-        repository.save(resource);
-    }
-
     private CultureResourceResponse mapToResponse(CultureResource resource) {
         // 显式访问懒加载集合，确保在事务内加载
         // 这会在 Session 开启时触发懒加载，避免序列化时 Session 已关闭的问题
@@ -0,0 +1,79 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.entity.CultureResource;
+import com.example.culturalxinjiang.repository.CultureResourceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文化资源全文检索索引
+ * <p>
+ * 对标题（权重 3）、标签（权重 2）与描述（权重 1）建立中文 n-gram 与字母数字词的倒排索引，
+ * 按 BM25 排序后返回一页资源 ID，由调用方批量查询数据库。管理后台新增、修改、删除资源时
+ * 在事务提交后增量更新，另按 app.search.culture.refresh-minutes 定期整体重建。
+ */
+@Service
+public class CultureSearchIndex extends DocumentSearchIndex<CultureResource> {
+
+    static final String TYPE = "culture";
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private final CultureResourceRepository cultureResourceRepository;
+
+    public CultureSearchIndex(CultureResourceRepository cultureResourceRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.search.culture.refresh-minutes:30}") long refreshMinutes) {
+        super("文化资源", refreshMinutes, transactionManager);
+        this.cultureResourceRepository = cultureResourceRepository;
+    }
+
+    /**
+     * 按相关度查询一页资源 ID
+     *
+     * @param type   为 null 时不限类型
+     * @param region 为 null 时不限地区
+     * @param page   从 1 开始
+     */
+    public Bm25Index.Hits search(String keyword, CultureResource.CultureType type, String region, int page, int size) {
+        return search(keyword, document -> (type == null || type.name().equals(document.category()))
+                && (region == null || region.equals(document.region())), (Math.max(page, 1) - 1) * size, size);
+    }
+
+    @Override
+    protected List<CultureResource> loadAll() {
+        return cultureResourceRepository.findAllFetchTags();
+    }
+
+    @Override
+    protected Long idOf(CultureResource resource) {
+        return resource.getId();
+    }
+
+    @Override
+    protected List<Bm25Index.Field> fieldsOf(CultureResource resource) {
+        List<Bm25Index.Field> fields = new ArrayList<>();
+        fields.add(new Bm25Index.Field(resource.getTitle(), TITLE_WEIGHT));
+        if (resource.getTags() != null) {
+            fields.add(new Bm25Index.Field(String.join(" ", resource.getTags()), TAG_WEIGHT));
+        }
+        fields.add(new Bm25Index.Field(resource.getDescription(), DESCRIPTION_WEIGHT));
+        return fields;
+    }
+
+    @Override
+    protected SearchDocument documentOf(CultureResource resource) {
+        return new SearchDocument(TYPE, resource.getId(), resource.getTitle(),
+                SearchDocument.summarize(resource.getDescription()),
+                SearchDocument.coverOf(resource.getCover(), resource.getImages()),
+                resource.getRegion(),
+                resource.getType() != null ? resource.getType().name() : null,
+                resource.getCreatedAt());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.culturalxinjiang.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 单类实体的全文检索索引基类
+ * <p>
+ * 维护一份 {@link Bm25Index} 与对应的 {@link SearchDocument} 摘要。启动后预加载，
+ * 写操作在事务提交后增量更新，另按 refreshMinutes 定期整体重建以兜底遗漏的修改；
+ * 重建在后台进行，查询不等待（加载与刷新见 {@link IndexRefresher}）。
+ *
+ * @param <E> 实体类型
+ */
+@Slf4j
+abstract class DocumentSearchIndex<E> {
+
+    private final String name;
+    private final Bm25Index index = new Bm25Index();
+    private final Map<Long, SearchDocument> documents = new ConcurrentHashMap<>();
+    private final TransactionTemplate readOnlyTransaction;
+    private final IndexRefresher<Loaded> refresher;
+
+    /**
+     * @param name 用于日志的索引名称
+     */
+    protected DocumentSearchIndex(String name, long refreshMinutes, PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.refresher = new IndexRefresher<>(name + "检索索引", refreshMinutes, false, this::load, this::install);
+    }
+
+    /**
+     * 加载全部需要检索的实体（在只读事务中调用，懒加载的集合可直接访问）
+     */
+    protected abstract List<E> loadAll();
+
+    protected abstract Long idOf(E entity);
+
+    protected abstract List<Bm25Index.Field> fieldsOf(E entity);
+
+    protected abstract SearchDocument documentOf(E entity);
+
+    /**
+     * 是否收录该实体，不收录的实体在更新时从索引中移除
+     */
+    protected boolean indexable(E entity) {
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        refresher.warmUp();
+    }
+
+    /**
+     * 新增或修改实体后调用：在当前事务内读取字段（含懒加载的集合），提交后更新索引
+     */
+    public void upsert(E entity) {
+        Long id = idOf(entity);
+        if (!indexable(entity)) {
+            remove(id);
+            return;
+        }
+        List<Bm25Index.Field> fields = fieldsOf(entity);
+        SearchDocument document = documentOf(entity);
+        AfterCommit.run(() -> refresher.apply(() -> {
+            index.put(id, fields);
+            documents.put(id, document);
+        }));
+    }
+
+    public void remove(Long id) {
+        AfterCommit.run(() -> refresher.apply(() -> {
+            index.remove(id);
+            documents.remove(id);
+        }));
+    }
+
+    public void reload() {
+        refresher.reload();
+    }
+
+    /**
+     * 按相关度分页查询 ID
+     *
+     * @param filter 为 null 时不过滤
+     * @param offset 从 0 开始
+     */
+    Bm25Index.Hits search(String keyword, Predicate<SearchDocument> filter, int offset, int limit) {
+        refresher.ensureFresh();
+        return index.search(keyword, asIdFilter(filter), offset, limit);
+    }
+
+    /**
+     * 查询前 limit 条及其归一化得分（见 {@link Bm25Index#top}）
+     */
+    Bm25Index.Ranking top(String keyword, Predicate<SearchDocument> filter, int limit) {
+        refresher.ensureFresh();
+        return index.top(keyword, asIdFilter(filter), limit);
+    }
+
+    SearchDocument document(Long id) {
+        return documents.get(id);
+    }
+
+    private LongPredicate asIdFilter(Predicate<SearchDocument> filter) {
+        return id -> {
+            SearchDocument document = documents.get(id);
+            return document != null && (filter == null || filter.test(document));
+        };
+    }
+
+    private Loaded load() {
+        Bm25Index rebuilt = new Bm25Index();
+        Map<Long, SearchDocument> rebuiltDocuments = new ConcurrentHashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (E entity : loadAll()) {
+                if (indexable(entity)) {
+                    rebuilt.put(idOf(entity), fieldsOf(entity));
+                    rebuiltDocuments.put(idOf(entity), documentOf(entity));
+                }
+            }
+        });
+        log.info("{}检索索引已加载，共 {} 条", name, rebuiltDocuments.size());
+        return new Loaded(rebuilt, rebuiltDocuments);
+    }
+
+    private void install(Loaded loaded) {
+        index.replaceWith(loaded.index());
+        documents.keySet().retainAll(loaded.documents().keySet());
+        documents.putAll(loaded.documents());
+    }
+
+    private record Loaded(Bm25Index index, Map<Long, SearchDocument> documents) {
+    }
+}
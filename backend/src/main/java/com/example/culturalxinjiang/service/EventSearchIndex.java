@@ -0,0 +1,77 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.entity.Event;
+import com.example.culturalxinjiang.repository.EventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 活动全文检索索引：标题权重 3，地点与主办方权重 2，描述权重 1
+ * <p>
+ * 活动没有单独的地区字段，摘要中的地区取活动地点名称。
+ */
+@Service
+public class EventSearchIndex extends DocumentSearchIndex<Event> {
+
+    static final String TYPE = "event";
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float PLACE_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private final EventRepository eventRepository;
+
+    public EventSearchIndex(EventRepository eventRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.search.refresh-minutes:30}") long refreshMinutes) {
+        super("活动", refreshMinutes, transactionManager);
+        this.eventRepository = eventRepository;
+    }
+
+    @Override
+    protected List<Event> loadAll() {
+        return eventRepository.findAll();
+    }
+
+    @Override
+    protected Long idOf(Event event) {
+        return event.getId();
+    }
+
+    @Override
+    protected List<Bm25Index.Field> fieldsOf(Event event) {
+        List<Bm25Index.Field> fields = new ArrayList<>();
+        fields.add(new Bm25Index.Field(event.getTitle(), TITLE_WEIGHT));
+        StringBuilder place = new StringBuilder();
+        if (event.getLocation() != null) {
+            append(place, event.getLocation().getName());
+            append(place, event.getLocation().getAddress());
+        }
+        if (event.getOrganizer() != null) {
+            append(place, event.getOrganizer().getName());
+        }
+        fields.add(new Bm25Index.Field(place.toString(), PLACE_WEIGHT));
+        fields.add(new Bm25Index.Field(event.getDescription(), DESCRIPTION_WEIGHT));
+        return fields;
+    }
+
+    @Override
+    protected SearchDocument documentOf(Event event) {
+        return new SearchDocument(TYPE, event.getId(), event.getTitle(),
+                SearchDocument.summarize(event.getDescription()),
+                SearchDocument.coverOf(event.getCover(), event.getImages()),
+                event.getLocation() != null ? event.getLocation().getName() : null,
+                event.getType() != null ? event.getType().name() : null,
+                event.getCreatedAt());
+    }
+
+    private void append(StringBuilder builder, String text) {
+        if (text != null && !text.isBlank()) {
+            builder.append(text).append(' ');
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.culturalxinjiang.service;
 
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
 import com.example.culturalxinjiang.dto.response.EventCalendarResponse;
 import com.example.culturalxinjiang.dto.response.EventDetailResponse;
 import com.example.culturalxinjiang.dto.response.EventResponse;
@@ -11,6 +12,7 @@ import com.example.culturalxinjiang.entity.User;
 import com.example.culturalxinjiang.repository.EventRegistrationRepository;
 import com.example.culturalxinjiang.repository.EventRepository;
 import com.example.culturalxinjiang.repository.UserRepository;
+import com.example.culturalxinjiang.util.FeedCursor;
 import com.example.culturalxinjiang.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -37,11 +39,11 @@ public class EventService {
     private final EventRegistrationRepository registrationRepository;
     private final UserRepository userRepository;
 
-    @Transactional
+    /**
+     * 活动状态由 {@link EventStatusService} 定期更新，这里直接按数据库中的状态查询
+     */
+    @Transactional(readOnly = true)
     public PageResponse<EventResponse> getEvents(String month, Event.EventStatus status, Event.EventType type, Integer page, Integer size) {
-        // 先自动更新活动状态
-        updateEventStatuses();
-
         Pageable pageable = PageRequest.of(page - 1, size);
         Page<Event> eventPage;
 
@@ -64,6 +66,36 @@ public class EventService {
         return PageResponse.of(responses, eventPage.getTotalElements(), page, size);
     }
 
+    /**
+     * 活动信息流（游标分页），按 (createdAt, id) 倒序，不统计总数；各筛选条件可组合
+     *
+     * @param month  yyyy-MM，按开始日期筛选
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<EventResponse> getEventFeed(String month, Event.EventStatus status, Event.EventType type,
+                                                          String cursor, Integer size) {
+        int pageSize = FeedCursor.pageSize(size);
+        FeedCursor after = FeedCursor.decode(cursor);
+        LocalDate monthStart = null;
+        LocalDate monthEnd = null;
+        if (month != null && !month.isBlank()) {
+            YearMonth target;
+            try {
+                target = YearMonth.parse(month);
+            } catch (Exception e) {
+                throw new RuntimeException("月份格式不正确，应为 yyyy-MM");
+            }
+            monthStart = target.atDay(1);
+            monthEnd = target.plusMonths(1).atDay(1);
+        }
+        List<Event> events = eventRepository.findFeed(status, type, monthStart, monthEnd,
+                after != null ? after.time() : FeedCursor.LATEST, after != null ? after.id() : Long.MAX_VALUE,
+                PageRequest.of(0, pageSize + 1));
+        return CursorPageResponse.of(events, pageSize,
+                event -> FeedCursor.of(event.getCreatedAt(), event.getId()).encode(), this::mapToResponse);
+    }
+
     @Transactional(readOnly = true)
     public EventDetailResponse getEventDetail(Long id) {
         Event event = eventRepository.findById(id)
@@ -315,55 +347,6 @@ public class EventService {
                 .flatMap(userRepository::findByUsername);
     }
 
-    /**
-     * 根据日期自动更新活动状态
-     * 将过期的活动状态更新为PAST，将已开始的活动状态更新为ONGOING，将未开始的活动状态更新为UPCOMING
-     * 只更新需要更新的活动，提高性能
-     */
-    @Transactional
-    public void updateEventStatuses() {
-        LocalDate today = LocalDate.now();
-
-        // 只查询可能需要更新的活动（状态不是PAST的活动，因为PAST状态不会再改变）
-        List<Event> eventsToCheck = eventRepository.findAll().stream()
-                .filter(event -> event.getStatus() != Event.EventStatus.PAST)
-                .collect(Collectors.toList());
-
-        for (Event event : eventsToCheck) {
-            Event.EventStatus calculatedStatus = calculateEventStatus(event, today);
-
-            // 只有当计算出的状态与当前状态不同时才更新
-            if (event.getStatus() != calculatedStatus) {
-                event.setStatus(calculatedStatus);
-                eventRepository.save(event);
-            }
-        }
-    }
-
-    /**
-     * 根据活动日期计算活动状态
-     * @param event 活动
-     * @param today 今天的日期
-     * @return 计算出的活动状态
-     */
-    private Event.EventStatus calculateEventStatus(Event event, LocalDate today) {
-        LocalDate startDate = event.getStartDate();
-        LocalDate endDate = event.getEndDate();
-
-        // 如果结束日期在今天之前，活动已结束
-        if (endDate.isBefore(today)) {
-            return Event.EventStatus.PAST;
-        }
-
-        // 如果开始日期在今天之后，活动即将开始
-        if (startDate.isAfter(today)) {
-            return Event.EventStatus.UPCOMING;
-        }
-
-        // 否则活动进行中（今天在开始和结束日期之间）
-        return Event.EventStatus.ONGOING;
-    }
-
     /**
      * 获取首页最新动态：当前时间一个月前后的即将开始、进行中或已结束的活动
      * @param page 页码
@@ -372,9 +355,6 @@ public class EventService {
      */
     @Transactional(readOnly = true)
     public PageResponse<EventResponse> getLatestEvents(Integer page, Integer size) {
-        // 先自动更新活动状态
-        updateEventStatuses();
-
         LocalDate today = LocalDate.now();
         LocalDate oneMonthAgo = today.minusMonths(1);
         LocalDate oneMonthLater = today.plusMonths(1);
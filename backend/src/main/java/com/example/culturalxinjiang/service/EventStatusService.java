@@ -0,0 +1,71 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.entity.Event;
+import com.example.culturalxinjiang.repository.EventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 活动状态维护
+ * <p>
+ * 状态只取决于开始、结束日期与当天日期：结束日期在今天之前为已结束，开始日期在今天之后为即将开始，
+ * 其余为进行中。后台线程启动时及每隔 app.events.status-refresh-minutes 分钟用三条 UPDATE 语句
+ * 只修改状态需要变化的活动，列表与信息流接口直接读取数据库中的状态。
+ */
+@Slf4j
+@Service
+public class EventStatusService {
+
+    private final EventRepository eventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long refreshMinutes;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public EventStatusService(EventRepository eventRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.events.status-refresh-minutes:10}") long refreshMinutes) {
+        this.eventRepository = eventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshMinutes = Math.max(1, refreshMinutes);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "event-status-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void startRefresh() {
+        scheduler.scheduleWithFixedDelay(this::refreshAll, 0, refreshMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdownScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    void refreshAll() {
+        try {
+            LocalDate today = LocalDate.now();
+            Integer updated = transactionTemplate.execute(status ->
+                    eventRepository.updateStatusEndedBefore(today, Event.EventStatus.PAST)
+                            + eventRepository.updateStatusOngoingOn(today, Event.EventStatus.ONGOING)
+                            + eventRepository.updateStatusStartingAfter(today, Event.EventStatus.UPCOMING));
+            if (updated != null && updated > 0) {
+                log.info("已更新 {} 个活动的状态", updated);
+            }
+        } catch (Exception e) {
+            log.warn("活动状态更新失败，将在下个周期重试: {}", e.getMessage());
+        }
+    }
+}
@@ -47,19 +47,15 @@ public class FavoriteService {
             throw new RuntimeException("已经收藏过");
         }
 
-        // Verify resource exists
+        // Verify resource exists; 收藏数用原子增量更新，偏差由 CounterReconciler 定期修正
         if (resourceType == Favorite.ResourceType.CULTURE) {
-            cultureResourceRepository.findById(resourceId)
-                    .orElseThrow(() -> new RuntimeException("资源不存在"));
-            CultureResource resource = cultureResourceRepository.findById(resourceId).get();
-            resource.setFavorites(resource.getFavorites() + 1);
-            cultureResourceRepository.save(resource);
+            if (cultureResourceRepository.addFavorites(resourceId, 1) == 0) {
+                throw new RuntimeException("资源不存在");
+            }
         } else if (resourceType == Favorite.ResourceType.ROUTE) {
-            routeRepository.findById(resourceId)
-                    .orElseThrow(() -> new RuntimeException("路线不存在"));
-            Route route = routeRepository.findById(resourceId).get();
-            route.setFavorites(route.getFavorites() + 1);
-            routeRepository.save(route);
+            if (routeRepository.addFavorites(resourceId, 1) == 0) {
+                throw new RuntimeException("路线不存在");
+            }
         } else if (resourceType == Favorite.ResourceType.POST) {
             communityPostRepository.findById(resourceId)
                     .orElseThrow(() -> new RuntimeException("帖子不存在"));
@@ -86,13 +82,9 @@ public class FavoriteService {
 
         // Update resource favorite count
         if (resourceType == Favorite.ResourceType.CULTURE) {
-            CultureResource resource = cultureResourceRepository.findById(resourceId).get();
-            resource.setFavorites(Math.max(0, resource.getFavorites() - 1));
-            cultureResourceRepository.save(resource);
+            cultureResourceRepository.addFavorites(resourceId, -1);
         } else if (resourceType == Favorite.ResourceType.ROUTE) {
-            Route route = routeRepository.findById(resourceId).get();
-            route.setFavorites(Math.max(0, route.getFavorites() - 1));
-            routeRepository.save(route);
+            routeRepository.addFavorites(resourceId, -1);
         } else if (resourceType == Favorite.ResourceType.POST) {
             // Posts don't have a favorites count field, so we just delete the favorite
         }
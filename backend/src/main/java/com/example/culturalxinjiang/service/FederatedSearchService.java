@@ -0,0 +1,244 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.PageResponse;
+import com.example.culturalxinjiang.dto.response.SearchResultResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 站内联合检索：文化资源、非遗项目、活动与社区帖子
+ * <p>
+ * 查询并行分发到各类型的内存索引，每个索引返回前 page × size 条及归一化得分
+ * （见 {@link Bm25Index#top}），乘以类型权重后多路归并，再截取请求的一页。
+ * 结果摘要直接取自索引，整个查询不访问数据库。等待各索引的总时长不超过
+ * app.search.federated.timeout-ms，超时的类型不参与本次合并并在 extra.partial 中列出。
+ */
+@Slf4j
+@Service
+public class FederatedSearchService {
+
+    /**
+     * 类型权重：相关度相同时官方内容排在活动与用户帖子之前
+     */
+    private static final Map<String, Double> TYPE_WEIGHTS = Map.of(
+            CultureSearchIndex.TYPE, 1.0,
+            HeritageSearchIndex.TYPE, 1.0,
+            EventSearchIndex.TYPE, 0.9,
+            CommunityPostSearchIndex.TYPE, 0.8
+    );
+
+    private final Map<String, DocumentSearchIndex<?>> indexes = new LinkedHashMap<>();
+    private final long timeoutMs;
+    private final int maxResults;
+    private final ThreadPoolExecutor executor;
+    private final Timer searchTimer;
+    private final Counter partialCounter;
+
+    public FederatedSearchService(CultureSearchIndex cultureSearchIndex,
+                                  HeritageSearchIndex heritageSearchIndex,
+                                  EventSearchIndex eventSearchIndex,
+                                  CommunityPostSearchIndex communityPostSearchIndex,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.search.federated.timeout-ms:300}") long timeoutMs,
+                                  @Value("${app.search.federated.max-results:500}") int maxResults,
+                                  @Value("${app.search.federated.threads:4}") int threads) {
+        indexes.put(CultureSearchIndex.TYPE, cultureSearchIndex);
+        indexes.put(HeritageSearchIndex.TYPE, heritageSearchIndex);
+        indexes.put(EventSearchIndex.TYPE, eventSearchIndex);
+        indexes.put(CommunityPostSearchIndex.TYPE, communityPostSearchIndex);
+        this.timeoutMs = timeoutMs;
+        this.maxResults = Math.max(1, maxResults);
+        int poolSize = Math.max(1, threads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时由请求线程自己执行，过载时退化为串行查询而不是报错
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "federated-search-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.searchTimer = meterRegistry.timer("search.federated.requests");
+        this.partialCounter = meterRegistry.counter("search.federated.partial");
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param types 要检索的类型（culture / heritage / event / post），为空时检索全部
+     * @param page  从 1 开始
+     */
+    public PageResponse<SearchResultResponse> search(String keyword, Collection<String> types, int page, int size) {
+        if (!StringUtils.hasText(keyword)) {
+            throw new RuntimeException("请输入搜索关键字");
+        }
+        if (page < 1 || size < 1) {
+            throw new RuntimeException("分页参数不正确");
+        }
+        if ((long) page * size > maxResults) {
+            throw new RuntimeException("最多只能查看前 " + maxResults + " 条搜索结果");
+        }
+        Set<String> selected = resolveTypes(types);
+        String query = keyword.trim();
+        int depth = page * size;
+
+        return searchTimer.record(() -> {
+            Map<String, CompletableFuture<Bm25Index.Ranking>> futures = new LinkedHashMap<>();
+            for (String type : selected) {
+                DocumentSearchIndex<?> index = indexes.get(type);
+                futures.put(type, CompletableFuture.supplyAsync(() -> index.top(query, null, depth), executor));
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            Map<String, Bm25Index.Ranking> rankings = new LinkedHashMap<>();
+            List<String> partial = new ArrayList<>();
+            for (Map.Entry<String, CompletableFuture<Bm25Index.Ranking>> entry : futures.entrySet()) {
+                try {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    rankings.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    entry.getValue().cancel(true);
+                    partial.add(entry.getKey());
+                    log.warn("联合检索 {} 索引在 {} 毫秒内未返回，本次结果不含该类型", entry.getKey(), timeoutMs);
+                } catch (ExecutionException e) {
+                    partial.add(entry.getKey());
+                    log.warn("联合检索 {} 索引查询失败: {}", entry.getKey(), e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("搜索被中断", e);
+                }
+            }
+            if (!partial.isEmpty()) {
+                partialCounter.increment();
+            }
+
+            PageResponse<SearchResultResponse> response = merge(rankings, page, size);
+            Map<String, Object> extra = new LinkedHashMap<>();
+            Map<String, Long> counts = new LinkedHashMap<>();
+            rankings.forEach((type, ranking) -> counts.put(type, ranking.total()));
+            extra.put("counts", counts);
+            if (!partial.isEmpty()) {
+                extra.put("partial", partial);
+            }
+            response.setExtra(extra);
+            return response;
+        });
+    }
+
+    /**
+     * 各类型的结果已按得分降序排列，且同一类型的权重相同，按加权得分多路归并即可得到全局顺序
+     */
+    private PageResponse<SearchResultResponse> merge(Map<String, Bm25Index.Ranking> rankings, int page, int size) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> {
+            int byScore = Double.compare(b.weightedScore(), a.weightedScore());
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byType = Integer.compare(a.order(), b.order());
+            return byType != 0 ? byType : Long.compare(b.current().id(), a.current().id());
+        });
+        long total = 0;
+        int order = 0;
+        for (Map.Entry<String, Bm25Index.Ranking> entry : rankings.entrySet()) {
+            Bm25Index.Ranking ranking = entry.getValue();
+            total += ranking.total();
+            if (!ranking.hits().isEmpty()) {
+                heads.add(new Cursor(entry.getKey(), order, TYPE_WEIGHTS.get(entry.getKey()), ranking.hits(), 0));
+            }
+            order++;
+        }
+
+        int offset = (page - 1) * size;
+        List<SearchResultResponse> results = new ArrayList<>();
+        int position = 0;
+        while (!heads.isEmpty() && results.size() < size) {
+            Cursor head = heads.poll();
+            if (position++ >= offset) {
+                SearchDocument document = indexes.get(head.type()).document(head.current().id());
+                if (document != null) {
+                    results.add(toResponse(document, head.weightedScore()));
+                }
+            }
+            if (head.position() + 1 < head.hits().size()) {
+                heads.add(head.next());
+            }
+        }
+        return PageResponse.of(results, total, page, size);
+    }
+
+    private Set<String> resolveTypes(Collection<String> types) {
+        if (types == null || types.isEmpty()) {
+            return indexes.keySet();
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String type : types) {
+            if (!StringUtils.hasText(type)) {
+                continue;
+            }
+            String normalized = type.trim().toLowerCase(Locale.ROOT);
+            if (!indexes.containsKey(normalized)) {
+                throw new RuntimeException("不支持的搜索类型: " + type);
+            }
+            selected.add(normalized);
+        }
+        return selected.isEmpty() ? indexes.keySet() : selected;
+    }
+
+    private SearchResultResponse toResponse(SearchDocument document, double score) {
+        return SearchResultResponse.builder()
+                .type(document.type())
+                .id(document.id())
+                .title(document.title())
+                .summary(document.summary())
+                .cover(document.cover())
+                .region(document.region())
+                .category(document.category())
+                .score(Math.round(score * 10000) / 10000.0)
+                .createdAt(document.createdAt())
+                .build();
+    }
+
+    private record Cursor(String type, int order, double weight, List<Bm25Index.Scored> hits, int position) {
+
+        Bm25Index.Scored current() {
+            return hits.get(position);
+        }
+
+        double weightedScore() {
+            return current().score() * weight;
+        }
+
+        Cursor next() {
+            return new Cursor(type, order, weight, hits, position + 1);
+        }
+    }
+}
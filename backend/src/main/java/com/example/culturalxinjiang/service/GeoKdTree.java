@@ -0,0 +1,178 @@
+package com.example.culturalxinjiang.service;
+
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * 球面最近邻查询用的静态 k-d 树
+ * <p>
+ * 经纬度换算为单位球面上的三维坐标，弦长与球面距离单调对应，因此直接在三维空间按欧氏距离
+ * 剪枝即可得到按球面距离排序的结果。树以下标数组隐式存放（区间中点为节点），构建后不可变。
+ */
+final class GeoKdTree {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final double[][] coordinates; // x, y, z
+    private final int[] nodes;
+
+    GeoKdTree(double[] lats, double[] lngs) {
+        int n = lats.length;
+        this.coordinates = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            double lat = Math.toRadians(lats[i]);
+            double lng = Math.toRadians(lngs[i]);
+            coordinates[0][i] = Math.cos(lat) * Math.cos(lng);
+            coordinates[1][i] = Math.cos(lat) * Math.sin(lng);
+            coordinates[2][i] = Math.sin(lat);
+        }
+        this.nodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = i;
+        }
+        build(0, n, 0);
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    /**
+     * 距离 (lat, lng) 最近的至多 k 个点的下标，按距离升序
+     *
+     * @param maxKm  最大距离（公里），不限制时传 {@link Double#POSITIVE_INFINITY}
+     * @param filter 只考虑满足条件的下标，为 null 时不过滤
+     */
+    int[] nearest(double lat, double lng, int k, double maxKm, IntPredicate filter) {
+        if (k <= 0 || nodes.length == 0) {
+            return new int[0];
+        }
+        double latRad = Math.toRadians(lat);
+        double lngRad = Math.toRadians(lng);
+        double[] target = {
+                Math.cos(latRad) * Math.cos(lngRad),
+                Math.cos(latRad) * Math.sin(lngRad),
+                Math.sin(latRad)
+        };
+        Search search = new Search(target, k, chordSquared(maxKm), filter);
+        search(0, nodes.length, 0, search);
+
+        int[] result = new int[search.heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = search.heap.poll().node();
+        }
+        return result;
+    }
+
+    private void build(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, coordinates[axis]);
+        int next = (axis + 1) % 3;
+        build(from, mid, next);
+        build(mid + 1, to, next);
+    }
+
+    /**
+     * 快速选择：使 nodes[k] 为区间内按该维度排序后的第 k 个
+     */
+    private void select(int left, int right, int k, double[] values) {
+        while (left < right) {
+            double pivot = values[nodes[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[nodes[i]] < pivot) {
+                    i++;
+                }
+                while (values[nodes[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = nodes[i];
+                    nodes[i++] = nodes[j];
+                    nodes[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void search(int from, int to, int axis, Search search) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int node = nodes[mid];
+        double distance = 0;
+        for (int d = 0; d < 3; d++) {
+            double delta = coordinates[d][node] - search.target[d];
+            distance += delta * delta;
+        }
+        if (distance <= search.limit && (search.filter == null || search.filter.test(node))) {
+            search.offer(node, distance);
+        }
+
+        double delta = search.target[axis] - coordinates[axis][node];
+        int next = (axis + 1) % 3;
+        // 先搜索目标所在一侧，另一侧只有在分割面距离小于当前第 k 近时才可能有更近的点
+        if (delta < 0) {
+            search(from, mid, next, search);
+            if (delta * delta <= search.limit) {
+                search(mid + 1, to, next, search);
+            }
+        } else {
+            search(mid + 1, to, next, search);
+            if (delta * delta <= search.limit) {
+                search(from, mid, next, search);
+            }
+        }
+    }
+
+    private static double chordSquared(double km) {
+        if (Double.isInfinite(km) || km >= Math.PI * EARTH_RADIUS_KM) {
+            return 4.0 + 1e-9;
+        }
+        double chord = 2 * Math.sin(Math.max(0, km) / (2 * EARTH_RADIUS_KM));
+        return chord * chord;
+    }
+
+    private record Candidate(int node, double distance) {
+    }
+
+    private static final class Search {
+        final double[] target;
+        final int k;
+        final IntPredicate filter;
+        // 按弦长平方的大顶堆，堆顶为当前第 k 近的点
+        final PriorityQueue<Candidate> heap;
+        double limit;
+
+        Search(double[] target, int k, double limit, IntPredicate filter) {
+            this.target = target;
+            this.k = k;
+            this.limit = limit;
+            this.filter = filter;
+            this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1,
+                    (a, b) -> Double.compare(b.distance(), a.distance()));
+        }
+
+        void offer(int node, double distance) {
+            heap.add(new Candidate(node, distance));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+            if (heap.size() == k) {
+                limit = Math.min(limit, heap.peek().distance());
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.entity.HeritageItem;
+import com.example.culturalxinjiang.repository.HeritageItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 非遗目录的分面筛选与计数
+ * <p>
+ * 每个非遗项目分配一个连续的序号，地区、分类、级别与标签的每个取值各对应一个 {@link BitSet}，
+ * 记录具有该取值的项目序号。筛选即位图求交（标签为多选，取并集后再求交），各取值的计数为
+ * 位图交集的基数，一次调用即可得到分页结果与全部分面计数。某个分面的计数不受该分面自身
+ * 筛选条件的影响（只受其他分面与关键字的限制），便于前端展示可切换的选项。
+ * <p>
+ * 序号按加载顺序（ID 升序）分配，新增项目追加在末尾，删除后序号保留到下次整体重建。
+ * 写操作在事务提交后增量更新，另按 app.search.refresh-minutes 定期整体重建（见 {@link IndexRefresher}）。
+ */
+@Slf4j
+@Service
+public class HeritageFacetIndex {
+
+    public static final String REGION = "region";
+    public static final String CATEGORY = "category";
+    public static final String LEVEL = "heritageLevel";
+    public static final String TAG = "tags";
+
+    private static final List<String> FACETS = List.of(REGION, CATEGORY, LEVEL, TAG);
+
+    /**
+     * 筛选条件，各字段为 null 或空时不限
+     *
+     * @param tags 任一标签匹配即可
+     */
+    public record Selection(String region, String category, String heritageLevel, Collection<String> tags) {
+    }
+
+    /**
+     * @param ids    当前页的项目 ID
+     * @param total  满足全部条件的项目数
+     * @param facets 分面名称 → 取值 → 项目数，取值按计数降序排列，只包含计数大于 0 的取值
+     */
+    public record Result(List<Long> ids, long total, Map<String, Map<String, Integer>> facets) {
+    }
+
+    private final HeritageItemRepository heritageItemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final IndexRefresher<Bitmaps> refresher;
+
+    private volatile Bitmaps bitmaps = new Bitmaps();
+
+    public HeritageFacetIndex(HeritageItemRepository heritageItemRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.search.refresh-minutes:30}") long refreshMinutes) {
+        this.heritageItemRepository = heritageItemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.refresher = new IndexRefresher<>("非遗分面索引", refreshMinutes, true, this::load,
+                rebuilt -> bitmaps = rebuilt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        refresher.warmUp();
+    }
+
+    /**
+     * 新增或修改项目后调用：在当前事务内读取字段（含懒加载的标签），提交后更新位图
+     */
+    public void upsert(HeritageItem item) {
+        Long id = item.getId();
+        Map<String, Set<String>> values = valuesOf(item);
+        AfterCommit.run(() -> refresher.apply(() -> bitmaps.put(id, values)));
+    }
+
+    public void remove(Long id) {
+        AfterCommit.run(() -> refresher.apply(() -> bitmaps.remove(id)));
+    }
+
+    public void reload() {
+        refresher.reload();
+    }
+
+    private Bitmaps load() {
+        Bitmaps rebuilt = new Bitmaps();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (HeritageItem item : heritageItemRepository.findAll()) {
+                rebuilt.put(item.getId(), valuesOf(item));
+            }
+        });
+        log.info("非遗分面索引已加载，共 {} 条", rebuilt.live.cardinality());
+        return rebuilt;
+    }
+
+    /**
+     * 按条件筛选一页项目 ID，并统计各分面取值的项目数
+     *
+     * @param rankedIds 关键字检索命中的 ID（按相关度排列），为 null 时不限关键字，结果按 ID 升序
+     * @param offset    从 0 开始
+     */
+    public Result search(Selection selection, List<Long> rankedIds, int offset, int limit) {
+        refresher.ensureFresh();
+        return bitmaps.search(selection, rankedIds, offset, limit);
+    }
+
+    private static Map<String, Set<String>> valuesOf(HeritageItem item) {
+        Map<String, Set<String>> values = new HashMap<>();
+        values.put(REGION, valueSet(List.of(nullToEmpty(item.getRegion()))));
+        values.put(CATEGORY, valueSet(List.of(nullToEmpty(item.getCategory()))));
+        values.put(LEVEL, valueSet(List.of(nullToEmpty(item.getHeritageLevel()))));
+        values.put(TAG, valueSet(item.getTags() != null ? item.getTags() : List.of()));
+        return values;
+    }
+
+    private static Set<String> valueSet(Collection<String> raw) {
+        Set<String> values = new LinkedHashSet<>();
+        for (String value : raw) {
+            if (StringUtils.hasText(value)) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * 序号分配与各取值的位图，整体重建时整份替换
+     */
+    private static final class Bitmaps {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<Map<String, Set<String>>> valuesByOrdinal = new ArrayList<>();
+        private final BitSet live = new BitSet();
+        private final Map<String, Map<String, BitSet>> facets = new HashMap<>();
+
+        private Bitmaps() {
+            for (String facet : FACETS) {
+                facets.put(facet, new HashMap<>());
+            }
+        }
+
+        private void put(Long id, Map<String, Set<String>> values) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal == null) {
+                    ordinal = ids.size();
+                    ordinals.put(id, ordinal);
+                    ids.add(id);
+                    valuesByOrdinal.add(null);
+                } else {
+                    clear(ordinal);
+                }
+                for (Map.Entry<String, Set<String>> entry : values.entrySet()) {
+                    Map<String, BitSet> byValue = facets.get(entry.getKey());
+                    for (String value : entry.getValue()) {
+                        byValue.computeIfAbsent(value, key -> new BitSet()).set(ordinal);
+                    }
+                }
+                valuesByOrdinal.set(ordinal, values);
+                live.set(ordinal);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal != null) {
+                    clear(ordinal);
+                    valuesByOrdinal.set(ordinal, null);
+                    live.clear(ordinal);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void clear(int ordinal) {
+            Map<String, Set<String>> previous = valuesByOrdinal.get(ordinal);
+            if (previous == null) {
+                return;
+            }
+            for (Map.Entry<String, Set<String>> entry : previous.entrySet()) {
+                Map<String, BitSet> byValue = facets.get(entry.getKey());
+                for (String value : entry.getValue()) {
+                    BitSet bitmap = byValue.get(value);
+                    if (bitmap != null) {
+                        bitmap.clear(ordinal);
+                        if (bitmap.isEmpty()) {
+                            byValue.remove(value);
+                        }
+                    }
+                }
+            }
+        }
+
+        private Result search(Selection selection, List<Long> rankedIds, int offset, int limit) {
+            lock.readLock().lock();
+            try {
+                BitSet base = (BitSet) live.clone();
+                if (rankedIds != null) {
+                    BitSet matched = new BitSet(ids.size());
+                    for (Long id : rankedIds) {
+                        Integer ordinal = ordinals.get(id);
+                        if (ordinal != null) {
+                            matched.set(ordinal);
+                        }
+                    }
+                    base.and(matched);
+                }
+
+                Map<String, BitSet> filters = new LinkedHashMap<>();
+                addFilter(filters, REGION, selection.region() != null ? List.of(selection.region()) : null);
+                addFilter(filters, CATEGORY, selection.category() != null ? List.of(selection.category()) : null);
+                addFilter(filters, LEVEL, selection.heritageLevel() != null ? List.of(selection.heritageLevel()) : null);
+                addFilter(filters, TAG, selection.tags());
+
+                BitSet result = (BitSet) base.clone();
+                filters.values().forEach(result::and);
+
+                Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+                for (String facet : FACETS) {
+                    BitSet scope = (BitSet) base.clone();
+                    filters.forEach((name, filter) -> {
+                        if (!name.equals(facet)) {
+                            scope.and(filter);
+                        }
+                    });
+                    counts.put(facet, count(facets.get(facet), scope));
+                }
+
+                List<Long> page = new ArrayList<>();
+                int skipped = 0;
+                if (rankedIds != null) {
+                    for (Long id : rankedIds) {
+                        if (page.size() >= limit) {
+                            break;
+                        }
+                        Integer ordinal = ordinals.get(id);
+                        if (ordinal != null && result.get(ordinal) && skipped++ >= offset) {
+                            page.add(id);
+                        }
+                    }
+                } else {
+                    for (int ordinal = result.nextSetBit(0); ordinal >= 0 && page.size() < limit;
+                         ordinal = result.nextSetBit(ordinal + 1)) {
+                        if (skipped++ >= offset) {
+                            page.add(ids.get(ordinal));
+                        }
+                    }
+                }
+                return new Result(page, result.cardinality(), counts);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 多个取值之间为"或"，未选择时不加入筛选
+         */
+        private void addFilter(Map<String, BitSet> filters, String facet, Collection<String> selected) {
+            Set<String> values = selected != null ? valueSet(selected) : Set.of();
+            if (values.isEmpty()) {
+                return;
+            }
+            BitSet union = new BitSet();
+            Map<String, BitSet> byValue = facets.get(facet);
+            for (String value : values) {
+                BitSet bitmap = byValue.get(value);
+                if (bitmap != null) {
+                    union.or(bitmap);
+                }
+            }
+            filters.put(facet, union);
+        }
+
+        private static Map<String, Integer> count(Map<String, BitSet> byValue, BitSet scope) {
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+            BitSet intersection = new BitSet();
+            for (Map.Entry<String, BitSet> entry : byValue.entrySet()) {
+                intersection.clear();
+                intersection.or(entry.getValue());
+                intersection.and(scope);
+                int count = intersection.cardinality();
+                if (count > 0) {
+                    entries.add(Map.entry(entry.getKey(), count));
+                }
+            }
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            entries.forEach(entry -> counts.put(entry.getKey(), entry.getValue()));
+            return counts;
+        }
+    }
+}
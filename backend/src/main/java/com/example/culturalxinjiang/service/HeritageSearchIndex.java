@@ -0,0 +1,73 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.entity.HeritageItem;
+import com.example.culturalxinjiang.repository.HeritageItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 非遗项目全文检索索引：标题权重 3，分类与标签权重 2，描述权重 1
+ */
+@Service
+public class HeritageSearchIndex extends DocumentSearchIndex<HeritageItem> {
+
+    static final String TYPE = "heritage";
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private final HeritageItemRepository heritageItemRepository;
+
+    public HeritageSearchIndex(HeritageItemRepository heritageItemRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.search.refresh-minutes:30}") long refreshMinutes) {
+        super("非遗项目", refreshMinutes, transactionManager);
+        this.heritageItemRepository = heritageItemRepository;
+    }
+
+    /**
+     * 按相关度返回全部命中的非遗项目 ID，由 {@link HeritageFacetIndex} 按筛选条件过滤后分页
+     */
+    public List<Long> rankAll(String keyword) {
+        return search(keyword, null, 0, Integer.MAX_VALUE).ids();
+    }
+
+    @Override
+    protected List<HeritageItem> loadAll() {
+        return heritageItemRepository.findAll();
+    }
+
+    @Override
+    protected Long idOf(HeritageItem item) {
+        return item.getId();
+    }
+
+    @Override
+    protected List<Bm25Index.Field> fieldsOf(HeritageItem item) {
+        List<Bm25Index.Field> fields = new ArrayList<>();
+        fields.add(new Bm25Index.Field(item.getTitle(), TITLE_WEIGHT));
+        List<String> labels = new ArrayList<>();
+        if (item.getCategory() != null) {
+            labels.add(item.getCategory());
+        }
+        if (item.getTags() != null) {
+            labels.addAll(item.getTags());
+        }
+        fields.add(new Bm25Index.Field(String.join(" ", labels), TAG_WEIGHT));
+        fields.add(new Bm25Index.Field(item.getDescription(), DESCRIPTION_WEIGHT));
+        return fields;
+    }
+
+    @Override
+    protected SearchDocument documentOf(HeritageItem item) {
+        return new SearchDocument(TYPE, item.getId(), item.getTitle(),
+                SearchDocument.summarize(item.getDescription()),
+                SearchDocument.coverOf(item.getCover(), item.getImages()),
+                item.getRegion(), item.getCategory(), item.getCreatedAt());
+    }
+}
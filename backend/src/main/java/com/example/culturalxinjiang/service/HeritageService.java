@@ -7,17 +7,17 @@ import com.example.culturalxinjiang.dto.response.PageResponse;
 import com.example.culturalxinjiang.entity.HeritageItem;
 import com.example.culturalxinjiang.repository.HeritageItemRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +25,10 @@ import java.util.stream.Collectors;
 public class HeritageService {
 
     private final HeritageItemRepository heritageItemRepository;
+    private final HeritageSearchIndex heritageSearchIndex;
+    private final HeritageFacetIndex heritageFacetIndex;
+    private final AutocompleteService autocompleteService;
+    private final ViewCounterService viewCounterService;
 
     @Transactional(readOnly = true)
     public PageResponse<HeritageItemResponse> search(
@@ -36,27 +40,36 @@ public class HeritageService {
             Integer page,
             Integer size
     ) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<HeritageItem> heritagePage = heritageItemRepository.search(
-                keyword, region, category, heritageLevel, tags, pageable
+        // 关键字由内存倒排索引按相关度给出全部命中，筛选、分页与分面计数由位图完成，最后只回表查询当前页
+        List<Long> rankedIds = StringUtils.hasText(keyword) ? heritageSearchIndex.rankAll(keyword.trim()) : null;
+        HeritageFacetIndex.Selection selection = new HeritageFacetIndex.Selection(
+                StringUtils.hasText(region) ? region : null,
+                StringUtils.hasText(category) ? category : null,
+                StringUtils.hasText(heritageLevel) ? heritageLevel : null,
+                tags
         );
+        HeritageFacetIndex.Result result = heritageFacetIndex.search(selection, rankedIds, (page - 1) * size, size);
 
-        List<HeritageItemResponse> responses = heritagePage.getContent().stream()
+        List<HeritageItemResponse> responses = loadInOrder(result.ids()).stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
 
-        return PageResponse.of(responses, heritagePage.getTotalElements(), page, size);
+        PageResponse<HeritageItemResponse> response = PageResponse.of(responses, result.total(), page, size);
+        Map<String, Object> extra = new HashMap<>();
+        extra.put("facets", result.facets());
+        response.setExtra(extra);
+        return response;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public HeritageItemResponse getDetail(Long id) {
         HeritageItem item = heritageItemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("非遗内容不存在"));
-        if (item.getViews() == null) {
-            item.setViews(0);
-        }
-        item.setViews(item.getViews() + 1);
-        return mapToResponse(heritageItemRepository.save(item));
+        viewCounterService.increment(ViewCounterService.Target.HERITAGE, id);
+        HeritageItemResponse response = mapToResponse(item);
+        response.setViews((int) ((item.getViews() != null ? item.getViews() : 0)
+                + viewCounterService.pending(ViewCounterService.Target.HERITAGE, id)));
+        return response;
     }
 
     @Transactional(readOnly = true)
@@ -100,6 +113,9 @@ public class HeritageService {
                 .views(0)
                 .build();
         item = heritageItemRepository.save(item);
+        heritageSearchIndex.upsert(item);
+        heritageFacetIndex.upsert(item);
+        autocompleteService.upsert(item);
         return mapToResponse(item);
     }
 
@@ -141,6 +157,9 @@ public class HeritageService {
             item.setFeatured(request.getFeatured());
         }
         item = heritageItemRepository.save(item);
+        heritageSearchIndex.upsert(item);
+        heritageFacetIndex.upsert(item);
+        autocompleteService.upsert(item);
         return mapToResponse(item);
     }
 
@@ -149,6 +168,9 @@ public class HeritageService {
         HeritageItem item = heritageItemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("非遗内容不存在"));
         heritageItemRepository.delete(item);
+        heritageSearchIndex.remove(id);
+        heritageFacetIndex.remove(id);
+        autocompleteService.removeHeritage(id);
     }
 
     @Transactional(readOnly = true)
@@ -165,6 +187,18 @@ public class HeritageService {
                 .collect(Collectors.toList());
     }
 
+    private List<HeritageItem> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, HeritageItem> byId = heritageItemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(HeritageItem::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     private HeritageItemResponse mapToResponse(HeritageItem item) {
         return HeritageItemResponse.builder()
                 .id(item.getId())
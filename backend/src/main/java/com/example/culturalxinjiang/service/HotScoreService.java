@@ -0,0 +1,120 @@
+package com.example.culturalxinjiang.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 社区帖子热度分
+ * <p>
+ * 热度分 = log10(点赞 × like-weight + 评论 × comment-weight + 浏览 × view-weight + 1)
+ * + 发布时间（自 {@link #EPOCH} 起的秒数）/ (decay-hours × 3600)。
+ * 发布晚 decay-hours 小时的帖子只需十分之一的互动即可与之并列，旧的热门帖子不会一直占据榜首。
+ * 时间衰减体现在发布时间一项上，分数本身不随当前时间变化：互动不变的两个帖子先后顺序固定，
+ * 热门信息流按 (hot_score, id) 游标翻页时不会因定期重新计算而重复或遗漏帖子。
+ * 分数保存在 community_posts.hot_score，热门列表按 (status, hot_score, id) 索引顺序读取。
+ * <p>
+ * 点赞、评论、审核通过后在事务提交后重新计算单个帖子；后台线程每隔
+ * app.community.hot.refresh-minutes 分钟按 ID 区间分批重新计算全部已通过的帖子，纳入批量写回的浏览量。
+ */
+@Slf4j
+@Service
+public class HotScoreService {
+
+    /**
+     * 发布时间项的起点，只影响分数的绝对值，不影响排序
+     */
+    static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final String SCORE_EXPRESSION = "LOG10(likes * ? + comments * ? + views * ? + 1)"
+            + " + TIMESTAMPDIFF(SECOND, ?, created_at) / ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double likeWeight;
+    private final double commentWeight;
+    private final double viewWeight;
+    private final double decaySeconds;
+    private final long refreshMinutes;
+    private final int batchSize;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public HotScoreService(JdbcTemplate jdbcTemplate,
+                           @Value("${app.community.hot.like-weight:2}") double likeWeight,
+                           @Value("${app.community.hot.comment-weight:3}") double commentWeight,
+                           @Value("${app.community.hot.view-weight:0.1}") double viewWeight,
+                           @Value("${app.community.hot.decay-hours:12}") double decayHours,
+                           @Value("${app.community.hot.refresh-minutes:10}") long refreshMinutes,
+                           @Value("${app.community.hot.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.likeWeight = likeWeight;
+        this.commentWeight = commentWeight;
+        this.viewWeight = viewWeight;
+        this.decaySeconds = (decayHours > 0 ? decayHours : 12) * 3600;
+        this.refreshMinutes = Math.max(1, refreshMinutes);
+        this.batchSize = Math.max(1, batchSize);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "hot-score-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 表结构更新完成后再开始计算，首次计算为已有帖子补齐分数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startRefresh() {
+        scheduler.scheduleWithFixedDelay(this::refreshAll, 0, refreshMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdownScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 帖子的点赞、评论或审核状态变化后调用，在事务提交后重新计算该帖子的热度分
+     */
+    public void refresh(Long postId) {
+        Runnable action = () -> {
+            try {
+                jdbcTemplate.update("UPDATE community_posts SET hot_score = " + SCORE_EXPRESSION + " WHERE id = ?",
+                        likeWeight, commentWeight, viewWeight, EPOCH, decaySeconds, postId);
+            } catch (Exception e) {
+                log.warn("帖子 {} 热度分更新失败，等待定期重新计算: {}", postId, e.getMessage());
+            }
+        };
+        AfterCommit.run(action);
+    }
+
+    void refreshAll() {
+        try {
+            Map<String, Object> range = jdbcTemplate.queryForMap(
+                    "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM community_posts WHERE status = 'approved'");
+            if (range.get("min_id") == null) {
+                return;
+            }
+            long minId = ((Number) range.get("min_id")).longValue();
+            long maxId = ((Number) range.get("max_id")).longValue();
+            String sql = "UPDATE community_posts SET hot_score = " + SCORE_EXPRESSION
+                    + " WHERE id BETWEEN ? AND ? AND status = 'approved'";
+            int updated = 0;
+            for (long from = minId; from <= maxId; from += batchSize) {
+                long to = Math.min(maxId, from + batchSize - 1);
+                updated += jdbcTemplate.update(sql, likeWeight, commentWeight, viewWeight, EPOCH, decaySeconds, from, to);
+            }
+            log.debug("已重新计算 {} 个帖子的热度分", updated);
+        } catch (Exception e) {
+            log.warn("帖子热度分重新计算失败，将在下个周期重试: {}", e.getMessage());
+        }
+    }
+}
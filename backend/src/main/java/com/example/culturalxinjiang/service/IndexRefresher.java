@@ -0,0 +1,156 @@
+package com.example.culturalxinjiang.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 内存索引的加载、定期重建与增量修改
+ * <p>
+ * 启动后预加载；查询时发现数据超过 refreshMinutes 则提交一次后台重建（各索引共用一个后台线程，
+ * 同一索引同一时刻只有一个重建任务），查询不等待，继续使用旧数据。尚未加载成功时，
+ * waitForFirstLoad 的索引由第一个查询线程加载、其他线程等待这一次加载的结果；
+ * 其余索引同样在后台加载，加载完成前查询得到空结果。
+ * <p>
+ * 增量修改经 {@link AfterCommit} 在事务提交后执行，并通过 {@link #apply} 与重建结果的替换互斥：
+ * 重建期间的修改同时记入待重放列表，新数据替换后重放，不会被重建前读取的旧数据覆盖。
+ *
+ * @param <T> 一次重建得到的数据
+ */
+@Slf4j
+final class IndexRefresher<T> {
+
+    // 后台加载失败后的重试间隔
+    private static final long RETRY_MILLIS = 30_000L;
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final long refreshMillis;
+    private final boolean waitForFirstLoad;
+    private final Supplier<T> loader;
+    private final Consumer<T> installer;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    // 增量修改与重建替换之间的互斥；重建期间非空，记录需要在替换后重放的修改
+    private final Object changeLock = new Object();
+    private List<Runnable> pendingChanges;
+
+    private volatile boolean ready;
+    private volatile long loadedAt;
+
+    /**
+     * @param name      用于日志的索引名称
+     * @param loader    从数据库读取并构建新数据（不持有 changeLock，可以耗时）
+     * @param installer 用新数据替换当前数据（持有 changeLock，应当很快）
+     */
+    IndexRefresher(String name, long refreshMinutes, boolean waitForFirstLoad,
+                   Supplier<T> loader, Consumer<T> installer) {
+        this.name = name;
+        this.refreshMillis = refreshMinutes * 60_000L;
+        this.waitForFirstLoad = waitForFirstLoad;
+        this.loader = loader;
+        this.installer = installer;
+    }
+
+    /**
+     * 启动后预加载，失败时只记录日志
+     */
+    void warmUp() {
+        try {
+            reload();
+        } catch (Exception e) {
+            loadedAt = System.currentTimeMillis();
+            log.warn("{}预加载失败，将在查询时重试: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 立即重建，与其他重建串行执行
+     */
+    void reload() {
+        rebuildLock.lock();
+        try {
+            synchronized (changeLock) {
+                pendingChanges = new ArrayList<>();
+            }
+            T rebuilt = loader.get();
+            synchronized (changeLock) {
+                installer.accept(rebuilt);
+                // 读取数据库之后提交的修改在新数据上重放
+                pendingChanges.forEach(Runnable::run);
+                pendingChanges = null;
+            }
+            ready = true;
+            loadedAt = System.currentTimeMillis();
+        } finally {
+            synchronized (changeLock) {
+                pendingChanges = null;
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * 查询前调用：数据过期（尚未加载时按重试间隔）则提交一次后台重建，已有重建任务时不重复提交
+     */
+    void ensureFresh() {
+        if (!ready && waitForFirstLoad) {
+            loadOnce();
+            return;
+        }
+        long maxAge = ready ? refreshMillis : RETRY_MILLIS;
+        if (System.currentTimeMillis() - loadedAt <= maxAge || !refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            REFRESH_EXECUTOR.execute(() -> {
+                try {
+                    reload();
+                } catch (Exception e) {
+                    loadedAt = System.currentTimeMillis();
+                    log.warn("{}刷新失败，继续使用旧数据: {}", name, e.getMessage());
+                } finally {
+                    refreshScheduled.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshScheduled.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 执行一次增量修改；重建期间同时记录，替换后重放
+     */
+    void apply(Runnable change) {
+        synchronized (changeLock) {
+            change.run();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    private void loadOnce() {
+        rebuildLock.lock();
+        try {
+            // 等待期间其他线程可能已加载完成
+            if (!ready) {
+                reload();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.request.GenerateRouteRequest;
+import com.example.culturalxinjiang.entity.CultureResource;
+import com.example.culturalxinjiang.repository.CultureResourceRepository;
+import com.example.culturalxinjiang.service.AIService.AIRouteResponse;
+import com.example.culturalxinjiang.util.GeoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 本地行程规划：基于带坐标的文化资源生成完整路线，不调用 AI 服务，毫秒级返回
+ * <p>
+ * 按目的地与兴趣筛选并打分选出景点；按目的地顺序分组，在预先计算的距离矩阵上
+ * 用最近邻构造游览顺序、2-opt 消除交叉；再用动态规划把游览顺序切分为天，
+ * 使每天的车程与游览时长尽量均衡。
+ * 用作缺少 AI 密钥、熔断或 AI 响应无法解析时的默认路线，以及 AI 生成期间先行展示的草稿。
+ */
+@Slf4j
+@Service
+public class LocalRoutePlanner {
+
+    private static final double DRIVING_SPEED_KMH = 60.0;
+    private static final double VISIT_HOURS = 2.0;
+    // 超过该距离的两站之间按乘飞机/火车计，耗时固定为 LONG_HAUL_HOURS
+    private static final double LONG_HAUL_KM = 600.0;
+    private static final double LONG_HAUL_HOURS = 4.0;
+    private static final int DAY_START_MINUTES = 9 * 60;
+    private static final int MAX_TWO_OPT_ROUNDS = 50;
+
+    private final CultureResourceRepository cultureResourceRepository;
+    private final boolean enabled;
+    private final long refreshMillis;
+
+    private volatile List<PlannerPoi> pois = List.of();
+    private volatile long loadedAt;
+
+    public LocalRoutePlanner(CultureResourceRepository cultureResourceRepository,
+                             @Value("${app.routes.planner.enabled:true}") boolean enabled,
+                             @Value("${app.routes.planner.refresh-minutes:10}") long refreshMinutes) {
+        this.cultureResourceRepository = cultureResourceRepository;
+        this.enabled = enabled;
+        this.refreshMillis = refreshMinutes * 60_000L;
+    }
+
+    /**
+     * 规划路线，未启用或没有可用景点时返回 null（由调用方使用模板路线）
+     */
+    public AIRouteResponse plan(GenerateRouteRequest request) {
+        if (!enabled || request.getDuration() == null || request.getDuration() < 1) {
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            AIRouteResponse response = doPlan(request, currentPois());
+            if (response != null) {
+                log.info("本地规划路线完成（{}天），耗时 {} 毫秒",
+                        request.getDuration(), (System.nanoTime() - start) / 1_000_000L);
+            }
+            return response;
+        } catch (Exception e) {
+            log.warn("本地规划路线失败: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private List<PlannerPoi> currentPois() {
+        if (System.currentTimeMillis() - loadedAt > refreshMillis) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadedAt > refreshMillis) {
+                    pois = cultureResourceRepository.findAllWithLocationFetchTags().stream()
+                            .filter(resource -> StringUtils.hasText(resource.getTitle()))
+                            .map(PlannerPoi::of)
+                            .toList();
+                    loadedAt = System.currentTimeMillis();
+                }
+            }
+        }
+        return pois;
+    }
+
+    private AIRouteResponse doPlan(GenerateRouteRequest request, List<PlannerPoi> allPois) {
+        int days = request.getDuration();
+        List<String> cities = parseCities(request);
+        Set<String> avoid = normalizedTerms(request.getMustAvoid());
+        Set<String> interests = normalizedTerms(request.getInterests(), request.getStylePreferences());
+        Set<String> mustVisit = normalizedTerms(request.getMustVisit(), request.getMustVisitLocations());
+
+        List<Candidate> candidates = new ArrayList<>();
+        boolean anyCityMatched = false;
+        for (PlannerPoi poi : allPois) {
+            if (containsAnyTerm(poi.title(), avoid)) {
+                continue;
+            }
+            int cityRank = cityRank(poi, cities);
+            anyCityMatched |= cityRank < cities.size();
+            candidates.add(new Candidate(poi, cityRank, score(poi, interests, mustVisit)));
+        }
+        // 目的地都没有收录景点时在全疆范围内挑选
+        if (anyCityMatched) {
+            candidates.removeIf(candidate -> candidate.cityRank() == cities.size());
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        int stopsPerDay = stopsPerDay(request);
+        int target = Math.min(candidates.size(), days * stopsPerDay);
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        List<Candidate> selected = new ArrayList<>(candidates.subList(0, target));
+
+        List<PlannerPoi> ordered = orderByCityThenDistance(selected);
+        double[][] distances = distanceMatrix(ordered);
+        List<List<Integer>> dayStops = splitIntoDays(distances, ordered.size(), days, stopsPerDay);
+        return buildResponse(request, cities, ordered, distances, dayStops);
+    }
+
+    private int stopsPerDay(GenerateRouteRequest request) {
+        Set<String> styles = normalizedTerms(request.getStylePreferences());
+        if (Boolean.TRUE.equals(request.getHasMobilityIssues())
+                || styles.contains("休闲") || styles.contains("亲子")) {
+            return 2;
+        }
+        return styles.contains("紧凑") ? 4 : 3;
+    }
+
+    private double score(PlannerPoi poi, Set<String> interests, Set<String> mustVisit) {
+        double score = Math.log1p(poi.views() + 3.0 * poi.favorites());
+        for (String interest : interests) {
+            if (poi.tags().stream().anyMatch(tag -> tag.contains(interest) || interest.contains(tag))
+                    || poi.text().contains(interest)) {
+                score += 3;
+            }
+        }
+        if (containsAnyTerm(poi.title(), mustVisit)) {
+            score += 100;
+        }
+        return score;
+    }
+
+    /**
+     * 景点所在目的地的序号，不属于任何目的地时返回目的地数量
+     */
+    private int cityRank(PlannerPoi poi, List<String> cities) {
+        for (int i = 0; i < cities.size(); i++) {
+            String city = cities.get(i);
+            String region = poi.region();
+            if ((!region.isEmpty() && (region.contains(city) || city.contains(region)))
+                    || poi.address().contains(city)) {
+                return i;
+            }
+        }
+        return cities.size();
+    }
+
+    /**
+     * 按目的地顺序分组，组内从上一组的终点出发做最近邻构造，再用 2-opt 优化
+     */
+    private List<PlannerPoi> orderByCityThenDistance(List<Candidate> selected) {
+        selected.sort(Comparator.comparingInt(Candidate::cityRank)
+                .thenComparing(Comparator.comparingDouble(Candidate::score).reversed()));
+        List<PlannerPoi> ordered = new ArrayList<>(selected.size());
+        int groupStart = 0;
+        while (groupStart < selected.size()) {
+            int rank = selected.get(groupStart).cityRank();
+            int groupEnd = groupStart;
+            while (groupEnd < selected.size() && selected.get(groupEnd).cityRank() == rank) {
+                groupEnd++;
+            }
+            List<PlannerPoi> group = new ArrayList<>();
+            for (int i = groupStart; i < groupEnd; i++) {
+                group.add(selected.get(i).poi());
+            }
+            PlannerPoi previous = ordered.isEmpty() ? null : ordered.get(ordered.size() - 1);
+            ordered.addAll(optimizeTour(group, previous));
+            groupStart = groupEnd;
+        }
+        return ordered;
+    }
+
+    private List<PlannerPoi> optimizeTour(List<PlannerPoi> group, PlannerPoi previous) {
+        int n = group.size();
+        if (n <= 2 && previous == null) {
+            return group;
+        }
+        double[][] d = distanceMatrix(group);
+
+        // 起点：接续上一组时取离上一组终点最近的景点，否则取得分最高的景点（已排在首位）
+        int first = 0;
+        if (previous != null) {
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                double distance = distance(previous, group.get(i));
+                if (distance < best) {
+                    best = distance;
+                    first = i;
+                }
+            }
+        }
+
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        tour[0] = first;
+        visited[first] = true;
+        for (int step = 1; step < n; step++) {
+            int last = tour[step - 1];
+            int next = -1;
+            for (int j = 0; j < n; j++) {
+                if (!visited[j] && (next < 0 || d[last][j] < d[last][next])) {
+                    next = j;
+                }
+            }
+            tour[step] = next;
+            visited[next] = true;
+        }
+
+        // 开放路径的 2-opt：起点固定，反转 [i, k] 区间能缩短总距离时执行
+        boolean improved = true;
+        for (int round = 0; improved && round < MAX_TWO_OPT_ROUNDS; round++) {
+            improved = false;
+            for (int i = 1; i < n - 1; i++) {
+                for (int k = i + 1; k < n; k++) {
+                    double before = d[tour[i - 1]][tour[i]] + (k + 1 < n ? d[tour[k]][tour[k + 1]] : 0);
+                    double after = d[tour[i - 1]][tour[k]] + (k + 1 < n ? d[tour[i]][tour[k + 1]] : 0);
+                    if (after + 1e-9 < before) {
+                        reverse(tour, i, k);
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        List<PlannerPoi> ordered = new ArrayList<>(n);
+        for (int index : tour) {
+            ordered.add(group.get(index));
+        }
+        return ordered;
+    }
+
+    /**
+     * 把游览顺序切分为连续的若干天：每天耗时 = 当天车程（含从前一天终点出发）+ 游览时长，
+     * 最小化各天耗时的平方和，使行程松紧均衡，每天不超过 maxStops 个景点。
+     * 景点少于天数时每天一个，其余天数留空。
+     */
+    private List<List<Integer>> splitIntoDays(double[][] d, int n, int days, int maxStops) {
+        List<List<Integer>> result = new ArrayList<>(days);
+        if (n <= days) {
+            for (int day = 0; day < days; day++) {
+                result.add(day < n ? List.of(day) : List.of());
+            }
+            return result;
+        }
+
+        // prefix[i]：从第 0 个到第 i 个景点的累计交通时长
+        double[] prefix = new double[n];
+        for (int i = 1; i < n; i++) {
+            prefix[i] = prefix[i - 1] + travelHours(d[i - 1][i]);
+        }
+
+        double[][] cost = new double[days + 1][n + 1];
+        int[][] cut = new int[days + 1][n + 1];
+        for (double[] row : cost) {
+            Arrays.fill(row, Double.MAX_VALUE);
+        }
+        cost[0][0] = 0;
+        for (int day = 1; day <= days; day++) {
+            for (int end = day; end <= n - (days - day); end++) {
+                for (int start = Math.max(day - 1, end - maxStops); start < end; start++) {
+                    if (cost[day - 1][start] == Double.MAX_VALUE) {
+                        continue;
+                    }
+                    // 当天游览 [start, end) 区间
+                    double hours = prefix[end - 1] - prefix[start] + (start > 0 ? travelHours(d[start - 1][start]) : 0)
+                            + (end - start) * VISIT_HOURS;
+                    double total = cost[day - 1][start] + hours * hours;
+                    if (total < cost[day][end]) {
+                        cost[day][end] = total;
+                        cut[day][end] = start;
+                    }
+                }
+            }
+        }
+
+        int[] bounds = new int[days + 1];
+        bounds[days] = n;
+        for (int day = days; day > 0; day--) {
+            bounds[day - 1] = cut[day][bounds[day]];
+        }
+        for (int day = 0; day < days; day++) {
+            List<Integer> stops = new ArrayList<>();
+            for (int i = bounds[day]; i < bounds[day + 1]; i++) {
+                stops.add(i);
+            }
+            result.add(stops);
+        }
+        return result;
+    }
+
+    private AIRouteResponse buildResponse(GenerateRouteRequest request, List<String> cities,
+                                          List<PlannerPoi> ordered, double[][] d, List<List<Integer>> dayStops) {
+        int days = dayStops.size();
+        boolean publicTransport = normalizedTerms(request.getTransportationPreferences()).stream()
+                .anyMatch(preference -> preference.contains("公共交通") || preference.contains("不租车"));
+        String dailyBudget = dailyBudget(request, days);
+
+        List<AIRouteResponse.ItineraryItem> itinerary = new ArrayList<>(days);
+        double totalKm = 0;
+        String lastRegion = ordered.get(0).displayRegion();
+        for (int day = 0; day < days; day++) {
+            List<Integer> stops = dayStops.get(day);
+            AIRouteResponse.ItineraryItem item = new AIRouteResponse.ItineraryItem();
+            item.setDay(day + 1);
+            item.setDailyBudget(dailyBudget);
+            item.setMeals(meals(request, lastRegion));
+
+            if (stops.isEmpty()) {
+                item.setTitle("第" + (day + 1) + "天 - 自由活动");
+                item.setDescription("在" + lastRegion + "自由活动或休整，可逛当地巴扎、品尝特色美食。");
+                item.setLocations(List.of());
+                item.setAccommodation("继续入住" + lastRegion);
+                item.setTransportation("市内交通（打车/公交）");
+                itinerary.add(item);
+                continue;
+            }
+
+            List<AIRouteResponse.Location> locations = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            StringBuilder schedule = new StringBuilder();
+            int minutes = DAY_START_MINUTES;
+            double dayKm = 0;
+            for (int i = 0; i < stops.size(); i++) {
+                int index = stops.get(i);
+                PlannerPoi poi = ordered.get(index);
+                double legKm = index > 0 ? d[index - 1][index] : 0;
+                dayKm += legKm;
+                // 从前一天终点出发的车程只计入当日里程，时间表从 09:00 开始；之后的车程计入两站之间
+                if (i > 0 && legKm > LONG_HAUL_KM) {
+                    schedule.append("；").append(formatTime(minutes)).append(" 乘飞机或火车前往").append(poi.displayRegion());
+                }
+                if (i > 0) {
+                    // 按 10 分钟取整，至少预留 10 分钟
+                    minutes += Math.max(10, (int) Math.ceil(travelHours(legKm) * 6) * 10);
+                }
+                int end = minutes + (int) (VISIT_HOURS * 60);
+                if (schedule.length() > 0) {
+                    schedule.append("；");
+                }
+                schedule.append(formatTime(minutes)).append("-").append(formatTime(end)).append(" 游览").append(poi.title());
+                minutes = end;
+
+                AIRouteResponse.Location location = new AIRouteResponse.Location();
+                location.setName(poi.title());
+                location.setLat(poi.lat());
+                location.setLng(poi.lng());
+                location.setDescription(poi.summary());
+                locations.add(location);
+                names.add(poi.title());
+            }
+            totalKm += dayKm;
+            PlannerPoi lastPoi = ordered.get(stops.get(stops.size() - 1));
+            lastRegion = lastPoi.displayRegion();
+            String region = ordered.get(stops.get(0)).displayRegion();
+
+            item.setTitle("第" + (day + 1) + "天 - " + region + "文化探访");
+            item.setDescription("依次游览" + String.join("、", names) + "，当日车程约" + Math.round(dayKm) + "公里。");
+            item.setLocations(locations);
+            item.setTimeSchedule(schedule.toString());
+            item.setTransportation(transportation(dayKm, publicTransport));
+            item.setAccommodation(accommodation(request, lastRegion, day == days - 1));
+            itinerary.add(item);
+        }
+
+        String routeName = cities.isEmpty() ? "新疆" : String.join("·", cities);
+        AIRouteResponse response = new AIRouteResponse();
+        response.setTitle(routeName + days + "日文化之旅");
+        response.setDescription("根据您的目的地与兴趣，从平台收录的文化资源中挑选了" + ordered.size()
+                + "处地点，按地理位置规划为" + days + "天，总车程约" + Math.round(totalKm) + "公里。");
+        response.setItinerary(itinerary);
+        response.setTips(tips(request));
+        return response;
+    }
+
+    private List<String> meals(GenerateRouteRequest request, String region) {
+        List<String> meals = new ArrayList<>();
+        meals.add("早餐：酒店早餐或当地馕、奶茶");
+        meals.add("午餐：" + region + "特色餐馆");
+        meals.add("晚餐：新疆风味（推荐：大盘鸡、手抓饭、烤包子）");
+        if (StringUtils.hasText(request.getSpecialDietary())) {
+            meals.add("饮食需求：" + request.getSpecialDietary().trim() + "，点餐前请与餐厅确认");
+        }
+        return meals;
+    }
+
+    private String transportation(double dayKm, boolean publicTransport) {
+        long km = Math.round(dayKm);
+        if (dayKm <= 30) {
+            return "市内交通（打车/公交），当日车程约" + km + "公里";
+        }
+        if (dayKm > 600) {
+            return "建议乘飞机或火车前往，全程约" + km + "公里";
+        }
+        String hours = String.format(Locale.ROOT, "%.1f", dayKm / DRIVING_SPEED_KMH);
+        return (publicTransport ? "城际大巴或火车" : "建议自驾或包车") + "，当日车程约" + km + "公里（约" + hours + "小时）";
+    }
+
+    private String accommodation(GenerateRouteRequest request, String region, boolean lastDay) {
+        String base = lastDay ? "返程前可在" + region + "休整" : "建议入住" + region;
+        List<String> preferences = request.getAccommodationPreferences();
+        if (preferences != null && !preferences.isEmpty()) {
+            return base + "（偏好：" + String.join("、", preferences) + "）";
+        }
+        return base;
+    }
+
+    private String dailyBudget(GenerateRouteRequest request, int days) {
+        Double daily = request.getDailyBudget();
+        if (daily == null && request.getTotalBudget() != null) {
+            daily = request.getTotalBudget() / days;
+        }
+        if (daily == null && request.getBudget() != null) {
+            daily = request.getBudget() / days;
+        }
+        return daily != null && daily > 0 ? "约" + Math.round(daily) + "元" : null;
+    }
+
+    private List<String> tips(GenerateRouteRequest request) {
+        List<String> tips = new ArrayList<>();
+        tips.add("本路线由系统根据景点位置自动规划，车程为直线距离估算，实际路况请以导航为准");
+        tips.add("建议提前预订住宿，特别是在旅游旺季");
+        tips.add("注意当地天气变化，新疆昼夜温差较大");
+        tips.add("携带身份证件，部分景区需要实名登记");
+        if (Boolean.TRUE.equals(request.getHasMobilityIssues())) {
+            tips.add("已为行动不便的同行者减少每日景点数量，游览前可咨询景区无障碍设施");
+        }
+        tips.add("尊重当地民族文化和习俗");
+        return tips;
+    }
+
+    private List<String> parseCities(GenerateRouteRequest request) {
+        String destinations = request.getDestinations();
+        if (!StringUtils.hasText(destinations)) {
+            destinations = String.join(",",
+                    request.getStartLocation() != null ? request.getStartLocation() : "",
+                    request.getEndLocation() != null ? request.getEndLocation() : "");
+        }
+        Set<String> cities = new LinkedHashSet<>();
+        for (String city : destinations.split("[,，、→]|->")) {
+            String trimmed = city.trim();
+            if (!trimmed.isEmpty()) {
+                cities.add(trimmed);
+            }
+        }
+        return new ArrayList<>(cities);
+    }
+
+    @SafeVarargs
+    private static Set<String> normalizedTerms(Collection<String>... lists) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Collection<String> list : lists) {
+            if (list == null) {
+                continue;
+            }
+            for (String value : list) {
+                if (StringUtils.hasText(value)) {
+                    terms.add(value.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static boolean containsAnyTerm(String text, Set<String> terms) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String term : terms) {
+            if (lower.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double[][] distanceMatrix(List<PlannerPoi> points) {
+        int n = points.size();
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                d[i][j] = d[j][i] = distance(points.get(i), points.get(j));
+            }
+        }
+        return d;
+    }
+
+    private static double distance(PlannerPoi a, PlannerPoi b) {
+        return GeoUtils.haversineKm(a.lat(), a.lng(), b.lat(), b.lng());
+    }
+
+    private static void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int tmp = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = tmp;
+        }
+    }
+
+    private static double travelHours(double km) {
+        return km > LONG_HAUL_KM ? LONG_HAUL_HOURS : km / DRIVING_SPEED_KMH;
+    }
+
+    private static String formatTime(int minutes) {
+        return String.format(Locale.ROOT, "%02d:%02d", (minutes / 60) % 24, minutes % 60);
+    }
+
+    private record Candidate(PlannerPoi poi, int cityRank, double score) {
+    }
+
+    /**
+     * 规划用的景点快照，与 JPA 实体脱离，可在任意线程中使用
+     */
+    private record PlannerPoi(String title, String summary, String region, String address,
+                              double lat, double lng, List<String> tags, String text,
+                              int views, int favorites) {
+
+        static PlannerPoi of(CultureResource resource) {
+            String description = resource.getDescription() != null ? resource.getDescription() : "";
+            String summary = description.length() > 80 ? description.substring(0, 80) + "…" : description;
+            List<String> tags = resource.getTags() == null ? List.of()
+                    : resource.getTags().stream()
+                            .filter(StringUtils::hasText)
+                            .map(tag -> tag.trim().toLowerCase(Locale.ROOT))
+                            .toList();
+            return new PlannerPoi(
+                    resource.getTitle().trim(),
+                    summary,
+                    resource.getRegion() != null ? resource.getRegion().trim() : "",
+                    resource.getLocation().getAddress() != null ? resource.getLocation().getAddress() : "",
+                    resource.getLocation().getLat(),
+                    resource.getLocation().getLng(),
+                    tags,
+                    (resource.getTitle() + description).toLowerCase(Locale.ROOT),
+                    resource.getViews() != null ? resource.getViews() : 0,
+                    resource.getFavorites() != null ? resource.getFavorites() : 0);
+        }
+
+        String displayRegion() {
+            return region.isEmpty() ? "当地" : region;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.entity.CultureResource;
+import com.example.culturalxinjiang.repository.CultureResourceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻内存的地图 POI 索引
+ * <p>
+ * 启动时从数据库加载所有带坐标的文化资源，按经纬度网格（默认 0.5°）建立索引，
+ * 坐标与分类保存在基本类型数组中。边界框 + 分类查询只访问与边界框相交的网格，不访问数据库。
+ * 管理后台新增、修改、删除文化资源时在事务提交后增量更新；浏览量与收藏数等统计字段
+ * 按 app.map.index.refresh-minutes 定期整体重新加载（见 {@link IndexRefresher}）。
+ * 快照同时持有 3~18 级的聚合金字塔（见 {@link ClusterPyramid}），增量更新时只调整受影响的网格。
+ * <p>
+ * 索引内容是不可变快照，更新时整体替换，查询无需加锁。
+ */
+@Slf4j
+@Service
+public class MapPoiIndex {
+
+    private final CultureResourceRepository cultureResourceRepository;
+    private final double cellSize;
+    private final AtomicLong versions = new AtomicLong();
+    private final IndexRefresher<Snapshot> refresher;
+
+    private volatile Snapshot snapshot;
+
+    public MapPoiIndex(CultureResourceRepository cultureResourceRepository,
+                       @Value("${app.map.index.cell-degrees:0.5}") double cellSize,
+                       @Value("${app.map.index.refresh-minutes:10}") long refreshMinutes) {
+        this.cultureResourceRepository = cultureResourceRepository;
+        this.cellSize = cellSize > 0 ? cellSize : 0.5;
+        // 同步接口以索引内容作为全量快照，不能在加载完成前返回空数据
+        this.refresher = new IndexRefresher<>("地图 POI 索引", refreshMinutes, true, this::load,
+                rebuilt -> snapshot = rebuilt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        refresher.warmUp();
+    }
+
+    /**
+     * 查询边界框内指定分类的 POI，按 ID 升序返回
+     *
+     * @param bounds   为 null 时不限范围
+     * @param category 为空或 all 时不限分类
+     */
+    public List<MapPoiResponse.MapPoi> query(MapService.Bounds bounds, String category) {
+        Snapshot current = current();
+        int categoryId = current.categoryId(category);
+        if (categoryId == Snapshot.NO_MATCH) {
+            return List.of();
+        }
+        int[] matches = bounds == null
+                ? current.all(categoryId)
+                : current.within(bounds.getSouth(), bounds.getNorth(), bounds.getWest(), bounds.getEast(), categoryId);
+        List<MapPoiResponse.MapPoi> result = new ArrayList<>(matches.length);
+        for (int index : matches) {
+            result.add(current.pois[index]);
+        }
+        return result;
+    }
+
+    /**
+     * 按 ID 查找 POI，不存在（或没有坐标）时返回 null
+     */
+    public MapPoiResponse.MapPoi find(Long id) {
+        if (id == null) {
+            return null;
+        }
+        MapPoiResponse.MapPoi[] pois = current().pois;
+        int low = 0;
+        int high = pois.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compare(pois[mid].getId(), id);
+            if (cmp == 0) {
+                return pois[mid];
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 边界框内未被并入该缩放级别聚合的 POI，按 ID 升序返回
+     */
+    public List<MapPoiResponse.MapPoi> unclustered(int zoom, MapService.Bounds bounds, String category) {
+        Snapshot current = current();
+        int categoryId = current.categoryId(category);
+        if (categoryId == Snapshot.NO_MATCH) {
+            return List.of();
+        }
+        String categoryName = categoryId == Snapshot.ANY_CATEGORY ? null : current.categoryNames[categoryId];
+        int[] matches = current.within(bounds.getSouth(), bounds.getNorth(), bounds.getWest(), bounds.getEast(), categoryId);
+        List<MapPoiResponse.MapPoi> result = new ArrayList<>();
+        for (int index : matches) {
+            if (!current.pyramid.isClustered(zoom, current.pois[index], categoryName)) {
+                result.add(current.pois[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 视口内的预计算聚合
+     *
+     * @param category 为空或 all 时统计全部分类
+     */
+    public List<MapPoiResponse.MapCluster> clusters(int zoom, MapService.Bounds bounds, String category) {
+        Snapshot current = current();
+        int categoryId = current.categoryId(category);
+        if (categoryId == Snapshot.NO_MATCH) {
+            return List.of();
+        }
+        String categoryName = categoryId == Snapshot.ANY_CATEGORY ? null : current.categoryNames[categoryId];
+        return current.pyramid.clusters(zoom, bounds, categoryName);
+    }
+
+    /**
+     * 索引数据的版本号，每次重新加载或增量更新后递增，可用作派生缓存的失效依据
+     */
+    public long version() {
+        return current().version;
+    }
+
+    /**
+     * 各分类的 POI 数量，另含 total
+     */
+    public Map<String, Long> stats() {
+        return new LinkedHashMap<>(current().stats);
+    }
+
+    /**
+     * 新增或修改文化资源后调用：在当前事务内完成映射（可读取懒加载的标签），提交后更新索引
+     */
+    public void upsert(CultureResource resource) {
+        MapPoiResponse.MapPoi poi = MapPoiMapper.toPoi(resource);
+        Long id = resource.getId();
+        AfterCommit.run(() -> refresher.apply(() -> apply(id, poi)));
+    }
+
+    /**
+     * 删除文化资源后调用，事务提交后从索引中移除
+     */
+    public void remove(Long id) {
+        AfterCommit.run(() -> refresher.apply(() -> apply(id, null)));
+    }
+
+    /**
+     * 从数据库重新加载全部 POI
+     */
+    public void reload() {
+        refresher.reload();
+    }
+
+    private Snapshot load() {
+        List<MapPoiResponse.MapPoi> pois = new ArrayList<>();
+        for (CultureResource resource : cultureResourceRepository.findAllWithLocationFetchTags()) {
+            MapPoiResponse.MapPoi poi = MapPoiMapper.toPoi(resource);
+            if (poi != null) {
+                pois.add(poi);
+            }
+        }
+        log.info("地图 POI 索引已加载，共 {} 个 POI", pois.size());
+        return new Snapshot(pois, cellSize, ClusterPyramid.build(pois), versions.incrementAndGet());
+    }
+
+    private Snapshot current() {
+        refresher.ensureFresh();
+        return snapshot;
+    }
+
+    /**
+     * 增量修改，在 {@link IndexRefresher#apply} 中执行（与其他修改及重建替换互斥）
+     */
+    private void apply(Long id, MapPoiResponse.MapPoi poi) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // 尚未加载，首次查询时会读取最新数据
+            return;
+        }
+        List<MapPoiResponse.MapPoi> pois = new ArrayList<>(current.pois.length + 1);
+        MapPoiResponse.MapPoi previous = null;
+        for (MapPoiResponse.MapPoi existing : current.pois) {
+            if (existing.getId().equals(id)) {
+                previous = existing;
+            } else {
+                pois.add(existing);
+            }
+        }
+        if (poi != null) {
+            pois.add(poi);
+        }
+        // 聚合金字塔只调整新旧坐标所在的网格
+        snapshot = new Snapshot(pois, cellSize, current.pyramid.withChange(previous, poi),
+                versions.incrementAndGet());
+    }
+
+    /**
+     * 不可变的网格索引：POI 按 ID 排序存放，网格以 CSR 形式保存（cellKeys 有序，
+     * cellMembers[cellOffsets[i], cellOffsets[i + 1]) 为第 i 个网格内的 POI 下标）
+     */
+    private static final class Snapshot {
+        static final int ANY_CATEGORY = -1;
+        static final int NO_MATCH = -2;
+
+        final MapPoiResponse.MapPoi[] pois;
+        final double[] lats;
+        final double[] lngs;
+        final byte[] categories;
+        final String[] categoryNames;
+        final Map<String, Long> stats;
+        final double cellSize;
+        final long[] cellKeys;
+        final int[] cellOffsets;
+        final int[] cellMembers;
+        final ClusterPyramid pyramid;
+        final long version;
+
+        Snapshot(Collection<MapPoiResponse.MapPoi> source, double cellSize, ClusterPyramid pyramid, long version) {
+            this.cellSize = cellSize;
+            this.pyramid = pyramid;
+            this.version = version;
+            this.pois = source.toArray(new MapPoiResponse.MapPoi[0]);
+            Arrays.sort(pois, (a, b) -> Long.compare(a.getId(), b.getId()));
+            int n = pois.length;
+            this.lats = new double[n];
+            this.lngs = new double[n];
+            this.categories = new byte[n];
+
+            Map<String, Integer> categoryIds = new HashMap<>();
+            List<String> names = new ArrayList<>();
+            Map<String, Long> counts = new TreeMap<>();
+            TreeMap<Long, List<Integer>> cells = new TreeMap<>();
+            for (int i = 0; i < n; i++) {
+                MapPoiResponse.MapPoi poi = pois[i];
+                lats[i] = poi.getLat();
+                lngs[i] = poi.getLng();
+                String category = poi.getCategory();
+                categories[i] = (byte) (int) categoryIds.computeIfAbsent(category, key -> {
+                    names.add(key);
+                    return names.size() - 1;
+                });
+                counts.merge(category, 1L, Long::sum);
+                cells.computeIfAbsent(cellKey(cellRow(lats[i]), cellColumn(lngs[i])), key -> new ArrayList<>()).add(i);
+            }
+            this.categoryNames = names.toArray(new String[0]);
+            Map<String, Long> statsWithTotal = new LinkedHashMap<>(counts);
+            statsWithTotal.put("total", (long) n);
+            this.stats = statsWithTotal;
+
+            this.cellKeys = new long[cells.size()];
+            this.cellOffsets = new int[cells.size() + 1];
+            this.cellMembers = new int[n];
+            int cell = 0;
+            int offset = 0;
+            for (Map.Entry<Long, List<Integer>> entry : cells.entrySet()) {
+                cellKeys[cell] = entry.getKey();
+                cellOffsets[cell] = offset;
+                for (int member : entry.getValue()) {
+                    cellMembers[offset++] = member;
+                }
+                cell++;
+            }
+            cellOffsets[cell] = offset;
+        }
+
+        int categoryId(String category) {
+            if (category == null || category.isBlank() || "all".equalsIgnoreCase(category)) {
+                return ANY_CATEGORY;
+            }
+            for (int i = 0; i < categoryNames.length; i++) {
+                if (categoryNames[i].equalsIgnoreCase(category)) {
+                    return i;
+                }
+            }
+            return NO_MATCH;
+        }
+
+        int[] all(int categoryId) {
+            int[] result = new int[pois.length];
+            int count = 0;
+            for (int i = 0; i < pois.length; i++) {
+                if (categoryId == ANY_CATEGORY || categories[i] == categoryId) {
+                    result[count++] = i;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        int[] within(double south, double north, double west, double east, int categoryId) {
+            long minRow = cellRow(Math.max(-90, south));
+            long maxRow = cellRow(Math.min(90, north));
+            long minColumn = cellColumn(Math.max(-180, west));
+            long maxColumn = cellColumn(Math.min(180, east));
+            if (minRow > maxRow || minColumn > maxColumn) {
+                return new int[0];
+            }
+
+            int[] result = new int[pois.length];
+            int count = 0;
+            long requestedCells = (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+            if (requestedCells >= cellKeys.length) {
+                // 边界框覆盖的网格多于非空网格：直接遍历非空网格
+                for (int cell = 0; cell < cellKeys.length; cell++) {
+                    long row = cellKeys[cell] >> 32;
+                    long column = (cellKeys[cell] & 0xFFFFFFFFL) - (1L << 31);
+                    if (row >= minRow && row <= maxRow && column >= minColumn && column <= maxColumn) {
+                        count = collect(cell, south, north, west, east, categoryId, result, count);
+                    }
+                }
+            } else {
+                for (long row = minRow; row <= maxRow; row++) {
+                    // 同一行的网格键连续，二分定位起点后顺序扫描
+                    int cell = lowerBound(cellKey(row, minColumn));
+                    long rowEnd = cellKey(row, maxColumn);
+                    for (; cell < cellKeys.length && cellKeys[cell] <= rowEnd; cell++) {
+                        count = collect(cell, south, north, west, east, categoryId, result, count);
+                    }
+                }
+            }
+            int[] matches = Arrays.copyOf(result, count);
+            // 保持与数据库查询一致的 ID 顺序
+            Arrays.sort(matches);
+            return matches;
+        }
+
+        private int collect(int cell, double south, double north, double west, double east,
+                            int categoryId, int[] result, int count) {
+            for (int m = cellOffsets[cell]; m < cellOffsets[cell + 1]; m++) {
+                int i = cellMembers[m];
+                if (lats[i] >= south && lats[i] <= north && lngs[i] >= west && lngs[i] <= east
+                        && (categoryId == ANY_CATEGORY || categories[i] == categoryId)) {
+                    result[count++] = i;
+                }
+            }
+            return count;
+        }
+
+        private int lowerBound(long key) {
+            int index = Arrays.binarySearch(cellKeys, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private long cellRow(double lat) {
+            return (long) Math.floor(lat / cellSize);
+        }
+
+        private long cellColumn(double lng) {
+            return (long) Math.floor(lng / cellSize);
+        }
+
+        /**
+         * 行号在高 32 位、列号在低 32 位，同一行内按列号有序（列号加偏移保证非负）
+         */
+        private static long cellKey(long row, long column) {
+            return (row << 32) | ((column + (1L << 31)) & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.entity.CultureResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 文化资源到地图 POI 的映射与分类规则
+ */
+final class MapPoiMapper {
+
+    private MapPoiMapper() {
+    }
+
+    static MapPoiResponse.MapPoi toPoi(CultureResource resource) {
+        if (resource == null) {
+            return null;
+        }
+        if (resource.getLocation() == null
+                || resource.getLocation().getLat() == null
+                || resource.getLocation().getLng() == null) {
+            return null;
+        }
+        if (resource.getTitle() == null || resource.getTitle().trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String category = resolveCategory(resource);
+            return MapPoiResponse.MapPoi.builder()
+                    .id(resource.getId())
+                    .originRefId(resource.getId())
+                    .originType("CULTURE")
+                    .contentType(resource.getType() != null ? resource.getType().name().toLowerCase(Locale.ROOT) : "culture")
+                    .category(category)
+                    .title(resource.getTitle())
+                    .lat(resource.getLocation().getLat())
+                    .lng(resource.getLocation().getLng())
+                    .region(resource.getRegion())
+                    .cover(resource.getCover())
+                    .tags(resource.getTags() != null ? new ArrayList<>(resource.getTags()) : List.of())
+                    .summary(resource.getDescription())
+                    .views(resource.getViews() != null ? resource.getViews() : 0)
+                    .favorites(resource.getFavorites() != null ? resource.getFavorites() : 0)
+                    .build();
+        } catch (Exception e) {
+            // 如果映射过程中出现异常，返回 null
+            return null;
+        }
+    }
+
+    private static String resolveCategory(CultureResource resource) {
+        if (resource.getType() != null) {
+            switch (resource.getType()) {
+                case EXHIBIT -> {
+                    return "museum";
+                }
+                case VIDEO -> {
+                    if (containsHeritageKeyword(safeLower(resource.getTitle()), safeLower(resource.getDescription()))) {
+                        return "heritage";
+                    }
+                }
+                default -> {
+                    // fallthrough to keyword rules
+                }
+            }
+        }
+
+        String tags = resource.getTags() != null
+                ? String.join(",", resource.getTags()).toLowerCase(Locale.ROOT)
+                : "";
+        String text = (safeLower(resource.getTitle()) + safeLower(resource.getDescription()));
+        if (containsMuseumKeyword(tags, text)) {
+            return "museum";
+        }
+        if (containsRelicKeyword(tags, text)) {
+            return "relic";
+        }
+        if (containsHeritageKeyword(tags, text)) {
+            return "heritage";
+        }
+        return "scenic";
+    }
+
+    private static boolean containsMuseumKeyword(String... sources) {
+        return containsAny(List.of("博物馆", "museum", "纪念馆"), sources);
+    }
+
+    private static boolean containsRelicKeyword(String... sources) {
+        return containsAny(List.of("遗址", "古城", "故城", "遗迹", "旧址"), sources);
+    }
+
+    private static boolean containsHeritageKeyword(String... sources) {
+        return containsAny(List.of("非遗", "非物质", "heritage"), sources);
+    }
+
+    private static boolean containsAny(List<String> keywords, String... sources) {
+        for (String source : sources) {
+            if (source == null || source.isBlank()) {
+                continue;
+            }
+            for (String keyword : keywords) {
+                if (source.contains(keyword)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String safeLower(String input) {
+        return input != null ? input.toLowerCase(Locale.ROOT) : "";
+    }
+}
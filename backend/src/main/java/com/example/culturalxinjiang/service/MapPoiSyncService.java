@@ -0,0 +1,208 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.dto.response.MapPoiSyncResponse;
+import com.example.culturalxinjiang.entity.CultureResource;
+import com.example.culturalxinjiang.entity.MapPoiChange;
+import com.example.culturalxinjiang.repository.CultureResourceRepository;
+import com.example.culturalxinjiang.repository.MapPoiChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 地图 POI 增量同步
+ * <p>
+ * 管理后台每次新增、修改、删除文化资源，都在同一事务中追加一条 {@link MapPoiChange}，
+ * 其自增 ID 即变更版本号，资源修改与变更记录同时提交或同时回滚。
+ * 自增 ID 在插入时分配、提交顺序却可能不同（多个事务、多个节点并发写入），
+ * 因此增量只返回连续的一段：遇到尚在宽限期（app.map.sync.gap-grace-seconds）内的空缺即停止，
+ * 空缺对应的事务提交后下次同步再返回；超过宽限期的空缺视为已回滚的事务，直接跳过。
+ * 客户端携带上次的版本号请求，只返回之后变化的 POI 与删除的 ID；版本号过旧
+ * （对应记录已按 app.map.sync.retention-days 清理）或变化过多时返回精简的完整数据集。
+ * 增量中的 POI 内容按变更 ID 从文化资源表读取，完整数据集取自 {@link MapPoiIndex}。
+ */
+@Slf4j
+@Service
+public class MapPoiSyncService {
+
+    private static final int PRUNE_INTERVAL = 100;
+
+    private final MapPoiChangeRepository mapPoiChangeRepository;
+    private final CultureResourceRepository cultureResourceRepository;
+    private final MapPoiIndex mapPoiIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxChanges;
+    private final int retentionDays;
+    private final long gapGraceSeconds;
+
+    public MapPoiSyncService(MapPoiChangeRepository mapPoiChangeRepository,
+                             CultureResourceRepository cultureResourceRepository,
+                             MapPoiIndex mapPoiIndex,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.map.sync.max-changes:1000}") int maxChanges,
+                             @Value("${app.map.sync.retention-days:30}") int retentionDays,
+                             @Value("${app.map.sync.gap-grace-seconds:60}") long gapGraceSeconds) {
+        this.mapPoiChangeRepository = mapPoiChangeRepository;
+        this.cultureResourceRepository = cultureResourceRepository;
+        this.mapPoiIndex = mapPoiIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxChanges = Math.max(1, maxChanges);
+        this.retentionDays = retentionDays;
+        this.gapGraceSeconds = Math.max(0, gapGraceSeconds);
+    }
+
+    /**
+     * 记录文化资源变更，与资源的修改在同一事务中写入
+     */
+    public void recordChange(Long resourceId, boolean deleted) {
+        Long version = mapPoiChangeRepository.save(MapPoiChange.builder()
+                .resourceId(resourceId)
+                .deleted(deleted)
+                .build()).getId();
+        if (version != null && version % PRUNE_INTERVAL == 0 && retentionDays > 0) {
+            AfterCommit.run(() -> pruneExpired(version));
+        }
+    }
+
+    /**
+     * 获取自 since 之后的变化
+     *
+     * @param since 客户端上次同步得到的版本号，为空或 0 时返回完整数据集
+     */
+    @Transactional(readOnly = true)
+    public MapPoiSyncResponse sync(Long since) {
+        Long latest = mapPoiChangeRepository.findTopByOrderByIdDesc().map(MapPoiChange::getId).orElse(0L);
+        if (since == null || since <= 0 || since > latest) {
+            return snapshot();
+        }
+        if (since.equals(latest)) {
+            return emptyDelta(latest);
+        }
+        // 最早保留的记录之前的变化已被清理，无法给出准确的增量
+        Long oldest = mapPoiChangeRepository.findTopByOrderByIdAsc().map(MapPoiChange::getId).orElse(latest);
+        if (since < oldest - 1) {
+            return snapshot();
+        }
+        List<MapPoiChange> changes = mapPoiChangeRepository.findByIdGreaterThanOrderByIdAsc(
+                since, PageRequest.of(0, maxChanges + 1));
+        if (changes.size() > maxChanges) {
+            return snapshot();
+        }
+
+        // 只取连续的一段，同一资源只保留最后一次变化
+        LocalDateTime graceStart = LocalDateTime.now().minusSeconds(gapGraceSeconds);
+        Map<Long, Boolean> deletedById = new LinkedHashMap<>();
+        long version = since;
+        for (MapPoiChange change : changes) {
+            boolean gap = change.getId() != version + 1;
+            if (gap && change.getCreatedAt() != null && change.getCreatedAt().isAfter(graceStart)) {
+                // 空缺可能是尚未提交的事务，之后的变化留到下次同步
+                break;
+            }
+            deletedById.remove(change.getResourceId());
+            deletedById.put(change.getResourceId(), Boolean.TRUE.equals(change.getDeleted()));
+            version = change.getId();
+        }
+        if (deletedById.isEmpty()) {
+            return emptyDelta(since);
+        }
+
+        Map<Long, MapPoiResponse.MapPoi> current = new HashMap<>();
+        List<Long> changedIds = deletedById.entrySet().stream()
+                .filter(entry -> !entry.getValue())
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!changedIds.isEmpty()) {
+            for (CultureResource resource : cultureResourceRepository.findAllByIdInFetchTags(changedIds)) {
+                MapPoiResponse.MapPoi poi = MapPoiMapper.toPoi(resource);
+                if (poi != null) {
+                    current.put(resource.getId(), poi);
+                }
+            }
+        }
+        List<MapPoiSyncResponse.SyncPoi> upserts = new ArrayList<>();
+        List<Long> deletions = new ArrayList<>();
+        deletedById.forEach((id, deleted) -> {
+            MapPoiResponse.MapPoi poi = deleted ? null : current.get(id);
+            if (poi == null) {
+                // 已删除，或修改后不再满足地图展示条件（如坐标被清空）
+                deletions.add(id);
+            } else {
+                upserts.add(toSyncPoi(poi));
+            }
+        });
+        return MapPoiSyncResponse.builder()
+                .version(version)
+                .full(false)
+                .upserts(upserts)
+                .deletions(deletions)
+                .build();
+    }
+
+    private MapPoiSyncResponse snapshot() {
+        // 索引在事务提交后才更新，版本号只取宽限期之前的变更，之后的变更在下次增量中重复返回（幂等）
+        long version = mapPoiChangeRepository.findTopByCreatedAtBeforeOrderByIdDesc(
+                LocalDateTime.now().minusSeconds(gapGraceSeconds)).map(MapPoiChange::getId).orElse(0L);
+        List<MapPoiSyncResponse.SyncPoi> pois = new ArrayList<>();
+        for (MapPoiResponse.MapPoi poi : mapPoiIndex.query(null, null)) {
+            pois.add(toSyncPoi(poi));
+        }
+        return MapPoiSyncResponse.builder()
+                .version(version)
+                .full(true)
+                .upserts(pois)
+                .deletions(List.of())
+                .build();
+    }
+
+    private MapPoiSyncResponse emptyDelta(long version) {
+        return MapPoiSyncResponse.builder()
+                .version(version)
+                .full(false)
+                .upserts(List.of())
+                .deletions(List.of())
+                .build();
+    }
+
+    private void pruneExpired(long latest) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int removed = mapPoiChangeRepository.deleteExpired(
+                        LocalDateTime.now().minusDays(retentionDays), latest);
+                if (removed > 0) {
+                    log.info("已清理 {} 条过期的地图 POI 变更记录", removed);
+                }
+            });
+        } catch (Exception e) {
+            // 清理失败不影响同步，下次达到清理间隔时再试
+            log.warn("清理过期的地图 POI 变更记录失败: {}", e.getMessage());
+        }
+    }
+
+    private MapPoiSyncResponse.SyncPoi toSyncPoi(MapPoiResponse.MapPoi poi) {
+        return MapPoiSyncResponse.SyncPoi.builder()
+                .id(poi.getId())
+                .category(poi.getCategory())
+                .contentType(poi.getContentType())
+                .title(poi.getTitle())
+                .lat(poi.getLat())
+                .lng(poi.getLng())
+                .region(poi.getRegion())
+                .cover(poi.getCover())
+                .build();
+    }
+}
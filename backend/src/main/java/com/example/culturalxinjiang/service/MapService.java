@@ -1,21 +1,14 @@
 package com.example.culturalxinjiang.service;
 
 import com.example.culturalxinjiang.dto.response.MapPoiResponse;
-import com.example.culturalxinjiang.entity.CultureResource;
-import com.example.culturalxinjiang.repository.CultureResourceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
-import java.util.DoubleSummaryStatistics;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -23,13 +16,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MapService {
 
-    private static final double DEFAULT_CLUSTER_SIZE = 0.25D;
-    private static final double MIN_CLUSTER_SIZE = 0.05D;
-    private static final double MAX_CLUSTER_SIZE = 1.2D;
+    private final MapPoiIndex mapPoiIndex;
 
-    private final CultureResourceRepository cultureResourceRepository;
-
-    @Transactional(readOnly = true)
     public MapPoiResponse getPois(String keyword,
                                   String category,
                                   Bounds bounds,
@@ -37,20 +25,10 @@ public class MapService {
                                   Integer zoom,
                                   Integer limit) {
         try {
-            List<MapPoiResponse.MapPoi> allPois = cultureResourceRepository.findAllWithLocation().stream()
-                    .map(this::mapToPoi)
-                    .filter(Objects::nonNull)
-                    .filter(poi -> poi.getTitle() != null) // 确保标题不为空
-                    .collect(Collectors.toList());
-
-            Map<String, Long> stats = allPois.stream()
-                    .collect(Collectors.groupingBy(MapPoiResponse.MapPoi::getCategory, Collectors.counting()));
-            stats.put("total", (long) allPois.size());
-
-            List<MapPoiResponse.MapPoi> filteredAll = allPois.stream()
+            // 边界框与分类由内存索引过滤，关键字只在结果子集上匹配
+            Map<String, Long> stats = mapPoiIndex.stats();
+            List<MapPoiResponse.MapPoi> filteredAll = mapPoiIndex.query(bounds, category).stream()
                     .filter(poi -> matchesKeyword(poi, keyword))
-                    .filter(poi -> matchesCategory(poi, category))
-                    .filter(poi -> matchesBounds(poi, bounds))
                     .collect(Collectors.toList());
 
             long filteredTotal = filteredAll.size();
@@ -58,15 +36,20 @@ public class MapService {
                     .limit(limit != null && limit > 0 ? limit : Long.MAX_VALUE)
                     .collect(Collectors.toList());
 
-            List<MapPoiResponse.MapCluster> clusters = cluster
-                    ? buildClusters(filteredAll, zoom != null ? zoom : 5)
-                    : List.of();
+            List<MapPoiResponse.MapCluster> clusters = List.of();
+            if (cluster) {
+                int clusterZoom = zoom != null ? zoom : 5;
+                // 无关键字时直接取预计算的聚合，有关键字时对过滤结果即时聚合
+                clusters = StringUtils.hasText(keyword)
+                        ? ClusterPyramid.clustersOf(filteredAll, clusterZoom)
+                        : mapPoiIndex.clusters(clusterZoom, bounds, category);
+            }
 
             return MapPoiResponse.builder()
                     .pois(filtered)
                     .clusters(clusters)
                     .stats(stats)
-                    .total((long) allPois.size())
+                    .total(stats.get("total"))
                     .filtered(filteredTotal)
                     .clustered(cluster)
                     .build();
@@ -98,176 +81,6 @@ public class MapService {
                 .anyMatch(tag -> tag != null && tag.toLowerCase(Locale.ROOT).contains(lowerKeyword)));
     }
 
-    private boolean matchesCategory(MapPoiResponse.MapPoi poi, String category) {
-        if (!StringUtils.hasText(category) || "all".equalsIgnoreCase(category)) {
-            return true;
-        }
-        return category.equalsIgnoreCase(poi.getCategory());
-    }
-
-    private boolean matchesBounds(MapPoiResponse.MapPoi poi, Bounds bounds) {
-        if (bounds == null) {
-            return true;
-        }
-        if (poi == null || poi.getLat() == null || poi.getLng() == null) {
-            return false;
-        }
-        return poi.getLat() >= bounds.getSouth()
-                && poi.getLat() <= bounds.getNorth()
-                && poi.getLng() >= bounds.getWest()
-                && poi.getLng() <= bounds.getEast();
-    }
-
-    private List<MapPoiResponse.MapCluster> buildClusters(List<MapPoiResponse.MapPoi> pois, Integer zoom) {
-        if (pois == null || pois.isEmpty()) {
-            return List.of();
-        }
-        double bucketSize = deriveBucketSize(zoom);
-        Map<String, List<MapPoiResponse.MapPoi>> buckets = new ConcurrentHashMap<>();
-
-        for (MapPoiResponse.MapPoi poi : pois) {
-            if (poi == null || poi.getLat() == null || poi.getLng() == null) {
-                continue; // 跳过无效的POI
-            }
-            String key = bucketKey(poi.getLat(), poi.getLng(), bucketSize);
-            buckets.computeIfAbsent(key, ignored -> new ArrayList<>()).add(poi);
-        }
-
-        return buckets.values().stream()
-                .filter(bucket -> bucket.size() > 1)
-                .map(bucket -> {
-                    DoubleSummaryStatistics latStats = bucket.stream()
-                            .collect(Collectors.summarizingDouble(MapPoiResponse.MapPoi::getLat));
-                    DoubleSummaryStatistics lngStats = bucket.stream()
-                            .collect(Collectors.summarizingDouble(MapPoiResponse.MapPoi::getLng));
-                    Map<String, Long> breakdown = bucket.stream()
-                            .collect(Collectors.groupingBy(MapPoiResponse.MapPoi::getCategory, Collectors.counting()));
-                    return MapPoiResponse.MapCluster.builder()
-                            .lat((latStats.getAverage()))
-                            .lng((lngStats.getAverage()))
-                            .count((long) bucket.size())
-                            .categories(breakdown)
-                            .build();
-                })
-                .collect(Collectors.toList());
-    }
-
-    private double deriveBucketSize(Integer zoom) {
-        if (zoom == null) {
-            return DEFAULT_CLUSTER_SIZE;
-        }
-        double normalized = Math.max(3, Math.min(zoom, 18));
-        double size = (18 - normalized) * 0.05;
-        size = Math.max(size, MIN_CLUSTER_SIZE);
-        size = Math.min(size, MAX_CLUSTER_SIZE);
-        return size;
-    }
-
-    private String bucketKey(Double lat, Double lng, double bucketSize) {
-        long latIndex = Math.round(lat / bucketSize);
-        long lngIndex = Math.round(lng / bucketSize);
-        return latIndex + ":" + lngIndex;
-    }
-
-    private MapPoiResponse.MapPoi mapToPoi(CultureResource resource) {
-        if (resource == null) {
-            return null;
-        }
-        if (resource.getLocation() == null
-                || resource.getLocation().getLat() == null
-                || resource.getLocation().getLng() == null) {
-            return null;
-        }
-        if (resource.getTitle() == null || resource.getTitle().trim().isEmpty()) {
-            return null;
-        }
-        try {
-            String category = resolveCategory(resource);
-            return MapPoiResponse.MapPoi.builder()
-                    .id(resource.getId())
-                    .originRefId(resource.getId())
-                    .originType("CULTURE")
-                    .contentType(resource.getType() != null ? resource.getType().name().toLowerCase(Locale.ROOT) : "culture")
-                    .category(category)
-                    .title(resource.getTitle())
-                    .lat(resource.getLocation().getLat())
-                    .lng(resource.getLocation().getLng())
-                    .region(resource.getRegion())
-                    .cover(resource.getCover())
-                    .tags(resource.getTags() != null ? new ArrayList<>(resource.getTags()) : List.of())
-                    .summary(resource.getDescription())
-                    .views(resource.getViews() != null ? resource.getViews() : 0)
-                    .favorites(resource.getFavorites() != null ? resource.getFavorites() : 0)
-                    .build();
-        } catch (Exception e) {
-            // 如果映射过程中出现异常，返回 null
-            return null;
-        }
-    }
-
-    private String resolveCategory(CultureResource resource) {
-        if (resource.getType() != null) {
-            switch (resource.getType()) {
-                case EXHIBIT -> {
-                    return "museum";
-                }
-                case VIDEO -> {
-                    if (containsHeritageKeyword(safeLower(resource.getTitle()), safeLower(resource.getDescription()))) {
-                        return "heritage";
-                    }
-                }
-                default -> {
-                    // fallthrough to keyword rules
-                }
-            }
-        }
-
-        String tags = resource.getTags() != null
-                ? String.join(",", resource.getTags()).toLowerCase(Locale.ROOT)
-                : "";
-        String text = (safeLower(resource.getTitle()) + safeLower(resource.getDescription()));
-        if (containsMuseumKeyword(tags, text)) {
-            return "museum";
-        }
-        if (containsRelicKeyword(tags, text)) {
-            return "relic";
-        }
-        if (containsHeritageKeyword(tags, text)) {
-            return "heritage";
-        }
-        return "scenic";
-    }
-
-    private boolean containsMuseumKeyword(String... sources) {
-        return containsAny(List.of("博物馆", "museum", "纪念馆"), sources);
-    }
-
-    private boolean containsRelicKeyword(String... sources) {
-        return containsAny(List.of("遗址", "古城", "故城", "遗迹", "旧址"), sources);
-    }
-
-    private boolean containsHeritageKeyword(String... sources) {
-        return containsAny(List.of("非遗", "非物质", "heritage"), sources);
-    }
-
-    private boolean containsAny(List<String> keywords, String... sources) {
-        for (String source : sources) {
-            if (source == null || source.isBlank()) {
-                continue;
-            }
-            for (String keyword : keywords) {
-                if (source.contains(keyword)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private String safeLower(String input) {
-        return input != null ? input.toLowerCase(Locale.ROOT) : "";
-    }
-
     public record Bounds(Double north, Double south, Double east, Double west) {
         public double getNorth() {
             return north != null ? north : 90D;
@@ -0,0 +1,156 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.util.MvtEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 地图矢量瓦片服务
+ * <p>
+ * 按 Web 墨卡托瓦片坐标（z/x/y）从 {@link MapPoiIndex} 取出瓦片范围（含缓冲区）内的数据，
+ * 编码为 Mapbox Vector Tile：pois 图层只含 ID、分类与标题，clusters 图层含数量与各分类数量。
+ * 不超过 app.map.tiles.cluster-max-zoom 的级别使用预计算聚合，已并入聚合的 POI 不再单独输出。
+ * <p>
+ * 编码结果按瓦片缓存，索引版本变化时整体失效；ETag 由瓦片内容计算，内容未变化的瓦片
+ * 在索引刷新后仍可返回 304。
+ */
+@Service
+public class MapTileService {
+
+    public static final int MAX_ZOOM = 22;
+
+    private final MapPoiIndex mapPoiIndex;
+    private final int clusterMaxZoom;
+    private final int buffer;
+    private final Map<String, Tile> cache;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    private long cachedVersion = -1;
+
+    public MapTileService(MapPoiIndex mapPoiIndex,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.map.tiles.cluster-max-zoom:12}") int clusterMaxZoom,
+                          @Value("${app.map.tiles.buffer:64}") int buffer,
+                          @Value("${app.map.tiles.max-entries:2000}") int maxEntries) {
+        this.mapPoiIndex = mapPoiIndex;
+        this.clusterMaxZoom = clusterMaxZoom;
+        this.buffer = Math.max(0, buffer);
+        this.hitCounter = meterRegistry.counter("map.tiles.cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("map.tiles.cache.requests", "result", "miss");
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tile> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取瓦片
+     *
+     * @param category 为空或 all 时包含全部分类
+     */
+    public Tile getTile(int z, int x, int y, String category) {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new RuntimeException("瓦片缩放级别无效");
+        }
+        long tileCount = 1L << z;
+        if (x < 0 || y < 0 || x >= tileCount || y >= tileCount) {
+            throw new RuntimeException("瓦片坐标无效");
+        }
+        String normalizedCategory = StringUtils.hasText(category) ? category.trim().toLowerCase(Locale.ROOT) : "all";
+        String key = z + "/" + x + "/" + y + "/" + normalizedCategory;
+
+        long version = mapPoiIndex.version();
+        synchronized (cache) {
+            if (version != cachedVersion) {
+                cache.clear();
+                cachedVersion = version;
+            }
+            Tile cached = cache.get(key);
+            if (cached != null) {
+                hitCounter.increment();
+                return cached;
+            }
+        }
+        missCounter.increment();
+        Tile tile = render(z, x, y, normalizedCategory);
+        synchronized (cache) {
+            if (version == cachedVersion) {
+                cache.put(key, tile);
+            }
+        }
+        return tile;
+    }
+
+    private Tile render(int z, int x, int y, String category) {
+        MvtEncoder encoder = new MvtEncoder();
+        MvtEncoder.Layer poiLayer = encoder.layer("pois");
+        MvtEncoder.Layer clusterLayer = encoder.layer("clusters");
+        int extent = poiLayer.getExtent();
+
+        // 瓦片范围向外扩展 buffer 个瓦片像素，避免边缘的点被裁掉
+        double margin = (double) buffer / extent;
+        MapService.Bounds bounds = new MapService.Bounds(
+                tileLat(y - margin, z),
+                tileLat(y + 1 + margin, z),
+                tileLng(x + 1 + margin, z),
+                tileLng(x - margin, z));
+
+        boolean clustered = z <= clusterMaxZoom;
+        for (MapPoiResponse.MapPoi poi : clustered
+                ? mapPoiIndex.unclustered(z, bounds, category)
+                : mapPoiIndex.query(bounds, category)) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("category", poi.getCategory());
+            properties.put("title", poi.getTitle());
+            poiLayer.addPoint(poi.getId(), tileX(poi.getLng(), z, x, extent), tileY(poi.getLat(), z, y, extent), properties);
+        }
+        if (clustered) {
+            for (MapPoiResponse.MapCluster cluster : mapPoiIndex.clusters(z, bounds, category)) {
+                Map<String, Object> properties = new LinkedHashMap<>();
+                properties.put("count", cluster.getCount());
+                if (cluster.getCategories() != null) {
+                    properties.putAll(cluster.getCategories());
+                }
+                clusterLayer.addPoint(null, tileX(cluster.getLng(), z, x, extent), tileY(cluster.getLat(), z, y, extent), properties);
+            }
+        }
+
+        byte[] data = encoder.encode();
+        return new Tile(data, "\"" + DigestUtils.md5DigestAsHex(data) + "\"");
+    }
+
+    private static double tileLng(double x, int z) {
+        return x / (1L << z) * 360.0 - 180.0;
+    }
+
+    private static double tileLat(double y, int z) {
+        double n = Math.PI - 2.0 * Math.PI * y / (1L << z);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    private static int tileX(double lng, int z, int x, int extent) {
+        double worldX = (lng + 180.0) / 360.0 * (1L << z);
+        return (int) Math.round((worldX - x) * extent);
+    }
+
+    private static int tileY(double lat, int z, int y, int extent) {
+        double radians = Math.toRadians(lat);
+        double worldY = (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * (1L << z);
+        return (int) Math.round((worldY - y) * extent);
+    }
+
+    public record Tile(byte[] data, String etag) {
+    }
+}
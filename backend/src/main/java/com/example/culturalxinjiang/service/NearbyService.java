@@ -0,0 +1,228 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.dto.response.NearbyResponse;
+import com.example.culturalxinjiang.entity.Event;
+import com.example.culturalxinjiang.repository.EventRepository;
+import com.example.culturalxinjiang.repository.RouteRepository;
+import com.example.culturalxinjiang.util.GeoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 附近查询（k 近邻）
+ * <p>
+ * 把文化资源、未结束的活动与路线行程地点放入同一棵球面 k-d 树，按距离返回最近的若干个，
+ * 可限定半径、类型与分类。文化资源取自 {@link MapPoiIndex}，其版本变化时重建；
+ * 活动与行程地点按 app.map.nearby.refresh-minutes 定期从数据库重新加载。
+ */
+@Slf4j
+@Service
+public class NearbyService {
+
+    public static final String TYPE_CULTURE = "culture";
+    public static final String TYPE_EVENT = "event";
+    public static final String TYPE_ITINERARY = "itinerary";
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final MapPoiIndex mapPoiIndex;
+    private final EventRepository eventRepository;
+    private final RouteRepository routeRepository;
+    private final int maxLimit;
+    private final long refreshMillis;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public NearbyService(MapPoiIndex mapPoiIndex,
+                         EventRepository eventRepository,
+                         RouteRepository routeRepository,
+                         @Value("${app.map.nearby.max-limit:100}") int maxLimit,
+                         @Value("${app.map.nearby.refresh-minutes:10}") long refreshMinutes) {
+        this.mapPoiIndex = mapPoiIndex;
+        this.eventRepository = eventRepository;
+        this.routeRepository = routeRepository;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.refreshMillis = refreshMinutes * 60_000L;
+    }
+
+    /**
+     * 查询附近的地点
+     *
+     * @param lat      中心纬度，与 poiId 二选一
+     * @param lng      中心经度
+     * @param poiId    以该文化资源为中心（结果中不含它本身）
+     * @param radiusKm 最大距离（公里），为空时不限
+     * @param limit    返回数量，为空时默认 20，不超过 app.map.nearby.max-limit
+     * @param category 文化资源分类或活动类型，为空或 all 时不限
+     * @param types    culture / event / itinerary，为空时全部
+     */
+    public NearbyResponse findNearby(Double lat, Double lng, Long poiId, Double radiusKm,
+                                     Integer limit, String category, Set<String> types) {
+        Long excludedCultureId = null;
+        if (lat == null || lng == null) {
+            MapPoiResponse.MapPoi center = poiId != null ? mapPoiIndex.find(poiId) : null;
+            if (center == null) {
+                throw new RuntimeException(poiId != null ? "文化资源不存在或没有坐标" : "请提供中心坐标");
+            }
+            lat = center.getLat();
+            lng = center.getLng();
+            excludedCultureId = center.getId();
+        }
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            throw new RuntimeException("坐标无效");
+        }
+        if (radiusKm != null && radiusKm <= 0) {
+            throw new RuntimeException("半径必须大于 0");
+        }
+        int k = limit != null && limit > 0 ? Math.min(limit, maxLimit) : (radiusKm != null ? maxLimit : DEFAULT_LIMIT);
+
+        Snapshot current = current();
+        String normalizedCategory = StringUtils.hasText(category) && !"all".equalsIgnoreCase(category)
+                ? category.trim().toLowerCase(Locale.ROOT)
+                : null;
+        Set<String> normalizedTypes = new HashSet<>();
+        if (types != null) {
+            types.stream()
+                    .filter(StringUtils::hasText)
+                    .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                    .forEach(normalizedTypes::add);
+        }
+        Long excluded = excludedCultureId;
+        int[] matches = current.tree.nearest(lat, lng, k,
+                radiusKm != null ? radiusKm : Double.POSITIVE_INFINITY,
+                index -> {
+                    Entry entry = current.entries[index];
+                    return (normalizedTypes.isEmpty() || normalizedTypes.contains(entry.type()))
+                            && (normalizedCategory == null || normalizedCategory.equals(entry.category()))
+                            && !(excluded != null && TYPE_CULTURE.equals(entry.type()) && excluded.equals(entry.id()));
+                });
+
+        List<NearbyResponse.NearbyItem> items = new ArrayList<>(matches.length);
+        for (int index : matches) {
+            Entry entry = current.entries[index];
+            double distance = GeoUtils.haversineKm(lat, lng, entry.lat(), entry.lng());
+            items.add(NearbyResponse.NearbyItem.builder()
+                    .type(entry.type())
+                    .id(entry.id())
+                    .title(entry.title())
+                    .subtitle(entry.subtitle())
+                    .category(entry.category())
+                    .lat(entry.lat())
+                    .lng(entry.lng())
+                    .distance(Math.round(distance * 100) / 100.0)
+                    .day(entry.day())
+                    .build());
+        }
+        return NearbyResponse.builder()
+                .lat(lat)
+                .lng(lng)
+                .radius(radiusKm)
+                .items(items)
+                .build();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long cultureVersion = mapPoiIndex.version();
+        boolean expired = current == null || System.currentTimeMillis() - current.loadedAt > refreshMillis;
+        if (current != null && !expired && current.cultureVersion == cultureVersion) {
+            return current;
+        }
+        if (current == null) {
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            // 其他线程正在重建，继续使用旧快照
+            return current;
+        }
+        try {
+            current = snapshot;
+            expired = current == null || System.currentTimeMillis() - current.loadedAt > refreshMillis;
+            if (expired) {
+                snapshot = load(cultureVersion, loadEvents(), loadItineraryLocations(), System.currentTimeMillis());
+            } else if (current.cultureVersion != cultureVersion) {
+                // 只有文化资源变化：复用已加载的活动与行程地点
+                snapshot = load(cultureVersion, current.eventEntries, current.itineraryEntries, current.loadedAt);
+            }
+            return snapshot;
+        } catch (RuntimeException e) {
+            if (current == null) {
+                throw e;
+            }
+            log.warn("附近查询索引刷新失败，继续使用旧数据: {}", e.getMessage());
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot load(long cultureVersion, List<Entry> events, List<Entry> itineraries, long loadedAt) {
+        List<Entry> entries = new ArrayList<>();
+        for (MapPoiResponse.MapPoi poi : mapPoiIndex.query(null, null)) {
+            entries.add(new Entry(TYPE_CULTURE, poi.getId(), poi.getTitle(), null, poi.getCategory(),
+                    poi.getLat(), poi.getLng(), null));
+        }
+        entries.addAll(events);
+        entries.addAll(itineraries);
+        log.info("附近查询索引已构建，共 {} 个地点", entries.size());
+        return new Snapshot(entries.toArray(new Entry[0]), cultureVersion, events, itineraries, loadedAt);
+    }
+
+    private List<Entry> loadEvents() {
+        List<Entry> entries = new ArrayList<>();
+        for (Event event : eventRepository.findAllWithLocation(Event.EventStatus.PAST)) {
+            entries.add(new Entry(TYPE_EVENT, event.getId(), event.getTitle(), event.getLocation().getName(),
+                    event.getType() != null ? event.getType().name().toLowerCase(Locale.ROOT) : null,
+                    event.getLocation().getLat(), event.getLocation().getLng(), null));
+        }
+        return entries;
+    }
+
+    private List<Entry> loadItineraryLocations() {
+        List<Entry> entries = new ArrayList<>();
+        for (Object[] row : routeRepository.findItineraryLocations()) {
+            entries.add(new Entry(TYPE_ITINERARY, (Long) row[0], (String) row[3], (String) row[1], null,
+                    (Double) row[4], (Double) row[5], (Integer) row[2]));
+        }
+        return entries;
+    }
+
+    private record Entry(String type, Long id, String title, String subtitle, String category,
+                         double lat, double lng, Integer day) {
+    }
+
+    private static final class Snapshot {
+        final Entry[] entries;
+        final GeoKdTree tree;
+        final long cultureVersion;
+        final List<Entry> eventEntries;
+        final List<Entry> itineraryEntries;
+        final long loadedAt;
+
+        Snapshot(Entry[] entries, long cultureVersion, List<Entry> eventEntries,
+                 List<Entry> itineraryEntries, long loadedAt) {
+            this.entries = entries;
+            this.cultureVersion = cultureVersion;
+            this.eventEntries = eventEntries;
+            this.itineraryEntries = itineraryEntries;
+            this.loadedAt = loadedAt;
+            double[] lats = new double[entries.length];
+            double[] lngs = new double[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                lats[i] = entries[i].lat();
+                lngs[i] = entries[i].lng();
+            }
+            this.tree = new GeoKdTree(lats, lngs);
+        }
+    }
+}
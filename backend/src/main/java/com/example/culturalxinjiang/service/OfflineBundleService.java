@@ -0,0 +1,607 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.response.HeritageItemResponse;
+import com.example.culturalxinjiang.dto.response.MapPoiResponse;
+import com.example.culturalxinjiang.dto.response.OfflineBundleResponse;
+import com.example.culturalxinjiang.dto.response.RouteDetailResponse;
+import com.example.culturalxinjiang.entity.User;
+import com.example.culturalxinjiang.exception.TooManyRequestsException;
+import com.example.culturalxinjiang.repository.UserRepository;
+import com.example.culturalxinjiang.util.SecurityUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 离线数据包
+ * <p>
+ * 按地区打包文化资源 POI、非遗项目、当前用户保存的路线（含行程与地点）以及缩略图，
+ * 生成一个 ZIP 文件（manifest.json 记录版本、数量与图片对照表）。数据包在后台线程中生成，
+ * 以内容摘要作为版本号写入磁盘缓存：内容未变化时沿用已有文件，下载地址携带版本号，
+ * 同一版本的文件不会改变，客户端可以用 Range 请求断点续传。
+ * 超过 app.offline.max-age-minutes 的数据包在再次请求时重新生成，生成期间旧版本仍可下载。
+ * 地区必须是文化资源 POI 或非遗项目中实际存在的地区；磁盘缓存由后台定时清理：
+ * 超过 app.offline.retention-hours 未更新的数据包删除，总大小超过 app.offline.max-total-mb 时从最旧的开始删除。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OfflineBundleService {
+
+    private static final Pattern VERSION_PATTERN = Pattern.compile("[0-9a-f]{16}");
+    private static final int KEPT_VERSIONS = 2;
+
+    private final MapPoiIndex mapPoiIndex;
+    private final HeritageFacetIndex heritageFacetIndex;
+    private final HeritageService heritageService;
+    private final RouteService routeService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.offline.bundle-dir:offline-bundles}")
+    private String bundleDir;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.static.digital-images-dir:digital-images}")
+    private String digitalImagesDir;
+
+    @Value("${server.servlet.context-path:/api}")
+    private String contextPath;
+
+    // 同时生成的数据包数
+    @Value("${app.offline.workers:1}")
+    private int workers;
+
+    // 排队上限，超过后拒绝新的生成请求
+    @Value("${app.offline.max-queue-depth:20}")
+    private int maxQueueDepth;
+
+    // 数据包有效期，过期后再次请求时重新生成
+    @Value("${app.offline.max-age-minutes:60}")
+    private long maxAgeMinutes;
+
+    // 缩略图最长边（像素）
+    @Value("${app.offline.thumbnail-size:320}")
+    private int thumbnailSize;
+
+    @Value("${app.offline.max-images:300}")
+    private int maxImages;
+
+    @Value("${app.offline.max-heritage-items:500}")
+    private int maxHeritageItems;
+
+    @Value("${app.offline.max-routes:50}")
+    private int maxRoutes;
+
+    // 磁盘缓存中数据包的保留时间，超过后删除
+    @Value("${app.offline.retention-hours:24}")
+    private long retentionHours;
+
+    // 磁盘缓存总大小上限
+    @Value("${app.offline.max-total-mb:2048}")
+    private long maxTotalMb;
+
+    @Value("${app.offline.cleanup-minutes:30}")
+    private long cleanupMinutes;
+
+    private final Map<String, BundleBuild> builds = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor cleaner;
+
+    private enum BuildStatus {
+        QUEUED, BUILDING, FAILED
+    }
+
+    @PostConstruct
+    void initExecutor() {
+        int poolSize = Math.max(1, workers);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "offline-bundle-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.cleaner = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "offline-bundle-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, cleanupMinutes);
+        cleaner.scheduleWithFixedDelay(() -> evictBundles(null), period, period, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 请求生成数据包：已有未过期的版本时直接返回，否则提交后台生成（同一地区不会重复提交）
+     */
+    public OfflineBundleResponse request(String region) {
+        String normalizedRegion = normalizeRegion(region);
+        User user = getCurrentUser();
+        String key = buildKey(user.getId(), normalizedRegion);
+        Path cached = findLatest(user.getId(), normalizedRegion);
+        boolean fresh = cached != null && isFresh(cached);
+
+        BundleBuild existing = builds.get(key);
+        boolean inProgress = existing != null && existing.status != BuildStatus.FAILED;
+        if (!fresh && !inProgress) {
+            if (executor.getQueue().size() >= maxQueueDepth) {
+                throw new TooManyRequestsException("离线数据包生成排队较多，请稍后再试");
+            }
+            BundleBuild build = new BundleBuild(user.getId(), normalizedRegion);
+            if (existing == null ? builds.putIfAbsent(key, build) == null : builds.replace(key, existing, build)) {
+                executor.execute(() -> run(build));
+                log.info("已提交离线数据包生成任务（用户: {}，地区: {}）", user.getUsername(), normalizedRegion);
+            }
+        }
+        return toResponse(user.getId(), normalizedRegion);
+    }
+
+    public OfflineBundleResponse getStatus(String region) {
+        String normalizedRegion = normalizeRegion(region);
+        return toResponse(getCurrentUser().getId(), normalizedRegion);
+    }
+
+    /**
+     * 获取指定版本的数据包文件（仅限当前用户）
+     */
+    public Path open(String region, String version) {
+        String normalizedRegion = normalizeRegion(region);
+        if (version == null || !VERSION_PATTERN.matcher(version).matches()) {
+            throw new RuntimeException("数据包版本无效");
+        }
+        Path file = bundleFile(getCurrentUser().getId(), normalizedRegion, version);
+        if (!Files.isRegularFile(file)) {
+            throw new RuntimeException("离线数据包不存在或已过期，请重新生成");
+        }
+        return file;
+    }
+
+    private OfflineBundleResponse toResponse(Long userId, String region) {
+        BundleBuild build = builds.get(buildKey(userId, region));
+        Path cached = findLatest(userId, region);
+        boolean building = build != null && build.status != BuildStatus.FAILED;
+        if (cached == null) {
+            String status = build == null ? "NONE" : (building ? "BUILDING" : "FAILED");
+            return OfflineBundleResponse.builder()
+                    .region(region)
+                    .status(status)
+                    .rebuilding(false)
+                    .error(build != null ? build.error : null)
+                    .build();
+        }
+        String version = versionOf(cached);
+        try {
+            return OfflineBundleResponse.builder()
+                    .region(region)
+                    .status("READY")
+                    .version(version)
+                    .size(Files.size(cached))
+                    .builtAt(LocalDateTime.ofInstant(Files.getLastModifiedTime(cached).toInstant(), ZoneId.systemDefault()))
+                    .downloadUrl(UriComponentsBuilder.fromPath(normalizeContextPath() + "/offline/bundles/download")
+                            .queryParam("region", region)
+                            .queryParam("version", version)
+                            .encode()
+                            .toUriString())
+                    .rebuilding(building)
+                    .build();
+        } catch (IOException e) {
+            throw new RuntimeException("读取离线数据包失败");
+        }
+    }
+
+    private void run(BundleBuild build) {
+        build.status = BuildStatus.BUILDING;
+        long startedAt = System.currentTimeMillis();
+        try {
+            Path file = buildBundle(build.userId, build.region);
+            builds.remove(buildKey(build.userId, build.region), build);
+            evictBundles(file);
+            log.info("离线数据包已生成: {}（{} 字节，耗时 {} ms）", file.getFileName(), Files.size(file),
+                    System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            log.error("离线数据包生成失败（地区: {}）: {}", build.region, e.getMessage(), e);
+            build.error = "离线数据包生成失败";
+            build.status = BuildStatus.FAILED;
+        }
+    }
+
+    private Path buildBundle(Long userId, String region) throws IOException {
+        List<MapPoiResponse.MapPoi> pois = mapPoiIndex.query(null, null).stream()
+                .filter(poi -> region.equals(poi.getRegion()))
+                .toList();
+        List<HeritageItemResponse> heritageItems = heritageService
+                .search(null, region, null, null, null, 1, maxHeritageItems)
+                .getList();
+        List<RouteDetailResponse> routes = routeService.getSavedRouteDetails(userId, maxRoutes);
+
+        Set<String> imageUrls = new LinkedHashSet<>();
+        pois.forEach(poi -> imageUrls.add(poi.getCover()));
+        heritageItems.forEach(item -> imageUrls.add(item.getCover()));
+        for (RouteDetailResponse route : routes) {
+            imageUrls.add(route.getCover());
+            if (route.getResources() != null) {
+                route.getResources().forEach(resource -> imageUrls.add(resource.getCover()));
+            }
+        }
+        // 只打包服务器本地的图片，外部链接保留原地址
+        Map<String, String> imagePaths = new LinkedHashMap<>();
+        Map<String, byte[]> thumbnails = new LinkedHashMap<>();
+        for (String url : imageUrls) {
+            if (thumbnails.size() >= maxImages) {
+                break;
+            }
+            byte[] thumbnail = StringUtils.hasText(url) ? thumbnail(url) : null;
+            if (thumbnail != null) {
+                String entryName = "images/" + DigestUtils.md5DigestAsHex(url.getBytes(StandardCharsets.UTF_8)) + ".jpg";
+                imagePaths.put(url, entryName);
+                thumbnails.put(entryName, thumbnail);
+            }
+        }
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("culture.json", objectMapper.writeValueAsBytes(pois));
+        entries.put("heritage.json", objectMapper.writeValueAsBytes(heritageItems));
+        entries.put("routes.json", objectMapper.writeValueAsBytes(routes));
+        entries.putAll(thumbnails);
+        String version = digest(entries);
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("format", 1);
+        manifest.put("region", region);
+        manifest.put("version", version);
+        manifest.put("generatedAt", LocalDateTime.now().toString());
+        manifest.put("counts", Map.of(
+                "culture", pois.size(),
+                "heritage", heritageItems.size(),
+                "routes", routes.size(),
+                "images", thumbnails.size()));
+        manifest.put("images", imagePaths);
+
+        Path target = bundleFile(userId, region, version);
+        Files.createDirectories(target.getParent());
+        if (Files.isRegularFile(target)) {
+            // 内容未变化：沿用已有文件（正在进行的断点续传不受影响），只刷新生成时间
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+        } else {
+            Path temp = Files.createTempFile(target.getParent(), "bundle-", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp);
+                     ZipOutputStream zip = new ZipOutputStream(out)) {
+                    writeEntry(zip, "manifest.json", objectMapper.writeValueAsBytes(manifest));
+                    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                        writeEntry(zip, entry.getKey(), entry.getValue());
+                    }
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        pruneOldVersions(userId, region);
+        return target;
+    }
+
+    private void writeEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (name.endsWith(".jpg")) {
+            // JPEG 已压缩，直接存储
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private byte[] thumbnail(String url) {
+        Path file = resolveLocalImage(url);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            BufferedImage source = ImageIO.read(file.toFile());
+            if (source == null) {
+                return null;
+            }
+            double scale = Math.min(1.0, (double) thumbnailSize / Math.max(source.getWidth(), source.getHeight()));
+            int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = target.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            return ImageIO.write(target, "jpg", out) ? out.toByteArray() : null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("生成缩略图失败: {}，{}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 把 /uploads/**、/digital-images/**（可带上下文路径）映射为本地文件，其他地址返回 null
+     */
+    private Path resolveLocalImage(String url) {
+        String path = url;
+        int queryIndex = path.indexOf('?');
+        if (queryIndex >= 0) {
+            path = path.substring(0, queryIndex);
+        }
+        String context = normalizeContextPath();
+        if (StringUtils.hasText(context) && path.startsWith(context + "/")) {
+            path = path.substring(context.length());
+        }
+        Path base;
+        String relative;
+        if (path.startsWith("/uploads/")) {
+            base = Paths.get(uploadDir);
+            relative = path.substring("/uploads/".length());
+        } else if (path.startsWith("/digital-images/")) {
+            base = Paths.get(digitalImagesDir);
+            relative = path.substring("/digital-images/".length());
+        } else {
+            return null;
+        }
+        Path root = base.toAbsolutePath().normalize();
+        Path file = root.resolve(relative).normalize();
+        return file.startsWith(root) ? file : null;
+    }
+
+    private Path findLatest(Long userId, String region) {
+        Path directory = userDirectory(userId);
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        String prefix = regionKey(region) + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(".zip");
+                    })
+                    .max(Comparator.comparingLong(this::lastModified))
+                    .orElse(null);
+        } catch (IOException e) {
+            log.warn("读取离线数据包目录失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void pruneOldVersions(Long userId, String region) throws IOException {
+        String prefix = regionKey(region) + "-";
+        List<Path> versions;
+        try (Stream<Path> files = Files.list(userDirectory(userId))) {
+            versions = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().startsWith(prefix)
+                            && file.getFileName().toString().endsWith(".zip"))
+                    .sorted(Comparator.comparingLong(this::lastModified).reversed())
+                    .toList());
+        }
+        // 保留上一个版本，避免正在续传的下载失效
+        for (int i = KEPT_VERSIONS; i < versions.size(); i++) {
+            Files.deleteIfExists(versions.get(i));
+        }
+    }
+
+    /**
+     * 清理磁盘缓存：删除超过保留时间的数据包与残留的临时文件，
+     * 总大小仍超过上限时从最旧的开始删除（keep 为刚生成的数据包，不删除）
+     */
+    private synchronized void evictBundles(Path keep) {
+        Path root = Paths.get(bundleDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long expireBefore = System.currentTimeMillis() - retentionHours * 3_600_000L;
+        List<Path> bundles = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                String name = file.getFileName().toString();
+                boolean bundle = name.endsWith(".zip");
+                if (!bundle && !name.endsWith(".tmp")) {
+                    continue;
+                }
+                if (!file.equals(keep) && lastModified(file) < expireBefore) {
+                    Files.deleteIfExists(file);
+                } else if (bundle) {
+                    bundles.add(file);
+                }
+            }
+            long maxTotalBytes = maxTotalMb * 1024L * 1024L;
+            long total = 0L;
+            for (Path file : bundles) {
+                total += sizeOf(file);
+            }
+            bundles.sort(Comparator.comparingLong(this::lastModified));
+            int removed = 0;
+            for (Path file : bundles) {
+                if (total <= maxTotalBytes) {
+                    break;
+                }
+                if (!file.equals(keep)) {
+                    total -= sizeOf(file);
+                    Files.deleteIfExists(file);
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                log.info("离线数据包缓存超过 {} MB，已删除 {} 个最旧的数据包", maxTotalMb, removed);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("清理离线数据包缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private boolean isFresh(Path file) {
+        return System.currentTimeMillis() - lastModified(file) < maxAgeMinutes * 60_000L;
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private Path userDirectory(Long userId) {
+        return Paths.get(bundleDir).toAbsolutePath().normalize().resolve(String.valueOf(userId));
+    }
+
+    private Path bundleFile(Long userId, String region, String version) {
+        return userDirectory(userId).resolve(regionKey(region) + "-" + version + ".zip");
+    }
+
+    private String versionOf(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(name.lastIndexOf('-') + 1, name.length() - ".zip".length());
+    }
+
+    /**
+     * 地区名可能含中文或特殊字符，文件名使用其摘要
+     */
+    private static String regionKey(String region) {
+        return DigestUtils.md5DigestAsHex(region.getBytes(StandardCharsets.UTF_8)).substring(0, 12);
+    }
+
+    private static String buildKey(Long userId, String region) {
+        return userId + ":" + region;
+    }
+
+    private static String digest(Map<String, byte[]> entries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update(entry.getValue());
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String normalizeRegion(String region) {
+        if (!StringUtils.hasText(region)) {
+            throw new RuntimeException("请指定地区");
+        }
+        String normalized = region.trim();
+        if (normalized.length() > 100 || !isKnownRegion(normalized)) {
+            throw new RuntimeException("地区不存在");
+        }
+        return normalized;
+    }
+
+    /**
+     * 只接受文化资源 POI 或非遗项目中实际出现的地区，避免任意取值在磁盘上生成数据包
+     */
+    private boolean isKnownRegion(String region) {
+        HeritageFacetIndex.Selection selection = new HeritageFacetIndex.Selection(region, null, null, null);
+        if (heritageFacetIndex.search(selection, null, 0, 0).total() > 0) {
+            return true;
+        }
+        return mapPoiIndex.query(null, null).stream().anyMatch(poi -> region.equals(poi.getRegion()));
+    }
+
+    private String normalizeContextPath() {
+        if (!StringUtils.hasText(contextPath) || "/".equals(contextPath)) {
+            return "";
+        }
+        String normalized = contextPath.startsWith("/") ? contextPath : "/" + contextPath;
+        return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
+    private User getCurrentUser() {
+        String username = SecurityUtils.getRequiredUsername();
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+    }
+
+    private static final class BundleBuild {
+        private final Long userId;
+        private final String region;
+        private volatile BuildStatus status = BuildStatus.QUEUED;
+        private volatile String error;
+
+        BundleBuild(Long userId, String region) {
+            this.userId = userId;
+            this.region = region;
+        }
+    }
+}
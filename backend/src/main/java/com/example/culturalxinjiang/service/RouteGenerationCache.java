@@ -0,0 +1,223 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.request.GenerateRouteRequest;
+import com.example.culturalxinjiang.service.AIService.AIRouteResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * AI 路线生成结果缓存
+ * <p>
+ * 以规范化后的 {@link GenerateRouteRequest} 为键（目的地按顺序、偏好按集合、预算按档位），
+ * 缓存解析后的 {@link AIRouteResponse}。容量满时淘汰最久未访问的条目，条目超过 TTL 后失效。
+ * 命中、未命中与淘汰次数通过 actuator 的 ai.route.cache.* 指标暴露。
+ */
+@Slf4j
+@Service
+public class RouteGenerationCache {
+
+    // 人均每日预算档位上限（元），落在同一档位的请求共享缓存
+    private static final double[] DAILY_BUDGET_BUCKETS = {200, 400, 700, 1000, 1500, 2500, 4000};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CacheEntry> entries;
+    private final boolean enabled;
+    private final long ttlMillis;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter sizeEvictionCounter;
+    private final Counter expiredEvictionCounter;
+
+    public RouteGenerationCache(MeterRegistry meterRegistry,
+                                @Value("${ai.route-cache.enabled:true}") boolean enabled,
+                                @Value("${ai.route-cache.max-entries:500}") int maxEntries,
+                                @Value("${ai.route-cache.ttl-minutes:360}") long ttlMinutes) {
+        this.enabled = enabled && maxEntries > 0;
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.hitCounter = meterRegistry.counter("ai.route.cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("ai.route.cache.requests", "result", "miss");
+        this.sizeEvictionCounter = meterRegistry.counter("ai.route.cache.evictions", "cause", "size");
+        this.expiredEvictionCounter = meterRegistry.counter("ai.route.cache.evictions", "cause", "expired");
+        // accessOrder=true：按访问顺序排列，头部即最久未访问的条目
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > maxEntries) {
+                    sizeEvictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("ai.route.cache.size", this, RouteGenerationCache::size)
+                .description("AI 路线生成缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查询缓存，命中时返回结果副本（调用方可自由修改），未命中返回 null
+     */
+    public AIRouteResponse get(GenerateRouteRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        String key = buildKey(request);
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired()) {
+                entries.remove(key);
+                expiredEvictionCounter.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        log.info("路线生成缓存命中: {}", key);
+        return copy(entry.response());
+    }
+
+    /**
+     * 写入 AI 成功生成的结果（降级/兜底路线不应写入）
+     */
+    public void put(GenerateRouteRequest request, AIRouteResponse response) {
+        if (!enabled || response == null) {
+            return;
+        }
+        CacheEntry entry = new CacheEntry(copy(response), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(buildKey(request), entry);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 规范化请求：大小写、空白、分隔符与列表顺序不同但语义相同的请求得到相同的键
+     */
+    String buildKey(GenerateRouteRequest request) {
+        List<String> parts = new ArrayList<>();
+        parts.add(normalizeDestinations(request));
+        parts.add(String.valueOf(request.getDuration()));
+        parts.add(String.valueOf(request.getPeopleCount()));
+        parts.add(String.valueOf(budgetBucket(request)));
+        parts.add(normalizeSet(request.getInterests(), request.getStylePreferences()));
+        parts.add(normalizeSet(request.getMustVisit(), request.getMustVisitLocations()));
+        parts.add(normalizeSet(request.getMustAvoid()));
+        parts.add(normalizeSet(request.getAccommodationPreferences()));
+        parts.add(normalizeSet(request.getTransportationPreferences()));
+        parts.add(normalizeSet(request.getOutputFormats()));
+        parts.add(normalizeText(request.getTravelDates()));
+        parts.add(normalizeText(request.getArrivalTime()));
+        parts.add(normalizeText(request.getDepartureTime()));
+        parts.add(normalizeText(request.getAgeGroups()));
+        parts.add(normalizeText(request.getSpecialDietary()));
+        parts.add(normalizeText(request.getWeatherSensitivity()));
+        parts.add(flags(request.getHasMobilityIssues(), request.getIncludesFlight(),
+                request.getNeedRestaurantSuggestions(), request.getNeedTicketSuggestions(),
+                request.getNeedTransportSuggestions(), request.getNeedPackingList(),
+                request.getNeedSafetyTips(), request.getNeedVisaInfo()));
+        return String.join("|", parts);
+    }
+
+    private String normalizeDestinations(GenerateRouteRequest request) {
+        String destinations = request.getDestinations();
+        if (!StringUtils.hasText(destinations)) {
+            destinations = normalizeText(request.getStartLocation()) + "," + normalizeText(request.getEndLocation());
+        }
+        // 目的地顺序决定路线走向，只统一分隔符与空白，不排序
+        List<String> cities = new ArrayList<>();
+        for (String city : destinations.split("[,，、→]|->")) {
+            String normalized = normalizeText(city);
+            if (!normalized.isEmpty()) {
+                cities.add(normalized);
+            }
+        }
+        return String.join(">", cities);
+    }
+
+    /**
+     * 人均每日预算所在档位，未提供预算时为 -1
+     */
+    private int budgetBucket(GenerateRouteRequest request) {
+        int days = request.getDuration() != null && request.getDuration() > 0 ? request.getDuration() : 1;
+        int people = request.getPeopleCount() != null && request.getPeopleCount() > 0 ? request.getPeopleCount() : 1;
+        Double total = request.getTotalBudget();
+        if (total == null && request.getDailyBudget() != null) {
+            total = request.getDailyBudget() * days;
+        }
+        if (total == null) {
+            total = request.getBudget();
+        }
+        if (total == null || total <= 0) {
+            return -1;
+        }
+        double perPersonDaily = total / days / people;
+        for (int i = 0; i < DAILY_BUDGET_BUCKETS.length; i++) {
+            if (perPersonDaily <= DAILY_BUDGET_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return DAILY_BUDGET_BUCKETS.length;
+    }
+
+    @SafeVarargs
+    private static String normalizeSet(Collection<String>... lists) {
+        TreeSet<String> values = new TreeSet<>();
+        for (Collection<String> list : lists) {
+            if (list == null) {
+                continue;
+            }
+            for (String value : list) {
+                String normalized = normalizeText(value);
+                if (!normalized.isEmpty()) {
+                    values.add(normalized);
+                }
+            }
+        }
+        return String.join(",", values);
+    }
+
+    private static String normalizeText(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String flags(Boolean... values) {
+        StringBuilder builder = new StringBuilder(values.length);
+        Arrays.stream(values).forEach(value -> builder.append(Boolean.TRUE.equals(value) ? '1' : '0'));
+        return builder.toString();
+    }
+
+    private AIRouteResponse copy(AIRouteResponse response) {
+        return objectMapper.convertValue(response, AIRouteResponse.class);
+    }
+
+    private record CacheEntry(AIRouteResponse response, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
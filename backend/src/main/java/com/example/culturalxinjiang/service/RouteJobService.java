@@ -0,0 +1,341 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.request.GenerateRouteRequest;
+import com.example.culturalxinjiang.dto.response.RouteDetailResponse;
+import com.example.culturalxinjiang.dto.response.RouteJobResponse;
+import com.example.culturalxinjiang.entity.User;
+import com.example.culturalxinjiang.exception.TooManyRequestsException;
+import com.example.culturalxinjiang.repository.UserRepository;
+import com.example.culturalxinjiang.service.AIService.AIRouteResponse;
+import com.example.culturalxinjiang.util.SecurityUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 异步路线生成任务
+ * <p>
+ * 提交后立即返回任务 ID，生成在有界的优先级线程池中执行（天数少的行程优先，同等天数先到先得），
+ * 排队数达到上限时返回 429。提交时附带本地规划的草稿路线供先行展示（任务结束后不再返回）。
+ * 客户端可轮询状态或通过 SSE 订阅逐天结果，也可取消不再需要的任务：
+ * 排队中的任务直接出队，执行中的任务经其请求范围立即中止进行中的 AI 请求，释放服务商连接。
+ * 任务状态保存在内存中，结束后保留一段时间供查询，过期任务由后台定时清理。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RouteJobService {
+
+    private static final long EMITTER_TIMEOUT_MARGIN_MS = 60_000L;
+
+    private final AIService aiService;
+    private final RouteService routeService;
+    private final UserRepository userRepository;
+    private final LocalRoutePlanner localRoutePlanner;
+
+    @Value("${ai.deepseek.timeout:300000}")
+    private long aiTimeout;
+
+    // 同时执行的生成任务数
+    @Value("${app.routes.jobs.workers:4}")
+    private int workers;
+
+    // 排队任务上限，超过后拒绝新任务
+    @Value("${app.routes.jobs.max-queue-depth:50}")
+    private int maxQueueDepth;
+
+    // 已结束任务的保留时间
+    @Value("${app.routes.jobs.retention-minutes:30}")
+    private long retentionMinutes;
+
+    private final Map<String, RouteJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // 已占用的排队名额：提交时先原子占位，任务出队（开始执行或被取消）时归还
+    private final AtomicInteger queuedJobs = new AtomicInteger();
+    private ThreadPoolExecutor jobExecutor;
+    private ScheduledThreadPoolExecutor purger;
+
+    private enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    @PostConstruct
+    void initJobExecutor() {
+        int poolSize = Math.max(1, workers);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "route-job-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.purger = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "route-job-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, retentionMinutes);
+        purger.scheduleWithFixedDelay(this::purgeFinishedJobs, period, period, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdownJobExecutor() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+        if (jobExecutor != null) {
+            jobExecutor.shutdownNow();
+        }
+    }
+
+    public RouteJobResponse submit(GenerateRouteRequest request) {
+        User user = getCurrentUser();
+        if (queuedJobs.incrementAndGet() > maxQueueDepth) {
+            queuedJobs.decrementAndGet();
+            throw new TooManyRequestsException("路线生成排队人数较多，请稍后再试");
+        }
+
+        RouteJob job = new RouteJob(user, request, sequence.incrementAndGet());
+        try {
+            job.draft = localRoutePlanner.plan(request);
+            jobs.put(job.id, job);
+            jobExecutor.execute(job);
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            queuedJobs.decrementAndGet();
+            throw e;
+        }
+        log.info("已提交路线生成任务 {}（用户: {}，{}天）", job.id, user.getUsername(), request.getDuration());
+        return toResponse(job);
+    }
+
+    public RouteJobResponse getJob(String jobId) {
+        return toResponse(getOwnedJob(jobId));
+    }
+
+    /**
+     * 订阅任务进度：先推送当前状态（status），之后推送 day / done / error / cancelled 事件
+     */
+    public SseEmitter subscribe(String jobId) {
+        RouteJob job = getOwnedJob(jobId);
+        SseEmitter emitter = new SseEmitter(aiTimeout + EMITTER_TIMEOUT_MARGIN_MS);
+        emitter.onCompletion(() -> job.subscribers.remove(emitter));
+        emitter.onTimeout(() -> job.subscribers.remove(emitter));
+        emitter.onError(error -> job.subscribers.remove(emitter));
+
+        // 先登记再推送快照，避免两者之间到达的天数丢失（客户端按 day 去重）
+        job.subscribers.add(emitter);
+        try {
+            emitter.send(SseEmitter.event().name("status").data(toResponse(job)));
+        } catch (IOException e) {
+            job.subscribers.remove(emitter);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        if (job.status.get().isFinished()) {
+            job.subscribers.remove(emitter);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    public RouteJobResponse cancel(String jobId) {
+        RouteJob job = getOwnedJob(jobId);
+        JobStatus previous = job.status.get();
+        while (!previous.isFinished()) {
+            if (job.status.compareAndSet(previous, JobStatus.CANCELLED)) {
+                job.touch();
+                if (previous == JobStatus.QUEUED) {
+                    // 已被工作线程取走时由 run() 归还名额
+                    if (jobExecutor.remove(job)) {
+                        queuedJobs.decrementAndGet();
+                    }
+                } else {
+                    // 中止进行中的 AI 请求，而不是等到下一天行程到达
+                    job.scope.cancel();
+                }
+                log.info("路线生成任务 {} 已取消（取消前状态: {}）", job.id, previous);
+                job.publishAndClose("cancelled", toResponse(job));
+                break;
+            }
+            previous = job.status.get();
+        }
+        return toResponse(job);
+    }
+
+    private RouteJobResponse toResponse(RouteJob job) {
+        JobStatus status = job.status.get();
+        return RouteJobResponse.builder()
+                .jobId(job.id)
+                .status(status.name())
+                .queuePosition(status == JobStatus.QUEUED ? queuePosition(job) : null)
+                .totalDays(job.request.getDuration())
+                .days(List.copyOf(job.days))
+                .draft(status.isFinished() ? null : job.draft)
+                .route(job.route)
+                .error(job.error)
+                .createdAt(job.createdAt)
+                .updatedAt(job.updatedAt)
+                .build();
+    }
+
+    private int queuePosition(RouteJob job) {
+        int ahead = 0;
+        for (Runnable queued : jobExecutor.getQueue()) {
+            if (queued instanceof RouteJob other && other.compareTo(job) < 0) {
+                ahead++;
+            }
+        }
+        return ahead;
+    }
+
+    private RouteJob getOwnedJob(String jobId) {
+        RouteJob job = jobs.get(jobId);
+        User user = getCurrentUser();
+        if (job == null || !job.user.getId().equals(user.getId())) {
+            throw new RuntimeException("任务不存在或已过期");
+        }
+        return job;
+    }
+
+    private void purgeFinishedJobs() {
+        try {
+            LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(retentionMinutes);
+            jobs.values().removeIf(job -> job.status.get().isFinished() && job.updatedAt.isBefore(expireBefore));
+        } catch (RuntimeException e) {
+            // 定时任务抛出异常后不会再执行，这里只记录
+            log.warn("清理过期路线生成任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private User getCurrentUser() {
+        String username = SecurityUtils.getRequiredUsername();
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+    }
+
+    private final class RouteJob implements Runnable, Comparable<RouteJob> {
+        private final String id = UUID.randomUUID().toString();
+        private final User user;
+        private final GenerateRouteRequest request;
+        private final long seq;
+        private final AtomicReference<JobStatus> status = new AtomicReference<>(JobStatus.QUEUED);
+        private final AiRequestScope scope = new AiRequestScope();
+        private final List<AIRouteResponse.ItineraryItem> days = new CopyOnWriteArrayList<>();
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile LocalDateTime updatedAt = createdAt;
+        private volatile RouteDetailResponse route;
+        private volatile AIRouteResponse draft;
+        private volatile String error;
+
+        RouteJob(User user, GenerateRouteRequest request, long seq) {
+            this.user = user;
+            this.request = request;
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            queuedJobs.decrementAndGet();
+            if (!status.compareAndSet(JobStatus.QUEUED, JobStatus.RUNNING)) {
+                return;
+            }
+            touch();
+            try {
+                AIRouteResponse aiResponse = scope.call(() -> aiService.generateRouteStreaming(request, item -> {
+                    if (status.get() == JobStatus.CANCELLED) {
+                        throw new JobCancelledException();
+                    }
+                    days.add(item);
+                    touch();
+                    publish("day", item);
+                }));
+                if (status.get() == JobStatus.CANCELLED) {
+                    return;
+                }
+                route = routeService.saveGeneratedRoute(request, aiResponse, user);
+                if (status.compareAndSet(JobStatus.RUNNING, JobStatus.SUCCEEDED)) {
+                    touch();
+                    publishAndClose("done", toResponse(this));
+                }
+            } catch (JobCancelledException e) {
+                log.info("路线生成任务 {} 已中止", id);
+            } catch (Exception e) {
+                if (status.get() == JobStatus.CANCELLED) {
+                    log.info("路线生成任务 {} 已中止", id);
+                    return;
+                }
+                log.error("路线生成任务 {} 失败: {}", id, e.getMessage(), e);
+                error = e.getMessage() != null ? e.getMessage() : "路线生成失败";
+                if (status.compareAndSet(JobStatus.RUNNING, JobStatus.FAILED)) {
+                    touch();
+                    publishAndClose("error", toResponse(this));
+                }
+            }
+        }
+
+        /**
+         * 天数少的任务优先，天数相同按提交顺序
+         */
+        @Override
+        public int compareTo(RouteJob other) {
+            int byDuration = Integer.compare(request.getDuration(), other.request.getDuration());
+            return byDuration != 0 ? byDuration : Long.compare(seq, other.seq);
+        }
+
+        void touch() {
+            updatedAt = LocalDateTime.now();
+        }
+
+        void publish(String eventName, Object data) {
+            for (SseEmitter emitter : subscribers) {
+                try {
+                    emitter.send(SseEmitter.event().name(eventName).data(data));
+                } catch (IOException | IllegalStateException e) {
+                    subscribers.remove(emitter);
+                }
+            }
+        }
+
+        void publishAndClose(String eventName, Object data) {
+            publish(eventName, data);
+            for (SseEmitter emitter : subscribers) {
+                emitter.complete();
+            }
+            subscribers.clear();
+        }
+    }
+
+    private static class JobCancelledException extends RuntimeException {
+        JobCancelledException() {
+            super("任务已取消");
+        }
+    }
+}
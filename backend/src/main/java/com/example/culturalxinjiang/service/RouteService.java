@@ -2,6 +2,7 @@ package com.example.culturalxinjiang.service;
 
 import com.example.culturalxinjiang.dto.request.GenerateRouteRequest;
 import com.example.culturalxinjiang.dto.response.ApiResponse;
+import com.example.culturalxinjiang.dto.response.CursorPageResponse;
 import com.example.culturalxinjiang.dto.response.PageResponse;
 import com.example.culturalxinjiang.dto.response.RouteDetailResponse;
 import com.example.culturalxinjiang.dto.response.RouteResponse;
@@ -14,6 +15,8 @@ import com.example.culturalxinjiang.repository.FavoriteRepository;
 import com.example.culturalxinjiang.repository.RouteRepository;
 import com.example.culturalxinjiang.repository.UserRepository;
 import com.example.culturalxinjiang.service.AIService.AIRouteResponse;
+import com.example.culturalxinjiang.util.FeedCursor;
+import com.example.culturalxinjiang.util.GeoUtils;
 import com.example.culturalxinjiang.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,13 +24,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -39,6 +45,7 @@ public class RouteService {
     private static final int TIP_MAX_LENGTH = 480;
 
     private final RouteRepository routeRepository;
+    private final ViewCounterService viewCounterService;
     private final CultureResourceRepository cultureResourceRepository;
     private final UserRepository userRepository;
     private final FavoriteRepository favoriteRepository;
@@ -67,6 +74,22 @@ public class RouteService {
         return PageResponse.of(responses, routePage.getTotalElements(), page, size);
     }
 
+    /**
+     * 路线信息流（游标分页），按 (createdAt, id) 倒序，不统计总数
+     *
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<RouteResponse> getRouteFeed(String theme, String cursor, Integer size) {
+        int pageSize = FeedCursor.pageSize(size);
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<Route> routes = routeRepository.findFeed(StringUtils.hasText(theme) ? theme : null,
+                after != null ? after.time() : FeedCursor.LATEST, after != null ? after.id() : Long.MAX_VALUE,
+                PageRequest.of(0, pageSize + 1));
+        return CursorPageResponse.of(routes, pageSize,
+                route -> FeedCursor.of(route.getCreatedAt(), route.getId()).encode(), this::mapToResponse);
+    }
+
     @Transactional(readOnly = true)
     public PageResponse<RouteResponse> getMyRoutes(Integer page, Integer size) {
         User user = getCurrentUser();
@@ -80,11 +103,39 @@ public class RouteService {
         return PageResponse.of(responses, routePage.getTotalElements(), page, size);
     }
 
+    /**
+     * 用户保存的路线详情（本人创建的路线与收藏的路线），用于离线数据包
+     */
+    @Transactional(readOnly = true)
+    public List<RouteDetailResponse> getSavedRouteDetails(Long userId, int limit) {
+        Map<Long, RouteDetailResponse> routes = new LinkedHashMap<>();
+        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
+        for (Route route : routeRepository.findByUserId(userId, pageable)) {
+            routes.put(route.getId(), mapToDetailResponse(route));
+        }
+        for (Favorite favorite : favoriteRepository.findTop50ByUserIdAndResourceTypeOrderByCreatedAtDesc(
+                userId, Favorite.ResourceType.ROUTE)) {
+            if (routes.size() >= limit || routes.containsKey(favorite.getResourceId())) {
+                continue;
+            }
+            routeRepository.findById(favorite.getResourceId()).ifPresent(route -> {
+                RouteDetailResponse detail = mapToDetailResponse(route);
+                detail.setFavorited(true);
+                routes.put(route.getId(), detail);
+            });
+        }
+        return new ArrayList<>(routes.values());
+    }
+
     @Transactional(readOnly = true)
     public RouteDetailResponse getRouteDetail(Long id) {
         Route route = routeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("路线不存在"));
-        return mapToDetailResponse(route);
+        viewCounterService.increment(ViewCounterService.Target.ROUTE, id);
+        RouteDetailResponse response = mapToDetailResponse(route);
+        response.setViews((int) ((route.getViews() != null ? route.getViews() : 0)
+                + viewCounterService.pending(ViewCounterService.Target.ROUTE, id)));
+        return response;
     }
 
     // 用于存储调试信息的内部类
@@ -108,6 +159,42 @@ public class RouteService {
 
     @Transactional
     public RouteGenerationResult generateRouteWithDebug(GenerateRouteRequest request) {
+        // 调用AI服务生成路线
+        AIRouteResponse aiResponse;
+        boolean aiCallSuccess = false;
+        String aiError = null;
+
+        try {
+            aiResponse = aiService.generateRoute(request);
+            aiCallSuccess = true;
+        } catch (Exception e) {
+            aiCallSuccess = false;
+            aiError = e.getMessage();
+            throw e; // 重新抛出异常
+        }
+
+        // 获取当前登录用户
+        User user = getCurrentUser();
+
+        RouteDetailResponse response = saveGeneratedRoute(request, aiResponse, user);
+
+        // 构建调试信息
+        ApiResponse.DebugInfo debugInfo = ApiResponse.DebugInfo.builder()
+                .apiCallStatus(aiCallSuccess ? "成功" : "失败")
+                .apiCallSuccess(aiCallSuccess)
+                .apiResponseTime("")
+                .aiProvider("")
+                .apiError(aiError)
+                .build();
+
+        return new RouteGenerationResult(response, debugInfo);
+    }
+
+    /**
+     * 将 AI 生成的路线保存为指定用户的路线（同步生成与流式生成共用）
+     */
+    @Transactional
+    public RouteDetailResponse saveGeneratedRoute(GenerateRouteRequest request, AIRouteResponse aiResponse, User user) {
         // 处理目的地：从 destinations 中提取起点和终点
         String startLocation = request.getStartLocation();
         String endLocation = request.getEndLocation();
@@ -132,20 +219,6 @@ public class RouteService {
             budget = request.getDailyBudget() * request.getDuration();
         }
 
-        // 调用AI服务生成路线
-        AIRouteResponse aiResponse;
-        boolean aiCallSuccess = false;
-        String aiError = null;
-
-        try {
-            aiResponse = aiService.generateRoute(request);
-            aiCallSuccess = true;
-        } catch (Exception e) {
-            aiCallSuccess = false;
-            aiError = e.getMessage();
-            throw e; // 重新抛出异常
-        }
-
         // 构建路线主题（基于风格偏好或兴趣标签）
         String theme = "general";
         if (request.getStylePreferences() != null && !request.getStylePreferences().isEmpty()) {
@@ -154,9 +227,6 @@ public class RouteService {
             theme = String.join(",", request.getInterests());
         }
 
-        // 获取当前登录用户
-        User user = getCurrentUser();
-
         // 计算总里程（根据路线中的所有位置点）
         Double totalDistance = calculateRouteDistance(aiResponse);
 
@@ -250,18 +320,7 @@ public class RouteService {
         // 保存路线到数据库
         route = routeRepository.save(route);
 
-        RouteDetailResponse response = mapToDetailResponse(route);
-
-        // 构建调试信息
-        ApiResponse.DebugInfo debugInfo = ApiResponse.DebugInfo.builder()
-                .apiCallStatus(aiCallSuccess ? "成功" : "失败")
-                .apiCallSuccess(aiCallSuccess)
-                .apiResponseTime("")
-                .aiProvider("")
-                .apiError(aiError)
-                .build();
-
-        return new RouteGenerationResult(response, debugInfo);
+        return mapToDetailResponse(route);
     }
 
     // 保持向后兼容的方法（不包含调试信息）
@@ -301,7 +360,7 @@ public class RouteService {
             AIRouteResponse.Location loc1 = allLocations.get(i);
             AIRouteResponse.Location loc2 = allLocations.get(i + 1);
 
-            double distance = calculateHaversineDistance(
+            double distance = GeoUtils.haversineKm(
                 loc1.getLat(), loc1.getLng(),
                 loc2.getLat(), loc2.getLng()
             );
@@ -330,24 +389,6 @@ public class RouteService {
         return (double) Math.round(Math.max(estimated, 1500) / 100.0) * 100.0;
     }
 
-    /**
-     * 使用 Haversine 公式计算两点之间的距离（单位：公里）
-     */
-    private double calculateHaversineDistance(double lat1, double lng1, double lat2, double lng2) {
-        final int EARTH_RADIUS_KM = 6371; // 地球半径（公里）
-
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLng = Math.toRadians(lng2 - lng1);
-
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLng / 2) * Math.sin(dLng / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return EARTH_RADIUS_KM * c;
-    }
-
     private RouteResponse mapToResponse(Route route) {
         return RouteResponse.builder()
                 .id(route.getId())
@@ -0,0 +1,177 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.dto.request.GenerateRouteRequest;
+import com.example.culturalxinjiang.dto.response.RouteDetailResponse;
+import com.example.culturalxinjiang.entity.User;
+import com.example.culturalxinjiang.exception.TooManyRequestsException;
+import com.example.culturalxinjiang.repository.UserRepository;
+import com.example.culturalxinjiang.service.AIService.AIRouteResponse;
+import com.example.culturalxinjiang.util.SecurityUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 路线流式生成：通过 SSE 逐天推送 AI 生成的行程，结束时推送已保存的路线
+ * <p>
+ * 事件顺序：start → draft（本地规划的草稿路线，可选）→ day（每天一条）→ done（包含 routeId 与路线详情），
+ * 出错时推送 error。
+ * <p>
+ * 生成在 {@link AiRequestScope} 中进行：客户端断开（发送失败、超时、连接出错或完成）时取消范围，
+ * 中止上游 HTTP 请求，而不是把剩余的流式响应读完才释放线程与服务商配额。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RouteStreamingService {
+
+    private static final long EMITTER_TIMEOUT_MARGIN_MS = 60_000L;
+
+    private final AIService aiService;
+    private final RouteService routeService;
+    private final UserRepository userRepository;
+    private final LocalRoutePlanner localRoutePlanner;
+
+    @Value("${ai.deepseek.timeout:300000}")
+    private long aiTimeout;
+
+    // 同时进行的流式生成任务上限
+    @Value("${app.routes.stream-concurrency:8}")
+    private int streamConcurrency;
+
+    private ExecutorService streamExecutor;
+
+    @PostConstruct
+    void initStreamExecutor() {
+        int concurrency = Math.max(1, streamConcurrency);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.streamExecutor = new ThreadPoolExecutor(
+                concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(concurrency),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "route-stream-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdownStreamExecutor() {
+        if (streamExecutor != null) {
+            streamExecutor.shutdownNow();
+        }
+    }
+
+    public SseEmitter generateRouteStream(GenerateRouteRequest request) {
+        // 在请求线程中解析当前用户，工作线程中没有安全上下文
+        User user = getCurrentUser();
+
+        SseEmitter emitter = new SseEmitter(aiTimeout + EMITTER_TIMEOUT_MARGIN_MS);
+        StreamClient client = new StreamClient(emitter, new AtomicBoolean(false), new AiRequestScope());
+        emitter.onTimeout(client::disconnect);
+        emitter.onError(error -> client.disconnect());
+        // 正常结束后范围内已没有请求，取消不影响结果；连接被服务器关闭时中止仍在进行的上游请求
+        emitter.onCompletion(client.scope()::cancel);
+
+        try {
+            streamExecutor.execute(() -> runGeneration(request, user, client));
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("当前路线生成请求较多，请稍后再试");
+        }
+        return emitter;
+    }
+
+    private void runGeneration(GenerateRouteRequest request, User user, StreamClient client) {
+        SseEmitter emitter = client.emitter();
+        try {
+            send(client, "start", Map.of("duration", request.getDuration()));
+
+            // AI 首日行程通常需要数秒，先推送本地规划的草稿供前端展示
+            AIRouteResponse draft = localRoutePlanner.plan(request);
+            if (draft != null) {
+                send(client, "draft", draft);
+            }
+
+            AIRouteResponse aiResponse = client.scope().call(() -> aiService.generateRouteStreaming(request,
+                    item -> send(client, "day", item)));
+            if (client.gone().get()) {
+                throw new ClientDisconnectedException();
+            }
+
+            RouteDetailResponse route = routeService.saveGeneratedRoute(request, aiResponse, user);
+            send(client, "done", Map.of("routeId", route.getId(), "route", route));
+            emitter.complete();
+        } catch (ClientDisconnectedException e) {
+            // 上游请求已在 disconnect 中中止
+            log.info("客户端已断开，终止流式路线生成（用户: {}）", user.getUsername());
+            emitter.complete();
+        } catch (Exception e) {
+            if (client.gone().get()) {
+                // 中止上游请求引起的异常
+                log.info("客户端已断开，终止流式路线生成（用户: {}）", user.getUsername());
+                emitter.complete();
+                return;
+            }
+            log.error("流式生成路线失败: {}", e.getMessage(), e);
+            String message = e.getMessage() != null ? e.getMessage() : "路线生成失败";
+            try {
+                emitter.send(SseEmitter.event().name("error").data(Map.of("message", message)));
+                emitter.complete();
+            } catch (Exception sendError) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void send(StreamClient client, String eventName, Object data) {
+        if (client.gone().get()) {
+            throw new ClientDisconnectedException();
+        }
+        try {
+            client.emitter().send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // 先中止上游请求：异常抛出后 RestTemplate 关闭响应时不会再读完剩余内容
+            client.disconnect();
+            throw new ClientDisconnectedException();
+        }
+    }
+
+    private User getCurrentUser() {
+        String username = SecurityUtils.getRequiredUsername();
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+    }
+
+    /**
+     * 一次流式生成的客户端连接与其上游请求范围
+     */
+    private record StreamClient(SseEmitter emitter, AtomicBoolean gone, AiRequestScope scope) {
+
+        void disconnect() {
+            gone.set(true);
+            scope.cancel();
+        }
+    }
+
+    private static class ClientDisconnectedException extends RuntimeException {
+        ClientDisconnectedException() {
+            super("客户端已断开连接");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.culturalxinjiang.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 检索索引中保存的文档摘要，用于结果过滤与联合检索结果的直接展示（无需回表）
+ *
+ * @param type     文档类型：culture / heritage / event / post
+ * @param category 文化资源类型、非遗分类或活动类型，帖子为空
+ * @param summary  描述或正文的前若干字
+ */
+record SearchDocument(String type, Long id, String title, String summary, String cover,
+                      String region, String category, LocalDateTime createdAt) {
+
+    private static final int SUMMARY_LENGTH = 120;
+
+    static String summarize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String collapsed = text.replaceAll("\\s+", " ").trim();
+        if (collapsed.codePointCount(0, collapsed.length()) <= SUMMARY_LENGTH) {
+            return collapsed;
+        }
+        return collapsed.substring(0, collapsed.offsetByCodePoints(0, SUMMARY_LENGTH)) + "…";
+    }
+
+    /**
+     * 封面为空时取第一张图片
+     */
+    static String coverOf(String cover, List<String> images) {
+        if (cover != null && !cover.isBlank()) {
+            return cover;
+        }
+        return images == null || images.isEmpty() ? null : images.get(0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.culturalxinjiang.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 相同键的并发调用合并为一次执行
+ * <p>
+ * 第一个到达的调用者在自己的线程中执行任务，执行期间到达的相同键调用等待同一个结果；
+ * 任务结束（成功或异常）后立即移除，之后的调用会重新执行。
+ * 结果为可变对象时，等待者拿到的是 copier 复制出的副本，避免调用方之间互相修改。
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> copier;
+
+    SingleFlight(UnaryOperator<V> copier) {
+        this.copier = copier;
+    }
+
+    V execute(K key, Supplier<V> task) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            V shared = await(existing);
+            return shared == null ? null : copier.apply(shared);
+        }
+        try {
+            V result = task.get();
+            created.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // 与执行者收到相同的异常
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.culturalxinjiang.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 输入提示使用的压缩前缀树（radix tree）
+ * <p>
+ * 每条边保存一段字符串而不是单个字符，只有一个子节点的链路合并为一条边。每个节点缓存
+ * 其子树内权重最高的 topK 个候选，查询时沿前缀走到对应节点直接返回缓存，耗时只与前缀
+ * 长度有关。写入与删除后沿路径自底向上重新计算缓存。同一候选可以挂在多个键下
+ * （原文、拼音首字母），同一子树内按 {@link Entry#key()} 去重。
+ */
+class SuggestionTrie {
+
+    /**
+     * @param key    候选的唯一标识，如 culture:12、tag:刺绣
+     * @param type   culture / heritage / tag / region / category
+     * @param id     文化资源或非遗项目 ID，词条类候选为 null
+     * @param weight 排序权重，越大越靠前
+     */
+    record Entry(String key, String text, String type, Long id, long weight) {
+    }
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparingInt(entry -> entry.text().length())
+            .thenComparing(Entry::text);
+
+    private final int topK;
+    private final Node root = new Node("");
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    SuggestionTrie(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * 将候选挂到各个键下，键应已规范化（小写、去除首尾空白）
+     */
+    void put(Entry entry, Collection<String> keys) {
+        lock.writeLock().lock();
+        try {
+            for (String key : keys) {
+                List<Node> path = insertPath(key);
+                path.get(path.size() - 1).terminals.put(entry.key(), entry);
+                refresh(path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Entry entry, Collection<String> keys) {
+        lock.writeLock().lock();
+        try {
+            for (String key : keys) {
+                List<Node> path = findPath(key);
+                if (path == null || path.get(path.size() - 1).terminals.remove(entry.key()) == null) {
+                    continue;
+                }
+                prune(path);
+                refresh(path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 返回以 prefix 开头的键下权重最高的候选，最多 min(limit, topK) 个
+     */
+    List<Entry> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int position = 0;
+            while (position < prefix.length()) {
+                Node child = node.children.get(prefix.charAt(position));
+                if (child == null) {
+                    return List.of();
+                }
+                int common = commonPrefix(child.label, prefix, position);
+                if (position + common == prefix.length()) {
+                    // 前缀在边的中间结束，边下方的子树即全部匹配
+                    node = child;
+                    break;
+                }
+                if (common < child.label.length()) {
+                    return List.of();
+                }
+                node = child;
+                position += common;
+            }
+            List<Entry> top = node.top;
+            return top.size() <= limit ? top : top.subList(0, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Node> insertPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            char first = key.charAt(position);
+            Node child = node.children.get(first);
+            if (child == null) {
+                child = new Node(key.substring(position));
+                node.children.put(first, child);
+                path.add(child);
+                return path;
+            }
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length()) {
+                // 拆分边：公共部分成为新的中间节点
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                middle.top = child.top;
+                node.children.put(first, middle);
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            position += common;
+        }
+        return path;
+    }
+
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            Node child = node.children.get(key.charAt(position));
+            if (child == null || !key.startsWith(child.label, position)) {
+                return null;
+            }
+            node = child;
+            path.add(node);
+            position += child.label.length();
+        }
+        return path;
+    }
+
+    /**
+     * 删除空叶子，并把只剩一个子节点、自身不挂候选的节点与子节点合并，保持树的压缩形态
+     */
+    private void prune(List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            Node parent = path.get(i - 1);
+            if (!node.terminals.isEmpty()) {
+                break;
+            }
+            if (node.children.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+                path.remove(i);
+                continue;
+            }
+            if (node.children.size() == 1) {
+                Node child = node.children.values().iterator().next();
+                child.label = node.label + child.label;
+                parent.children.put(child.label.charAt(0), child);
+                path.set(i, child);
+            }
+            break;
+        }
+    }
+
+    private void refresh(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            Map<String, Entry> candidates = new HashMap<>(node.terminals);
+            for (Node child : node.children.values()) {
+                for (Entry entry : child.top) {
+                    candidates.putIfAbsent(entry.key(), entry);
+                }
+            }
+            node.top = candidates.values().stream().sorted(RANKING).limit(topK).toList();
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final Map<String, Entry> terminals = new LinkedHashMap<>(2);
+        private List<Entry> top = List.of();
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+}
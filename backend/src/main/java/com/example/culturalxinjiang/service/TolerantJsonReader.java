@@ -0,0 +1,394 @@
+package com.example.culturalxinjiang.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 容错的增量 JSON 读取器：逐字符单遍扫描 AI 输出，直接构建 Jackson 节点树
+ * <p>
+ * 在扫描过程中就地修正模型常见的格式错误，不回头重读缓冲区：
+ * <ul>
+ *     <li>根对象前后的说明文字、Markdown 代码块围栏、BOM</li>
+ *     <li>中文引号/单引号包裹的字符串、结构中的中文逗号和冒号、《》「」等多余符号</li>
+ *     <li>字符串内未转义的引号、字符串内的原始换行、19:"00 形式的时间笔误</li>
+ *     <li>缺少或多余的逗号（字符串之间以空白隔开即视为缺少逗号）、缺少冒号、未加引号的键和值</li>
+ *     <li>括号不匹配、多余的闭合括号，以及响应被截断时未闭合的字符串和对象</li>
+ * </ul>
+ * 根对象 itinerary 数组中的每个天对象闭合时立即回调，供流式生成逐天推送。
+ * 非线程安全，每次响应使用一个新实例。
+ */
+class TolerantJsonReader {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String ITINERARY_FIELD = "itinerary";
+
+    private enum Mode { NORMAL, STRING, ESCAPE, UNICODE, QUOTE_PENDING, SCALAR }
+
+    private enum Expect { KEY, COLON, VALUE, AFTER_VALUE }
+
+    /** 一层未闭合的对象或数组 */
+    private static final class Frame {
+        final JsonNode node;
+        final boolean itineraryArray;
+        final boolean itineraryDay;
+        Expect expect;
+        String key;
+
+        Frame(JsonNode node, boolean itineraryArray, boolean itineraryDay) {
+            this.node = node;
+            this.itineraryArray = itineraryArray;
+            this.itineraryDay = itineraryDay;
+            this.expect = node.isObject() ? Expect.KEY : Expect.VALUE;
+        }
+
+        boolean isObject() {
+            return node.isObject();
+        }
+    }
+
+    private final Consumer<ObjectNode> onItineraryDay;
+    private final List<Frame> stack = new ArrayList<>();
+    private final StringBuilder token = new StringBuilder();
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+    private final StringBuilder unicode = new StringBuilder(4);
+
+    private Mode mode = Mode.NORMAL;
+    private JsonNode root;
+    private boolean done;
+    private boolean tokenIsKey;
+    private char stringCloser;
+
+    TolerantJsonReader(Consumer<ObjectNode> onItineraryDay) {
+        this.onItineraryDay = onItineraryDay;
+    }
+
+    /**
+     * 一次性解析完整文本，未找到 JSON 对象时返回 null
+     */
+    static JsonNode parse(String content) {
+        TolerantJsonReader reader = new TolerantJsonReader(null);
+        if (content != null) {
+            reader.feed(content);
+        }
+        return reader.finish();
+    }
+
+    /**
+     * 追加一段增量内容
+     */
+    void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !done; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    /**
+     * 结束输入：补齐被截断的字符串与括号，返回根对象（未找到 JSON 对象时返回 null）
+     */
+    JsonNode finish() {
+        switch (mode) {
+            case STRING, ESCAPE, UNICODE, QUOTE_PENDING -> {
+                if (mode == Mode.UNICODE) {
+                    token.append("\\u").append(unicode);
+                }
+                completeString();
+            }
+            case SCALAR -> completeScalar();
+            default -> {
+            }
+        }
+        mode = Mode.NORMAL;
+        // 被截断的容器原样保留已解析的部分，不触发逐天回调
+        stack.clear();
+        done = true;
+        return root;
+    }
+
+    private void accept(char c) {
+        switch (mode) {
+            case STRING -> acceptString(c);
+            case ESCAPE -> acceptEscape(c);
+            case UNICODE -> acceptUnicode(c);
+            case QUOTE_PENDING -> acceptAfterQuote(c);
+            case SCALAR -> acceptScalar(c);
+            default -> acceptStructural(c);
+        }
+    }
+
+    private void acceptStructural(char c) {
+        if (stack.isEmpty()) {
+            // 跳过根对象之前的说明文字、代码块围栏和 BOM
+            if (c == '{') {
+                openContainer(c);
+            }
+            return;
+        }
+        switch (c) {
+            case '{', '[' -> openContainer(c);
+            case '}', ']' -> closeContainer(c);
+            case ',', '，' -> onComma();
+            case ':', '：' -> onColon();
+            case '"', '“', '”' -> startString(c == '"' ? '"' : '”');
+            case '\'' -> startString('\'');
+            case '《', '》', '「', '」', '『', '』', '\uFEFF' -> {
+                // 结构中的多余符号直接忽略
+            }
+            default -> {
+                if (!Character.isWhitespace(c)) {
+                    tokenIsKey = expectsKey();
+                    token.setLength(0);
+                    token.append(c);
+                    mode = Mode.SCALAR;
+                }
+            }
+        }
+    }
+
+    private void openContainer(char c) {
+        Frame parent = top();
+        boolean itineraryArray = false;
+        boolean itineraryDay = false;
+        JsonNode node;
+        if (c == '{') {
+            itineraryDay = parent != null && parent.itineraryArray;
+            node = NODES.objectNode();
+        } else {
+            itineraryArray = parent != null && stack.size() == 1 && parent.isObject()
+                    && ITINERARY_FIELD.equals(parent.key);
+            node = NODES.arrayNode();
+        }
+        if (parent == null) {
+            root = node;
+        } else {
+            // 先挂到父节点上，响应被截断时已解析的部分也能保留
+            addValue(node);
+        }
+        stack.add(new Frame(node, itineraryArray, itineraryDay));
+    }
+
+    private void closeContainer(char c) {
+        while (!stack.isEmpty()) {
+            Frame frame = stack.remove(stack.size() - 1);
+            if (frame.itineraryDay && onItineraryDay != null) {
+                onItineraryDay.accept((ObjectNode) frame.node);
+            }
+            // 闭合符号与当前容器不匹配时，视为先闭合当前容器，再用该符号继续闭合外层
+            boolean matches = frame.isObject() == (c == '}');
+            if (matches) {
+                break;
+            }
+        }
+        if (stack.isEmpty()) {
+            done = true;
+        }
+    }
+
+    private void onComma() {
+        Frame frame = top();
+        if (frame.isObject()) {
+            // 只有键没有值（"a",）或多余逗号：丢弃悬空的键
+            frame.key = null;
+            frame.expect = Expect.KEY;
+        } else {
+            frame.expect = Expect.VALUE;
+        }
+    }
+
+    private void onColon() {
+        Frame frame = top();
+        if (frame.isObject() && frame.expect == Expect.COLON) {
+            frame.expect = Expect.VALUE;
+        }
+    }
+
+    private boolean expectsKey() {
+        Frame frame = top();
+        return frame.isObject() && (frame.expect == Expect.KEY || frame.expect == Expect.AFTER_VALUE);
+    }
+
+    private void startString(char closer) {
+        tokenIsKey = expectsKey();
+        stringCloser = closer;
+        token.setLength(0);
+        mode = Mode.STRING;
+    }
+
+    private void acceptString(char c) {
+        if (c == '\\') {
+            mode = Mode.ESCAPE;
+        } else if (c == stringCloser || (stringCloser == '”' && c == '"')) {
+            // 引号是否结束字符串要看其后的第一个非空白字符
+            pendingWhitespace.setLength(0);
+            mode = Mode.QUOTE_PENDING;
+        } else {
+            token.append(c);
+        }
+    }
+
+    private void acceptEscape(char c) {
+        mode = Mode.STRING;
+        switch (c) {
+            case 'n' -> token.append('\n');
+            case 't' -> token.append('\t');
+            case 'r' -> token.append('\r');
+            case 'b' -> token.append('\b');
+            case 'f' -> token.append('\f');
+            case 'u' -> {
+                unicode.setLength(0);
+                mode = Mode.UNICODE;
+            }
+            // \" \\ \/ 以及无效的转义都保留字符本身
+            default -> token.append(c);
+        }
+    }
+
+    private void acceptUnicode(char c) {
+        if (Character.digit(c, 16) < 0) {
+            token.append("\\u").append(unicode);
+            mode = Mode.STRING;
+            acceptString(c);
+            return;
+        }
+        unicode.append(c);
+        if (unicode.length() == 4) {
+            token.append((char) Integer.parseInt(unicode.toString(), 16));
+            mode = Mode.STRING;
+        }
+    }
+
+    private void acceptAfterQuote(char c) {
+        if (Character.isWhitespace(c)) {
+            pendingWhitespace.append(c);
+            return;
+        }
+        if (isStringTerminator(c)) {
+            completeString();
+            mode = Mode.NORMAL;
+            acceptStructural(c);
+            return;
+        }
+        mode = Mode.STRING;
+        if (!isTimeTypo(c)) {
+            // 字符串内未转义的引号，作为普通字符保留
+            token.append(stringCloser == '”' ? '"' : stringCloser);
+        }
+        token.append(pendingWhitespace);
+        acceptString(c);
+    }
+
+    private boolean isStringTerminator(char c) {
+        if (tokenIsKey) {
+            // 键名中不会出现引号：其后紧跟值（缺少冒号）时同样视为结束
+            return c == ':' || c == '：' || c == ',' || c == '}' || c == ']'
+                    || c == '"' || c == '“' || c == '{' || c == '[';
+        }
+        return c == ',' || c == '}' || c == ']' || c == ':'
+                // 中文引号包裹的值通常也用中文逗号分隔
+                || (stringCloser == '”' && c == '，')
+                // 空白（含换行）后紧跟新的字符串：缺少逗号的下一个字段或数组元素
+                || (pendingWhitespace.length() > 0 && (c == '"' || c == '“' || c == '\''));
+    }
+
+    /**
+     * 19:"00 这类时间笔误：引号夹在 "数字:" 与数字之间时直接丢弃
+     */
+    private boolean isTimeTypo(char next) {
+        int len = token.length();
+        return pendingWhitespace.length() == 0 && Character.isDigit(next)
+                && len >= 2 && token.charAt(len - 1) == ':' && Character.isDigit(token.charAt(len - 2));
+    }
+
+    private void completeString() {
+        String text = token.toString();
+        token.setLength(0);
+        Frame frame = top();
+        if (frame == null) {
+            return;
+        }
+        if (tokenIsKey && frame.isObject()) {
+            frame.key = text;
+            frame.expect = Expect.COLON;
+        } else {
+            addValue(NODES.textNode(text));
+        }
+    }
+
+    private void acceptScalar(char c) {
+        boolean end = c == ',' || c == '，' || c == '}' || c == ']' || c == '{' || c == '['
+                || c == '"' || c == '\n' || c == '\r'
+                || (tokenIsKey && (c == ':' || c == '：' || Character.isWhitespace(c)));
+        if (!end) {
+            token.append(c);
+            return;
+        }
+        completeScalar();
+        mode = Mode.NORMAL;
+        acceptStructural(c);
+    }
+
+    private void completeScalar() {
+        String text = token.toString().trim();
+        token.setLength(0);
+        Frame frame = top();
+        if (frame == null || text.isEmpty()) {
+            return;
+        }
+        if (tokenIsKey && frame.isObject()) {
+            frame.key = text;
+            frame.expect = Expect.COLON;
+            return;
+        }
+        addValue(toScalarNode(text));
+    }
+
+    private static JsonNode toScalarNode(String text) {
+        switch (text) {
+            case "true":
+                return NODES.booleanNode(true);
+            case "false":
+                return NODES.booleanNode(false);
+            case "null":
+                return NODES.nullNode();
+            default:
+                break;
+        }
+        char first = text.charAt(0);
+        if (first == '-' || Character.isDigit(first)) {
+            try {
+                if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+                    long value = Long.parseLong(text);
+                    return value == (int) value ? NODES.numberNode((int) value) : NODES.numberNode(value);
+                }
+                return NODES.numberNode(Double.parseDouble(text));
+            } catch (NumberFormatException e) {
+                // 不是数字（如 08:00-10:00），按文本处理
+            }
+        }
+        return NODES.textNode(text);
+    }
+
+    private void addValue(JsonNode value) {
+        Frame frame = top();
+        if (frame.isObject()) {
+            // 缺少键的值无法挂载，直接丢弃；缺少冒号（"key" "value"）时照常赋值
+            if (frame.key != null && (frame.expect == Expect.VALUE || frame.expect == Expect.COLON)) {
+                ((ObjectNode) frame.node).set(frame.key, value);
+            }
+            frame.key = null;
+            frame.expect = Expect.AFTER_VALUE;
+        } else {
+            ((ArrayNode) frame.node).add(value);
+            frame.expect = Expect.AFTER_VALUE;
+        }
+    }
+
+    private Frame top() {
+        return stack.isEmpty() ? null : stack.get(stack.size() - 1);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.culturalxinjiang.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 浏览量写后合并
+ * <p>
+ * 详情页的每次访问只在内存中为对应 ID 的 {@link LongAdder} 加一，不再读取并保存整个实体。
+ * 后台线程每隔 app.views.flush-seconds 秒把累计的增量用
+ * {@code UPDATE ... SET views = views + ? WHERE id = ?} 批量写回，写入失败时增量放回计数器，
+ * 下次继续写入；应用关闭前再写一次。进程异常退出时最多丢失一个周期的浏览量。
+ * <p>
+ * 实体的 views 字段不随保存回写，整行保存不会覆盖已写回的增量。计数不加锁，同一热门内容的并发浏览
+ * 不会互相等待。写回时本周期没有新增浏览的计数器用 {@code remove(id, adder)} 移除，移除前后仍落到旧计数器上的
+ * 浏览再转入新的计数器。
+ */
+@Slf4j
+@Service
+public class ViewCounterService {
+
+    public enum Target {
+        CULTURE("culture_resources"),
+        HERITAGE("heritage_items"),
+        POST("community_posts"),
+        ROUTE("routes");
+
+        private final String table;
+
+        Target(String table) {
+            this.table = table;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Target, Map<Long, LongAdder>> counters = new EnumMap<>(Target.class);
+    private final ScheduledThreadPoolExecutor flusher;
+    private final Counter flushedCounter;
+    private final Counter failureCounter;
+
+    public ViewCounterService(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.views.flush-seconds:10}") long flushSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (Target target : Target.values()) {
+            counters.put(target, new ConcurrentHashMap<>());
+        }
+        this.flushedCounter = meterRegistry.counter("views.flushed.rows");
+        this.failureCounter = meterRegistry.counter("views.flush.failures");
+        this.flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "view-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, flushSeconds);
+        this.flusher.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdownFlusher() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * 记录一次浏览
+     */
+    public void increment(Target target, Long id) {
+        if (id != null) {
+            counters.get(target).computeIfAbsent(id, key -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 尚未写回数据库的浏览量，详情接口返回时加到数据库中的值上
+     */
+    public long pending(Target target, Long id) {
+        LongAdder adder = counters.get(target).get(id);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    synchronized void flush() {
+        for (Target target : Target.values()) {
+            Map<Long, LongAdder> targetCounters = counters.get(target);
+            List<Object[]> batch = new ArrayList<>();
+            for (Map.Entry<Long, LongAdder> entry : targetCounters.entrySet()) {
+                Long id = entry.getKey();
+                LongAdder adder = entry.getValue();
+                long delta = adder.sumThenReset();
+                if (delta == 0 && targetCounters.remove(id, adder)) {
+                    // 上个周期写回后没有新的浏览；移除期间仍在旧计数器上计数的浏览转入新计数器
+                    delta = adder.sumThenReset();
+                    if (delta != 0) {
+                        add(target, id, delta);
+                    }
+                    continue;
+                }
+                if (delta != 0) {
+                    batch.add(new Object[]{delta, id});
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                jdbcTemplate.batchUpdate("UPDATE " + target.table + " SET views = views + ? WHERE id = ?", batch);
+                flushedCounter.increment(batch.size());
+            } catch (Exception e) {
+                failureCounter.increment();
+                log.warn("浏览量写回失败（{}，{} 条），将在下个周期重试: {}", target.table, batch.size(), e.getMessage());
+                for (Object[] row : batch) {
+                    add(target, (Long) row[1], (Long) row[0]);
+                }
+            }
+        }
+    }
+
+    private void add(Target target, Long id, long delta) {
+        counters.get(target).computeIfAbsent(id, key -> new LongAdder()).add(delta);
+    }
+}
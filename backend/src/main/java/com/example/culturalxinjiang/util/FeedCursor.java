@@ -0,0 +1,84 @@
+package com.example.culturalxinjiang.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页（keyset pagination）的位置
+ * <p>
+ * 由排序键（发布时间或分数）与 ID 组成，ID 用于区分排序键相同的记录。对外以 URL 安全的
+ * Base64 字符串传递，客户端只需原样带回，不需要理解其内容。
+ *
+ * @param key 排序键的字符串形式
+ */
+public record FeedCursor(String key, long id) {
+
+    /**
+     * 降序分页的首页位置：排在任何记录之前
+     */
+    public static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    /**
+     * 升序分页的首页位置：排在任何记录之前
+     */
+    public static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * 信息流每页条数上限
+     */
+    public static final int MAX_PAGE_SIZE = 50;
+
+    /**
+     * 规范化每页条数：为空或小于 1 时取 10，超过上限时取上限
+     */
+    public static int pageSize(Integer size) {
+        return size == null || size < 1 ? 10 : Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    public static FeedCursor of(LocalDateTime time, Long id) {
+        return new FeedCursor(time.toString(), id);
+    }
+
+    public static FeedCursor of(double score, Long id) {
+        return new FeedCursor(Double.toString(score), id);
+    }
+
+    public LocalDateTime time() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("分页游标无效");
+        }
+    }
+
+    public double score() {
+        try {
+            return Double.parseDouble(key);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("分页游标无效");
+        }
+    }
+
+    public String encode() {
+        String raw = key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 游标为空时返回 null，表示从首页开始
+     */
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new FeedCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("分页游标无效");
+        }
+    }
+}
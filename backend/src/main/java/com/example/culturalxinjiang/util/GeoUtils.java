@@ -0,0 +1,28 @@
+package com.example.culturalxinjiang.util;
+
+/**
+ * 地理计算工具类
+ */
+public final class GeoUtils {
+
+    private static final double EARTH_RADIUS_KM = 6371.0; // 地球半径（公里）
+
+    private GeoUtils() {
+    }
+
+    /**
+     * 使用 Haversine 公式计算两点之间的距离（单位：公里）
+     */
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLng / 2) * Math.sin(dLng / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+}
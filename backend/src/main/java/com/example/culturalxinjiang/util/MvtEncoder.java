@@ -0,0 +1,189 @@
+package com.example.culturalxinjiang.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapbox Vector Tile（MVT 2.1）编码工具类
+ * <p>
+ * 仅支持点要素，直接按 protobuf 线格式写出，不依赖 protobuf 运行库。
+ * 坐标为瓦片内坐标（0 ~ extent，原点在左上角），允许超出范围以表示缓冲区内的要素。
+ */
+public final class MvtEncoder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    /**
+     * 获取或创建图层，图层按创建顺序写出
+     */
+    public Layer layer(String name) {
+        return layers.computeIfAbsent(name, key -> new Layer(key, DEFAULT_EXTENT));
+    }
+
+    public byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (Layer layer : layers.values()) {
+            if (!layer.features.isEmpty()) {
+                tile.writeBytes(3, layer.encode());
+            }
+        }
+        return tile.toByteArray();
+    }
+
+    /**
+     * 图层：键与值在图层内去重，要素通过下标引用
+     */
+    public static final class Layer {
+        private final String name;
+        private final int extent;
+        private final List<byte[]> features = new ArrayList<>();
+        private final Map<String, Integer> keys = new LinkedHashMap<>();
+        private final Map<Object, Integer> values = new LinkedHashMap<>();
+
+        private Layer(String name, int extent) {
+            this.name = name;
+            this.extent = extent;
+        }
+
+        public int getExtent() {
+            return extent;
+        }
+
+        /**
+         * 添加点要素
+         *
+         * @param id         要素 ID，为 null 时不写出
+         * @param properties 属性值支持 String、Integer、Long、Double、Float、Boolean，null 值忽略
+         */
+        public Layer addPoint(Long id, int x, int y, Map<String, ?> properties) {
+            ProtoWriter feature = new ProtoWriter();
+            if (id != null && id >= 0) {
+                feature.writeVarint(1, id);
+            }
+            ProtoWriter tags = new ProtoWriter();
+            if (properties != null) {
+                properties.forEach((key, value) -> {
+                    if (key != null && value != null) {
+                        tags.writeRawVarint(keys.computeIfAbsent(key, ignored -> keys.size()));
+                        tags.writeRawVarint(values.computeIfAbsent(normalize(value), ignored -> values.size()));
+                    }
+                });
+            }
+            if (tags.size() > 0) {
+                feature.writeBytes(2, tags.toByteArray());
+            }
+            feature.writeVarint(3, 1); // GeomType.POINT
+            ProtoWriter geometry = new ProtoWriter();
+            geometry.writeRawVarint(command(1, 1)); // MoveTo，1 个点
+            geometry.writeRawVarint(zigZag(x));
+            geometry.writeRawVarint(zigZag(y));
+            feature.writeBytes(4, geometry.toByteArray());
+            features.add(feature.toByteArray());
+            return this;
+        }
+
+        private byte[] encode() {
+            ProtoWriter layer = new ProtoWriter();
+            layer.writeVarint(15, 2); // version
+            layer.writeString(1, name);
+            for (byte[] feature : features) {
+                layer.writeBytes(2, feature);
+            }
+            for (String key : keys.keySet()) {
+                layer.writeString(3, key);
+            }
+            for (Object value : values.keySet()) {
+                layer.writeBytes(4, encodeValue(value));
+            }
+            layer.writeVarint(5, extent);
+            return layer.toByteArray();
+        }
+
+        private static Object normalize(Object value) {
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return ((Number) value).longValue();
+            }
+            if (value instanceof Float) {
+                return ((Float) value).doubleValue();
+            }
+            if (value instanceof String || value instanceof Long || value instanceof Double || value instanceof Boolean) {
+                return value;
+            }
+            return value.toString();
+        }
+
+        private static byte[] encodeValue(Object value) {
+            ProtoWriter writer = new ProtoWriter();
+            if (value instanceof String text) {
+                writer.writeString(1, text);
+            } else if (value instanceof Double number) {
+                writer.writeDouble(3, number);
+            } else if (value instanceof Long number) {
+                writer.writeVarint(6, zigZag(number)); // sint_value
+            } else if (value instanceof Boolean flag) {
+                writer.writeVarint(7, flag ? 1 : 0);
+            }
+            return writer.toByteArray();
+        }
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * 最小的 protobuf 写入器：varint、64 位定长与长度前缀字段
+     */
+    private static final class ProtoWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeVarint(int field, long value) {
+            writeRawVarint(((long) field << 3));
+            writeRawVarint(value);
+        }
+
+        void writeDouble(int field, double value) {
+            writeRawVarint(((long) field << 3) | 1);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeString(int field, String value) {
+            writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeBytes(int field, byte[] value) {
+            writeRawVarint(((long) field << 3) | 2);
+            writeRawVarint(value.length);
+            out.writeBytes(value);
+        }
+
+        void writeRawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        int size() {
+            return out.size();
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
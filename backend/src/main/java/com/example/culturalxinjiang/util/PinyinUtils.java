@@ -0,0 +1,103 @@
+package com.example.culturalxinjiang.util;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * 汉字拼音首字母工具类
+ * <p>
+ * GB2312 一级汉字（16 ~ 55 区，共 3755 个）按拼音排序，因此只需各声母在编码表中的起始位置
+ * 即可二分得到首字母，不依赖拼音词库。多音字取编码表中的读音，二级汉字（按部首排序）与其他
+ * 不在 GB2312 中的字符无法取得首字母。
+ */
+public final class PinyinUtils {
+
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    /**
+     * 各首字母在 GB2312 中第一个汉字的编码（高字节 × 256 + 低字节），与 LETTERS 一一对应
+     */
+    private static final int[] BOUNDARIES = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7,
+            0xBFA6, 0xC0AC, 0xC2E8, 0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6,
+            0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1
+    };
+    private static final char[] LETTERS = "abcdefghjklmnopqrstwxyz".toCharArray();
+    private static final int LEVEL_ONE_END = 0xD7FA;
+
+    private PinyinUtils() {
+    }
+
+    /**
+     * 取单个汉字的拼音首字母（小写），无法取得时返回 0
+     */
+    public static char initialOf(char ch) {
+        if (ch < 0x4E00 || ch > 0x9FFF) {
+            return 0;
+        }
+        byte[] bytes = String.valueOf(ch).getBytes(GB2312);
+        if (bytes.length != 2) {
+            return 0;
+        }
+        int code = (bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF);
+        if (code < BOUNDARIES[0] || code > LEVEL_ONE_END) {
+            return 0;
+        }
+        int low = 0;
+        int high = BOUNDARIES.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (BOUNDARIES[mid] <= code) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return LETTERS[low];
+    }
+
+    /**
+     * 将文本转换为首字母串：汉字取拼音首字母，字母数字转为小写保留，其余字符忽略
+     * <p>
+     * 如"喀什古城"返回 "ksgc"。文本中有无法取得首字母的汉字时返回 null，
+     * 避免生成与原文对不上的缩写。
+     */
+    public static String toInitials(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder initials = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                if (Character.isLetterOrDigit(ch)) {
+                    initials.append(Character.toLowerCase(ch));
+                }
+                continue;
+            }
+            if (Character.isIdeographic(ch)) {
+                char initial = initialOf(ch);
+                if (initial == 0) {
+                    return null;
+                }
+                initials.append(initial);
+            }
+        }
+        return initials.isEmpty() ? null : initials.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 文本中是否含有汉字
+     */
+    public static boolean containsChinese(String text) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isIdeographic(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.culturalxinjiang.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 站内搜索分词工具类
+ * <p>
+ * 中文（CJK）连续片段切分为二元与三元 n-gram（单字片段保留单字），
+ * 字母与数字连续片段作为一个词并转为小写，其余字符视为分隔符。
+ * 不依赖词典，新增的地名、非遗项目名无需维护词库即可检索。
+ */
+public final class SearchTokenizer {
+
+    public static final int MIN_PREFIX_LENGTH = 2;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 索引用分词：返回全部词元（含重复，用于统计词频）。CJK 片段额外输出单字，支持单字查询
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        forEachRun(text, (run, cjk) -> {
+            if (!cjk) {
+                tokens.add(run);
+                return;
+            }
+            int[] chars = run.codePoints().toArray();
+            for (int i = 0; i < chars.length; i++) {
+                tokens.add(new String(chars, i, 1));
+                if (i + 2 <= chars.length) {
+                    tokens.add(new String(chars, i, 2));
+                }
+                if (i + 3 <= chars.length) {
+                    tokens.add(new String(chars, i, 3));
+                }
+            }
+        });
+        return tokens;
+    }
+
+    /**
+     * 查询用分词
+     *
+     * @return required 为文档必须全部包含的词元（CJK 二元组或单字片段、字母数字词），
+     * scoring 为参与打分的全部词元（另含三元组，使相邻匹配得分更高），均已去重；
+     * prefix 为最后一个含字母的拉丁词（至少 {@value #MIN_PREFIX_LENGTH} 个字符），
+     * 检索时按前缀匹配（如 kash 匹配 kashgar），没有时为 null
+     */
+    public static Query parseQuery(String text) {
+        Set<String> required = new LinkedHashSet<>();
+        Set<String> scoring = new LinkedHashSet<>();
+        String[] prefix = new String[1];
+        forEachRun(text, (run, cjk) -> {
+            if (!cjk) {
+                required.add(run);
+                scoring.add(run);
+                if (run.length() >= MIN_PREFIX_LENGTH && run.codePoints().anyMatch(Character::isLetter)) {
+                    prefix[0] = run;
+                }
+                return;
+            }
+            int[] chars = run.codePoints().toArray();
+            if (chars.length == 1) {
+                required.add(run);
+                scoring.add(run);
+                return;
+            }
+            for (int i = 0; i + 2 <= chars.length; i++) {
+                String bigram = new String(chars, i, 2);
+                required.add(bigram);
+                scoring.add(bigram);
+                if (i + 3 <= chars.length) {
+                    scoring.add(new String(chars, i, 3));
+                }
+            }
+        });
+        return new Query(List.copyOf(required), List.copyOf(scoring), prefix[0]);
+    }
+
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void forEachRun(String text, RunConsumer consumer) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        StringBuilder run = new StringBuilder();
+        boolean runCjk = false;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean cjk = isCjk(codePoint);
+            boolean word = !cjk && Character.isLetterOrDigit(codePoint);
+            if ((!cjk && !word) || (run.length() > 0 && cjk != runCjk)) {
+                if (run.length() > 0) {
+                    consumer.accept(run.toString(), runCjk);
+                    run.setLength(0);
+                }
+            }
+            if (cjk || word) {
+                run.appendCodePoint(codePoint);
+                runCjk = cjk;
+            }
+        }
+        if (run.length() > 0) {
+            consumer.accept(run.toString(), runCjk);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RunConsumer {
+        void accept(String run, boolean cjk);
+    }
+
+    public record Query(List<String> required, List<String> scoring, String prefix) {
+        public boolean isEmpty() {
+            return required.isEmpty();
+        }
+    }
+}
@@ -209,6 +209,8 @@ CALL create_index_if_not_exists('events', 'idx_events_status', '(status)');
 CALL create_index_if_not_exists('events', 'idx_events_start_date', '(start_date)');
 CALL create_index_if_not_exists('events', 'idx_events_end_date', '(end_date)');
 CALL create_index_if_not_exists('events', 'idx_events_dates', '(start_date, end_date)');
+-- 活动流的游标分页
+CALL create_index_if_not_exists('events', 'idx_events_created_at', '(created_at, id)');
 
 -- =====================================================
 -- 6. 活动图片表 (event_images)
@@ -326,7 +328,8 @@ CALL create_index_if_not_exists('routes', 'idx_routes_theme', '(theme)');
 CALL create_index_if_not_exists('routes', 'idx_routes_user', '(user_id)');
 CALL create_index_if_not_exists('routes', 'idx_routes_views', '(views DESC)');
 CALL create_index_if_not_exists('routes', 'idx_routes_favorites', '(favorites DESC)');
-CALL create_index_if_not_exists('routes', 'idx_routes_created_at', '(created_at DESC)');
+-- 路线流的游标分页；已有数据库中该索引若为 (created_at DESC)，需先 DROP INDEX 后重新执行
+CALL create_index_if_not_exists('routes', 'idx_routes_created_at', '(created_at, id)');
 
 -- =====================================================
 -- 11. 路线行程项表 (itinerary_items)
@@ -424,6 +427,7 @@ CREATE TABLE IF NOT EXISTS community_posts (
     likes INTEGER NOT NULL DEFAULT 0,
     comments INTEGER NOT NULL DEFAULT 0,
     views INTEGER NOT NULL DEFAULT 0,
+    hot_score DOUBLE NOT NULL DEFAULT 0,
     status VARCHAR(20) NOT NULL DEFAULT 'pending',
     reject_reason TEXT,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -440,6 +444,9 @@ CALL create_index_if_not_exists('community_posts', 'idx_community_posts_likes',
 CALL create_index_if_not_exists('community_posts', 'idx_community_posts_comments', '(comments DESC)');
 CALL create_index_if_not_exists('community_posts', 'idx_community_posts_created_at', '(created_at DESC)');
 CALL create_index_if_not_exists('community_posts', 'idx_community_posts_status', '(status)');
+-- 热门与最新帖子流的游标分页
+CALL create_index_if_not_exists('community_posts', 'idx_community_posts_hot', '(status, hot_score, id)');
+CALL create_index_if_not_exists('community_posts', 'idx_community_posts_latest', '(status, created_at, id)');
 -- MySQL 全文搜索索引（可选，需要 InnoDB 5.6+）
 -- CREATE FULLTEXT INDEX idx_community_posts_title ON community_posts(title);
 
@@ -587,6 +594,19 @@ CALL create_index_if_not_exists('home_recommendations', 'idx_home_recommendation
 ALTER TABLE home_recommendations
     MODIFY COLUMN source ENUM('CULTURE_RESOURCE', 'COMMUNITY_POST', 'HERITAGE_ITEM') NOT NULL;
 
+-- =====================================================
+-- 24. 地图 POI 变更记录表 (map_poi_changes)
+-- =====================================================
+CREATE TABLE IF NOT EXISTS map_poi_changes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    resource_id BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='地图 POI 变更记录表（ID 即增量同步版本号）';
+
+-- 创建地图 POI 变更记录表索引
+CALL create_index_if_not_exists('map_poi_changes', 'idx_map_poi_changes_created_at', '(created_at)');
+
 -- =====================================================
 -- 创建更新时间触发器
 -- =====================================================
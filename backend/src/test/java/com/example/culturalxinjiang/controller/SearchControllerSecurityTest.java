@@ -0,0 +1,73 @@
+package com.example.culturalxinjiang.controller;
+
+import com.example.culturalxinjiang.dto.response.PageResponse;
+import com.example.culturalxinjiang.dto.response.SuggestionResponse;
+import com.example.culturalxinjiang.security.JwtAuthenticationFilter;
+import com.example.culturalxinjiang.security.JwtTokenProvider;
+import com.example.culturalxinjiang.security.SecurityConfig;
+import com.example.culturalxinjiang.service.AutocompleteService;
+import com.example.culturalxinjiang.service.FederatedSearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.mapping.JpaMetamodelMappingContext;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 搜索接口对未登录用户开放：使用实际的安全配置，不携带令牌访问
+ */
+@WebMvcTest(SearchController.class)
+@Import({SecurityConfig.class, JwtAuthenticationFilter.class})
+class SearchControllerSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FederatedSearchService federatedSearchService;
+
+    @MockBean
+    private AutocompleteService autocompleteService;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
+    // 启动类上的 @EnableJpaAuditing 需要
+    @MockBean
+    private JpaMetamodelMappingContext jpaMetamodelMappingContext;
+
+    @Test
+    void anonymousUserCanSearch() throws Exception {
+        when(federatedSearchService.search(eq("喀什"), any(), anyInt(), anyInt()))
+                .thenReturn(PageResponse.of(List.of(), 0L, 1, 10));
+
+        mockMvc.perform(get("/search").param("keyword", "喀什"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void anonymousUserCanGetSuggestions() throws Exception {
+        when(autocompleteService.suggest("kash", null))
+                .thenReturn(List.of(SuggestionResponse.builder().text("喀什古城").type("culture").id(1L).build()));
+
+        mockMvc.perform(get("/search/suggest").param("q", "kash"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].text").value("喀什古城"));
+    }
+}
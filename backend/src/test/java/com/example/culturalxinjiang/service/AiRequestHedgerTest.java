@@ -0,0 +1,135 @@
+package com.example.culturalxinjiang.service;
+
+import com.example.culturalxinjiang.config.AiHttpClientConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用本地 HTTP 桩服务（可注入延迟）验证对冲请求：经由与生产相同的连接池与请求登记
+ */
+class AiRequestHedgerTest {
+
+    private static final long SLOW_DELAY_MS = 2000;
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private Map<String, String> urls;
+
+    @BeforeEach
+    void startStubServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow", exchange -> respond(exchange, "slow", SLOW_DELAY_MS));
+        server.createContext("/fast", exchange -> respond(exchange, "fast", 0));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        urls = Map.of("deepseek", base + "/slow", "openai", base + "/fast");
+
+        AiHttpClientConfig config = new AiHttpClientConfig();
+        ReflectionTestUtils.setField(config, "deepseekApiUrl", urls.get("deepseek"));
+        ReflectionTestUtils.setField(config, "openaiApiUrl", urls.get("openai"));
+        ReflectionTestUtils.setField(config, "deepseekMaxConnections", 4);
+        ReflectionTestUtils.setField(config, "openaiMaxConnections", 4);
+        ReflectionTestUtils.setField(config, "connectTimeout", 1000L);
+        ReflectionTestUtils.setField(config, "readTimeout", 10_000L);
+        ReflectionTestUtils.setField(config, "poolWaitTimeout", 1000L);
+        ReflectionTestUtils.setField(config, "idleTimeoutSeconds", 60L);
+        httpClient = config.aiHttpClient(config.aiConnectionManager());
+        restTemplate = config.aiRestTemplate(httpClient);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopStubServer() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void firesHedgeAndAbortsSlowPrimary() throws Exception {
+        AiRequestHedger hedger = newHedger(4);
+        CountDownLatch primaryAborted = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        String result = hedger.execute("deepseek", "openai", AiProviderGuard.Operation.ROUTE, 5000, call(primaryAborted));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("fast", result);
+        assertTrue(elapsedMs < SLOW_DELAY_MS, "应由对冲请求先返回，实际耗时 " + elapsedMs + " 毫秒");
+        assertEquals(1.0, meterRegistry.counter("ai.hedge.fired").count());
+        assertEquals(1.0, meterRegistry.counter("ai.hedge.wins", "provider", "openai", "hedged", "true").count());
+        // 落败的主请求被中止，而不是等桩服务在延迟后返回
+        assertTrue(primaryAborted.await(SLOW_DELAY_MS / 2, TimeUnit.MILLISECONDS), "落败的请求未被中止");
+        hedger.shutdownExecutor();
+    }
+
+    @Test
+    void skipsHedgeWhenThreadsExhausted() {
+        AiRequestHedger hedger = newHedger(1);
+
+        String result = hedger.execute("deepseek", "openai", AiProviderGuard.Operation.ROUTE, 5000, call(new CountDownLatch(1)));
+
+        assertEquals("slow", result);
+        assertEquals(0.0, meterRegistry.counter("ai.hedge.fired").count());
+        assertEquals(1.0, meterRegistry.counter("ai.hedge.skipped").count());
+        hedger.shutdownExecutor();
+    }
+
+    private AiRequestHedger newHedger(int maxThreads) {
+        AiProviderGuard guard = new AiProviderGuard(meterRegistry);
+        return new AiRequestHedger(guard, meterRegistry, true, 0.95, 200, 50, 1000, maxThreads);
+    }
+
+    private Function<String, String> call(CountDownLatch primaryAborted) {
+        return provider -> {
+            try {
+                return restTemplate.getForObject(urls.get(provider), String.class);
+            } catch (RuntimeException e) {
+                if ("deepseek".equals(provider)) {
+                    primaryAborted.countDown();
+                }
+                throw e;
+            }
+        };
+    }
+
+    private static void respond(HttpExchange exchange, String body, long delayMs) throws IOException {
+        try {
+            Thread.sleep(delayMs);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // 客户端已中止请求
+        } finally {
+            exchange.close();
+        }
+    }
+}
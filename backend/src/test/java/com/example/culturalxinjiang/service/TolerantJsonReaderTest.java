@@ -0,0 +1,87 @@
+package com.example.culturalxinjiang.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TolerantJsonReaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static Stream<Arguments> repairCases() {
+        return Stream.of(
+                // 合法 JSON 原样解析
+                Arguments.of("合法对象", "{\"a\":1,\"b\":[true,null,\"x\"]}", "{\"a\":1,\"b\":[true,null,\"x\"]}"),
+                // 多余的逗号
+                Arguments.of("对象末尾逗号", "{\"a\":1,}", "{\"a\":1}"),
+                Arguments.of("数组末尾逗号", "{\"a\":[1,2,],}", "{\"a\":[1,2]}"),
+                Arguments.of("连续逗号", "{\"a\":1,,\"b\":2}", "{\"a\":1,\"b\":2}"),
+                // 单引号与转义
+                Arguments.of("单引号字符串", "{'a':'b'}", "{\"a\":\"b\"}"),
+                Arguments.of("单引号内转义单引号", "{'a':'it\\'s'}", "{\"a\":\"it's\"}"),
+                Arguments.of("单引号内转义换行", "{'a':'x\\ny'}", "{\"a\":\"x\\ny\"}"),
+                Arguments.of("单引号内转义反斜杠", "{'a':'c:\\\\dir'}", "{\"a\":\"c:\\\\dir\"}"),
+                Arguments.of("单引号内双引号", "{'a':'say \"hi\"'}", "{\"a\":\"say \\\"hi\\\"\"}"),
+                // 被截断的输出
+                Arguments.of("截断在字符串中", "{\"a\":\"hel", "{\"a\":\"hel\"}"),
+                Arguments.of("截断在数组中", "{\"a\":[1,2", "{\"a\":[1,2]}"),
+                Arguments.of("截断在嵌套对象中", "{\"a\":{\"b\":1,\"c\":{\"d\":\"x", "{\"a\":{\"b\":1,\"c\":{\"d\":\"x\"}}}"),
+                Arguments.of("截断在数字中", "{\"a\":12", "{\"a\":12}"),
+                Arguments.of("截断在悬空的键后", "{\"a\":1,\"b\":", "{\"a\":1}"),
+                // 代码块围栏与说明文字
+                Arguments.of("json 代码块", "```json\n{\"a\":1}\n```", "{\"a\":1}"),
+                Arguments.of("代码块前后有说明", "以下是路线：\n```\n{\"a\":\"b\"}\n```\n祝旅途愉快", "{\"a\":\"b\"}"),
+                // 缺少逗号
+                Arguments.of("同一行字段缺少逗号", "{\"a\":\"x\" \"b\":\"y\"}", "{\"a\":\"x\",\"b\":\"y\"}"),
+                Arguments.of("换行处字段缺少逗号", "{\"a\":\"x\"\n\"b\":\"y\"}", "{\"a\":\"x\",\"b\":\"y\"}"),
+                Arguments.of("数字后缺少逗号", "{\"a\":1 \"b\":2}", "{\"a\":1,\"b\":2}"),
+                Arguments.of("数组元素缺少逗号", "{\"a\":[\"x\" \"y\"]}", "{\"a\":[\"x\",\"y\"]}"),
+                Arguments.of("对象元素缺少逗号", "{\"a\":[{\"b\":1} {\"b\":2}]}", "{\"a\":[{\"b\":1},{\"b\":2}]}"),
+                // 其他常见笔误
+                Arguments.of("字符串内未转义的引号", "{\"a\":\"say \"hi\" now\"}", "{\"a\":\"say \\\"hi\\\" now\"}"),
+                Arguments.of("时间笔误", "{\"t\":\"19:\"00\"}", "{\"t\":\"19:00\"}"),
+                Arguments.of("中文标点", "{“a”：“b”，“c”：1}", "{\"a\":\"b\",\"c\":1}"),
+                Arguments.of("未加引号的键", "{a: 1, b: \"x\"}", "{\"a\":1,\"b\":\"x\"}")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repairCases")
+    void repairsCommonModelErrors(String name, String input, String expected) throws Exception {
+        assertEquals(MAPPER.readTree(expected), TolerantJsonReader.parse(input));
+    }
+
+    @Test
+    void returnsNullWithoutObject() {
+        assertNull(TolerantJsonReader.parse("抱歉，无法生成路线"));
+        assertNull(TolerantJsonReader.parse(null));
+    }
+
+    @Test
+    void emitsEachItineraryDayAsItCloses() {
+        List<Integer> days = new ArrayList<>();
+        TolerantJsonReader reader = new TolerantJsonReader(day -> days.add(day.path("day").asInt()));
+        String content = "{\"title\":\"t\",\"itinerary\":[{\"day\":1,\"items\":[]},{\"day\":2,\"items\":[]},{\"day\":3,";
+        // 按小块喂入，模拟流式增量
+        for (int i = 0; i < content.length(); i += 7) {
+            reader.feed(content.substring(i, Math.min(content.length(), i + 7)));
+        }
+        JsonNode root = reader.finish();
+
+        // 被截断的第 3 天保留在结果中，但不触发回调
+        assertEquals(List.of(1, 2), days);
+        assertEquals(3, root.path("itinerary").size());
+        assertEquals(3, ((ObjectNode) root.path("itinerary").get(2)).path("day").asInt());
+    }
+}